@@ -0,0 +1,128 @@
+package com.comproOro.gestion.controller;
+
+import com.comproOro.gestion.model.dao.ClienteDAO;
+import com.comproOro.gestion.model.dao.ContratoDAO;
+import com.comproOro.gestion.model.dao.DatosBenchmark;
+import com.comproOro.gestion.model.dao.ProductoDAO;
+import com.comproOro.gestion.model.modelos.Cliente;
+import com.comproOro.gestion.model.modelos.Contrato;
+import com.comproOro.gestion.model.modelos.Producto;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Generación de documentos Word: el reemplazo de campos en un párrafo y el documento completo
+ * de un empeño (plantilla, campos, tabla de productos y escritura) en un directorio temporal.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WordGeneratorBenchmark {
+
+    private static final int FILAS = 10000;
+
+    /** Productos de la tabla en el benchmark de la tabla de productos, un contrato muy grande. */
+    private static final int PRODUCTOS_TABLA = 500;
+
+    private WordGeneratorController wordGenerator;
+    private Map<String, String> campos;
+    private XWPFDocument documentoVacio;
+    private Cliente cliente;
+    private Contrato contrato;
+    private ArrayList<Producto> productos;
+    private List<Producto> productosTabla;
+    private Path directorioSalida;
+    private int numeroDocumento;
+
+    @Setup(Level.Trial)
+    public void preparar() throws Exception {
+        DatosBenchmark.preparar(FILAS);
+        wordGenerator = new WordGeneratorController();
+        wordGenerator.setPorcentajeRenovacion(0.10);
+
+        campos = new HashMap<>();
+        campos.put("nombre", "María");
+        campos.put("apellidos", "García López");
+        campos.put("dni", "12345678Z");
+        campos.put("direccion", "Calle Mayor 1");
+        campos.put("telefono", "600000000");
+        campos.put("poblacion", "Madrid");
+        documentoVacio = new XWPFDocument();
+
+        contrato = new ContratoDAO().obtenerContratoPorId(DatosBenchmark.idContrato(0));
+        cliente = new ClienteDAO().obtenerClientePorDni(contrato.getDniCliente());
+        productos = new ProductoDAO().obtenerProductosPorContrato(contrato.getIdContrato());
+        directorioSalida = Files.createTempDirectory("benchmark-word");
+
+        productosTabla = new ArrayList<>();
+        for (int i = 0; i < PRODUCTOS_TABLA; i++) {
+            productosTabla.add(new Producto(i, 1, "Anillo oro 18k " + i, "Rayado", 3.5, 42.0, 147.0, contrato.getIdContrato()));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void limpiar() throws Exception {
+        documentoVacio.close();
+        try (Stream<Path> archivos = Files.walk(directorioSalida)) {
+            archivos.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Benchmark
+    public XWPFParagraph replaceInParagraph() {
+        XWPFParagraph parrafo = documentoVacio.createParagraph();
+        parrafo.createRun().setText("D./Dña. {{nombre}} {{apellidos}}, con DNI {{dni}}, domicilio en {{direccion}}, "
+                + "{{poblacion}} y teléfono {{telefono}}");
+        wordGenerator.replaceInParagraph(parrafo, campos);
+        documentoVacio.removeBodyElement(documentoVacio.getPosOfParagraph(parrafo));
+        return parrafo;
+    }
+
+    @Benchmark
+    public XWPFTable tablaProductos() throws Exception {
+        try (XWPFDocument documento = new XWPFDocument()) {
+            TablaProductos tabla = new TablaProductos(productosTabla);
+            XWPFParagraph parrafo = documento.createParagraph();
+            XWPFTable table = tabla.insertar(documento, parrafo.getCTP().newCursor());
+            tabla.insertarTotales(documento, parrafo.getCTP().newCursor(), 0.10);
+            return table;
+        }
+    }
+
+    @Benchmark
+    public File generarDocumento() throws Exception {
+        File salida = directorioSalida.resolve("contrato-" + (numeroDocumento++ % 16) + ".docx").toFile();
+        try (InputStream plantilla = getClass().getResourceAsStream("/plantillas/P-Empeno.docx")) {
+            wordGenerator.generarDocumento(cliente, plantilla, salida.getAbsolutePath(), contrato, productos);
+        }
+        return salida;
+    }
+}
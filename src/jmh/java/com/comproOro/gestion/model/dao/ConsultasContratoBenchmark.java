@@ -0,0 +1,68 @@
+package com.comproOro.gestion.model.dao;
+
+import com.comproOro.gestion.model.modelos.Producto;
+import com.comproOro.gestion.model.modelos.Renovacion;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Consultas que se lanzan al abrir la ficha de un contrato: sus productos y su última renovación.
+ * Cada llamada usa un contrato al azar para no medir solo la caché de páginas de SQLite.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConsultasContratoBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int filas;
+
+    private ProductoDAO productoDAO;
+    private RenovacionDAO renovacionDAO;
+
+    @Setup(Level.Trial)
+    public void preparar() throws SQLException {
+        DatosBenchmark.preparar(filas);
+        productoDAO = new ProductoDAO();
+        renovacionDAO = new RenovacionDAO();
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        renovacionDAO.close();
+    }
+
+    @Benchmark
+    public ArrayList<Producto> obtenerProductosPorContrato() {
+        return productoDAO.obtenerProductosPorContrato(DatosBenchmark.idContrato(contratoAlAzar()));
+    }
+
+    @Benchmark
+    public Renovacion obtenerUltRenovPorIdContrato() {
+        // Solo los empeños (índices pares) tienen renovaciones.
+        return renovacionDAO.obtenerUltRenovPorIdContrato(DatosBenchmark.idContrato(contratoAlAzar() & ~1));
+    }
+
+    private int contratoAlAzar() {
+        return ThreadLocalRandom.current().nextInt(filas);
+    }
+}
@@ -0,0 +1,88 @@
+package com.comproOro.gestion.model.dao;
+
+import com.comproOro.gestion.model.modelos.Contrato;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Date;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Alta de contratos y búsquedas de la vista de contratos sobre 10.000, 100.000 y 1.000.000 de filas.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ContratoDAOBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int filas;
+
+    private ContratoDAO contratoDAO;
+    private String dniBuscado;
+    private Date haceUnMes;
+    private Date hoy;
+
+    @Setup(Level.Trial)
+    public void preparar() throws SQLException {
+        DatosBenchmark.preparar(filas);
+        contratoDAO = new ContratoDAO();
+        dniBuscado = DatosBenchmark.dni(filas / DatosBenchmark.CONTRATOS_POR_CLIENTE / 2);
+        hoy = Date.valueOf(LocalDate.now());
+        haceUnMes = Date.valueOf(LocalDate.now().minusMonths(1));
+    }
+
+    @TearDown(Level.Trial)
+    public void limpiar() throws SQLException {
+        DatosBenchmark.borrarContratosNuevos();
+    }
+
+    @Benchmark
+    public boolean guardarContrato() {
+        Contrato contrato = new Contrato();
+        contrato.setDniCliente(dniBuscado);
+        contrato.setDetallesContrato("Benchmark");
+        contrato.setFechaInicio(hoy);
+        contrato.setFechaFinal(hoy);
+        contrato.setTipo("Empeno");
+        contrato.setImporte(250.0);
+        return contratoDAO.guardarContrato(contrato);
+    }
+
+    @Benchmark
+    public List<Contrato> buscarContratosPorDni() {
+        return contratoDAO.buscarContratos(dniBuscado, "Cualquiera");
+    }
+
+    @Benchmark
+    public List<Contrato> buscarContratosConFechas() {
+        return contratoDAO.buscarContratosConFechas("", "Empeno", haceUnMes, hoy);
+    }
+
+    @Benchmark
+    public List<Contrato> buscarContratosConFechaInicio() {
+        return contratoDAO.buscarContratosConFechaInicio(dniBuscado, "Empeno", haceUnMes);
+    }
+
+    @Benchmark
+    public List<Contrato> buscarContratosConFechaFinal() {
+        return contratoDAO.buscarContratosConFechaFinal(dniBuscado, "Empeno", hoy);
+    }
+}
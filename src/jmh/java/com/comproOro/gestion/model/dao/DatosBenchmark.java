@@ -0,0 +1,116 @@
+package com.comproOro.gestion.model.dao;
+
+import com.comproOro.gestion.model.modelos.Cliente;
+import com.comproOro.gestion.model.modelos.Contrato;
+import com.comproOro.gestion.model.modelos.Producto;
+import com.comproOro.gestion.model.modelos.Renovacion;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+
+/**
+ * Rellena la base de datos de los benchmarks con un número fijo de contratos. Cada contrato
+ * tiene dos productos, los empeños (uno de cada dos) una renovación, y hay un cliente por cada
+ * cinco contratos. Los datos son deterministas para que las mediciones sean comparables.
+ */
+public final class DatosBenchmark {
+
+    public static final int CONTRATOS_POR_CLIENTE = 5;
+
+    private DatosBenchmark() {
+    }
+
+    /**
+     * Deja exactamente {@code filas} contratos en la base de datos. Si ya los tiene no hace nada,
+     * de forma que los forks que usan el mismo tamaño no repiten la carga.
+     */
+    public static void preparar(int filas) throws SQLException {
+        // Los constructores crean las tablas e índices si la base de datos es nueva.
+        new ClienteDAO();
+        new ContratoDAO();
+        new ProductoDAO();
+        new RenovacionDAO().close();
+
+        if (contarContratos() == filas) {
+            return;
+        }
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("DELETE FROM renovaciones");
+            stmt.execute("DELETE FROM productos");
+            stmt.execute("DELETE FROM contratos");
+            stmt.execute("DELETE FROM clientes");
+        }
+
+        LocalDate hoy = LocalDate.now();
+        try (ImportacionDAO importacionDAO = new ImportacionDAO()) {
+            for (int i = 0; i < filas / CONTRATOS_POR_CLIENTE + 1; i++) {
+                importacionDAO.anadirCliente(new Cliente(dni(i), "Nombre" + i, "Apellido" + i,
+                        "Madrid", "600000000", "Calle " + i));
+            }
+            for (int i = 0; i < filas; i++) {
+                boolean empeno = i % 2 == 0;
+                LocalDate inicio = hoy.minusDays(i % 730);
+
+                Contrato contrato = new Contrato();
+                contrato.setIdContrato(idContrato(i));
+                contrato.setDniCliente(dni(i / CONTRATOS_POR_CLIENTE));
+                contrato.setDetallesContrato("Contrato de prueba " + i);
+                contrato.setFechaInicio(aDate(inicio));
+                contrato.setFechaFinal(empeno ? aDate(inicio.plusMonths(1)) : null);
+                contrato.setTipo(empeno ? "Empeno" : "Compra");
+                contrato.setImporte(100 + i % 900);
+                importacionDAO.anadirContrato(contrato);
+
+                importacionDAO.anadirProducto(new Producto(0, 1, "Anillo", "", 3.5, 40.0, 140.0, contrato.getIdContrato()));
+                importacionDAO.anadirProducto(new Producto(0, 2, "Cadena", "", 8.0, 40.0, 320.0, contrato.getIdContrato()));
+
+                if (empeno) {
+                    importacionDAO.anadirRenovacion(new Renovacion(0, contrato.getIdContrato(),
+                            inicio.plusMonths(1), inicio.plusMonths(2), 1, 46.0));
+                }
+            }
+        }
+    }
+
+    /**
+     * Id del contrato número {@code i}. Usa años pasados para no chocar con los que
+     * genera {@link ContratoDAO#guardarContrato}.
+     */
+    public static String idContrato(int i) {
+        return (i % 2 == 0 ? "E-" : "C-") + (1900 + i / 10000) + String.format("%04d", i % 10000);
+    }
+
+    /**
+     * Borra los contratos guardados durante un benchmark (los de años posteriores a los datos
+     * de prueba) para que el siguiente fork encuentre el mismo número de filas.
+     */
+    public static void borrarContratosNuevos() throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("DELETE FROM contratos WHERE SUBSTR(id_contrato, 3, 4) >= '2000'");
+        }
+    }
+
+    public static String dni(int i) {
+        return String.format("%08dB", i);
+    }
+
+    private static Date aDate(LocalDate fecha) {
+        return Date.from(fecha.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
+    private static int contarContratos() throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM contratos")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+}
@@ -1,34 +1,31 @@
 package com.comproOro.gestion;
 
 
-import com.comproOro.gestion.controller.Inicio;
+import com.comproOro.gestion.controller.ArranqueController;
+import com.comproOro.gestion.controller.BandejaDocumentosController;
+import com.comproOro.gestion.controller.Diagnostico;
+import com.comproOro.gestion.controller.NavegacionController;
 import javafx.application.Application;
-import javafx.fxml.FXMLLoader;
 import javafx.geometry.Rectangle2D;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
 import javafx.stage.Screen;
 import javafx.stage.Stage;
 
 public class MainApp extends Application {
 
     private Stage primaryStage;
+    private NavegacionController navegacion;
+    private final BandejaDocumentosController bandejaDocumentos = new BandejaDocumentosController();
 
     @Override
     public void start(Stage primaryStage) throws Exception {
         this.primaryStage = primaryStage;
-        showMainLayout();
+        this.navegacion = new NavegacionController(this);
+        Diagnostico.iniciar();
+        new ArranqueController(this).arrancar();
     }
 
     public void showMainLayout() throws Exception {
-        FXMLLoader loader = new FXMLLoader(getClass().getResource("/fxml/inicio.fxml"));
-        Parent root = loader.load();
-        Inicio controller = loader.getController();
-        controller.setMainApp(this);
-
-        Scene scene = new Scene(root);
-        primaryStage.setTitle("Main Application");
-        primaryStage.setScene(scene);
+        navegacion.mostrar(NavegacionController.INICIO, "Main Application");
         Rectangle2D screenBounds = Screen.getPrimary().getVisualBounds();
         primaryStage.setWidth(screenBounds.getWidth());
         primaryStage.setHeight(screenBounds.getHeight());
@@ -42,6 +39,14 @@ public class MainApp extends Application {
         return primaryStage;
     }
 
+    public NavegacionController getNavegacion() {
+        return navegacion;
+    }
+
+    public BandejaDocumentosController getBandejaDocumentos() {
+        return bandejaDocumentos;
+    }
+
     public static void main(String[] args) {
         launch(args);
     }
@@ -1,13 +1,15 @@
 package com.comproOro.gestion.controller;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import javafx.fxml.FXML;
 import javafx.scene.control.Label;
 import javafx.scene.control.TextArea;
 import javafx.scene.control.TextField;
 import javafx.stage.Stage;
+import com.comproOro.gestion.model.modelos.Dinero;
 import com.comproOro.gestion.model.modelos.Producto;
 
-import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.text.ParseException;
 import java.util.Locale;
@@ -18,6 +20,8 @@ import java.util.Locale;
  */
 public class AnadirProductoController {
 
+    private static final Logger LOGGER = LogManager.getLogger(AnadirProductoController.class);
+
 
     @FXML
     private TextField txtCantidad;
@@ -95,7 +99,7 @@ public class AnadirProductoController {
 
         int cantidad;
         double peso;
-        double importe;
+        long importe;
 
         try {
             cantidad = Integer.parseInt(cantidadText);
@@ -103,32 +107,30 @@ public class AnadirProductoController {
             NumberFormat format = NumberFormat.getInstance(Locale.getDefault());
 
             peso = format.parse(pesoText).doubleValue();
-            importe = format.parse(importeText).doubleValue();
+            importe = Dinero.deTexto(importeText);
         } catch (NumberFormatException e) {
             lblMensaje.setText("Por favor, introduce valores válidos para cantidad, peso e importe.");
-            System.err.println("Error de formato numérico: " + e.getMessage());
-            e.printStackTrace();
+            LOGGER.warn("Error de formato numérico: {}", e.getMessage());
             return;
         } catch (ParseException e) {
             lblMensaje.setText("Error al interpretar el formato numérico. Asegúrate de usar el separador decimal correcto.");
-            System.err.println("Error de formato numérico: " + e.getMessage());
-            e.printStackTrace();
+            LOGGER.warn("Error de formato numérico: {}", e.getMessage());
             return;
         } catch (Exception e) {
             lblMensaje.setText("Ocurrió un error inesperado: " + e.getMessage());
-            System.err.println("Error inesperado: " + e.getMessage());
-            e.printStackTrace();
+            LOGGER.error("Error inesperado", e);
             return;
         }
 
 
-        double precioGramo = importe / peso;
-        DecimalFormat df = new DecimalFormat("#.00");
-        String precioGramoFormateado = df.format(precioGramo);
-        double precioGramoRedondeado = Double.parseDouble(precioGramoFormateado.replace(",", "."));
-
+        if (peso <= 0) {
+            lblMensaje.setText("El peso debe ser mayor que cero.");
+            return;
+        }
 
-        Producto producto = new Producto(0, cantidad, descripcion, observaciones, peso, precioGramoRedondeado, importe, idContrato);
+        Producto producto = new Producto(0, cantidad, descripcion, observaciones, peso, 0, 0, idContrato);
+        producto.setImporteCentimos(importe);
+        producto.setPrecioGramoCentimos(Dinero.dividir(importe, peso));
 
 
         if (nuevoContratoController != null) {
@@ -1,19 +1,24 @@
 package com.comproOro.gestion.controller;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import com.comproOro.gestion.MainApp;
+import javafx.concurrent.Task;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
+import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
-import javafx.stage.Stage;
+import javafx.scene.control.ButtonType;
+import javafx.stage.DirectoryChooser;
 
+import java.io.File;
 import java.io.IOException;
 
 /**
  * Controlador para el área de datos, permite navegar a las vistas de clientes, contratos o volver al inicio.
  */
-public class AreaDatosController {
+public class AreaDatosController implements Pantalla {
+
+    private static final Logger LOGGER = LogManager.getLogger(AreaDatosController.class);
 
 
     @FXML
@@ -24,6 +29,14 @@ public class AreaDatosController {
     private Button consultarContratosButton;
 
 
+    @FXML
+    private Button informesButton;
+
+
+    @FXML
+    private Button importarButton;
+
+
     @FXML
     private Button btnCancelar;
 
@@ -32,64 +45,109 @@ public class AreaDatosController {
 
     /**
      * Método que se ejecuta al pulsar el botón para consultar clientes.
-     * Carga la ventana con la lista de clientes.
+     * Muestra la lista de clientes.
      */
     @FXML
     private void handleConsultarClientes() {
         try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/fxml/datos_clientes.fxml"));
-            Parent clienteListRoot = loader.load();
-
-            DatosClientesController datosClientesController = loader.getController();
-            if (datosClientesController != null) {
-                datosClientesController.setMainApp(mainApp);
-            }
-
-            Scene clienteListScene = new Scene(clienteListRoot);
-            Stage primaryStage = (Stage) consultarClientesButton.getScene().getWindow();
-            primaryStage.setScene(clienteListScene);
-            primaryStage.setTitle("Lista de Clientes");
-            primaryStage.setMaximized(true);
-            primaryStage.setMaximized(false); // Forzar restaurar tamaño si es necesario
-            primaryStage.show();
-
+            mainApp.getNavegacion().mostrar(NavegacionController.DATOS_CLIENTES, "Lista de Clientes");
         } catch (IOException e) {
-            e.printStackTrace();
+            LOGGER.error("Error al cargar la lista de clientes", e);
         }
     }
 
     /**
      * Método que se ejecuta al pulsar el botón para consultar contratos.
-     * Carga la ventana con la lista de contratos.
+     * Muestra la lista de contratos.
      */
     @FXML
     private void handleConsultarContratos() {
         try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/fxml/datos_contratos.fxml"));
-            Parent contratosListRoot = loader.load();
+            mainApp.getNavegacion().mostrar(NavegacionController.DATOS_CONTRATOS, "Lista de Contratos");
+        } catch (IOException e) {
+            LOGGER.error("Error al cargar la lista de contratos", e);
+        }
+    }
 
-            DatosContratosController contratosListController = loader.getController();
-            if (contratosListController != null) {
-                contratosListController.setMainApp(mainApp);
-            }
+    /**
+     * Método que se ejecuta al pulsar el botón de informes.
+     * Muestra los resúmenes diarios y mensuales.
+     */
+    @FXML
+    private void handleInformes() {
+        try {
+            mainApp.getNavegacion().mostrar(NavegacionController.INFORMES, "Informes");
+        } catch (IOException e) {
+            LOGGER.error("Error al cargar los informes", e);
+        }
+    }
 
-            Scene contratosListScene = new Scene(contratosListRoot);
-            Stage primaryStage = (Stage) consultarContratosButton.getScene().getWindow();
-            primaryStage.setScene(contratosListScene);
-            primaryStage.setTitle("Lista de Contratos");
-            primaryStage.setMaximized(true);
-            primaryStage.setMaximized(false);
-            primaryStage.show();
+    /**
+     * Método que se ejecuta al pulsar el botón de importar.
+     * Importa en segundo plano los archivos CSV de clientes, contratos, productos y renovaciones
+     * de la carpeta elegida y muestra cuántas filas se han importado y rechazado.
+     */
+    @FXML
+    private void handleImportar() {
+        DirectoryChooser directoryChooser = new DirectoryChooser();
+        directoryChooser.setTitle("Carpeta con los CSV a importar");
+        File carpeta = directoryChooser.showDialog(importarButton.getScene().getWindow());
+        if (carpeta == null) {
+            return;
+        }
 
-        } catch (IOException e) {
-            e.printStackTrace();
+        Alert confirmacion = new Alert(Alert.AlertType.CONFIRMATION);
+        confirmacion.setTitle("Confirmación");
+        confirmacion.setHeaderText("¿Deseas importar los registros de " + carpeta.getName() + "?");
+        confirmacion.setContentText("Se leerán los archivos clientes.csv, contratos.csv, productos.csv y renovaciones.csv.");
+        if (confirmacion.showAndWait().orElse(ButtonType.CANCEL) != ButtonType.OK) {
+            return;
         }
+
+        Task<ImportacionController.Resultado> tarea = new Task<ImportacionController.Resultado>() {
+            @Override
+            protected ImportacionController.Resultado call() throws Exception {
+                return new ImportacionController().importar(carpeta);
+            }
+        };
+
+        importarButton.setDisable(true);
+        tarea.setOnSucceeded(event -> {
+            importarButton.setDisable(false);
+            ImportacionController.Resultado resultado = tarea.getValue();
+            String mensaje = resultado.toString();
+            if (resultado.getArchivoRechazos() != null) {
+                mensaje += "\nLas filas rechazadas están en " + resultado.getArchivoRechazos().getAbsolutePath();
+            }
+            showAlert(Alert.AlertType.INFORMATION, "Importación completada", mensaje);
+        });
+        tarea.setOnFailed(event -> {
+            importarButton.setDisable(false);
+            LOGGER.error("Error al importar", tarea.getException());
+            showAlert(Alert.AlertType.ERROR, "Error al importar", tarea.getException().getMessage());
+        });
+
+        Thread hilo = new Thread(tarea, "importacion-csv");
+        hilo.setDaemon(true);
+        hilo.start();
+    }
+
+    /**
+     * Muestra una alerta con el tipo, título y mensaje indicados.
+     */
+    private void showAlert(Alert.AlertType alertType, String title, String message) {
+        Alert alert = new Alert(alertType);
+        alert.setTitle(title);
+        alert.setHeaderText(null);
+        alert.setContentText(message);
+        alert.showAndWait();
     }
 
     /**
      * Establece la referencia a la aplicación principal.
      * @param mainApp instancia de la clase principal MainApp
      */
+    @Override
     public void setMainApp(MainApp mainApp) {
         this.mainApp = mainApp;
     }
@@ -101,23 +159,9 @@ public class AreaDatosController {
     @FXML
     private void handleCancelar() {
         try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/fxml/inicio.fxml"));
-            Parent root = loader.load();
-
-            Inicio controller = loader.getController();
-            if (controller != null) {
-                controller.setMainApp(mainApp);
-            }
-
-            Stage stage = (Stage) btnCancelar.getScene().getWindow();
-            Scene scene = new Scene(root, stage.getWidth(), stage.getHeight());
-            stage.setScene(scene);
-
-            stage.setMaximized(true);
-            stage.setMaximized(false);
-            stage.show();
+            mainApp.getNavegacion().mostrar(NavegacionController.INICIO, "Main Application");
         } catch (IOException e) {
-            e.printStackTrace();
+            LOGGER.error("Error al volver al inicio", e);
         }
     }
 }
@@ -1,28 +1,27 @@
 package com.comproOro.gestion.controller;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import com.comproOro.gestion.MainApp;
 import com.comproOro.gestion.model.dao.ClienteDAO;
-import com.comproOro.gestion.model.dao.ContratoDAO;
 import com.comproOro.gestion.model.modelos.Cliente;
 import com.comproOro.gestion.model.modelos.Contrato;
+import com.comproOro.gestion.model.modelos.FichaCliente;
+import javafx.application.Platform;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
 import javafx.scene.control.*;
-import javafx.stage.Stage;
 
 import java.io.IOException;
 import java.util.List;
-import java.util.Objects;
-import java.util.stream.Collectors;
 
 /**
  * Controlador para el area de trabajo donde se ven los datos de  clientes y contratos.
  *
  */
-public class AreaTrabajoController {
+public class AreaTrabajoController implements Pantalla {
+
+    private static final Logger LOGGER = LogManager.getLogger(AreaTrabajoController.class);
 
     @FXML
     private Button btnCancelar;
@@ -56,19 +55,37 @@ public class AreaTrabajoController {
 
     private ClienteDAO clienteDAO;
 
+    private PrecargaClienteController precarga;
+
     private MainApp mainApp;
 
     /**
-     * Constructor que inicializa el DAO de clientes.
+     * Constructor que inicializa el DAO de clientes y la precarga de fichas.
      */
     public AreaTrabajoController() {
         this.clienteDAO = new ClienteDAO();
+        this.precarga = new PrecargaClienteController();
+    }
+
+    /**
+     * Método llamado automáticamente tras cargar el FXML.
+     * En cuanto el DNI escrito es válido se empieza a cargar su ficha en segundo plano.
+     */
+    @FXML
+    public void initialize() {
+        txtDni.textProperty().addListener((obs, anterior, nuevo) -> {
+            String dni = nuevo.trim();
+            if (esDniValido(dni)) {
+                precarga.precargar(dni);
+            }
+        });
     }
 
     /**
      * Establece la referencia a la aplicación principal.
      * @param mainApp instancia principal MainApp
      */
+    @Override
     public void setMainApp(MainApp mainApp) {
         this.mainApp = mainApp;
     }
@@ -100,6 +117,7 @@ public class AreaTrabajoController {
 
         boolean guardado = clienteDAO.guardarCliente(cliente);
         if (guardado) {
+            precarga.olvidar();
             lblMensaje.setText("Cliente guardado exitosamente.");
         } else {
             lblMensaje.setText("El DNI ya existe. No se puede duplicar.");
@@ -108,7 +126,8 @@ public class AreaTrabajoController {
 
     /**
      * Busca un cliente por DNI y muestra sus datos si lo encuentra.
-     * Habilita o deshabilita botones según existan contratos.
+     * Habilita o deshabilita botones según existan contratos. Si el DNI ya se había precargado
+     * mientras se escribía, los datos se muestran sin volver a consultar la base de datos.
      */
     @FXML
     private void handleSearch() {
@@ -119,7 +138,24 @@ public class AreaTrabajoController {
             return;
         }
 
-        Cliente cliente = clienteDAO.obtenerClientePorDni(dni);
+        precarga.obtener(dni)
+                .thenAcceptAsync(ficha -> {
+                    // Si el DNI ha cambiado mientras se cargaba, la ficha ya no corresponde
+                    if (dni.equals(txtDni.getText().trim())) {
+                        mostrarFicha(ficha);
+                    }
+                }, Platform::runLater)
+                .exceptionally(e -> {
+                    LOGGER.error("Error al buscar el cliente {}", dni, e);
+                    return null;
+                });
+    }
+
+    /**
+     * Muestra los datos del cliente de la ficha y habilita los botones según sus contratos.
+     */
+    private void mostrarFicha(FichaCliente ficha) {
+        Cliente cliente = ficha.getCliente();
         if (cliente != null) {
             txtNombre.setText(cliente.getNombre());
             txtApellido.setText(cliente.getApellido());
@@ -129,12 +165,7 @@ public class AreaTrabajoController {
             lblMensaje.setText("Cliente encontrado.");
             btnNuevoContrato.setDisable(false);
 
-            ContratoDAO contratoDAO = new ContratoDAO();
-            List<Contrato> contratosEmpeno = contratoDAO.obtenerContratosEmpenoPorDni(dni);
-
-            List<Contrato> contratosNoRescatados = contratosEmpeno.stream()
-                    .filter(contrato -> !Objects.equals(contrato.getRescatado(), "S"))
-                    .collect(Collectors.toList());
+            List<Contrato> contratosNoRescatados = ficha.getContratosActivos();
 
             if (contratosNoRescatados.isEmpty()) {
                 lblMensaje.setText("No se encontraron contratos de empeño no rescatados.");
@@ -161,18 +192,9 @@ public class AreaTrabajoController {
      */
     @FXML
     private void mostrarClientes() throws IOException {
-        FXMLLoader loader = new FXMLLoader(getClass().getResource("/fxml/cliente_mostrar.fxml"));
-        Parent clienteMostrarRoot = loader.load();
-
-        ClientesMostrarController controller = loader.getController();
-        controller.setMainApp(mainApp);
+        ClientesMostrarController controller = mainApp.getNavegacion()
+                .mostrar(NavegacionController.CLIENTES_MOSTRAR, "Mostrar Clientes");
         controller.setOrigenController(this);
-
-        Scene clienteMostrarScene = new Scene(clienteMostrarRoot);
-        mainApp.getPrimaryStage().setScene(clienteMostrarScene);
-        mainApp.getPrimaryStage().setTitle("Mostrar Clientes");
-        mainApp.getPrimaryStage().setMaximized(true);
-        mainApp.getPrimaryStage().setMaximized(false);
     }
 
     /**
@@ -185,21 +207,11 @@ public class AreaTrabajoController {
         String apellido = txtApellido.getText();
 
         try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/fxml/nuevo_contrato.fxml"));
-            Parent nuevoContratoRoot = loader.load();
-
-            NuevoContratoController nuevoContratoController = loader.getController();
+            NuevoContratoController nuevoContratoController = mainApp.getNavegacion()
+                    .mostrar(NavegacionController.NUEVO_CONTRATO, "Nuevo Contrato");
             nuevoContratoController.setClienteDatos(dni, nombre, apellido);
-            nuevoContratoController.setMainApp(mainApp);
-
-            Scene nuevoContratoScene = new Scene(nuevoContratoRoot);
-            mainApp.getPrimaryStage().setScene(nuevoContratoScene);
-            mainApp.getPrimaryStage().setTitle("Nuevo Contrato");
-            mainApp.getPrimaryStage().setMaximized(true);
-            mainApp.getPrimaryStage().setMaximized(false);
-
         } catch (IOException e) {
-            e.printStackTrace();
+            LOGGER.error("Error al cargar la vista de nuevo contrato", e);
             Dialog<ButtonType> dialog = new Dialog<>();
             dialog.setTitle("Error");
             dialog.setContentText("No se pudo cargar la vista del contrato.");
@@ -220,37 +232,57 @@ public class AreaTrabajoController {
             return;
         }
 
-        ContratoDAO contratoDAO = new ContratoDAO();
-        List<Contrato> contratosEmpeno = contratoDAO.obtenerContratosEmpenoPorDni(dni);
-
-        if (contratosEmpeno.isEmpty()) {
-            lblMensaje.setText("No se encontraron contratos de empeño para el DNI proporcionado.");
-        } else {
-            try {
-                FXMLLoader loader = new FXMLLoader(getClass().getResource("/fxml/selecionar_contrato.fxml"));
-                Parent renovarContratoRoot = loader.load();
-
-                SeleccionarContratoController seleccionarContratoController = loader.getController();
-
-                Cliente cliente = new Cliente(txtDni.getText(), txtNombre.getText(), txtApellido.getText(),
-                        txtPoblacion.getText(), txtTelefono.getText(), txtDireccion.getText());
+        // Los datos se leen antes de navegar, porque al salir se limpia el formulario
+        Cliente cliente = new Cliente(txtDni.getText(), txtNombre.getText(), txtApellido.getText(),
+                txtPoblacion.getText(), txtTelefono.getText(), txtDireccion.getText());
 
-                seleccionarContratoController.setDatosClienteYContratos(cliente, contratosEmpeno);
-                seleccionarContratoController.setMainApp(mainApp);
+        precarga.obtener(dni)
+                .thenAcceptAsync(ficha -> mostrarContratos(cliente, ficha), Platform::runLater)
+                .exceptionally(e -> {
+                    LOGGER.error("Error al cargar los contratos del cliente {}", dni, e);
+                    return null;
+                });
+    }
 
-                Scene renovarContratoScene = new Scene(renovarContratoRoot);
-                mainApp.getPrimaryStage().setScene(renovarContratoScene);
-                mainApp.getPrimaryStage().setTitle("Renovar Contrato");
-                mainApp.getPrimaryStage().setMaximized(true);
-                mainApp.getPrimaryStage().setMaximized(false);
+    /**
+     * Abre la selección de contratos con los contratos y renovaciones ya cargados en la ficha.
+     */
+    private void mostrarContratos(Cliente cliente, FichaCliente ficha) {
+        if (ficha.getContratosActivos().isEmpty()) {
+            lblMensaje.setText("No se encontraron contratos de empeño para el DNI proporcionado.");
+            return;
+        }
 
-            } catch (IOException e) {
-                e.printStackTrace();
-                lblMensaje.setText("Error al cargar la vista de renovación de contrato.");
-            }
+        try {
+            SeleccionarContratoController seleccionarContratoController = mainApp.getNavegacion()
+                    .mostrar(NavegacionController.SELECCIONAR_CONTRATO, "Renovar Contrato");
+            seleccionarContratoController.setDatosClienteYContratos(cliente, ficha.getContratosActivos(),
+                    ficha.getUltimasRenovaciones());
+        } catch (IOException e) {
+            LOGGER.error("Error al cargar la selección de contratos", e);
+            lblMensaje.setText("Error al cargar la vista de renovación de contrato.");
         }
     }
 
+    /**
+     * Vacía el formulario y desactiva los botones de contrato hasta la próxima búsqueda.
+     */
+    @Override
+    public void restablecer() {
+        txtDni.clear();
+        txtNombre.clear();
+        txtApellido.clear();
+        txtPoblacion.clear();
+        txtTelefono.clear();
+        txtDireccion.clear();
+        lblMensaje.setText("");
+        btnNuevoContrato.setDisable(true);
+        btnRenovarContrato.setDisable(true);
+
+        // Al volver, los contratos o renovaciones del cliente pueden haber cambiado
+        precarga.olvidar();
+    }
+
     /**
      * Valida que el DNI tenga un formato correcto y una letra válida.
      * Soporta formatos comunes de NIF/NIE.
@@ -289,28 +321,9 @@ public class AreaTrabajoController {
     @FXML
     private void handleCancelar() {
         try {
-
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/fxml/inicio.fxml"));
-            Parent root = loader.load();
-
-
-            Inicio controller = loader.getController();
-            controller.setMainApp(mainApp); // Establecer mainApp para el controlador de la vista cliente
-
-
-            Stage stage = (Stage) btnCancelar.getScene().getWindow();
-
-
-            Scene scene = new Scene(root, stage.getWidth(), stage.getHeight());
-            stage.setScene(scene);
-
-            stage.setMaximized(true);
-            stage.setMaximized(false);
-
-
-            stage.show();
+            mainApp.getNavegacion().mostrar(NavegacionController.INICIO, "Main Application");
         } catch (IOException e) {
-            e.printStackTrace();
+            LOGGER.error("Error al volver al inicio", e);
             lblMensaje.setText("Error al cargar la vista del cliente.");
         }
     }
@@ -0,0 +1,184 @@
+package com.comproOro.gestion.controller;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import com.comproOro.gestion.MainApp;
+import com.comproOro.gestion.model.dao.ArchivoDocumentosDAO;
+import com.comproOro.gestion.model.dao.BandejaDocumentosDAO;
+import com.comproOro.gestion.model.dao.CierreMensualDAO;
+import com.comproOro.gestion.model.dao.EsquemaDAO;
+import com.comproOro.gestion.model.dao.ClienteDAO;
+import com.comproOro.gestion.model.dao.ContratoDAO;
+import com.comproOro.gestion.model.dao.DatabaseConnection;
+import com.comproOro.gestion.model.dao.LibroRegistroDAO;
+import com.comproOro.gestion.model.dao.Metricas;
+import com.comproOro.gestion.model.dao.ProductoDAO;
+import com.comproOro.gestion.model.dao.Reintentos;
+import com.comproOro.gestion.model.dao.RenovacionDAO;
+import com.comproOro.gestion.model.dao.ResumenDAO;
+import com.comproOro.gestion.model.dao.TarifaDAO;
+import javafx.application.Platform;
+import javafx.scene.control.Alert;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Orquesta el arranque de la aplicación. Antes de mostrar nada se pone el esquema de la base de
+ * datos al día, porque las pantallas no pueden leer importes de una base a medio migrar; si no se
+ * puede, la aplicación avisa y se cierra. El inicio se muestra en cuanto está cargado y lo que
+ * antes se hacía con el primer clic se adelanta en dos hilos de baja prioridad:
+ * <ul>
+ *     <li>Base de datos: crea las tablas que falten, abre una conexión (que carga la librería
+ *     nativa de SQLite) y lee los contratos para dejarlos en la caché del sistema. Al terminar
+ *     se precargan las demás pantallas, cuyos controladores crean DAO al cargarse.</li>
+ *     <li>Documentos: lee las plantillas a memoria y prepara POI con un documento de prueba.</li>
+ * </ul>
+ * La bandeja de documentos arranca en su propio hilo, aparte del calentamiento, y si falla se
+ * avisa al usuario. Cada paso queda en {@link Metricas} como {@code Arranque.*}, y el tiempo hasta la primera
+ * pantalla y hasta el primer documento en {@link Diagnostico}.
+ */
+public class ArranqueController {
+
+    private static final Logger LOGGER = LogManager.getLogger(ArranqueController.class);
+
+    private final MainApp mainApp;
+
+    public ArranqueController(MainApp mainApp) {
+        this.mainApp = mainApp;
+    }
+
+    /**
+     * Muestra el inicio y lanza el calentamiento en segundo plano. Se llama en el hilo de JavaFX.
+     *
+     * @throws Exception si no se puede mostrar la pantalla de inicio.
+     */
+    public void arrancar() throws Exception {
+        if (!migrarEsquema()) {
+            return;
+        }
+        mainApp.showMainLayout();
+        Diagnostico.primeraPantallaMostrada();
+
+        iniciarHilo("arranque-bandeja", this::iniciarBandejaDocumentos);
+        iniciarHilo("arranque-base-datos", this::prepararBaseDeDatos);
+        iniciarHilo("arranque-documentos", this::prepararDocumentos);
+    }
+
+    /**
+     * Migra el esquema de la base de datos antes de que ningún DAO la use. Si otro puesto la tiene
+     * ocupada se repite como cualquier escritura; si aun así falla, muestra el error y cierra la
+     * aplicación.
+     *
+     * @return true si la base de datos está al día y se puede seguir arrancando.
+     */
+    private boolean migrarEsquema() {
+        long inicio = System.nanoTime();
+        DataSource fuenteDatos = DatabaseConnection.getDataSource();
+        try {
+            int cambios = Reintentos.ejecutar("EsquemaDAO.migrar", () -> new EsquemaDAO(fuenteDatos).migrar());
+            Metricas.registrar("Arranque.esquema", inicio);
+            LOGGER.debug("Esquema de la base de datos al día ({} columnas cambiadas)", cambios);
+            return true;
+        } catch (SQLException e) {
+            LOGGER.error("No se pudo poner al día la base de datos", e);
+            Alert alert = new Alert(Alert.AlertType.ERROR);
+            alert.setTitle("Error al arrancar");
+            alert.setHeaderText("No se pudo poner al día la base de datos");
+            alert.setContentText("La aplicación se cerrará sin cambiar ningún dato. Compruebe que "
+                    + "ningún otro puesto está haciendo una operación larga y vuelva a abrirla.\n\n"
+                    + e.getMessage());
+            alert.showAndWait();
+            Platform.exit();
+            return false;
+        }
+    }
+
+    /**
+     * Crea las tablas, abre la primera conexión y, al terminar, precarga las pantallas.
+     */
+    private void prepararBaseDeDatos() throws Exception {
+        long inicio = System.nanoTime();
+        DataSource fuenteDatos = DatabaseConnection.getDataSource();
+        new ClienteDAO(fuenteDatos);
+        new ContratoDAO(fuenteDatos);
+        new ProductoDAO(fuenteDatos);
+        new RenovacionDAO(fuenteDatos).close();
+        new ResumenDAO(fuenteDatos);
+        new LibroRegistroDAO(fuenteDatos);
+        new ArchivoDocumentosDAO(fuenteDatos);
+        new TarifaDAO(fuenteDatos);
+        new CierreMensualDAO(fuenteDatos);
+        inicio = Metricas.registrar("Arranque.tablas", inicio);
+
+        try (Connection conn = fuenteDatos.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM contratos")) {
+            if (rs.next()) {
+                LOGGER.debug("Base de datos preparada con {} contratos", rs.getLong(1));
+            }
+        }
+        Metricas.registrar("Arranque.conexion", inicio);
+
+        // Con las tablas ya creadas, los DAO de las pantallas no compiten con este hilo al cargarse
+        Platform.runLater(() -> mainApp.getNavegacion().precargar());
+    }
+
+    /**
+     * Empieza a generar los documentos de la bandeja. No depende del calentamiento: si no arranca,
+     * las operaciones siguen apuntando documentos que nadie genera, así que se avisa al usuario.
+     */
+    private void iniciarBandejaDocumentos() {
+        try {
+            mainApp.getBandejaDocumentos().iniciar(new BandejaDocumentosDAO(DatabaseConnection.getDataSource()));
+        } catch (RuntimeException e) {
+            LOGGER.error("No se pudo iniciar la generación de documentos", e);
+            Platform.runLater(() -> {
+                Alert alert = new Alert(Alert.AlertType.ERROR);
+                alert.setTitle("Documentos");
+                alert.setHeaderText("No se pudo iniciar la generación de documentos");
+                alert.setContentText("Las operaciones se guardan, pero sus documentos no se generarán "
+                        + "hasta que se reinicie la aplicación.\n\n" + e.getMessage());
+                alert.show();
+            });
+        }
+    }
+
+    /**
+     * Lee las plantillas Word a memoria y carga las clases de POI.
+     */
+    private void prepararDocumentos() throws Exception {
+        long inicio = System.nanoTime();
+        int plantillas = WordGeneratorController.cargarPlantillas();
+        inicio = Metricas.registrar("Arranque.plantillas", inicio);
+
+        WordGeneratorController.calentarPoi();
+        Metricas.registrar("Arranque.poi", inicio);
+        LOGGER.debug("{} plantillas cargadas y POI preparado", plantillas);
+    }
+
+    /**
+     * Ejecuta un paso del calentamiento en un hilo de baja prioridad. Si falla solo se registra:
+     * el trabajo se hará igualmente, más tarde, cuando lo pida el usuario.
+     */
+    private void iniciarHilo(String nombre, Paso paso) {
+        Thread hilo = new Thread(() -> {
+            try {
+                paso.ejecutar();
+            } catch (Exception e) {
+                LOGGER.warn("Error durante el calentamiento {}", nombre, e);
+            }
+        }, nombre);
+        hilo.setDaemon(true);
+        hilo.setPriority(Thread.MIN_PRIORITY);
+        hilo.start();
+    }
+
+    @FunctionalInterface
+    private interface Paso {
+        void ejecutar() throws Exception;
+    }
+}
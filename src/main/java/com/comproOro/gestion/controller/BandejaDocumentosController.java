@@ -0,0 +1,259 @@
+package com.comproOro.gestion.controller;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import com.comproOro.gestion.model.dao.ArchivoDocumentosDAO;
+import com.comproOro.gestion.model.dao.BandejaDocumentosDAO;
+import com.comproOro.gestion.model.dao.ContratoDAO;
+import com.comproOro.gestion.model.dao.Metricas;
+import com.comproOro.gestion.model.dao.ProductoDAO;
+import com.comproOro.gestion.model.modelos.Contrato;
+import com.comproOro.gestion.model.modelos.Producto;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Genera en segundo plano los documentos Word apuntados en la bandeja de documentos.
+ * Las operaciones (contratos, renovaciones, rescates) solo apuntan el documento y terminan; este
+ * controlador revisa la bandeja cada pocos segundos, o en cuanto se le avisa, y reparte los
+ * pendientes entre unos pocos hilos. Si un documento falla se reintenta más tarde, cada vez
+ * esperando el doble hasta un máximo de {@value #ESPERA_MAXIMA_MS} ms, y se sigue reintentando
+ * con esa espera hasta que salga: un documento apuntado nunca se descarta. El error queda en la
+ * bandeja, y tras {@value #INTENTOS_ATASCADO} fallos el documento cuenta como atascado en el
+ * diagnóstico, desde donde se puede volver a intentar enseguida.
+ * Cuando en una misma revisión hay varios documentos (una visita con varias renovaciones, o lo
+ * que quedó pendiente al cerrar), no se abren uno a uno: se unen en un lote por cliente y Word se
+ * abre una sola vez.
+ */
+public class BandejaDocumentosController {
+
+    private static final Logger LOGGER = LogManager.getLogger(BandejaDocumentosController.class);
+
+    /** Hilos que generan documentos a la vez. */
+    private static final int HILOS = 2;
+
+    /** Fallos tras los que un documento cuenta como atascado. */
+    static final int INTENTOS_ATASCADO = 8;
+
+    /** Espera tras el primer fallo; se dobla en cada intento. */
+    private static final long ESPERA_INICIAL_MS = 5_000;
+
+    /** Espera máxima entre dos intentos. */
+    private static final long ESPERA_MAXIMA_MS = 10 * 60_000;
+
+    /**
+     * Documentos que se reclaman como mucho en cada revisión. Es holgado para que una renovación
+     * de todos los contratos de un cliente salga en un solo lote.
+     */
+    private static final int MAX_POR_REVISION = 50;
+
+    /** Cada cuánto se revisa la bandeja aunque nadie avise. */
+    private static final long INTERVALO_REVISION_MS = 5_000;
+
+    private static final DateTimeFormatter FORMATO_LOTE = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    /** Se asigna al iniciar, cuando la tabla de la bandeja ya existe. */
+    private volatile BandejaDocumentosDAO bandejaDAO;
+
+    private final ScheduledExecutorService revision = Executors.newSingleThreadScheduledExecutor(tarea -> {
+        Thread hilo = new Thread(tarea, "bandeja-documentos");
+        hilo.setDaemon(true);
+        return hilo;
+    });
+
+    private final ExecutorService generadores;
+
+    /**
+     * DAO y generador de cada hilo generador. Se crean una vez por hilo y no por documento,
+     * porque cada constructor de DAO crea sus tablas.
+     */
+    private final ThreadLocal<Generador> generador = ThreadLocal.withInitial(Generador::new);
+
+    private static final class Generador {
+        private final ContratoDAO contratoDAO = new ContratoDAO();
+        private final ProductoDAO productoDAO = new ProductoDAO();
+        private final ArchivoDocumentosDAO archivoDAO = new ArchivoDocumentosDAO();
+        private final WordGeneratorController wordGenerator = new WordGeneratorController();
+    }
+
+    public BandejaDocumentosController() {
+        AtomicInteger numero = new AtomicInteger();
+        this.generadores = Executors.newFixedThreadPool(HILOS, tarea -> {
+            Thread hilo = new Thread(tarea, "generar-documentos-" + numero.incrementAndGet());
+            hilo.setDaemon(true);
+            hilo.setPriority(Thread.MIN_PRIORITY);
+            return hilo;
+        });
+    }
+
+    /**
+     * Recupera los documentos que se quedaron a medias en la última ejecución y empieza a revisar
+     * la bandeja periódicamente. Hasta entonces los avisos se ignoran: lo apuntado se recoge en la
+     * primera revisión.
+     *
+     * @param bandejaDAO DAO de la bandeja, con la tabla ya creada.
+     */
+    public void iniciar(BandejaDocumentosDAO bandejaDAO) {
+        this.bandejaDAO = bandejaDAO;
+        Diagnostico.vigilarBandeja(bandejaDAO);
+        int recuperados = bandejaDAO.recuperarInterrumpidos();
+        if (recuperados > 0) {
+            LOGGER.info("{} documentos interrumpidos vuelven a la bandeja", recuperados);
+        }
+        int reintentados = bandejaDAO.reintentarAhora();
+        if (reintentados > 0) {
+            LOGGER.info("{} documentos pendientes se intentan de nuevo al arrancar", reintentados);
+        }
+        revision.scheduleWithFixedDelay(this::repartir, 0, INTERVALO_REVISION_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Revisa la bandeja ahora, sin esperar a la siguiente revisión. Se llama después de apuntar
+     * un documento para que aparezca cuanto antes.
+     */
+    public void avisar() {
+        revision.execute(this::repartir);
+    }
+
+    /**
+     * Reclama los documentos pendientes y los reparte entre los hilos generadores. Si se ha
+     * reclamado más de uno, se generan sin abrirlos y al terminar se imprimen en lotes.
+     */
+    private void repartir() {
+        BandejaDocumentosDAO bandejaDAO = this.bandejaDAO;
+        if (bandejaDAO == null) {
+            return;
+        }
+        try {
+            List<BandejaDocumentosDAO.Pendiente> reclamados = new ArrayList<>();
+            for (BandejaDocumentosDAO.Pendiente pendiente : bandejaDAO.obtenerPendientes(MAX_POR_REVISION)) {
+                if (bandejaDAO.reclamar(pendiente.getId())) {
+                    reclamados.add(pendiente);
+                }
+            }
+
+            if (reclamados.size() == 1) {
+                generadores.execute(() -> procesar(reclamados.get(0), true));
+            } else if (reclamados.size() > 1) {
+                List<CompletableFuture<Contrato>> generados = new ArrayList<>();
+                for (BandejaDocumentosDAO.Pendiente pendiente : reclamados) {
+                    generados.add(CompletableFuture.supplyAsync(() -> procesar(pendiente, false), generadores));
+                }
+                CompletableFuture.allOf(generados.toArray(new CompletableFuture[0]))
+                        .thenRunAsync(() -> imprimirLotes(reclamados, generados), generadores);
+            }
+        } catch (RuntimeException e) {
+            // Una excepción aquí cancelaría las revisiones siguientes
+            LOGGER.error("Error al revisar la bandeja de documentos", e);
+        }
+    }
+
+    /**
+     * Genera un documento y apunta el resultado en la bandeja.
+     *
+     * @param abrir si se abre el documento al generarlo.
+     * @return el contrato del documento, o null si no se ha podido generar.
+     */
+    private Contrato procesar(BandejaDocumentosDAO.Pendiente pendiente, boolean abrir) {
+        long inicio = System.nanoTime();
+        try {
+            Contrato contrato = generar(pendiente, abrir);
+            bandejaDAO.marcarHecho(pendiente.getId());
+            Metricas.registrar("BandejaDocumentos.generar", inicio);
+            return contrato;
+        } catch (Exception e) {
+            int intentos = pendiente.getIntentos() + 1;
+            bandejaDAO.marcarError(pendiente.getId(), intentos, System.currentTimeMillis() + espera(intentos), String.valueOf(e));
+            if (intentos >= INTENTOS_ATASCADO) {
+                LOGGER.error("El documento {} del contrato {} ha fallado {} veces; se reintentará cada {} minutos",
+                        pendiente.getTipo(), pendiente.getIdContrato(), intentos, ESPERA_MAXIMA_MS / 60_000, e);
+            } else {
+                LOGGER.warn("Error al generar el documento {} del contrato {} (intento {}), se reintentará",
+                        pendiente.getTipo(), pendiente.getIdContrato(), intentos, e);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Une los documentos generados en una revisión en un lote por cliente y abre cada lote.
+     * Los que fallaron se quedan fuera; se abrirán solos cuando se reintenten.
+     */
+    private void imprimirLotes(List<BandejaDocumentosDAO.Pendiente> reclamados, List<CompletableFuture<Contrato>> generados) {
+        Generador generador = this.generador.get();
+        Map<String, List<ArchivoDocumentosDAO.Archivado>> porCliente = new LinkedHashMap<>();
+        for (int i = 0; i < reclamados.size(); i++) {
+            Contrato contrato = generados.get(i).join();
+            if (contrato != null) {
+                BandejaDocumentosDAO.Pendiente pendiente = reclamados.get(i);
+                // Los tipos de la bandeja coinciden con los del archivo para el documento principal
+                porCliente.computeIfAbsent(contrato.getDniCliente(), dni -> new ArrayList<>())
+                        .addAll(generador.archivoDAO.buscarConPoliza(pendiente.getIdContrato(), pendiente.getTipo(), pendiente.getVersion()));
+            }
+        }
+
+        String momento = LocalDateTime.now().format(FORMATO_LOTE);
+        WordGeneratorController wordGenerator = generador.wordGenerator;
+        for (Map.Entry<String, List<ArchivoDocumentosDAO.Archivado>> lote : porCliente.entrySet()) {
+            try {
+                wordGenerator.imprimirLote(lote.getValue(), "LOTE_" + lote.getKey() + "_" + momento + ".docx");
+            } catch (Exception e) {
+                LOGGER.error("Error al imprimir el lote de documentos del cliente {}", lote.getKey(), e);
+            }
+        }
+    }
+
+    /**
+     * Espera antes del siguiente intento: {@value #ESPERA_INICIAL_MS} ms tras el primer fallo,
+     * el doble tras cada fallo siguiente y como mucho {@value #ESPERA_MAXIMA_MS} ms.
+     *
+     * @param intentos intentos fallidos hasta ahora.
+     * @return la espera en milisegundos.
+     */
+    static long espera(int intentos) {
+        long espera = ESPERA_INICIAL_MS << Math.min(intentos - 1, 20);
+        return Math.min(espera, ESPERA_MAXIMA_MS);
+    }
+
+    /**
+     * Lee de la base de datos lo que necesita el documento y lo genera.
+     *
+     * @return el contrato del documento.
+     */
+    private Contrato generar(BandejaDocumentosDAO.Pendiente pendiente, boolean abrir) throws Exception {
+        Generador generador = this.generador.get();
+        Contrato contrato = generador.contratoDAO.obtenerContratoPorId(pendiente.getIdContrato());
+        if (contrato == null) {
+            throw new IllegalStateException("No existe el contrato " + pendiente.getIdContrato());
+        }
+        ArrayList<Producto> productos = generador.productoDAO.obtenerProductosPorContrato(contrato.getIdContrato());
+        WordGeneratorController wordGenerator = generador.wordGenerator;
+        wordGenerator.setAbrirDocumentos(abrir);
+
+        switch (pendiente.getTipo()) {
+            case BandejaDocumentosDAO.CONTRATO:
+                wordGenerator.generarDocumento(contrato.getDniCliente(), contrato.getIdContrato(), productos);
+                break;
+            case BandejaDocumentosDAO.RENOVACION:
+                wordGenerator.renovarContrato(contrato.getDniCliente(), contrato.getIdContrato(), pendiente.getVersion(), productos);
+                break;
+            case BandejaDocumentosDAO.RESCATE:
+                wordGenerator.rescatarContrato(contrato.getDniCliente(), contrato.getIdContrato(), productos);
+                break;
+            default:
+                throw new IllegalArgumentException("Tipo de documento no reconocido: " + pendiente.getTipo());
+        }
+        return contrato;
+    }
+}
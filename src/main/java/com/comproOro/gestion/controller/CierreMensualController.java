@@ -0,0 +1,82 @@
+package com.comproOro.gestion.controller;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import com.comproOro.gestion.model.dao.CierreMensualDAO;
+import com.comproOro.gestion.model.dao.Metricas;
+import com.comproOro.gestion.model.dao.TarifaDAO;
+import com.comproOro.gestion.model.modelos.Tarifa;
+
+import java.time.LocalDate;
+
+/**
+ * Cierre de mes de los empeños: a una fecha de corte, propone renovar cada empeño vencido con la
+ * tarifa configurada o decomisarlo si ya pasaron los días de gracia. Lee los vencidos en una
+ * consulta, calcula todas las propuestas en memoria y las guarda por lotes; la revisión y la
+ * aplicación de cada propuesta siguen siendo cosa del empleado.
+ */
+public class CierreMensualController {
+
+    private static final Logger LOGGER = LogManager.getLogger(CierreMensualController.class);
+
+    /**
+     * Resultado de un cierre de mes.
+     */
+    public static class Resultado {
+        private final int renovaciones;
+        private final int decomisos;
+        private final long cuotas;
+
+        public Resultado(int renovaciones, int decomisos, long cuotas) {
+            this.renovaciones = renovaciones;
+            this.decomisos = decomisos;
+            this.cuotas = cuotas;
+        }
+
+        /** @return Empeños para los que se propone renovar. */
+        public int getRenovaciones() {
+            return renovaciones;
+        }
+
+        /** @return Empeños para los que se propone el decomiso. */
+        public int getDecomisos() {
+            return decomisos;
+        }
+
+        /** @return Suma de las cuotas de renovación propuestas, en céntimos. */
+        public long getCuotas() {
+            return cuotas;
+        }
+    }
+
+    private final CierreMensualDAO cierreMensualDAO = new CierreMensualDAO();
+
+    /**
+     * Calcula y guarda las propuestas del cierre a una fecha, sustituyendo las de un cierre
+     * anterior con la misma fecha.
+     *
+     * @param corte Fecha de corte: se tienen en cuenta los empeños vencidos hasta ese día incluido.
+     * @return Número de renovaciones y decomisos propuestos y el total de cuotas.
+     * @throws Exception si falla la lectura o la escritura.
+     */
+    public Resultado ejecutar(LocalDate corte) throws Exception {
+        long inicio = System.nanoTime();
+        Tarifa tarifa = new TarifaDAO().obtenerTarifaEmpeno();
+
+        CierreMensualDAO.Vencidos vencidos = cierreMensualDAO.obtenerVencidos(tarifa.getTipo(), corte);
+        vencidos.calcular(tarifa, corte);
+        cierreMensualDAO.guardarPropuestas(corte, vencidos);
+
+        int decomisos = 0;
+        long cuotas = 0;
+        for (int i = 0; i < vencidos.getTamano(); i++) {
+            if (vencidos.isDecomiso(i)) {
+                decomisos++;
+            }
+            cuotas += vencidos.getCuota(i);
+        }
+        Metricas.registrar("CierreMensual.ejecutar", inicio);
+        LOGGER.info("Cierre a {}: {} empeños vencidos, {} decomisos propuestos", corte, vencidos.getTamano(), decomisos);
+        return new Resultado(vencidos.getTamano() - decomisos, decomisos, cuotas);
+    }
+}
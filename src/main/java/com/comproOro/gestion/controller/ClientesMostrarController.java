@@ -1,18 +1,16 @@
 package com.comproOro.gestion.controller;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import com.comproOro.gestion.MainApp;
 import com.comproOro.gestion.model.dao.ClienteDAO;
+import com.comproOro.gestion.model.filas.FilaCliente;
 import com.comproOro.gestion.model.modelos.Cliente;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
-import javafx.beans.property.SimpleStringProperty;
-import javafx.stage.Stage;
 
 import java.io.IOException;
 import java.util.List;
@@ -21,32 +19,34 @@ import java.util.List;
  * Controlador para mostrar la lista de clientes en una tabla.
  * Permite cargar los clientes y volver a la vista anterior.
  */
-public class ClientesMostrarController {
+public class ClientesMostrarController implements Pantalla {
+
+    private static final Logger LOGGER = LogManager.getLogger(ClientesMostrarController.class);
 
     @FXML
-    private TableView<Cliente> clientesTable;
+    private TableView<FilaCliente> clientesTable;
 
     @FXML
-    private TableColumn<Cliente, String> dniColumn;
+    private TableColumn<FilaCliente, String> dniColumn;
 
     @FXML
-    private TableColumn<Cliente, String> nombreColumn;
+    private TableColumn<FilaCliente, String> nombreColumn;
 
     @FXML
-    private TableColumn<Cliente, String> apellidoColumn;
+    private TableColumn<FilaCliente, String> apellidoColumn;
 
     @FXML
-    private TableColumn<Cliente, String> poblacionColumn;
+    private TableColumn<FilaCliente, String> poblacionColumn;
 
     @FXML
-    private TableColumn<Cliente, String> telefonoColumn;
+    private TableColumn<FilaCliente, String> telefonoColumn;
 
     @FXML
-    private TableColumn<Cliente, String> direccionColumn;
+    private TableColumn<FilaCliente, String> direccionColumn;
 
     private ClienteDAO clienteDAO;
 
-    private ObservableList<Cliente> clientesList;
+    private ObservableList<FilaCliente> clientesList;
 
     private MainApp mainApp;
 
@@ -66,18 +66,26 @@ public class ClientesMostrarController {
 
     /**
      * Método llamado automáticamente después de cargar el FXML.
-     * Configura las columnas de la tabla y carga los clientes.
+     * Configura las columnas de la tabla; los clientes se cargan al mostrar la pantalla.
      */
     @FXML
     public void initialize() {
         // Configura qué propiedad mostrar en cada columna
-        dniColumn.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getDni()));
-        nombreColumn.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getNombre()));
-        apellidoColumn.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getApellido()));
-        poblacionColumn.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getPoblacion()));
-        telefonoColumn.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getTelefono()));
-        direccionColumn.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getDireccion()));
+        dniColumn.setCellValueFactory(cellData -> cellData.getValue().getCelda(FilaCliente.DNI));
+        nombreColumn.setCellValueFactory(cellData -> cellData.getValue().getCelda(FilaCliente.NOMBRE));
+        apellidoColumn.setCellValueFactory(cellData -> cellData.getValue().getCelda(FilaCliente.APELLIDO));
+        poblacionColumn.setCellValueFactory(cellData -> cellData.getValue().getCelda(FilaCliente.POBLACION));
+        telefonoColumn.setCellValueFactory(cellData -> cellData.getValue().getCelda(FilaCliente.TELEFONO));
+        direccionColumn.setCellValueFactory(cellData -> cellData.getValue().getCelda(FilaCliente.DIRECCION));
+
+        clientesTable.setItems(clientesList);
+    }
 
+    /**
+     * Vuelve a cargar los clientes cada vez que se muestra la pantalla.
+     */
+    @Override
+    public void refrescar() {
         cargarClientes();
     }
 
@@ -86,8 +94,7 @@ public class ClientesMostrarController {
      */
     private void cargarClientes() {
         List<Cliente> clientes = clienteDAO.obtenerTodosLosClientes();
-        clientesList.setAll(clientes);
-        clientesTable.setItems(clientesList);
+        clientesList.setAll(FilaCliente.crear(clientes));
     }
 
     /**
@@ -97,34 +104,14 @@ public class ClientesMostrarController {
     @FXML
     private void handleCancelar() {
         try {
-            FXMLLoader loader;
-
-            // Decide qué vista cargar según el controlador origen
+            // Decide qué vista mostrar según el controlador origen
             if (origenController instanceof AreaTrabajoController) {
-                loader = new FXMLLoader(getClass().getResource("/fxml/area_trabajo.fxml"));
+                mainApp.getNavegacion().mostrar(NavegacionController.AREA_TRABAJO, "Formulario de Cliente");
             } else {
-                loader = new FXMLLoader(getClass().getResource("/fxml/area_datos.fxml"));
+                mainApp.getNavegacion().mostrar(NavegacionController.AREA_DATOS, "Datos");
             }
-
-            Parent root = loader.load();
-
-            // Configura el controlador de la vista destino con mainApp
-            if (origenController instanceof AreaTrabajoController) {
-                AreaTrabajoController areaTrabajoController = loader.getController();
-                areaTrabajoController.setMainApp(mainApp);
-            } else if (origenController instanceof AreaDatosController) {
-                AreaDatosController areaDatosController = loader.getController();
-                areaDatosController.setMainApp(mainApp);
-            }
-
-            // Cambia la escena actual a la vista anterior
-            Stage stage = (Stage) clientesTable.getScene().getWindow();
-            stage.setScene(new Scene(root, stage.getWidth(), stage.getHeight()));
-            stage.setMaximized(true);
-            stage.setMaximized(false);
-
         } catch (IOException e) {
-            e.printStackTrace();
+            LOGGER.error("Error al volver al área de trabajo", e);
         }
     }
 
@@ -140,6 +127,7 @@ public class ClientesMostrarController {
      * Establece la referencia a la aplicación principal.
      * @param mainApp instancia principal MainApp
      */
+    @Override
     public void setMainApp(MainApp mainApp) {
         this.mainApp = mainApp;
     }
@@ -1,10 +1,12 @@
 package com.comproOro.gestion.controller;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import com.comproOro.gestion.MainApp;
 import com.comproOro.gestion.model.dao.ClienteDAO;
 import com.comproOro.gestion.model.dao.ContratoDAO;
+import com.comproOro.gestion.model.filas.FilaCliente;
 import com.comproOro.gestion.model.modelos.Cliente;
-import javafx.beans.property.SimpleStringProperty;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
@@ -19,23 +21,25 @@ import java.util.List;
  * Controlador para gestionar la vista donde se muestran los datos de los clientes,
  * permite buscar, editar, borrar y cancelar.
  */
-public class DatosClientesController {
+public class DatosClientesController implements Pantalla {
+
+    private static final Logger LOGGER = LogManager.getLogger(DatosClientesController.class);
 
     @FXML
-    private TableView<Cliente> clientesTableView;
+    private TableView<FilaCliente> clientesTableView;
 
     @FXML
-    private TableColumn<Cliente, String> dniColumn;
+    private TableColumn<FilaCliente, String> dniColumn;
     @FXML
-    private TableColumn<Cliente, String> nombreColumn;
+    private TableColumn<FilaCliente, String> nombreColumn;
     @FXML
-    private TableColumn<Cliente, String> apellidoColumn;
+    private TableColumn<FilaCliente, String> apellidoColumn;
     @FXML
-    private TableColumn<Cliente, String> poblacionColumn;
+    private TableColumn<FilaCliente, String> poblacionColumn;
     @FXML
-    private TableColumn<Cliente, String> telefonoColumn;
+    private TableColumn<FilaCliente, String> telefonoColumn;
     @FXML
-    private TableColumn<Cliente, String> direccionColumn;
+    private TableColumn<FilaCliente, String> direccionColumn;
 
     @FXML
     private TextField buscarDniTextField;
@@ -46,34 +50,49 @@ public class DatosClientesController {
      * Establece la referencia a la aplicación principal.
      * @param mainApp instancia principal MainApp
      */
+    @Override
     public void setMainApp(MainApp mainApp) {
         this.mainApp = mainApp;
     }
 
     /**
      * Método llamado automáticamente tras cargar el FXML.
-     * Configura las columnas de la tabla y carga los clientes.
+     * Configura las columnas de la tabla; los clientes se cargan al mostrar la pantalla.
      */
     @FXML
     public void initialize() {
         // Configura las columnas para mostrar las propiedades correspondientes del cliente
-        dniColumn.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getDni()));
-        nombreColumn.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getNombre()));
-        apellidoColumn.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getApellido()));
-        poblacionColumn.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getPoblacion()));
-        telefonoColumn.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getTelefono()));
-        direccionColumn.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getDireccion()));
+        dniColumn.setCellValueFactory(cellData -> cellData.getValue().getCelda(FilaCliente.DNI));
+        nombreColumn.setCellValueFactory(cellData -> cellData.getValue().getCelda(FilaCliente.NOMBRE));
+        apellidoColumn.setCellValueFactory(cellData -> cellData.getValue().getCelda(FilaCliente.APELLIDO));
+        poblacionColumn.setCellValueFactory(cellData -> cellData.getValue().getCelda(FilaCliente.POBLACION));
+        telefonoColumn.setCellValueFactory(cellData -> cellData.getValue().getCelda(FilaCliente.TELEFONO));
+        direccionColumn.setCellValueFactory(cellData -> cellData.getValue().getCelda(FilaCliente.DIRECCION));
+    }
 
+    /**
+     * Vuelve a cargar los clientes cada vez que se muestra la pantalla.
+     */
+    @Override
+    public void refrescar() {
         cargarClientes();
     }
 
+    /**
+     * Borra la búsqueda al salir de la pantalla.
+     */
+    @Override
+    public void restablecer() {
+        buscarDniTextField.clear();
+    }
+
     /**
      * Carga todos los clientes desde la base de datos y los muestra en la tabla.
      */
     private void cargarClientes() {
         ClienteDAO clienteDAO = new ClienteDAO();
         List<Cliente> clientes = clienteDAO.obtenerTodosLosClientes();
-        clientesTableView.getItems().setAll(clientes);
+        clientesTableView.getItems().setAll(FilaCliente.crear(clientes));
     }
 
     /**
@@ -89,7 +108,7 @@ public class DatosClientesController {
             ClienteDAO clienteDAO = new ClienteDAO();
             Cliente clienteFiltrado = clienteDAO.obtenerClientePorDni(dni);
             if (clienteFiltrado != null) {
-                clientesTableView.getItems().setAll(clienteFiltrado);
+                clientesTableView.getItems().setAll(FilaCliente.crear(List.of(clienteFiltrado)));
             } else {
                 // Si no se encuentra cliente, limpia la tabla o muestra mensaje según convenga
                 clientesTableView.getItems().clear();
@@ -103,7 +122,8 @@ public class DatosClientesController {
      */
     @FXML
     private void handleEditarCliente() {
-        Cliente clienteSeleccionado = clientesTableView.getSelectionModel().getSelectedItem();
+        FilaCliente filaSeleccionada = clientesTableView.getSelectionModel().getSelectedItem();
+        Cliente clienteSeleccionado = filaSeleccionada != null ? filaSeleccionada.getCliente() : null;
         if (clienteSeleccionado != null) {
             try {
                 FXMLLoader loader = new FXMLLoader(getClass().getResource("/fxml/editar_cliente.fxml"));
@@ -121,7 +141,7 @@ public class DatosClientesController {
                 cargarClientes();  // Recarga la tabla para reflejar cambios
 
             } catch (IOException e) {
-                e.printStackTrace();
+                LOGGER.error("Error al cargar la edición del cliente", e);
             }
         } else {
             // Alerta si no se ha seleccionado ningún cliente
@@ -139,24 +159,9 @@ public class DatosClientesController {
     @FXML
     private void handleCancelar() {
         try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/fxml/area_datos.fxml"));
-            Parent root = loader.load();
-
-            AreaDatosController datosController = loader.getController();
-            if (datosController != null) {
-                datosController.setMainApp(mainApp);
-            }
-
-            Stage stage = (Stage) clientesTableView.getScene().getWindow();
-            Scene scene = new Scene(root, stage.getWidth(), stage.getHeight());
-            stage.setScene(scene);
-
-            // Forzar redimensionado para que la interfaz se adapte bien
-            stage.setMaximized(true);
-            stage.setMaximized(false);
-
+            mainApp.getNavegacion().mostrar(NavegacionController.AREA_DATOS, "Datos");
         } catch (IOException e) {
-            e.printStackTrace();
+            LOGGER.error("Error al volver al área de datos", e);
         }
     }
 
@@ -166,7 +171,8 @@ public class DatosClientesController {
      */
     @FXML
     private void handleBorrarCliente() {
-        Cliente clienteSeleccionado = clientesTableView.getSelectionModel().getSelectedItem();
+        FilaCliente filaSeleccionada = clientesTableView.getSelectionModel().getSelectedItem();
+        Cliente clienteSeleccionado = filaSeleccionada != null ? filaSeleccionada.getCliente() : null;
         if (clienteSeleccionado != null) {
             String dniCliente = clienteSeleccionado.getDni();
             ContratoDAO contratoDAO = new ContratoDAO();
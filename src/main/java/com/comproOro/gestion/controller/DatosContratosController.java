@@ -1,49 +1,62 @@
 package com.comproOro.gestion.controller;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import com.comproOro.gestion.MainApp;
+import com.comproOro.gestion.model.dao.ConsultaCancelable;
 import com.comproOro.gestion.model.dao.ContratoDAO;
+import com.comproOro.gestion.model.dao.ExportacionDAO;
 import com.comproOro.gestion.model.dao.RenovacionDAO;
+import com.comproOro.gestion.model.filas.FilaContrato;
 import com.comproOro.gestion.model.modelos.Contrato;
 import com.comproOro.gestion.model.modelos.Renovacion;
-import javafx.beans.property.SimpleStringProperty;
+import javafx.animation.PauseTransition;
+import javafx.concurrent.Task;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.scene.Parent;
 import javafx.scene.control.*;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 import javafx.scene.Scene;
 import javafx.fxml.FXMLLoader;
+import javafx.util.Duration;
+import java.io.File;
 import java.io.IOException;
-import java.text.SimpleDateFormat;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Date;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Controlador para la gestión de contratos:
- * muestra los contratos en una tabla, permite buscar con filtros,
+ * muestra los contratos en una tabla, permite buscar mientras se escriben los filtros,
  * limpiar filtros, cancelar y navegar a renovaciones de un contrato seleccionado.
  */
-public class DatosContratosController {
+public class DatosContratosController implements Pantalla {
+
+    private static final Logger LOGGER = LogManager.getLogger(DatosContratosController.class);
 
     @FXML
-    private TableView<Contrato> contratosTableView;
+    private TableView<FilaContrato> contratosTableView;
 
     @FXML
-    private TableColumn<Contrato, String> idContratoColumn;
+    private TableColumn<FilaContrato, String> idContratoColumn;
     @FXML
-    private TableColumn<Contrato, String> idPolColumn;
+    private TableColumn<FilaContrato, String> idPolColumn;
     @FXML
-    private TableColumn<Contrato, String> clienteColumn;
+    private TableColumn<FilaContrato, String> clienteColumn;
     @FXML
-    private TableColumn<Contrato, String> fechaColumn;
+    private TableColumn<FilaContrato, String> fechaColumn;
     @FXML
-    private TableColumn<Contrato, String> fechaFinalColumn;
+    private TableColumn<FilaContrato, String> fechaFinalColumn;
     @FXML
-    private TableColumn<Contrato, String> tipoColumn;
+    private TableColumn<FilaContrato, String> tipoColumn;
     @FXML
-    private TableColumn<Contrato, String> estadoColumn;
+    private TableColumn<FilaContrato, String> estadoColumn;
     @FXML
-    private TableColumn<Contrato, String> importeColumn;
+    private TableColumn<FilaContrato, String> importeColumn;
 
     @FXML
     private TextField searchTextField;
@@ -57,6 +70,26 @@ public class DatosContratosController {
     private Button btnBuscar;
     @FXML
     private Button btnCancelar;
+    @FXML
+    private Button btnExportar;
+    @FXML
+    private ProgressBar progresoExportacion;
+
+    /**
+     * Hilo único para las búsquedas: como cada búsqueda nueva cancela la anterior, nunca hay
+     * más de una consulta esperando.
+     */
+    private static final ExecutorService HILO_BUSQUEDA = Executors.newSingleThreadExecutor(tarea -> {
+        Thread hilo = new Thread(tarea, "busqueda-contratos");
+        hilo.setDaemon(true);
+        return hilo;
+    });
+
+    /** Pausa tras el último cambio en los filtros antes de buscar. */
+    private final PauseTransition esperaBusqueda = new PauseTransition(Duration.millis(300));
+
+    private Task<List<FilaContrato>> busquedaActual;
+    private ConsultaCancelable consultaActual;
 
     private MainApp mainApp;
     private ContratoDAO contratoDAO;
@@ -67,47 +100,19 @@ public class DatosContratosController {
 
     /**
      * Método llamado automáticamente al cargar el controlador.
-     * Configura columnas, carga datos iniciales y configura combobox y botones.
+     * Configura columnas, combobox y botones; los contratos se cargan al mostrar la pantalla.
      */
     @FXML
     private void initialize() {
-        // Configuración de columnas, asignando valores desde objetos Contrato
-        idContratoColumn.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getIdContrato()));
-        idPolColumn.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getIdPol()));
-        clienteColumn.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getDniCliente()));
-
-        fechaColumn.setCellValueFactory(cellData -> {
-            if (cellData.getValue().getFechaInicio() != null) {
-                SimpleDateFormat sdf = new SimpleDateFormat("dd/MM/yyyy");
-                return new SimpleStringProperty(sdf.format(cellData.getValue().getFechaInicio()));
-            } else {
-                return new SimpleStringProperty("");
-            }
-        });
-
-        fechaFinalColumn.setCellValueFactory(cellData -> {
-            if (cellData.getValue().getFechaFinal() != null) {
-                SimpleDateFormat sdf = new SimpleDateFormat("dd/MM/yyyy");
-                return new SimpleStringProperty(sdf.format(cellData.getValue().getFechaFinal()));
-            } else {
-                return new SimpleStringProperty("");
-            }
-        });
-
-        tipoColumn.setCellValueFactory(cellData -> {
-            String tipo = cellData.getValue().getTipo();
-            // Corrección visual para "Empeño"
-            if ("Empeno".equals(tipo)) {
-                tipo = "Empeño";
-            }
-            return new SimpleStringProperty(tipo);
-        });
-
-        estadoColumn.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getRescatado()));
-        importeColumn.setCellValueFactory(cellData -> new SimpleStringProperty(String.valueOf(cellData.getValue().getImporte())));
-
-
-        cargarContratos();
+        // Cada fila guarda sus textos ya formateados; las celdas solo los leen
+        idContratoColumn.setCellValueFactory(cellData -> cellData.getValue().getCelda(FilaContrato.ID_CONTRATO));
+        idPolColumn.setCellValueFactory(cellData -> cellData.getValue().getCelda(FilaContrato.ID_POL));
+        clienteColumn.setCellValueFactory(cellData -> cellData.getValue().getCelda(FilaContrato.CLIENTE));
+        fechaColumn.setCellValueFactory(cellData -> cellData.getValue().getCelda(FilaContrato.FECHA_INICIO));
+        fechaFinalColumn.setCellValueFactory(cellData -> cellData.getValue().getCelda(FilaContrato.FECHA_FINAL));
+        tipoColumn.setCellValueFactory(cellData -> cellData.getValue().getCelda(FilaContrato.TIPO));
+        estadoColumn.setCellValueFactory(cellData -> cellData.getValue().getCelda(FilaContrato.ESTADO));
+        importeColumn.setCellValueFactory(cellData -> cellData.getValue().getCelda(FilaContrato.IMPORTE));
 
 
         tipoComboBox.getItems().clear();
@@ -118,21 +123,52 @@ public class DatosContratosController {
 
 
         btnBuscar.setOnAction(event -> handleBuscar());
+
+        // Búsqueda mientras se escribe: se lanza cuando se deja de cambiar los filtros un momento
+        esperaBusqueda.setOnFinished(event -> buscar());
+        searchTextField.textProperty().addListener((obs, anterior, nuevo) -> esperaBusqueda.playFromStart());
+        tipoComboBox.valueProperty().addListener((obs, anterior, nuevo) -> esperaBusqueda.playFromStart());
+        fechaInicioPicker.valueProperty().addListener((obs, anterior, nuevo) -> esperaBusqueda.playFromStart());
+        fechaFinalPicker.valueProperty().addListener((obs, anterior, nuevo) -> esperaBusqueda.playFromStart());
     }
 
     /**
-     * Carga todos los contratos en la tabla.
+     * Vuelve a cargar los contratos cada vez que se muestra la pantalla.
      */
-    private void cargarContratos() {
-        List<Contrato> contratos = contratoDAO.obtenerTodosLosContratos();
-        contratosTableView.getItems().setAll(contratos);
+    @Override
+    public void refrescar() {
+        handleBuscar();
     }
 
     /**
-     * Filtra los contratos según texto de búsqueda, tipo y fechas seleccionadas.
+     * Quita los filtros al salir de la pantalla y cancela la búsqueda que haya en curso.
+     */
+    @Override
+    public void restablecer() {
+        searchTextField.clear();
+        tipoComboBox.setValue("Cualquiera");
+        fechaInicioPicker.setValue(null);
+        fechaFinalPicker.setValue(null);
+
+        esperaBusqueda.stop();
+        cancelarBusqueda();
+    }
+
+    /**
+     * Filtra los contratos según texto de búsqueda, tipo y fechas seleccionadas, sin esperar
+     * a que pase la pausa de la búsqueda mientras se escribe.
      */
     @FXML
     private void handleBuscar() {
+        esperaBusqueda.stop();
+        buscar();
+    }
+
+    /**
+     * Lanza en segundo plano la búsqueda con los filtros actuales. La búsqueda anterior se
+     * cancela si no ha terminado, y solo se muestra en la tabla el resultado de la última.
+     */
+    private void buscar() {
         String searchText = searchTextField.getText().trim();
         String tipoSeleccionado = tipoComboBox.getValue();
 
@@ -153,62 +189,164 @@ public class DatosContratosController {
             tipoSeleccionado = "Empeno";  // Adaptar al valor interno
         }
 
-        List<Contrato> contratosFiltrados;
+        cancelarBusqueda();
+
+        ConsultaCancelable consulta = new ConsultaCancelable();
+        String tipo = tipoSeleccionado;
+        java.sql.Date inicio = (java.sql.Date) fechaInicio;
+        java.sql.Date fin = (java.sql.Date) fechaFinal;
+        Task<List<FilaContrato>> tarea = new Task<List<FilaContrato>>() {
+            @Override
+            protected List<FilaContrato> call() {
+                return FilaContrato.crear(buscarContratos(searchText, tipo, inicio, fin, consulta));
+            }
+        };
+
+        tarea.setOnSucceeded(event -> {
+            if (tarea == busquedaActual) {
+                contratosTableView.getItems().setAll(tarea.getValue());
+            }
+        });
+        tarea.setOnFailed(event -> LOGGER.error("Error al buscar contratos", tarea.getException()));
 
+        busquedaActual = tarea;
+        consultaActual = consulta;
+        HILO_BUSQUEDA.execute(tarea);
+    }
 
+    /**
+     * Elige la consulta del DAO según las fechas indicadas.
+     */
+    private List<Contrato> buscarContratos(String searchText, String tipo, java.sql.Date fechaInicio,
+                                           java.sql.Date fechaFinal, ConsultaCancelable consulta) {
         if (fechaInicio == null && fechaFinal == null) {
-            contratosFiltrados = contratoDAO.buscarContratos(searchText, tipoSeleccionado);
+            return contratoDAO.buscarContratos(searchText, tipo, consulta);
         } else if (fechaInicio != null && fechaFinal != null) {
-            contratosFiltrados = contratoDAO.buscarContratosConFechas(
-                    searchText, tipoSeleccionado,
-                    (java.sql.Date) fechaInicio, (java.sql.Date) fechaFinal);
+            return contratoDAO.buscarContratosConFechas(searchText, tipo, fechaInicio, fechaFinal, consulta);
         } else if (fechaInicio != null) {
-            contratosFiltrados = contratoDAO.buscarContratosConFechaInicio(
-                    searchText, tipoSeleccionado, (java.sql.Date) fechaInicio);
+            return contratoDAO.buscarContratosConFechaInicio(searchText, tipo, fechaInicio, consulta);
         } else {
-            contratosFiltrados = contratoDAO.buscarContratosConFechaFinal(
-                    searchText, tipoSeleccionado, (java.sql.Date) fechaFinal);
+            return contratoDAO.buscarContratosConFechaFinal(searchText, tipo, fechaFinal, consulta);
         }
+    }
 
-        contratosTableView.getItems().setAll(contratosFiltrados);
+    /**
+     * Cancela la búsqueda en curso, tanto si está esperando turno como si ya está en SQLite.
+     */
+    private void cancelarBusqueda() {
+        if (busquedaActual != null) {
+            consultaActual.cancelar();
+            busquedaActual.cancel(false);
+            busquedaActual = null;
+            consultaActual = null;
+        }
     }
 
     /**
-     * Cancela y vuelve a la pantalla anterior (área de datos).
+     * Exporta a Excel o CSV los contratos que cumplen los filtros actuales, junto con sus
+     * productos y renovaciones. La exportación se ejecuta en segundo plano mostrando el progreso.
      */
     @FXML
-    private void handleCancelar() {
-        try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/fxml/area_datos.fxml"));
-            Parent root = loader.load();
+    private void handleExportar() {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Exportar contratos");
+        fileChooser.setInitialFileName("contratos.xlsx");
+        fileChooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("Libro de Excel (*.xlsx)", "*.xlsx"),
+                new FileChooser.ExtensionFilter("CSV (*.csv)", "*.csv"));
+
+        File archivo = fileChooser.showSaveDialog(btnExportar.getScene().getWindow());
+        if (archivo == null) {
+            return;
+        }
 
-            AreaDatosController datosController = loader.getController();
-            if (datosController != null) {
-                datosController.setMainApp(mainApp);
+        String tipoSeleccionado = tipoComboBox.getValue();
+        if ("Cualquiera".equals(tipoSeleccionado)) {
+            tipoSeleccionado = null;
+        } else if ("Empeño".equals(tipoSeleccionado)) {
+            tipoSeleccionado = "Empeno";
+        }
+
+        ExportacionDAO.Filtro filtro = new ExportacionDAO.Filtro(
+                searchTextField.getText().trim(),
+                tipoSeleccionado,
+                fechaInicioPicker.getValue() != null ? java.sql.Date.valueOf(fechaInicioPicker.getValue()) : null,
+                fechaFinalPicker.getValue() != null ? java.sql.Date.valueOf(fechaFinalPicker.getValue()) : null);
+        boolean csv = archivo.getName().toLowerCase().endsWith(".csv");
+
+        Task<Long> tarea = new Task<Long>() {
+            @Override
+            protected Long call() throws Exception {
+                ExportacionController exportador = new ExportacionController();
+                ExportacionController.Progreso progreso = this::updateProgress;
+                return csv
+                        ? exportador.exportarCsv(archivo, filtro, progreso)
+                        : exportador.exportarExcel(archivo, filtro, progreso);
             }
+        };
 
-            Stage stage = (Stage) btnCancelar.getScene().getWindow();
-            Scene scene = new Scene(root, stage.getWidth(), stage.getHeight());
-            stage.setScene(scene);
+        progresoExportacion.progressProperty().bind(tarea.progressProperty());
+        progresoExportacion.setVisible(true);
+        btnExportar.setDisable(true);
 
-            // Forzar redimensionado para que UI se adapte correctamente
-            stage.setMaximized(true);
-            stage.setMaximized(false);
-            stage.show();
+        tarea.setOnSucceeded(event -> {
+            finalizarExportacion();
+            showAlert(Alert.AlertType.INFORMATION, "Exportación completada",
+                    "Se han exportado " + tarea.getValue() + " filas a " + archivo.getAbsolutePath());
+        });
+        tarea.setOnFailed(event -> {
+            finalizarExportacion();
+            LOGGER.error("Error al exportar los contratos", tarea.getException());
+            showAlert(Alert.AlertType.ERROR, "Error al exportar", tarea.getException().getMessage());
+        });
+
+        Thread hilo = new Thread(tarea, "exportacion-contratos");
+        hilo.setDaemon(true);
+        hilo.start();
+    }
+
+    /**
+     * Oculta la barra de progreso y vuelve a habilitar el botón de exportar.
+     */
+    private void finalizarExportacion() {
+        progresoExportacion.progressProperty().unbind();
+        progresoExportacion.setVisible(false);
+        btnExportar.setDisable(false);
+    }
+
+    /**
+     * Muestra una alerta con el tipo, título y mensaje indicados.
+     */
+    private void showAlert(Alert.AlertType alertType, String title, String message) {
+        Alert alert = new Alert(alertType);
+        alert.setTitle(title);
+        alert.setHeaderText(null);
+        alert.setContentText(message);
+        alert.showAndWait();
+    }
+
+    /**
+     * Cancela y vuelve a la pantalla anterior (área de datos).
+     */
+    @FXML
+    private void handleCancelar() {
+        try {
+            mainApp.getNavegacion().mostrar(NavegacionController.AREA_DATOS, "Datos");
         } catch (IOException e) {
-            e.printStackTrace();
+            LOGGER.error("Error al volver al área de datos", e);
         }
     }
 
     /**
      * Setter para la instancia principal de la aplicación.
      */
+    @Override
     public void setMainApp(MainApp mainApp) {
         this.mainApp = mainApp;
     }
 
     /**
-     * Limpia los filtros y la tabla.
+     * Limpia los filtros y vuelve a mostrar todos los contratos.
      */
     @FXML
     private void handleLimpiar() {
@@ -217,7 +355,66 @@ public class DatosContratosController {
         fechaInicioPicker.setValue(null);
         fechaFinalPicker.setValue(null);
 
-        contratosTableView.getItems().clear();
+        handleBuscar();
+    }
+
+    /**
+     * Vuelve a abrir los últimos documentos del contrato seleccionado tal como se generaron,
+     * sacándolos del archivo de documentos.
+     */
+    @FXML
+    private void handleReimprimir() {
+        FilaContrato filaSeleccionada = contratosTableView.getSelectionModel().getSelectedItem();
+        Contrato contratoSeleccionado = filaSeleccionada != null ? filaSeleccionada.getContrato() : null;
+
+        if (contratoSeleccionado == null) {
+            Alert alert = new Alert(Alert.AlertType.WARNING);
+            alert.setTitle("Seleccionar Contrato");
+            alert.setHeaderText(null);
+            alert.setContentText("Por favor, seleccione un contrato para reimprimir sus documentos.");
+            alert.showAndWait();
+            return;
+        }
+
+        try {
+            if (!new WordGeneratorController().reimprimir(contratoSeleccionado.getIdContrato())) {
+                Alert alert = new Alert(Alert.AlertType.INFORMATION);
+                alert.setTitle("Reimprimir");
+                alert.setHeaderText(null);
+                alert.setContentText("No hay documentos archivados del contrato " + contratoSeleccionado.getIdContrato() + ".");
+                alert.showAndWait();
+            }
+        } catch (IOException e) {
+            LOGGER.error("Error al reimprimir los documentos del contrato {}", contratoSeleccionado.getIdContrato(), e);
+            Alert alert = new Alert(Alert.AlertType.ERROR);
+            alert.setTitle("Reimprimir");
+            alert.setHeaderText(null);
+            alert.setContentText("No se pudieron reimprimir los documentos: " + e.getMessage());
+            alert.showAndWait();
+        }
+    }
+
+    /**
+     * Imprime en un solo documento todos los documentos generados hoy.
+     */
+    @FXML
+    private void handleImprimirHoy() {
+        try {
+            if (!new WordGeneratorController().imprimirDia(LocalDate.now())) {
+                Alert alert = new Alert(Alert.AlertType.INFORMATION);
+                alert.setTitle("Imprimir hoy");
+                alert.setHeaderText(null);
+                alert.setContentText("Hoy no se ha generado ningún documento.");
+                alert.showAndWait();
+            }
+        } catch (IOException e) {
+            LOGGER.error("Error al imprimir los documentos del día", e);
+            Alert alert = new Alert(Alert.AlertType.ERROR);
+            alert.setTitle("Imprimir hoy");
+            alert.setHeaderText(null);
+            alert.setContentText("No se pudieron imprimir los documentos: " + e.getMessage());
+            alert.showAndWait();
+        }
     }
 
     /**
@@ -225,7 +422,8 @@ public class DatosContratosController {
      */
     @FXML
     public void handleVerRenovaciones(ActionEvent actionEvent) {
-        Contrato contratoSeleccionado = contratosTableView.getSelectionModel().getSelectedItem();
+        FilaContrato filaSeleccionada = contratosTableView.getSelectionModel().getSelectedItem();
+        Contrato contratoSeleccionado = filaSeleccionada != null ? filaSeleccionada.getContrato() : null;
 
         if (contratoSeleccionado == null) {
             Alert alert = new Alert(Alert.AlertType.WARNING);
@@ -242,8 +440,10 @@ public class DatosContratosController {
 
             DatosRenovacionesController renovacionesController = loader.getController();
 
-            RenovacionDAO renovacionDAO = new RenovacionDAO();
-            List<Renovacion> renovaciones = renovacionDAO.obtenerRenovacionesPorIdContrato(contratoSeleccionado.getIdContrato());
+            List<Renovacion> renovaciones;
+            try (RenovacionDAO renovacionDAO = new RenovacionDAO()) {
+                renovaciones = renovacionDAO.obtenerRenovacionesPorIdContrato(contratoSeleccionado.getIdContrato());
+            }
 
             renovacionesController.setRenovaciones(renovaciones);
 
@@ -253,7 +453,7 @@ public class DatosContratosController {
             stage.show();
 
         } catch (IOException e) {
-            e.printStackTrace();
+            LOGGER.error("Error al cargar las renovaciones", e);
         }
     }
 }
@@ -1,13 +1,14 @@
 package com.comproOro.gestion.controller;
 
+import com.comproOro.gestion.model.filas.FilaRenovacion;
 import com.comproOro.gestion.model.modelos.Renovacion;
 import javafx.fxml.FXML;
 import javafx.scene.control.Button;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
-import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.stage.Stage;
 
+import java.util.Comparator;
 import java.util.List;
 
 /**
@@ -16,22 +17,22 @@ import java.util.List;
 public class DatosRenovacionesController {
 
     @FXML
-    private TableView<Renovacion> renovacionesTableView;
+    private TableView<FilaRenovacion> renovacionesTableView;
 
     @FXML
-    private TableColumn<Renovacion, Integer> idContratoColumn;
+    private TableColumn<FilaRenovacion, String> idContratoColumn;
 
     @FXML
-    private TableColumn<Renovacion, String> fechaRenovacionColumn;
+    private TableColumn<FilaRenovacion, String> fechaRenovacionColumn;
 
     @FXML
-    private TableColumn<Renovacion, String> fechaFinRenovacionColumn;
+    private TableColumn<FilaRenovacion, String> fechaFinRenovacionColumn;
 
     @FXML
-    private TableColumn<Renovacion, Integer> versionColumn;
+    private TableColumn<FilaRenovacion, String> versionColumn;
 
     @FXML
-    private TableColumn<Renovacion, Double> importeColumn;
+    private TableColumn<FilaRenovacion, String> importeColumn;
 
     @FXML
     private Button cancelButton;
@@ -41,21 +42,25 @@ public class DatosRenovacionesController {
      * @param renovaciones Lista de renovaciones a mostrar
      */
     public void setRenovaciones(List<Renovacion> renovaciones) {
-        renovacionesTableView.getItems().setAll(renovaciones);
+        renovacionesTableView.getItems().setAll(FilaRenovacion.crear(renovaciones));
     }
 
     /**
      * Método llamado automáticamente tras la carga del FXML.
-     * Configura las columnas de la tabla vinculándolas con las propiedades de Renovacion.
+     * Configura las columnas de la tabla con los textos ya formateados de cada renovación.
      */
     @FXML
     public void initialize() {
 
-        idContratoColumn.setCellValueFactory(new PropertyValueFactory<>("idContrato"));
-        fechaRenovacionColumn.setCellValueFactory(new PropertyValueFactory<>("fechaRenovacion"));
-        fechaFinRenovacionColumn.setCellValueFactory(new PropertyValueFactory<>("fechaFinRenovacion"));
-        versionColumn.setCellValueFactory(new PropertyValueFactory<>("version"));
-        importeColumn.setCellValueFactory(new PropertyValueFactory<>("importe"));
+        idContratoColumn.setCellValueFactory(cellData -> cellData.getValue().getCelda(FilaRenovacion.ID_CONTRATO));
+        fechaRenovacionColumn.setCellValueFactory(cellData -> cellData.getValue().getCelda(FilaRenovacion.FECHA_RENOVACION));
+        fechaFinRenovacionColumn.setCellValueFactory(cellData -> cellData.getValue().getCelda(FilaRenovacion.FECHA_FIN_RENOVACION));
+        versionColumn.setCellValueFactory(cellData -> cellData.getValue().getCelda(FilaRenovacion.VERSION));
+        importeColumn.setCellValueFactory(cellData -> cellData.getValue().getCelda(FilaRenovacion.IMPORTE));
+
+        // Las columnas numéricas se siguen ordenando por valor y no como texto
+        versionColumn.setComparator(Comparator.comparingInt(Integer::parseInt));
+        importeColumn.setComparator(Comparator.comparingDouble(Double::parseDouble));
     }
 
     /**
@@ -0,0 +1,320 @@
+package com.comproOro.gestion.controller;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import com.comproOro.gestion.model.dao.BandejaDocumentosDAO;
+import com.comproOro.gestion.model.dao.FuenteDatos;
+import com.comproOro.gestion.model.dao.FuenteLecturas;
+import com.comproOro.gestion.model.dao.Metricas;
+import com.comproOro.gestion.model.dao.Reintentos;
+import javafx.application.Platform;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Estado de la aplicación en tiempo de ejecución: conexiones a la base de datos, documentos
+ * Word en generación, bloqueos del hilo de JavaFX, memoria y tiempos de arranque. Se publica
+ * como MBean para consultarlo con jconsole y se muestra en la pantalla oculta de diagnóstico
+ * (Ctrl+Mayús+D desde el inicio).
+ */
+public class Diagnostico implements DiagnosticoMBean {
+
+    private static final Logger LOGGER = LogManager.getLogger(Diagnostico.class);
+
+    private static final Diagnostico INSTANCIA = new Diagnostico();
+
+    /** Cada cuánto se comprueba que el hilo de JavaFX responde. */
+    private static final long INTERVALO_SONDEO_MS = 500;
+
+    /** Retraso del hilo de JavaFX a partir del cual se cuenta un bloqueo. */
+    private static final long UMBRAL_BLOQUEO_MS = 200;
+
+    private final AtomicLong documentosEnCurso = new AtomicLong();
+    private final AtomicLong documentosGenerados = new AtomicLong();
+    private final AtomicLong documentosFallidos = new AtomicLong();
+
+    private final AtomicBoolean sondeoPendiente = new AtomicBoolean();
+    private final AtomicLong bloqueosHiloFx = new AtomicLong();
+    private final AtomicLong ultimoRetrasoHiloFxMs = new AtomicLong();
+    private final AtomicLong maximoRetrasoHiloFxMs = new AtomicLong();
+
+    private final AtomicLong arranquePrimeraPantallaMs = new AtomicLong(-1);
+    private final AtomicLong arranquePrimerDocumentoMs = new AtomicLong(-1);
+
+    /** Bandeja de documentos de este puesto; se asigna cuando empieza a generarlos. */
+    private volatile BandejaDocumentosDAO bandejaDocumentos;
+
+    private Diagnostico() {
+    }
+
+    public static Diagnostico getInstancia() {
+        return INSTANCIA;
+    }
+
+    /**
+     * Registra el MBean en el servidor de la plataforma y empieza a vigilar el hilo de JavaFX.
+     * Se llama una vez al arrancar la aplicación.
+     */
+    public static void iniciar() {
+        try {
+            ManagementFactory.getPlatformMBeanServer()
+                    .registerMBean(INSTANCIA, new ObjectName("com.comproOro.gestion:type=Diagnostico"));
+        } catch (Exception e) {
+            LOGGER.warn("No se pudo registrar el MBean de diagnóstico", e);
+        }
+
+        ScheduledExecutorService sondeo = Executors.newSingleThreadScheduledExecutor(tarea -> {
+            Thread hilo = new Thread(tarea, "sondeo-hilo-fx");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        sondeo.scheduleWithFixedDelay(INSTANCIA::sondearHiloFx, INTERVALO_SONDEO_MS, INTERVALO_SONDEO_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Encola una tarea vacía en el hilo de JavaFX y mide cuánto tarda en ejecutarse. Mientras
+     * no se haya ejecutado la anterior no se encola otra, así un bloqueo largo se mide entero.
+     */
+    private void sondearHiloFx() {
+        if (!sondeoPendiente.compareAndSet(false, true)) {
+            return;
+        }
+        long enviado = System.nanoTime();
+        Platform.runLater(() -> {
+            long retrasoMs = (System.nanoTime() - enviado) / 1_000_000L;
+            ultimoRetrasoHiloFxMs.set(retrasoMs);
+            maximoRetrasoHiloFxMs.accumulateAndGet(retrasoMs, Math::max);
+            if (retrasoMs >= UMBRAL_BLOQUEO_MS) {
+                bloqueosHiloFx.incrementAndGet();
+                LOGGER.warn("El hilo de JavaFX estuvo bloqueado {} ms", retrasoMs);
+            }
+            sondeoPendiente.set(false);
+        });
+    }
+
+    /**
+     * Apunta el tiempo de arranque hasta la primera pantalla. Solo cuenta la primera llamada.
+     *
+     * @return los milisegundos desde el arranque de la JVM.
+     */
+    public static long primeraPantallaMostrada() {
+        long ms = milisegundosDesdeArranque();
+        if (INSTANCIA.arranquePrimeraPantallaMs.compareAndSet(-1, ms)) {
+            LOGGER.info("Primera pantalla mostrada a los {} ms del arranque", ms);
+        }
+        return ms;
+    }
+
+    private static long milisegundosDesdeArranque() {
+        return System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+    }
+
+    /**
+     * Publica el tamaño de la bandeja de documentos. Se llama cuando la bandeja empieza a
+     * generarlos.
+     *
+     * @param bandejaDAO DAO de la bandeja de este puesto.
+     */
+    public static void vigilarBandeja(BandejaDocumentosDAO bandejaDAO) {
+        INSTANCIA.bandejaDocumentos = bandejaDAO;
+    }
+
+    /**
+     * Marca el inicio de la generación de un documento. El documento cuenta como fallido
+     * si se cierra sin haber llamado a {@link Documento#completado()}.
+     */
+    public static Documento iniciarDocumento() {
+        INSTANCIA.documentosEnCurso.incrementAndGet();
+        return new Documento();
+    }
+
+    /**
+     * Documento Word en generación; se usa como recurso de un try-with-resources.
+     */
+    public static final class Documento implements AutoCloseable {
+        private boolean completado;
+
+        private Documento() {
+        }
+
+        public void completado() {
+            completado = true;
+        }
+
+        @Override
+        public void close() {
+            INSTANCIA.documentosEnCurso.decrementAndGet();
+            if (completado) {
+                INSTANCIA.documentosGenerados.incrementAndGet();
+                long ms = milisegundosDesdeArranque();
+                if (INSTANCIA.arranquePrimerDocumentoMs.compareAndSet(-1, ms)) {
+                    LOGGER.info("Primer documento generado a los {} ms del arranque", ms);
+                }
+            } else {
+                INSTANCIA.documentosFallidos.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Devuelve todos los valores de diagnóstico con un nombre legible, en el orden en que
+     * se muestran en pantalla.
+     */
+    public Map<String, String> obtenerValores() {
+        Map<String, String> valores = new LinkedHashMap<>();
+        valores.put("Conexiones abiertas", String.valueOf(getConexionesAbiertas()));
+        valores.put("Conexiones creadas", String.valueOf(getConexionesCreadas()));
+        valores.put("Base de datos ocupada", String.valueOf(getContencionesBaseDatos()));
+        valores.put("Escrituras fallidas por ocupación", String.valueOf(getEscriturasAgotadas()));
+        valores.put("Lecturas en curso", String.valueOf(getLecturasEnCurso()));
+        valores.put("Lecturas cortadas por duración", String.valueOf(getLecturasCortadas()));
+        valores.put("Documentos en curso", String.valueOf(getDocumentosEnCurso()));
+        valores.put("Documentos generados", String.valueOf(getDocumentosGenerados()));
+        valores.put("Documentos fallidos", String.valueOf(getDocumentosFallidos()));
+        valores.put("Documentos en la bandeja", String.valueOf(getDocumentosEnBandeja()));
+        valores.put("Documentos atascados", String.valueOf(getDocumentosAtascados()));
+        valores.put("Bloqueos del hilo FX", String.valueOf(getBloqueosHiloFx()));
+        valores.put("Último retraso del hilo FX (ms)", String.valueOf(getUltimoRetrasoHiloFxMs()));
+        valores.put("Máximo retraso del hilo FX (ms)", String.valueOf(getMaximoRetrasoHiloFxMs()));
+        valores.put("Memoria usada (MB)", getHeapUsadoMb() + " / " + getHeapMaximoMb());
+        valores.put("Hilos activos", String.valueOf(getHilosActivos()));
+        valores.put("Arranque hasta el inicio (ms)", String.valueOf(getArranquePrimeraPantallaMs()));
+        valores.put("Arranque hasta el primer documento (ms)", String.valueOf(getArranquePrimerDocumentoMs()));
+        return valores;
+    }
+
+    @Override
+    public long getConexionesAbiertas() {
+        return FuenteDatos.getTotalConexionesAbiertas();
+    }
+
+    @Override
+    public long getConexionesCreadas() {
+        return FuenteDatos.getTotalConexionesCreadas();
+    }
+
+    @Override
+    public long getContencionesBaseDatos() {
+        return Reintentos.getContenciones();
+    }
+
+    @Override
+    public long getEscriturasAgotadas() {
+        return Reintentos.getAgotados();
+    }
+
+    @Override
+    public long getLecturasEnCurso() {
+        return FuenteLecturas.getLecturasEnCurso();
+    }
+
+    @Override
+    public long getLecturasCortadas() {
+        return FuenteLecturas.getLecturasCortadas();
+    }
+
+    @Override
+    public long getDocumentosEnCurso() {
+        return documentosEnCurso.get();
+    }
+
+    @Override
+    public long getDocumentosGenerados() {
+        return documentosGenerados.get();
+    }
+
+    @Override
+    public long getDocumentosFallidos() {
+        return documentosFallidos.get();
+    }
+
+    @Override
+    public long getDocumentosEnBandeja() {
+        BandejaDocumentosDAO bandejaDAO = bandejaDocumentos;
+        return bandejaDAO != null ? bandejaDAO.contarPendientes() : -1;
+    }
+
+    @Override
+    public long getDocumentosAtascados() {
+        BandejaDocumentosDAO bandejaDAO = bandejaDocumentos;
+        return bandejaDAO != null ? bandejaDAO.contarAtascados(BandejaDocumentosController.INTENTOS_ATASCADO) : -1;
+    }
+
+
+    @Override
+    public long getBloqueosHiloFx() {
+        return bloqueosHiloFx.get();
+    }
+
+    @Override
+    public long getUltimoRetrasoHiloFxMs() {
+        return ultimoRetrasoHiloFxMs.get();
+    }
+
+    @Override
+    public long getMaximoRetrasoHiloFxMs() {
+        return maximoRetrasoHiloFxMs.get();
+    }
+
+    @Override
+    public long getHeapUsadoMb() {
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        return heap.getUsed() / (1024 * 1024);
+    }
+
+    @Override
+    public long getHeapMaximoMb() {
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        return heap.getMax() / (1024 * 1024);
+    }
+
+    @Override
+    public int getHilosActivos() {
+        return ManagementFactory.getThreadMXBean().getThreadCount();
+    }
+
+    @Override
+    public long getArranquePrimeraPantallaMs() {
+        return arranquePrimeraPantallaMs.get();
+    }
+
+    @Override
+    public long getArranquePrimerDocumentoMs() {
+        return arranquePrimerDocumentoMs.get();
+    }
+
+    @Override
+    public String volcarMetricas() {
+        return Metricas.volcar();
+    }
+
+    @Override
+    public void reiniciar() {
+        Metricas.reiniciar();
+        Reintentos.reiniciar();
+        FuenteLecturas.reiniciar();
+        bloqueosHiloFx.set(0);
+        ultimoRetrasoHiloFxMs.set(0);
+        maximoRetrasoHiloFxMs.set(0);
+    }
+    @Override
+    public int reintentarDocumentos() {
+        BandejaDocumentosDAO bandejaDAO = bandejaDocumentos;
+        if (bandejaDAO == null) {
+            return -1;
+        }
+        int reintentados = bandejaDAO.reintentarAhora();
+        LOGGER.info("{} documentos de la bandeja se intentan de nuevo a petición del diagnóstico", reintentados);
+        return reintentados;
+    }
+
+}
@@ -0,0 +1,104 @@
+package com.comproOro.gestion.controller;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import com.comproOro.gestion.MainApp;
+import com.comproOro.gestion.model.dao.Metricas;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.fxml.FXML;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.TextArea;
+import javafx.scene.layout.GridPane;
+import javafx.util.Duration;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Controlador de la pantalla oculta de diagnóstico (Ctrl+Mayús+D desde el inicio).
+ * Muestra cada segundo los valores de {@link Diagnostico} y la tabla de latencias por operación.
+ */
+public class DiagnosticoController implements Pantalla {
+
+    private static final Logger LOGGER = LogManager.getLogger(DiagnosticoController.class);
+
+    @FXML
+    private GridPane valoresGrid;
+    @FXML
+    private TextArea metricasTextArea;
+    @FXML
+    private Button btnCancelar;
+
+    private MainApp mainApp;
+    private Timeline refresco;
+
+    /**
+     * Método llamado automáticamente al cargar el controlador.
+     * Prepara el refresco de cada segundo, que solo funciona mientras la pantalla está visible.
+     */
+    @FXML
+    private void initialize() {
+        refresco = new Timeline(new KeyFrame(Duration.seconds(1), event -> actualizar()));
+        refresco.setCycleCount(Timeline.INDEFINITE);
+    }
+
+    /**
+     * Pinta los valores y arranca el refresco.
+     */
+    @Override
+    public void refrescar() {
+        actualizar();
+        refresco.play();
+    }
+
+    /**
+     * Detiene el refresco al salir de la pantalla.
+     */
+    @Override
+    public void restablecer() {
+        refresco.stop();
+    }
+
+    /**
+     * Vuelve a leer los valores de diagnóstico y las métricas.
+     */
+    private void actualizar() {
+        valoresGrid.getChildren().clear();
+        int fila = 0;
+        for (Map.Entry<String, String> valor : Diagnostico.getInstancia().obtenerValores().entrySet()) {
+            valoresGrid.addRow(fila++, new Label(valor.getKey()), new Label(valor.getValue()));
+        }
+
+        double desplazamiento = metricasTextArea.getScrollTop();
+        metricasTextArea.setText(Metricas.formatear());
+        metricasTextArea.setScrollTop(desplazamiento);
+    }
+
+    /**
+     * Pone a cero las latencias y los contadores del hilo de JavaFX.
+     */
+    @FXML
+    private void handleReiniciar() {
+        Diagnostico.getInstancia().reiniciar();
+        actualizar();
+    }
+
+    @Override
+    public void setMainApp(MainApp mainApp) {
+        this.mainApp = mainApp;
+    }
+
+    /**
+     * Vuelve a la pantalla de inicio.
+     */
+    @FXML
+    private void handleCancelar() {
+        try {
+            mainApp.getNavegacion().mostrar(NavegacionController.INICIO, "Main Application");
+        } catch (IOException e) {
+            LOGGER.error("Error al volver al inicio", e);
+        }
+    }
+}
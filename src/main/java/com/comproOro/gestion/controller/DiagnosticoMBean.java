@@ -0,0 +1,93 @@
+package com.comproOro.gestion.controller;
+
+/**
+ * Atributos y operaciones de diagnóstico publicados por JMX bajo
+ * {@code com.comproOro.gestion:type=Diagnostico}. Se pueden consultar con jconsole o
+ * VisualVM sin detener la aplicación.
+ */
+public interface DiagnosticoMBean {
+
+    long getConexionesAbiertas();
+
+    long getConexionesCreadas();
+
+    /**
+     * Veces que una escritura ha encontrado la base de datos ocupada por otro puesto.
+     */
+    long getContencionesBaseDatos();
+
+    /**
+     * Escrituras que han fallado porque la base de datos seguía ocupada tras todos los intentos.
+     */
+    long getEscriturasAgotadas();
+
+    /**
+     * Lecturas de informes, exportaciones y listados que están usando una conexión de solo lectura.
+     */
+    long getLecturasEnCurso();
+
+    /**
+     * Lecturas interrumpidas por superar la duración máxima.
+     */
+    long getLecturasCortadas();
+
+    long getDocumentosEnCurso();
+
+    long getDocumentosGenerados();
+
+    long getDocumentosFallidos();
+
+    /**
+     * Documentos de este puesto pendientes o en curso en la bandeja, o -1 si la bandeja aún no
+     * ha empezado a generarlos.
+     */
+    long getDocumentosEnBandeja();
+
+    /**
+     * Documentos de este puesto que siguen sin generarse tras varios fallos, o -1 si la bandeja
+     * aún no ha empezado a generarlos. La bandeja los sigue reintentando.
+     */
+    long getDocumentosAtascados();
+
+    long getBloqueosHiloFx();
+
+    long getUltimoRetrasoHiloFxMs();
+
+    long getMaximoRetrasoHiloFxMs();
+
+    long getHeapUsadoMb();
+
+    long getHeapMaximoMb();
+
+    int getHilosActivos();
+
+    /**
+     * Milisegundos desde el arranque de la JVM hasta mostrar el inicio, o -1 si aún no se ha mostrado.
+     */
+    long getArranquePrimeraPantallaMs();
+
+    /**
+     * Milisegundos desde el arranque de la JVM hasta terminar el primer documento Word, o -1 si
+     * todavía no se ha generado ninguno.
+     */
+    long getArranquePrimerDocumentoMs();
+
+    /**
+     * Devuelve la tabla de latencias por operación de {@link com.comproOro.gestion.model.dao.Metricas}.
+     */
+    String volcarMetricas();
+
+    /**
+     * Descarta las latencias y los contadores del hilo de JavaFX, de la base de datos ocupada y de
+     * las lecturas cortadas acumulados hasta ahora.
+     */
+    void reiniciar();
+
+    /**
+     * Vuelve a intentar ahora todos los documentos pendientes de este puesto, sin esperar a su
+     * siguiente intento; por ejemplo, tras arreglar la impresora o Word.
+     *
+     * @return los documentos que se volverán a intentar, o -1 si la bandeja aún no ha empezado.
+     */
+    int reintentarDocumentos();
+}
@@ -0,0 +1,238 @@
+package com.comproOro.gestion.controller;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import com.comproOro.gestion.model.dao.ExportacionDAO;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * Controlador encargado de exportar el libro de contratos (contratos, productos y renovaciones)
+ * a Excel (.xlsx) o CSV. Las filas se leen del cursor de {@link ExportacionDAO} y se escriben
+ * según llegan: en Excel se usa {@link SXSSFWorkbook}, que solo mantiene en memoria una ventana
+ * fija de filas por hoja, y en CSV se escribe directamente a disco.
+ */
+public class ExportacionController {
+
+    private static final Logger LOGGER = LogManager.getLogger(ExportacionController.class);
+
+    /** Número de filas por hoja que SXSSF mantiene en memoria antes de volcarlas a disco. */
+    private static final int VENTANA_FILAS = 200;
+
+    /** Cada cuántas filas se notifica el progreso. */
+    private static final int INTERVALO_PROGRESO = 1000;
+
+    /** Separador de campos en CSV (punto y coma, como espera Excel en español). */
+    private static final char SEPARADOR_CSV = ';';
+
+    /**
+     * Recibe el avance de la exportación.
+     */
+    public interface Progreso {
+        /**
+         * @param filas Filas exportadas hasta el momento.
+         * @param total Filas totales previstas.
+         */
+        void actualizar(long filas, long total);
+    }
+
+    private final ExportacionDAO exportacionDAO = new ExportacionDAO();
+
+    /**
+     * Exporta contratos, productos y renovaciones a un libro Excel con una hoja para cada uno.
+     *
+     * @param archivo  Archivo .xlsx de destino.
+     * @param filtro   Filtros de la búsqueda de contratos.
+     * @param progreso Receptor del avance, o null.
+     * @return Número de filas exportadas.
+     * @throws Exception si falla la lectura o la escritura.
+     */
+    public long exportarExcel(File archivo, ExportacionDAO.Filtro filtro, Progreso progreso) throws Exception {
+        long total = exportacionDAO.contarFilas(filtro);
+        long[] filas = {0};
+
+        SXSSFWorkbook workbook = new SXSSFWorkbook(VENTANA_FILAS);
+        workbook.setCompressTempFiles(true);
+        try {
+            CellStyle estiloFecha = workbook.createCellStyle();
+            estiloFecha.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("dd/mm/yyyy"));
+
+            SXSSFSheet hojaContratos = crearHoja(workbook, "Contratos", ExportacionDAO.COLUMNAS_CONTRATOS);
+            exportacionDAO.recorrerContratos(filtro, fila ->
+                    escribirFilaExcel(hojaContratos, fila, estiloFecha, filas, total, progreso));
+
+            SXSSFSheet hojaProductos = crearHoja(workbook, "Productos", ExportacionDAO.COLUMNAS_PRODUCTOS);
+            exportacionDAO.recorrerProductos(filtro, fila ->
+                    escribirFilaExcel(hojaProductos, fila, estiloFecha, filas, total, progreso));
+
+            SXSSFSheet hojaRenovaciones = crearHoja(workbook, "Renovaciones", ExportacionDAO.COLUMNAS_RENOVACIONES);
+            exportacionDAO.recorrerRenovaciones(filtro, fila ->
+                    escribirFilaExcel(hojaRenovaciones, fila, estiloFecha, filas, total, progreso));
+
+            try (OutputStream os = new BufferedOutputStream(new FileOutputStream(archivo))) {
+                workbook.write(os);
+            }
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+
+        notificar(progreso, filas[0], total);
+        LOGGER.info("Exportación Excel generada en: {} ({} filas)", archivo.getAbsolutePath(), filas[0]);
+        return filas[0];
+    }
+
+    /**
+     * Exporta contratos, productos y renovaciones a tres archivos CSV junto al archivo indicado,
+     * con los sufijos {@code _contratos}, {@code _productos} y {@code _renovaciones}.
+     *
+     * @param archivo  Archivo .csv de referencia para el nombre de los archivos de destino.
+     * @param filtro   Filtros de la búsqueda de contratos.
+     * @param progreso Receptor del avance, o null.
+     * @return Número de filas exportadas.
+     * @throws Exception si falla la lectura o la escritura.
+     */
+    public long exportarCsv(File archivo, ExportacionDAO.Filtro filtro, Progreso progreso) throws Exception {
+        long total = exportacionDAO.contarFilas(filtro);
+        long[] filas = {0};
+        SimpleDateFormat sdf = new SimpleDateFormat("dd/MM/yyyy");
+
+        try (Writer writer = abrirCsv(archivo, "_contratos", ExportacionDAO.COLUMNAS_CONTRATOS)) {
+            exportacionDAO.recorrerContratos(filtro, fila ->
+                    escribirFilaCsv(writer, fila, sdf, filas, total, progreso));
+        }
+        try (Writer writer = abrirCsv(archivo, "_productos", ExportacionDAO.COLUMNAS_PRODUCTOS)) {
+            exportacionDAO.recorrerProductos(filtro, fila ->
+                    escribirFilaCsv(writer, fila, sdf, filas, total, progreso));
+        }
+        try (Writer writer = abrirCsv(archivo, "_renovaciones", ExportacionDAO.COLUMNAS_RENOVACIONES)) {
+            exportacionDAO.recorrerRenovaciones(filtro, fila ->
+                    escribirFilaCsv(writer, fila, sdf, filas, total, progreso));
+        }
+
+        notificar(progreso, filas[0], total);
+        LOGGER.info("Exportación CSV generada junto a: {} ({} filas)", archivo.getAbsolutePath(), filas[0]);
+        return filas[0];
+    }
+
+    /**
+     * Crea una hoja con su fila de cabecera.
+     */
+    private SXSSFSheet crearHoja(SXSSFWorkbook workbook, String nombre, String[] columnas) {
+        SXSSFSheet hoja = workbook.createSheet(nombre);
+        Row cabecera = hoja.createRow(0);
+        for (int i = 0; i < columnas.length; i++) {
+            cabecera.createCell(i).setCellValue(columnas[i]);
+        }
+        return hoja;
+    }
+
+    /**
+     * Escribe una fila en la hoja, a continuación de la última.
+     */
+    private void escribirFilaExcel(SXSSFSheet hoja, Object[] fila, CellStyle estiloFecha,
+                                   long[] filas, long total, Progreso progreso) {
+        Row row = hoja.createRow(hoja.getLastRowNum() + 1);
+        for (int i = 0; i < fila.length; i++) {
+            Object valor = fila[i];
+            if (valor == null) {
+                continue;
+            }
+            Cell cell = row.createCell(i);
+            if (valor instanceof Number) {
+                cell.setCellValue(((Number) valor).doubleValue());
+            } else if (valor instanceof Date) {
+                cell.setCellValue((Date) valor);
+                cell.setCellStyle(estiloFecha);
+            } else {
+                cell.setCellValue(valor.toString());
+            }
+        }
+        contarFila(filas, total, progreso);
+    }
+
+    /**
+     * Abre un archivo CSV con codificación UTF-8 (con BOM para Excel) y escribe la cabecera.
+     */
+    private Writer abrirCsv(File archivo, String sufijo, String[] columnas) throws IOException {
+        String nombre = archivo.getName();
+        int punto = nombre.lastIndexOf('.');
+        String base = punto > 0 ? nombre.substring(0, punto) : nombre;
+        File destino = new File(archivo.getParentFile(), base + sufijo + ".csv");
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(destino), StandardCharsets.UTF_8), 64 * 1024);
+        writer.write('\uFEFF');
+        for (int i = 0; i < columnas.length; i++) {
+            if (i > 0) {
+                writer.write(SEPARADOR_CSV);
+            }
+            escribirCampoCsv(writer, columnas[i]);
+        }
+        writer.write("\r\n");
+        return writer;
+    }
+
+    /**
+     * Escribe una fila en el archivo CSV.
+     */
+    private void escribirFilaCsv(Writer writer, Object[] fila, SimpleDateFormat sdf,
+                                 long[] filas, long total, Progreso progreso) throws IOException {
+        for (int i = 0; i < fila.length; i++) {
+            if (i > 0) {
+                writer.write(SEPARADOR_CSV);
+            }
+            Object valor = fila[i];
+            if (valor instanceof Date) {
+                writer.write(sdf.format((Date) valor));
+            } else if (valor instanceof Double) {
+                writer.write(String.valueOf(valor).replace('.', ','));
+            } else if (valor != null) {
+                escribirCampoCsv(writer, valor.toString());
+            }
+        }
+        writer.write("\r\n");
+        contarFila(filas, total, progreso);
+    }
+
+    /**
+     * Escribe un campo de texto, entre comillas si contiene el separador, comillas o saltos de línea.
+     */
+    private void escribirCampoCsv(Writer writer, String valor) throws IOException {
+        if (valor.indexOf(SEPARADOR_CSV) < 0 && valor.indexOf('"') < 0
+                && valor.indexOf('\n') < 0 && valor.indexOf('\r') < 0) {
+            writer.write(valor);
+            return;
+        }
+        writer.write('"');
+        writer.write(valor.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    /**
+     * Suma una fila exportada y notifica el progreso cada {@link #INTERVALO_PROGRESO} filas.
+     * Si el hilo ha sido interrumpido se aborta la exportación.
+     */
+    private void contarFila(long[] filas, long total, Progreso progreso) {
+        filas[0]++;
+        if (filas[0] % INTERVALO_PROGRESO == 0) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new IllegalStateException("Exportación cancelada.");
+            }
+            notificar(progreso, filas[0], total);
+        }
+    }
+
+    private void notificar(Progreso progreso, long filas, long total) {
+        if (progreso != null) {
+            progreso.actualizar(filas, Math.max(total, filas));
+        }
+    }
+}
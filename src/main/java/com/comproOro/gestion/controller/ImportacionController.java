@@ -0,0 +1,446 @@
+package com.comproOro.gestion.controller;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import com.comproOro.gestion.model.dao.ImportacionDAO;
+import com.comproOro.gestion.model.dao.ResumenDAO;
+import com.comproOro.gestion.model.modelos.Cliente;
+import com.comproOro.gestion.model.modelos.Contrato;
+import com.comproOro.gestion.model.modelos.Producto;
+import com.comproOro.gestion.model.modelos.Renovacion;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Controlador encargado de importar registros antiguos desde archivos CSV.
+ * <p>
+ * Busca en una carpeta los archivos cuyo nombre termina en {@code clientes.csv}, {@code contratos.csv},
+ * {@code productos.csv} y {@code renovaciones.csv} (los tres últimos con las mismas columnas que la
+ * exportación del libro de contratos) y los lee en ese orden, línea a línea. Cada fila se valida y,
+ * si es correcta, se inserta por lotes mediante {@link ImportacionDAO}; las rechazadas se anotan con
+ * su archivo, línea y motivo en {@code importacion_rechazos.csv}, en la misma carpeta.
+ * <p>
+ * Los contratos deben ser de un cliente ya guardado o importado, y los productos y renovaciones de un
+ * contrato importado en la misma carga. Al terminar se reconstruye el resumen de operaciones.
+ */
+public class ImportacionController {
+
+    private static final Logger LOGGER = LogManager.getLogger(ImportacionController.class);
+
+    /** Nombre del archivo de filas rechazadas. */
+    public static final String ARCHIVO_RECHAZOS = "importacion_rechazos.csv";
+
+    /**
+     * Año y número del contrato, como en {@link com.comproOro.gestion.model.modelos.Contrato#generarIdContrato(int)}.
+     * El número ocupa al menos cuatro cifras y crece a partir del 10000.
+     */
+    private static final Pattern FORMATO_ID_CONTRATO = Pattern.compile("[EC]-\\d{8,}");
+    private static final DateTimeFormatter FORMATO_FECHA = DateTimeFormatter.ofPattern("d/M/yyyy");
+
+    /**
+     * Resultado de una importación.
+     */
+    public static class Resultado {
+        private long clientes;
+        private long contratos;
+        private long productos;
+        private long renovaciones;
+        private long rechazadas;
+        private File archivoRechazos;
+
+        public long getClientes() {
+            return clientes;
+        }
+
+        public long getContratos() {
+            return contratos;
+        }
+
+        public long getProductos() {
+            return productos;
+        }
+
+        public long getRenovaciones() {
+            return renovaciones;
+        }
+
+        /** @return Filas rechazadas en todos los archivos. */
+        public long getRechazadas() {
+            return rechazadas;
+        }
+
+        /** @return Archivo con las filas rechazadas, o null si no hay ninguna. */
+        public File getArchivoRechazos() {
+            return archivoRechazos;
+        }
+
+        @Override
+        public String toString() {
+            return "Clientes: " + clientes + ", contratos: " + contratos + ", productos: " + productos
+                    + ", renovaciones: " + renovaciones + ", filas rechazadas: " + rechazadas;
+        }
+    }
+
+    /**
+     * Fila no válida. El mensaje es el motivo que se anota en el archivo de rechazos.
+     */
+    private static class FilaRechazada extends Exception {
+        FilaRechazada(String motivo) {
+            super(motivo);
+        }
+    }
+
+    /**
+     * Importa los archivos CSV de una carpeta.
+     *
+     * @param carpeta Carpeta con los archivos a importar.
+     * @return Número de filas importadas de cada tipo y de filas rechazadas.
+     * @throws Exception si no se puede leer un archivo o falla la inserción de un lote.
+     */
+    public Resultado importar(File carpeta) throws Exception {
+        Resultado resultado = new Resultado();
+        File archivoRechazos = new File(carpeta, ARCHIVO_RECHAZOS);
+
+        try (ImportacionDAO importacionDAO = new ImportacionDAO();
+             Writer rechazos = new BufferedWriter(new OutputStreamWriter(
+                     new FileOutputStream(archivoRechazos), StandardCharsets.UTF_8))) {
+
+            rechazos.write('\uFEFF');
+            rechazos.write("Archivo;Línea;Motivo\r\n");
+
+            Set<String> dnis = importacionDAO.obtenerDnisClientes();
+            Set<String> contratosGuardados = importacionDAO.obtenerIdsContratos();
+            Set<String> contratosImportados = new HashSet<>();
+
+            File clientes = buscarArchivo(carpeta, "clientes.csv");
+            if (clientes != null) {
+                resultado.clientes = recorrer(clientes, rechazos, resultado, campos -> {
+                    Cliente cliente = new Cliente(
+                            obligatorio(campos, 0, "DNI").toUpperCase(),
+                            obligatorio(campos, 1, "nombre"),
+                            texto(campos, 2), texto(campos, 3), texto(campos, 4), texto(campos, 5));
+                    if (!dnis.add(cliente.getDni())) {
+                        throw new FilaRechazada("El cliente " + cliente.getDni() + " ya existe.");
+                    }
+                    importacionDAO.anadirCliente(cliente);
+                });
+            }
+
+            File contratos = buscarArchivo(carpeta, "contratos.csv");
+            if (contratos != null) {
+                resultado.contratos = recorrer(contratos, rechazos, resultado, campos -> {
+                    Contrato contrato = leerContrato(campos);
+                    if (!dnis.contains(contrato.getDniCliente())) {
+                        throw new FilaRechazada("El cliente " + contrato.getDniCliente() + " no existe.");
+                    }
+                    if (contratosGuardados.contains(contrato.getIdContrato())
+                            || !contratosImportados.add(contrato.getIdContrato())) {
+                        throw new FilaRechazada("El contrato " + contrato.getIdContrato() + " ya existe.");
+                    }
+                    importacionDAO.anadirContrato(contrato);
+                });
+            }
+
+            File productos = buscarArchivo(carpeta, "productos.csv");
+            if (productos != null) {
+                resultado.productos = recorrer(productos, rechazos, resultado, campos -> {
+                    Producto producto = new Producto(0,
+                            entero(campos, 2, "cantidad"),
+                            obligatorio(campos, 3, "descripción"),
+                            texto(campos, 4),
+                            decimal(campos, 5, "peso"),
+                            decimal(campos, 6, "precio por gramo"),
+                            decimal(campos, 7, "importe"),
+                            contratoImportado(campos, 1, contratosImportados));
+                    importacionDAO.anadirProducto(producto);
+                });
+            }
+
+            File renovaciones = buscarArchivo(carpeta, "renovaciones.csv");
+            if (renovaciones != null) {
+                resultado.renovaciones = recorrer(renovaciones, rechazos, resultado, campos -> {
+                    LocalDate fechaRenovacion = fecha(campos, 2, "fecha de renovación");
+                    LocalDate fechaFin = fecha(campos, 3, "fecha fin de renovación");
+                    if (fechaRenovacion == null || fechaFin == null) {
+                        throw new FilaRechazada("Faltan las fechas de la renovación.");
+                    }
+                    Renovacion renovacion = new Renovacion(0,
+                            contratoImportado(campos, 1, contratosImportados),
+                            fechaRenovacion, fechaFin,
+                            entero(campos, 4, "versión"),
+                            decimal(campos, 5, "importe"));
+                    importacionDAO.anadirRenovacion(renovacion);
+                });
+            }
+        }
+
+        if (resultado.rechazadas > 0) {
+            resultado.archivoRechazos = archivoRechazos;
+        } else {
+            archivoRechazos.delete();
+        }
+
+        if (resultado.contratos > 0) {
+            new ResumenDAO().reconstruirResumen();
+        }
+
+        LOGGER.info("Importación terminada desde {}. {}", carpeta.getAbsolutePath(), resultado);
+        return resultado;
+    }
+
+    /**
+     * Procesa una fila de un archivo.
+     */
+    private interface ProcesadorFila {
+        void procesar(List<String> campos) throws Exception;
+    }
+
+    /**
+     * Recorre las filas de un archivo (sin la cabecera) y anota las rechazadas.
+     *
+     * @return Número de filas aceptadas.
+     */
+    private long recorrer(File archivo, Writer rechazos, Resultado resultado, ProcesadorFila procesador) throws Exception {
+        long aceptadas = 0;
+        try (LectorCsv lector = new LectorCsv(archivo)) {
+            List<String> campos = lector.siguiente();
+            while ((campos = lector.siguiente()) != null) {
+                if (campos.size() == 1 && campos.get(0).isEmpty()) {
+                    continue;
+                }
+                try {
+                    procesador.procesar(campos);
+                    aceptadas++;
+                } catch (FilaRechazada e) {
+                    resultado.rechazadas++;
+                    rechazos.write(archivo.getName() + ";" + lector.getLinea() + ";"
+                            + e.getMessage().replace(';', ',') + "\r\n");
+                }
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new IllegalStateException("Importación cancelada.");
+                }
+            }
+        }
+        return aceptadas;
+    }
+
+    private File buscarArchivo(File carpeta, String sufijo) {
+        File[] archivos = carpeta.listFiles((dir, nombre) -> nombre.toLowerCase().endsWith(sufijo)
+                && !nombre.equalsIgnoreCase(ARCHIVO_RECHAZOS));
+        return archivos != null && archivos.length > 0 ? archivos[0] : null;
+    }
+
+    /**
+     * Lee un contrato con las columnas de la exportación: ID Contrato, ID Póliza, DNI Cliente, Detalles,
+     * Fecha Inicio, Fecha Final, Tipo, Rescatado, Fecha Rescate e Importe.
+     */
+    private Contrato leerContrato(List<String> campos) throws FilaRechazada {
+        Contrato contrato = new Contrato();
+
+        String idContrato = obligatorio(campos, 0, "ID de contrato").toUpperCase();
+        if (!FORMATO_ID_CONTRATO.matcher(idContrato).matches()) {
+            throw new FilaRechazada("ID de contrato no válido: " + idContrato);
+        }
+        contrato.setIdContrato(idContrato);
+
+        String idPol = texto(campos, 1);
+        contrato.setIdPol(idPol.isEmpty() ? null : idPol);
+        contrato.setDniCliente(obligatorio(campos, 2, "DNI").toUpperCase());
+        contrato.setDetallesContrato(texto(campos, 3));
+
+        LocalDate fechaInicio = fecha(campos, 4, "fecha de inicio");
+        if (fechaInicio == null) {
+            throw new FilaRechazada("Falta la fecha de inicio.");
+        }
+        contrato.setFechaInicio(aDate(fechaInicio));
+        contrato.setFechaFinal(aDate(fecha(campos, 5, "fecha final")));
+
+        String tipo = obligatorio(campos, 6, "tipo");
+        if (tipo.equalsIgnoreCase("Empeno") || tipo.equalsIgnoreCase("Empeño")) {
+            contrato.setTipo("Empeno");
+        } else if (tipo.equalsIgnoreCase("Compra")) {
+            contrato.setTipo("Compra");
+        } else {
+            throw new FilaRechazada("Tipo de contrato no válido: " + tipo);
+        }
+
+        contrato.setRescatado("S".equalsIgnoreCase(texto(campos, 7)) ? "S" : "N");
+        contrato.setFechaRescate(aDate(fecha(campos, 8, "fecha de rescate")));
+        contrato.setImporte(decimal(campos, 9, "importe"));
+        return contrato;
+    }
+
+    private String contratoImportado(List<String> campos, int indice, Set<String> contratosImportados) throws FilaRechazada {
+        String idContrato = obligatorio(campos, indice, "ID de contrato").toUpperCase();
+        if (!contratosImportados.contains(idContrato)) {
+            throw new FilaRechazada("El contrato " + idContrato + " no se ha importado en esta carga.");
+        }
+        return idContrato;
+    }
+
+    private static String texto(List<String> campos, int indice) {
+        return indice < campos.size() ? campos.get(indice).trim() : "";
+    }
+
+    private static String obligatorio(List<String> campos, int indice, String nombre) throws FilaRechazada {
+        String valor = texto(campos, indice);
+        if (valor.isEmpty()) {
+            throw new FilaRechazada("Falta el campo " + nombre + ".");
+        }
+        return valor;
+    }
+
+    private static int entero(List<String> campos, int indice, String nombre) throws FilaRechazada {
+        String valor = obligatorio(campos, indice, nombre);
+        try {
+            return Integer.parseInt(valor);
+        } catch (NumberFormatException e) {
+            throw new FilaRechazada("Valor no válido en " + nombre + ": " + valor);
+        }
+    }
+
+    /**
+     * Lee un número con coma o punto decimal (se admite el punto de miles si hay coma decimal).
+     */
+    private static double decimal(List<String> campos, int indice, String nombre) throws FilaRechazada {
+        String valor = obligatorio(campos, indice, nombre);
+        String normalizado = valor.indexOf(',') >= 0 ? valor.replace(".", "").replace(',', '.') : valor;
+        try {
+            return Double.parseDouble(normalizado);
+        } catch (NumberFormatException e) {
+            throw new FilaRechazada("Valor no válido en " + nombre + ": " + valor);
+        }
+    }
+
+    /**
+     * Lee una fecha en formato dd/MM/yyyy o yyyy-MM-dd. Devuelve null si el campo está vacío.
+     */
+    private static LocalDate fecha(List<String> campos, int indice, String nombre) throws FilaRechazada {
+        String valor = texto(campos, indice);
+        if (valor.isEmpty()) {
+            return null;
+        }
+        try {
+            return valor.indexOf('/') >= 0 ? LocalDate.parse(valor, FORMATO_FECHA) : LocalDate.parse(valor);
+        } catch (DateTimeParseException e) {
+            throw new FilaRechazada("Fecha no válida en " + nombre + ": " + valor);
+        }
+    }
+
+    private static Date aDate(LocalDate fecha) {
+        return fecha != null ? Date.from(fecha.atStartOfDay(ZoneId.systemDefault()).toInstant()) : null;
+    }
+
+    /**
+     * Lector de CSV en streaming: admite separador punto y coma o coma (se detecta en la cabecera),
+     * campos entre comillas con comillas dobladas y saltos de línea dentro de un campo, y BOM UTF-8.
+     */
+    private static class LectorCsv implements Closeable {
+        private final Reader reader;
+        private final List<String> campos = new ArrayList<>();
+        private final StringBuilder campo = new StringBuilder();
+        private char separador = ';';
+        private boolean primera = true;
+        private long linea;
+        private long lineaSiguiente = 1;
+        private int pendiente = -2;
+
+        LectorCsv(File archivo) throws IOException {
+            this.reader = new BufferedReader(new InputStreamReader(new FileInputStream(archivo), StandardCharsets.UTF_8), 64 * 1024);
+        }
+
+        /** @return Línea del archivo donde empieza la última fila leída. */
+        long getLinea() {
+            return linea;
+        }
+
+        /**
+         * Lee la siguiente fila. La lista se reutiliza entre llamadas.
+         *
+         * @return Los campos de la fila, o null al final del archivo.
+         */
+        List<String> siguiente() throws IOException {
+            int c = leer();
+            if (c == -1) {
+                return null;
+            }
+            if (primera && c == '\uFEFF') {
+                c = leer();
+            }
+
+            campos.clear();
+            campo.setLength(0);
+            linea = lineaSiguiente;
+            boolean comillas = false;
+
+            while (c != -1) {
+                if (comillas) {
+                    if (c == '"') {
+                        int siguiente = leer();
+                        if (siguiente == '"') {
+                            campo.append('"');
+                        } else {
+                            comillas = false;
+                            c = siguiente;
+                            continue;
+                        }
+                    } else {
+                        if (c == '\n') {
+                            lineaSiguiente++;
+                        }
+                        campo.append((char) c);
+                    }
+                } else if (c == '"' && campo.length() == 0) {
+                    comillas = true;
+                } else if (c == '\n' || c == '\r') {
+                    if (c == '\r') {
+                        int siguiente = leer();
+                        if (siguiente != '\n') {
+                            pendiente = siguiente;
+                        }
+                    }
+                    lineaSiguiente++;
+                    break;
+                } else if (c == separador || (primera && (c == ';' || c == ','))) {
+                    if (primera) {
+                        separador = (char) c;
+                        primera = false;
+                    }
+                    campos.add(campo.toString());
+                    campo.setLength(0);
+                } else {
+                    campo.append((char) c);
+                }
+                c = leer();
+            }
+            campos.add(campo.toString());
+            primera = false;
+            return campos;
+        }
+
+        private int leer() throws IOException {
+            if (pendiente != -2) {
+                int c = pendiente;
+                pendiente = -2;
+                return c;
+            }
+            return reader.read();
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package com.comproOro.gestion.controller;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import com.comproOro.gestion.MainApp;
+import com.comproOro.gestion.model.dao.Metricas;
+import com.comproOro.gestion.model.dao.ResumenDAO;
+import com.comproOro.gestion.model.modelos.Dinero;
+import com.comproOro.gestion.model.modelos.Resumen;
+import javafx.concurrent.Task;
+import javafx.fxml.FXML;
+import javafx.scene.control.*;
+import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.stage.FileChooser;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Controlador de la vista de informes.
+ * Muestra los totales por día o por mes a partir de la tabla de resúmenes, sin recorrer
+ * los contratos, y permite reconstruir los resúmenes desde cero.
+ */
+public class InformesController implements Pantalla {
+
+    private static final Logger LOGGER = LogManager.getLogger(InformesController.class);
+
+    @FXML
+    private TableView<Resumen> resumenTableView;
+
+    @FXML
+    private TableColumn<Resumen, String> periodoColumn;
+    @FXML
+    private TableColumn<Resumen, String> tipoColumn;
+    @FXML
+    private TableColumn<Resumen, Integer> numContratosColumn;
+    @FXML
+    private TableColumn<Resumen, Double> importeContratosColumn;
+    @FXML
+    private TableColumn<Resumen, Double> pesoColumn;
+    @FXML
+    private TableColumn<Resumen, Integer> numRenovacionesColumn;
+    @FXML
+    private TableColumn<Resumen, Double> importeRenovacionesColumn;
+    @FXML
+    private TableColumn<Resumen, Double> importeAmortizadoColumn;
+    @FXML
+    private TableColumn<Resumen, Integer> numRescatesColumn;
+    @FXML
+    private TableColumn<Resumen, Double> importeRescatesColumn;
+
+    @FXML
+    private ComboBox<String> agrupacionComboBox;
+    @FXML
+    private DatePicker fechaDesdePicker;
+    @FXML
+    private DatePicker fechaHastaPicker;
+    @FXML
+    private Label lblPendienteEmpenos;
+    @FXML
+    private Label lblMensaje;
+    @FXML
+    private Button btnLibroRegistro;
+    @FXML
+    private Button btnCierreMensual;
+    @FXML
+    private Button btnCancelar;
+
+    private MainApp mainApp;
+    private final ResumenDAO resumenDAO = new ResumenDAO();
+
+    /**
+     * Método llamado automáticamente al cargar el controlador.
+     * Configura las columnas y los filtros; el resumen se consulta al mostrar la pantalla.
+     */
+    @FXML
+    private void initialize() {
+        periodoColumn.setCellValueFactory(new PropertyValueFactory<>("periodo"));
+        tipoColumn.setCellValueFactory(new PropertyValueFactory<>("tipo"));
+        numContratosColumn.setCellValueFactory(new PropertyValueFactory<>("numContratos"));
+        importeContratosColumn.setCellValueFactory(new PropertyValueFactory<>("importeContratos"));
+        pesoColumn.setCellValueFactory(new PropertyValueFactory<>("pesoTotal"));
+        numRenovacionesColumn.setCellValueFactory(new PropertyValueFactory<>("numRenovaciones"));
+        importeRenovacionesColumn.setCellValueFactory(new PropertyValueFactory<>("importeRenovaciones"));
+        importeAmortizadoColumn.setCellValueFactory(new PropertyValueFactory<>("importeAmortizado"));
+        numRescatesColumn.setCellValueFactory(new PropertyValueFactory<>("numRescates"));
+        importeRescatesColumn.setCellValueFactory(new PropertyValueFactory<>("importeRescates"));
+
+        restablecer();
+    }
+
+    /**
+     * Consulta el resumen cada vez que se muestra la pantalla.
+     */
+    @Override
+    public void refrescar() {
+        handleConsultar();
+    }
+
+    /**
+     * Vuelve a los filtros por defecto: el mes en curso agrupado por día.
+     */
+    @Override
+    public void restablecer() {
+        agrupacionComboBox.setValue("Día");
+        fechaDesdePicker.setValue(LocalDate.now().withDayOfMonth(1));
+        fechaHastaPicker.setValue(null);
+        lblMensaje.setText("");
+    }
+
+    /**
+     * Consulta los resúmenes según la agrupación y el rango de fechas seleccionados.
+     */
+    @FXML
+    private void handleConsultar() {
+        LocalDate desde = fechaDesdePicker.getValue();
+        LocalDate hasta = fechaHastaPicker.getValue();
+
+        List<Resumen> resumenes = "Mes".equals(agrupacionComboBox.getValue())
+                ? resumenDAO.obtenerResumenMensual(desde, hasta)
+                : resumenDAO.obtenerResumenDiario(desde, hasta);
+
+        resumenTableView.getItems().setAll(resumenes);
+        lblPendienteEmpenos.setText("Pendiente en empeños abiertos: "
+                + Dinero.formatear(resumenDAO.obtenerImportePendienteEmpenos(), ',') + " €");
+    }
+
+    /**
+     * Reconstruye los resúmenes a partir de los contratos y renovaciones guardados.
+     */
+    @FXML
+    private void handleReconstruir() {
+        Alert confirmacion = new Alert(Alert.AlertType.CONFIRMATION);
+        confirmacion.setTitle("Confirmación");
+        confirmacion.setHeaderText("¿Deseas reconstruir el resumen de operaciones?");
+        confirmacion.setContentText("Se recalcularán todos los totales desde los contratos guardados.");
+
+        confirmacion.showAndWait().ifPresent(response -> {
+            if (response == ButtonType.OK) {
+                if (resumenDAO.reconstruirResumen()) {
+                    lblMensaje.setText("Resumen reconstruido.");
+                    handleConsultar();
+                } else {
+                    lblMensaje.setText("Error al reconstruir el resumen.");
+                }
+            }
+        });
+    }
+
+    /**
+     * Genera el libro de registro de compras del rango de fechas seleccionado, en ancho fijo (.txt)
+     * o CSV. Si se elige un archivo cuya exportación del mismo periodo quedó interrumpida, se continúa.
+     */
+    @FXML
+    private void handleLibroRegistro() {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Libro de registro de compras");
+        fileChooser.setInitialFileName("libro_registro.txt");
+        fileChooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("Texto de ancho fijo (*.txt)", "*.txt"),
+                new FileChooser.ExtensionFilter("CSV (*.csv)", "*.csv"));
+
+        File archivo = fileChooser.showSaveDialog(btnLibroRegistro.getScene().getWindow());
+        if (archivo == null) {
+            return;
+        }
+
+        LocalDate desde = fechaDesdePicker.getValue();
+        LocalDate hasta = fechaHastaPicker.getValue();
+
+        Task<LibroRegistroController.Resultado> tarea = new Task<LibroRegistroController.Resultado>() {
+            @Override
+            protected LibroRegistroController.Resultado call() throws Exception {
+                return new LibroRegistroController().exportar(archivo, desde, hasta);
+            }
+        };
+
+        btnLibroRegistro.setDisable(true);
+        lblMensaje.setText("Generando libro de registro...");
+
+        tarea.setOnSucceeded(event -> {
+            btnLibroRegistro.setDisable(false);
+            LibroRegistroController.Resultado resultado = tarea.getValue();
+            lblMensaje.setText("Libro de registro generado: " + resultado.getFilas() + " líneas"
+                    + (resultado.isReanudada() ? " (reanudado)." : "."));
+        });
+        tarea.setOnFailed(event -> {
+            btnLibroRegistro.setDisable(false);
+            LOGGER.error("Error al generar el libro de registro", tarea.getException());
+            lblMensaje.setText("Error al generar el libro de registro: " + tarea.getException().getMessage());
+        });
+
+        Thread hilo = new Thread(tarea, "libro-registro");
+        hilo.setDaemon(true);
+        hilo.start();
+    }
+
+    /**
+     * Calcula las propuestas del cierre de mes de los empeños a la fecha "Hasta" (o a hoy) en
+     * segundo plano: renovación con la tarifa o decomiso si ya pasaron los días de gracia.
+     */
+    @FXML
+    private void handleCierreMensual() {
+        LocalDate corte = fechaHastaPicker.getValue() != null ? fechaHastaPicker.getValue() : LocalDate.now();
+
+        Task<CierreMensualController.Resultado> tarea = new Task<CierreMensualController.Resultado>() {
+            @Override
+            protected CierreMensualController.Resultado call() throws Exception {
+                return new CierreMensualController().ejecutar(corte);
+            }
+        };
+
+        btnCierreMensual.setDisable(true);
+        lblMensaje.setText("Calculando el cierre de mes...");
+
+        tarea.setOnSucceeded(event -> {
+            btnCierreMensual.setDisable(false);
+            CierreMensualController.Resultado resultado = tarea.getValue();
+            lblMensaje.setText("Cierre a " + corte + ": " + resultado.getRenovaciones() + " renovaciones ("
+                    + Dinero.formatear(resultado.getCuotas(), ',') + " €) y " + resultado.getDecomisos()
+                    + " decomisos propuestos.");
+        });
+        tarea.setOnFailed(event -> {
+            btnCierreMensual.setDisable(false);
+            LOGGER.error("Error al calcular el cierre de mes", tarea.getException());
+            lblMensaje.setText("Error al calcular el cierre de mes: " + tarea.getException().getMessage());
+        });
+
+        Thread hilo = new Thread(tarea, "cierre-mensual");
+        hilo.setDaemon(true);
+        hilo.start();
+    }
+
+    /**
+     * Muestra los tiempos de respuesta acumulados de cada operación de base de datos y de
+     * generación de documentos (llamadas, media, p50, p95, p99 y máximo en milisegundos).
+     * La misma tabla queda escrita en el log.
+     */
+    @FXML
+    private void handleMetricas() {
+        TextArea tabla = new TextArea(Metricas.volcar());
+        tabla.setEditable(false);
+        tabla.setStyle("-fx-font-family: monospace;");
+        tabla.setPrefColumnCount(100);
+        tabla.setPrefRowCount(25);
+
+        Alert alert = new Alert(Alert.AlertType.INFORMATION);
+        alert.setTitle("Métricas");
+        alert.setHeaderText("Tiempos por operación (ms)");
+        alert.getDialogPane().setContent(tabla);
+        alert.setResizable(true);
+        alert.showAndWait();
+    }
+
+    /**
+     * Cancela y vuelve a la pantalla anterior (área de datos).
+     */
+    @FXML
+    private void handleCancelar() {
+        try {
+            mainApp.getNavegacion().mostrar(NavegacionController.AREA_DATOS, "Datos");
+        } catch (IOException e) {
+            LOGGER.error("Error al volver al área de datos", e);
+        }
+    }
+
+    /**
+     * Setter para la instancia principal de la aplicación.
+     */
+    @Override
+    public void setMainApp(MainApp mainApp) {
+        this.mainApp = mainApp;
+    }
+}
@@ -1,20 +1,23 @@
 package com.comproOro.gestion.controller;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import com.comproOro.gestion.MainApp;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
-import javafx.stage.Stage;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyEvent;
 
 import java.io.IOException;
 
-public class Inicio {
+public class Inicio implements Pantalla {
+
+    private static final Logger LOGGER = LogManager.getLogger(Inicio.class);
 
     private MainApp mainApp;
 
     // Setter para la instancia de MainApp
+    @Override
     public void setMainApp(MainApp mainApp) {
         this.mainApp = mainApp;
     }
@@ -25,70 +28,53 @@ public class Inicio {
     }
 
     /**
-     * Abre el área de trabajo cargando su escena y controlador
+     * Abre el área de trabajo
      */
     @FXML
     private void handleOpenAreaTrabajo() {
         if (mainApp == null) {
-            System.out.println("mainApp es null");
+            LOGGER.warn("mainApp es null");
             return;
         }
 
         try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/fxml/area_trabajo.fxml"));
-            Parent areaTrabajoRoot = loader.load();
-
-            // Configurar el controlador con la instancia de MainApp
-            AreaTrabajoController controller = loader.getController();
-            if (controller != null) {
-                controller.setMainApp(mainApp);
-            } else {
-                System.err.println("El controlador de AreaTrabajoController no se inicializó correctamente.");
-            }
-
-            Stage primaryStage = mainApp.getPrimaryStage();
-            Scene areaTrabajoScene = new Scene(areaTrabajoRoot);
-            primaryStage.setScene(areaTrabajoScene);
-            primaryStage.setTitle("Formulario de Cliente");
-
-            // Forzar actualización del tamaño de la ventana (puede ser necesario por algún bug gráfico)
-            primaryStage.setMaximized(true);
-            primaryStage.setMaximized(false);
-
+            mainApp.getNavegacion().mostrar(NavegacionController.AREA_TRABAJO, "Formulario de Cliente");
         } catch (IOException e) {
-            e.printStackTrace();
+            LOGGER.error("Error al cargar el área de trabajo", e);
         }
     }
 
     /**
-     * Abre el área de datos cargando su escena y controlador
+     * Abre el área de datos
      */
     @FXML
     private void handleOpenAreaDatos(ActionEvent actionEvent) {
         if (mainApp == null) {
-            System.out.println("Error: mainApp no ha sido inicializado.");
+            LOGGER.warn("mainApp no ha sido inicializado.");
             return;
         }
 
         try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/fxml/area_datos.fxml"));
-            Parent areaDatosRoot = loader.load();
-
-            AreaDatosController datosController = loader.getController();
-            if (datosController != null) {
-                datosController.setMainApp(mainApp);
-            }
-
-            Stage primaryStage = mainApp.getPrimaryStage();
-            Scene areaDatosScene = new Scene(areaDatosRoot);
-            primaryStage.setScene(areaDatosScene);
-            primaryStage.setTitle("Datos");
+            mainApp.getNavegacion().mostrar(NavegacionController.AREA_DATOS, "Datos");
+        } catch (IOException e) {
+            LOGGER.error("Error al cargar el área de datos", e);
+        }
+    }
 
-            primaryStage.setMaximized(true);
-            primaryStage.setMaximized(false);
+    /**
+     * Abre la pantalla oculta de diagnóstico al pulsar Ctrl+Mayús+D.
+     */
+    @FXML
+    private void handleTecla(KeyEvent event) {
+        if (event.getCode() != KeyCode.D || !event.isShortcutDown() || !event.isShiftDown() || mainApp == null) {
+            return;
+        }
+        event.consume();
 
+        try {
+            mainApp.getNavegacion().mostrar(NavegacionController.DIAGNOSTICO, "Diagnóstico");
         } catch (IOException e) {
-            e.printStackTrace();
+            LOGGER.error("Error al cargar la pantalla de diagnóstico", e);
         }
     }
 }
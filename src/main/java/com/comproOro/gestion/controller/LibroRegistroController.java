@@ -0,0 +1,293 @@
+package com.comproOro.gestion.controller;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import com.comproOro.gestion.model.dao.LibroRegistroDAO;
+import com.comproOro.gestion.model.modelos.Dinero;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+/**
+ * Controlador encargado de generar el libro de registro de compras para la policía.
+ * Escribe una línea por cada producto de los contratos de compra del periodo, leída del cursor de
+ * {@link LibroRegistroDAO}, en formato de ancho fijo (.txt) o CSV (.csv) a través de un
+ * {@link FileChannel} con un búfer propio. Cada cierto número de contratos se guarda un punto de
+ * control, de modo que si la exportación se interrumpe, la siguiente al mismo archivo y periodo
+ * recorta el archivo hasta ese punto y continúa desde el último contrato exportado.
+ */
+public class LibroRegistroController {
+
+    private static final Logger LOGGER = LogManager.getLogger(LibroRegistroController.class);
+
+    /** Tamaño del búfer de escritura. */
+    private static final int TAMANO_BUFER = 64 * 1024;
+
+    /** Separador de campos en CSV. */
+    private static final char SEPARADOR_CSV = ';';
+
+    /** Cabeceras de las columnas del libro, en el orden de la línea. */
+    private static final String[] COLUMNAS = {
+            "Nº Contrato", "Fecha", "DNI", "Nombre y apellidos", "Dirección", "Población",
+            "Descripción", "Observaciones", "Cantidad", "Peso (g)", "Importe"
+    };
+
+    /** Ancho de cada columna en el formato de ancho fijo. */
+    private static final int[] ANCHOS = {12, 10, 10, 40, 40, 25, 40, 40, 5, 10, 12};
+
+    /** Columnas numéricas, que se alinean a la derecha en ancho fijo. */
+    private static final boolean[] NUMERICAS = {false, false, false, false, false, false, false, false, true, true, true};
+
+    /**
+     * Resultado de una exportación del libro de registro.
+     */
+    public static class Resultado {
+        private final long filas;
+        private final boolean reanudada;
+
+        public Resultado(long filas, boolean reanudada) {
+            this.filas = filas;
+            this.reanudada = reanudada;
+        }
+
+        /** @return Líneas de producto que contiene el archivo. */
+        public long getFilas() {
+            return filas;
+        }
+
+        /** @return true si se ha continuado una exportación anterior interrumpida. */
+        public boolean isReanudada() {
+            return reanudada;
+        }
+    }
+
+    private final LibroRegistroDAO libroRegistroDAO = new LibroRegistroDAO();
+
+    /**
+     * Genera (o continúa) el libro de registro de las compras de un periodo.
+     * El formato se elige por la extensión: {@code .csv} para CSV y cualquier otra para ancho fijo.
+     *
+     * @param archivo Archivo de destino.
+     * @param desde   Primer día del periodo, o null para empezar desde el principio.
+     * @param hasta   Último día del periodo, o null para llegar hasta hoy.
+     * @return Número de líneas del libro y si se ha reanudado.
+     * @throws Exception si falla la lectura o la escritura.
+     */
+    public Resultado exportar(File archivo, LocalDate desde, LocalDate hasta) throws Exception {
+        boolean csv = archivo.getName().toLowerCase().endsWith(".csv");
+        String ruta = archivo.getAbsolutePath();
+        Date fechaDesde = aFecha(desde != null ? desde : LocalDate.of(1970, 1, 2));
+        Date fechaHasta = aFecha((hasta != null ? hasta : LocalDate.now()).plusDays(1));
+
+        LibroRegistroDAO.Estado estado = archivo.exists()
+                ? libroRegistroDAO.obtenerEstadoPendiente(ruta, fechaDesde, fechaHasta)
+                : null;
+        boolean reanudada = estado != null && estado.getBytes() <= archivo.length();
+        if (!reanudada) {
+            estado = new LibroRegistroDAO.Estado(0, 0, 0);
+        }
+
+        try (FileChannel canal = FileChannel.open(archivo.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+
+            // Lo escrito después del último punto de control se descarta y se vuelve a generar.
+            canal.truncate(estado.getBytes());
+            canal.position(estado.getBytes());
+
+            Escritor escritor = new Escritor(canal, csv);
+            if (!reanudada) {
+                escritor.escribirCabecera();
+            }
+
+            LibroRegistroDAO.Estado fin = libroRegistroDAO.recorrerCompras(ruta, fechaDesde, fechaHasta, estado,
+                    escritor::escribirLinea, () -> {
+                        escritor.vaciar();
+                        canal.force(false);
+                        return canal.position();
+                    });
+
+            LOGGER.info("Libro de registro generado en: {} ({} líneas{})", ruta, fin.getFilas(),
+                    reanudada ? ", reanudado" : "");
+            return new Resultado(fin.getFilas(), reanudada);
+        }
+    }
+
+    private static Date aFecha(LocalDate fecha) {
+        return new Date(fecha.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli());
+    }
+
+    /**
+     * Da formato a las líneas del libro y las codifica en un búfer que se vuelca al canal al llenarse.
+     * El ancho fijo se escribe en ISO-8859-1 para que cada carácter ocupe un byte; el CSV en UTF-8.
+     */
+    private static class Escritor {
+        private final FileChannel canal;
+        private final boolean csv;
+        private final ByteBuffer bufer = ByteBuffer.allocateDirect(TAMANO_BUFER);
+        private final CharsetEncoder codificador;
+        private final StringBuilder linea = new StringBuilder(512);
+        private final StringBuilder campo = new StringBuilder(64);
+
+        Escritor(FileChannel canal, boolean csv) {
+            this.canal = canal;
+            this.csv = csv;
+            this.codificador = (csv ? StandardCharsets.UTF_8 : StandardCharsets.ISO_8859_1).newEncoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        }
+
+        /**
+         * Escribe la cabecera del archivo (con BOM en CSV para que Excel reconozca UTF-8).
+         */
+        void escribirCabecera() throws IOException {
+            linea.setLength(0);
+            if (csv) {
+                linea.append('\uFEFF');
+            }
+            for (int i = 0; i < COLUMNAS.length; i++) {
+                anadirCampo(i, COLUMNAS[i], false);
+            }
+            terminarLinea();
+        }
+
+        /**
+         * Escribe la línea de un producto a partir de la fila del cursor.
+         */
+        void escribirLinea(Object[] fila) throws IOException {
+            linea.setLength(0);
+            anadirCampo(0, (String) fila[1], false);
+
+            campo.setLength(0);
+            if (fila[2] != null) {
+                LocalDate fecha = ((Date) fila[2]).toLocalDate();
+                dosCifras(campo, fecha.getDayOfMonth()).append('/');
+                dosCifras(campo, fecha.getMonthValue()).append('/').append(fecha.getYear());
+            }
+            anadirCampo(1, campo, false);
+
+            anadirCampo(2, (String) fila[3], false);
+
+            campo.setLength(0);
+            if (fila[4] != null) {
+                campo.append((String) fila[4]);
+            }
+            if (fila[5] != null) {
+                campo.append(campo.length() > 0 ? " " : "").append((String) fila[5]);
+            }
+            anadirCampo(3, campo, false);
+
+            anadirCampo(4, (String) fila[6], false);
+            anadirCampo(5, (String) fila[7], false);
+            anadirCampo(6, (String) fila[8], false);
+            anadirCampo(7, (String) fila[9], false);
+
+            campo.setLength(0);
+            campo.append((int) (Integer) fila[10]);
+            anadirCampo(8, campo, true);
+            anadirCampo(9, Dinero.escribir(campo, Math.round((Double) fila[11] * 100), ','), true);
+            anadirCampo(10, Dinero.escribir(campo, (Long) fila[12], ','), true);
+
+            terminarLinea();
+        }
+
+        /**
+         * Añade un campo a la línea: en CSV con separador y comillas si hace falta; en ancho fijo
+         * recortado o rellenado con espacios hasta el ancho de la columna.
+         */
+        private void anadirCampo(int columna, CharSequence valor, boolean numerico) {
+            CharSequence texto = valor != null ? valor : "";
+            if (csv) {
+                if (columna > 0) {
+                    linea.append(SEPARADOR_CSV);
+                }
+                anadirCampoCsv(texto);
+                return;
+            }
+
+            int ancho = ANCHOS[columna];
+            int longitud = Math.min(texto.length(), ancho);
+            if (NUMERICAS[columna]) {
+                rellenar(ancho - longitud);
+            }
+            for (int i = 0; i < longitud; i++) {
+                char c = texto.charAt(i);
+                linea.append(c == '\r' || c == '\n' ? ' ' : c);
+            }
+            if (!NUMERICAS[columna]) {
+                rellenar(ancho - longitud);
+            }
+        }
+
+        private void anadirCampoCsv(CharSequence texto) {
+            boolean comillas = false;
+            for (int i = 0; i < texto.length() && !comillas; i++) {
+                char c = texto.charAt(i);
+                comillas = c == SEPARADOR_CSV || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!comillas) {
+                linea.append(texto);
+                return;
+            }
+            linea.append('"');
+            for (int i = 0; i < texto.length(); i++) {
+                char c = texto.charAt(i);
+                if (c == '"') {
+                    linea.append('"');
+                }
+                linea.append(c);
+            }
+            linea.append('"');
+        }
+
+        private void rellenar(int espacios) {
+            for (int i = 0; i < espacios; i++) {
+                linea.append(' ');
+            }
+        }
+
+        /**
+         * Termina la línea y la codifica en el búfer, volcándolo al canal cada vez que se llena.
+         */
+        private void terminarLinea() throws IOException {
+            linea.append("\r\n");
+            CharBuffer entrada = CharBuffer.wrap(linea);
+            while (true) {
+                CoderResult resultado = codificador.encode(entrada, bufer, false);
+                if (resultado.isOverflow()) {
+                    vaciar();
+                } else {
+                    break;
+                }
+            }
+        }
+
+        /**
+         * Escribe en el canal todo el contenido pendiente del búfer.
+         */
+        void vaciar() throws IOException {
+            bufer.flip();
+            while (bufer.hasRemaining()) {
+                canal.write(bufer);
+            }
+            bufer.clear();
+        }
+
+        private static StringBuilder dosCifras(StringBuilder sb, int valor) {
+            if (valor < 10) {
+                sb.append('0');
+            }
+            return sb.append(valor);
+        }
+    }
+}
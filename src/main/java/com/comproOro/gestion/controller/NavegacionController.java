@@ -0,0 +1,155 @@
+package com.comproOro.gestion.controller;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import com.comproOro.gestion.MainApp;
+import com.comproOro.gestion.model.dao.Metricas;
+import javafx.application.Platform;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.stage.Stage;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Navegación entre las pantallas de la ventana principal.
+ * Cada FXML se carga una sola vez y se guarda con su controlador; al navegar solo se cambia la
+ * raíz de la escena, sin crear una escena nueva ni forzar el redimensionado de la ventana.
+ * Los controladores implementan {@link Pantalla} para refrescarse al mostrarse y restablecerse
+ * al abandonarlos.
+ */
+public class NavegacionController {
+
+    private static final Logger LOGGER = LogManager.getLogger(NavegacionController.class);
+
+    public static final String INICIO = "/fxml/inicio.fxml";
+    public static final String AREA_TRABAJO = "/fxml/area_trabajo.fxml";
+    public static final String AREA_DATOS = "/fxml/area_datos.fxml";
+    public static final String CLIENTES_MOSTRAR = "/fxml/cliente_mostrar.fxml";
+    public static final String DATOS_CLIENTES = "/fxml/datos_clientes.fxml";
+    public static final String DATOS_CONTRATOS = "/fxml/datos_contratos.fxml";
+    public static final String INFORMES = "/fxml/informes.fxml";
+    public static final String NUEVO_CONTRATO = "/fxml/nuevo_contrato.fxml";
+    public static final String SELECCIONAR_CONTRATO = "/fxml/selecionar_contrato.fxml";
+    public static final String RENOVAR_RESCATAR = "/fxml/renovarRescatar_contrato.fxml";
+    public static final String DIAGNOSTICO = "/fxml/diagnostico.fxml";
+
+    /**
+     * Pantallas que se cargan por adelantado tras mostrar el inicio. La de diagnóstico no está
+     * porque casi nunca se abre.
+     */
+    private static final List<String> PRECARGA = Arrays.asList(AREA_TRABAJO, AREA_DATOS, CLIENTES_MOSTRAR,
+            DATOS_CLIENTES, DATOS_CONTRATOS, INFORMES, NUEVO_CONTRATO, SELECCIONAR_CONTRATO, RENOVAR_RESCATAR);
+
+    private final MainApp mainApp;
+    private final Map<String, Vista> vistas = new HashMap<>();
+    private Scene escena;
+    private Vista actual;
+
+    /**
+     * Raíz y controlador de un FXML ya cargado.
+     */
+    private static final class Vista {
+        private final Parent raiz;
+        private final Pantalla controlador;
+
+        private Vista(Parent raiz, Pantalla controlador) {
+            this.raiz = raiz;
+            this.controlador = controlador;
+        }
+    }
+
+    public NavegacionController(MainApp mainApp) {
+        this.mainApp = mainApp;
+    }
+
+    /**
+     * Muestra una pantalla en la ventana principal. Restablece la pantalla que se abandona y
+     * refresca la nueva antes de devolver su controlador, al que el llamador pasa después los
+     * datos que necesite.
+     *
+     * @param fxml   ruta del FXML, una de las constantes de esta clase.
+     * @param titulo título de la ventana.
+     * @return el controlador de la pantalla.
+     * @throws IOException si el FXML no se había cargado y no se puede cargar.
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends Pantalla> T mostrar(String fxml, String titulo) throws IOException {
+        long inicio = System.nanoTime();
+        Vista vista = obtenerVista(fxml);
+
+        if (actual != null && actual != vista) {
+            actual.controlador.restablecer();
+        }
+        vista.controlador.refrescar();
+
+        Stage stage = mainApp.getPrimaryStage();
+        if (escena == null) {
+            escena = new Scene(vista.raiz);
+            stage.setScene(escena);
+        } else if (escena.getRoot() != vista.raiz) {
+            escena.setRoot(vista.raiz);
+        }
+        stage.setTitle(titulo);
+        actual = vista;
+
+        // Sin foco dentro de la nueva raíz los atajos de teclado de la pantalla no llegan
+        Node foco = escena.getFocusOwner();
+        if (foco == null || foco.getScene() != escena) {
+            vista.raiz.requestFocus();
+        }
+
+        Metricas.registrar("Navegacion.mostrar", inicio);
+        return (T) vista.controlador;
+    }
+
+    /**
+     * Carga las pantallas habituales que todavía no estén cargadas, una en cada vuelta del hilo
+     * de JavaFX para que la interfaz siga respondiendo mientras tanto.
+     */
+    public void precargar() {
+        Deque<String> pendientes = new ArrayDeque<>(PRECARGA);
+        Platform.runLater(() -> precargarSiguiente(pendientes));
+    }
+
+    private void precargarSiguiente(Deque<String> pendientes) {
+        String fxml = pendientes.poll();
+        if (fxml == null) {
+            LOGGER.debug("Precarga de pantallas terminada");
+            return;
+        }
+        try {
+            obtenerVista(fxml);
+        } catch (IOException e) {
+            LOGGER.warn("No se pudo precargar {}", fxml, e);
+        }
+        Platform.runLater(() -> precargarSiguiente(pendientes));
+    }
+
+    /**
+     * Devuelve la pantalla guardada o la carga y la guarda si es la primera vez que se pide.
+     */
+    private Vista obtenerVista(String fxml) throws IOException {
+        Vista vista = vistas.get(fxml);
+        if (vista == null) {
+            long inicio = System.nanoTime();
+            FXMLLoader loader = new FXMLLoader(getClass().getResource(fxml));
+            Parent raiz = loader.load();
+            Pantalla controlador = loader.getController();
+            controlador.setMainApp(mainApp);
+            vista = new Vista(raiz, controlador);
+            vistas.put(fxml, vista);
+            Metricas.registrar("Navegacion.cargar", inicio);
+            LOGGER.debug("Pantalla {} cargada", fxml);
+        }
+        return vista;
+    }
+}
@@ -1,6 +1,9 @@
 package com.comproOro.gestion.controller;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import com.comproOro.gestion.MainApp;
+import com.comproOro.gestion.model.dao.BandejaDocumentosDAO;
 import com.comproOro.gestion.model.dao.ContratoDAO;
 import com.comproOro.gestion.model.dao.ProductoDAO;
 import com.comproOro.gestion.model.modelos.Contrato;
@@ -22,7 +25,9 @@ import java.util.ArrayList;
  * Controlador para la vista de creación de un nuevo contrato.
  * Permite gestionar productos, tipo de contrato y generar documentos.
  */
-public class NuevoContratoController {
+public class NuevoContratoController implements Pantalla {
+
+    private static final Logger LOGGER = LogManager.getLogger(NuevoContratoController.class);
 
     @FXML
     private Label lblDni;
@@ -77,6 +82,24 @@ public class NuevoContratoController {
         });
     }
 
+    /**
+     * Deja el formulario vacío para el siguiente contrato: sin productos, sin contrato guardado
+     * y con los botones como al cargar la vista.
+     */
+    @Override
+    public void restablecer() {
+        productos.clear();
+        txtDetallesContrato.clear();
+        lblMensaje.setText("");
+        comboBoxTipoContrato.getSelectionModel().selectFirst();
+        checkBoxGenerarIdPol.setSelected(false);
+        contratoGuardado = false;
+        contrato = null;
+        btnGuardarContrato.setDisable(false);
+        btnAnadirProducto.setDisable(false);
+        btnProcesar.setDisable(true);
+    }
+
     /**
      * Maneja el evento para guardar un contrato.
      */
@@ -114,6 +137,7 @@ public class NuevoContratoController {
      *
      * @param mainApp instancia de MainApp
      */
+    @Override
     public void setMainApp(MainApp mainApp) {
         this.mainApp = mainApp;
     }
@@ -131,8 +155,7 @@ public class NuevoContratoController {
         String tipoContrato = comboBoxTipoContrato.getValue();
         contrato.setTipo(tipoContrato);
 
-        double sumaImportes = productos.stream().mapToDouble(Producto::getImporte).sum();
-        contrato.setImporte(sumaImportes);
+        contrato.setImporteCentimos(productos.stream().mapToLong(Producto::getImporteCentimos).sum());
 
         if ("Empeno".equals(tipoContrato)) {
             contrato.setFechaFinal(new Date(System.currentTimeMillis() + (30L * 24 * 60 * 60 * 1000)));
@@ -168,7 +191,7 @@ public class NuevoContratoController {
             }
         } catch (Exception e) {
             lblMensaje.setText("Ocurrió un error al guardar el contrato: " + e.getMessage());
-            e.printStackTrace();
+            LOGGER.error("Error al guardar el contrato", e);
         }
     }
 
@@ -186,7 +209,8 @@ public class NuevoContratoController {
     }
 
     /**
-     * Procesa el contrato y genera un documento Word.
+     * Procesa el contrato: deja su documento Word en la bandeja de documentos, que lo genera en
+     * segundo plano.
      */
     @FXML
     private void handleProcesar() {
@@ -204,19 +228,15 @@ public class NuevoContratoController {
                 return;
             }
 
-            WordGeneratorController wordGenerator = new WordGeneratorController();
-            String contratoId = contrato.getIdContrato();
-
-            ArrayList<String> productoIds = new ArrayList<>();
-            for (Producto producto : productosDelContrato) {
-                productoIds.add(String.valueOf(producto.getIdProducto()));
+            if (!new BandejaDocumentosDAO().encolar(BandejaDocumentosDAO.CONTRATO, contrato.getIdContrato(), 0)) {
+                lblMensaje.setText("Error al procesar el contrato.");
+                return;
             }
-
-            wordGenerator.generarDocumento(lblDni.getText(), contratoId, productosDelContrato);
-            lblMensaje.setText("Contrato procesado y documento Word generado.");
+            mainApp.getBandejaDocumentos().avisar();
+            lblMensaje.setText("Contrato procesado. El documento Word se está generando.");
         } catch (Exception e) {
             lblMensaje.setText("Error al procesar el contrato: " + e.getMessage());
-            e.printStackTrace();
+            LOGGER.error("Error al procesar el contrato", e);
         }
     }
 
@@ -269,20 +289,9 @@ public class NuevoContratoController {
     @FXML
     private void handleCancelar() {
         try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/fxml/area_trabajo.fxml"));
-            Parent root = loader.load();
-
-            AreaTrabajoController controller = loader.getController();
-            controller.setMainApp(mainApp);
-
-            Stage stage = (Stage) btnCancelar.getScene().getWindow();
-            Scene scene = new Scene(root, stage.getWidth(), stage.getHeight());
-            stage.setScene(scene);
-            stage.setMaximized(true);
-            stage.setMaximized(false);
-            stage.show();
+            mainApp.getNavegacion().mostrar(NavegacionController.AREA_TRABAJO, "Formulario de Cliente");
         } catch (IOException e) {
-            e.printStackTrace();
+            LOGGER.error("Error al volver a la pantalla anterior", e);
             lblMensaje.setText("Error al cargar la vista del cliente.");
         }
     }
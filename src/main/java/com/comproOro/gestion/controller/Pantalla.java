@@ -0,0 +1,31 @@
+package com.comproOro.gestion.controller;
+
+import com.comproOro.gestion.MainApp;
+
+/**
+ * Controlador de una pantalla de la ventana principal. {@link NavegacionController} carga cada
+ * pantalla una sola vez y reutiliza su controlador, así que lo que antes se hacía al cargar el
+ * FXML de nuevo se hace ahora en {@link #refrescar()} y {@link #restablecer()}.
+ */
+public interface Pantalla {
+
+    /**
+     * Establece la referencia a la aplicación principal. Se llama una vez, al cargar la pantalla.
+     * @param mainApp instancia principal MainApp
+     */
+    void setMainApp(MainApp mainApp);
+
+    /**
+     * Se llama cada vez que la pantalla se muestra, antes de pasarle los datos de la navegación.
+     * Vuelve a leer de la base de datos lo que haya podido cambiar mientras estaba oculta.
+     */
+    default void refrescar() {
+    }
+
+    /**
+     * Se llama al salir de la pantalla. Deja los campos como recién cargados para la próxima vez
+     * y detiene lo que no deba seguir funcionando en segundo plano.
+     */
+    default void restablecer() {
+    }
+}
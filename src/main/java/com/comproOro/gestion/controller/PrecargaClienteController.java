@@ -0,0 +1,106 @@
+package com.comproOro.gestion.controller;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import com.comproOro.gestion.model.dao.ClienteDAO;
+import com.comproOro.gestion.model.dao.ContratoDAO;
+import com.comproOro.gestion.model.dao.Metricas;
+import com.comproOro.gestion.model.dao.RenovacionDAO;
+import com.comproOro.gestion.model.modelos.Cliente;
+import com.comproOro.gestion.model.modelos.Contrato;
+import com.comproOro.gestion.model.modelos.FichaCliente;
+import com.comproOro.gestion.model.modelos.Renovacion;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * Carga por adelantado la {@link FichaCliente} de un DNI en cuanto se ha escrito uno válido, para
+ * que al pulsar Buscar o Renovar los datos ya estén en memoria. Guarda solo la ficha del último
+ * DNI; se usa desde el hilo de JavaFX y las consultas se hacen en un hilo propio.
+ */
+public class PrecargaClienteController {
+
+    private static final Logger LOGGER = LogManager.getLogger(PrecargaClienteController.class);
+
+    private final ExecutorService hiloPrecarga = Executors.newSingleThreadExecutor(tarea -> {
+        Thread hilo = new Thread(tarea, "precarga-cliente");
+        hilo.setDaemon(true);
+        return hilo;
+    });
+
+    private final ClienteDAO clienteDAO;
+    private final ContratoDAO contratoDAO;
+
+    /** Solo se usa desde el hilo de precarga, que es quien usa su conexión. */
+    private RenovacionDAO renovacionDAO;
+
+    private String dni;
+    private CompletableFuture<FichaCliente> ficha;
+
+    public PrecargaClienteController() {
+        this.clienteDAO = new ClienteDAO();
+        this.contratoDAO = new ContratoDAO();
+    }
+
+    /**
+     * Empieza a cargar la ficha del DNI si no es el último que se ha pedido.
+     *
+     * @param dni DNI ya validado.
+     */
+    public void precargar(String dni) {
+        if (dni.equals(this.dni)) {
+            return;
+        }
+        this.dni = dni;
+        this.ficha = CompletableFuture.supplyAsync(() -> cargar(dni), hiloPrecarga);
+    }
+
+    /**
+     * Devuelve la ficha del DNI, reutilizando la precarga si es de ese DNI y lanzándola si no.
+     *
+     * @param dni DNI ya validado.
+     * @return la ficha, que puede estar todavía cargándose.
+     */
+    public CompletableFuture<FichaCliente> obtener(String dni) {
+        precargar(dni);
+        return ficha;
+    }
+
+    /**
+     * Descarta la ficha guardada, por ejemplo porque los datos del cliente han podido cambiar.
+     */
+    public void olvidar() {
+        dni = null;
+        ficha = null;
+    }
+
+    private FichaCliente cargar(String dni) {
+        long inicio = System.nanoTime();
+        Cliente cliente = clienteDAO.obtenerClientePorDni(dni);
+        if (cliente == null) {
+            Metricas.registrar("PrecargaCliente.cargar", inicio);
+            return new FichaCliente(null, Collections.emptyList(), Collections.emptyMap());
+        }
+
+        List<Contrato> contratosActivos = contratoDAO.obtenerContratosEmpenoPorDni(dni).stream()
+                .filter(contrato -> !Objects.equals(contrato.getRescatado(), "S"))
+                .collect(Collectors.toList());
+
+        if (renovacionDAO == null) {
+            renovacionDAO = new RenovacionDAO();
+        }
+        Map<String, Renovacion> ultimasRenovaciones = renovacionDAO.obtenerUltimasRenovaciones(
+                contratosActivos.stream().map(Contrato::getIdContrato).collect(Collectors.toList()));
+
+        Metricas.registrar("PrecargaCliente.cargar", inicio);
+        LOGGER.debug("Ficha del cliente {} precargada con {} contratos activos", dni, contratosActivos.size());
+        return new FichaCliente(cliente, contratosActivos, ultimasRenovaciones);
+    }
+}
@@ -0,0 +1,108 @@
+package com.comproOro.gestion.controller;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import com.comproOro.gestion.model.dao.ConflictoVersionException;
+import com.comproOro.gestion.model.dao.Metricas;
+import com.comproOro.gestion.model.dao.RenovacionDAO;
+import com.comproOro.gestion.model.dao.TarifaDAO;
+import com.comproOro.gestion.model.modelos.Contrato;
+import com.comproOro.gestion.model.modelos.Renovacion;
+import com.comproOro.gestion.model.modelos.Tarifa;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Renueva de una vez varios contratos de un cliente, sin aportación: cada uno se alarga los meses
+ * de la tarifa de empeños desde su último vencimiento y mantiene el importe pendiente, igual que
+ * una renovación suelta. Las últimas renovaciones se leen en una consulta y las nuevas se guardan
+ * en una sola transacción, solo si ningún contrato ha cambiado desde que se mostró; sus documentos quedan en la bandeja, que al recogerlos juntos los
+ * imprime en un único lote por cliente.
+ */
+public class RenovacionMultipleController {
+
+    private static final Logger LOGGER = LogManager.getLogger(RenovacionMultipleController.class);
+
+    /**
+     * Renueva los contratos indicados. Los rescatados y los repetidos se ignoran.
+     *
+     * @param contratos Contratos que se desean renovar.
+     * @return las renovaciones guardadas, con su versión; vacía si no se ha guardado ninguna.
+     * @throws ConflictoVersionException si otro puesto ha modificado alguno de los contratos; no
+     *                                   se renueva ninguno.
+     */
+    public List<Renovacion> renovar(List<Contrato> contratos) throws ConflictoVersionException {
+        long inicio = System.nanoTime();
+        Map<String, Contrato> porId = new LinkedHashMap<>();
+        for (Contrato contrato : contratos) {
+            if (!Objects.equals(contrato.getRescatado(), "S")) {
+                porId.putIfAbsent(contrato.getIdContrato(), contrato);
+            }
+        }
+        if (porId.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        RenovacionDAO renovacionDAO = new RenovacionDAO();
+        try {
+            List<Renovacion> renovaciones = prepararRenovaciones(porId.values(),
+                    renovacionDAO.obtenerUltimasRenovaciones(new ArrayList<>(porId.keySet())),
+                    new TarifaDAO().obtenerTarifaEmpeno(), LocalDate.now());
+            Map<String, Integer> versiones = new LinkedHashMap<>();
+            for (Contrato contrato : porId.values()) {
+                versiones.put(contrato.getIdContrato(), contrato.getVersionFila());
+            }
+            if (!renovacionDAO.guardarRenovaciones(renovaciones, versiones)) {
+                return new ArrayList<>();
+            }
+            for (Contrato contrato : porId.values()) {
+                contrato.setVersionFila(contrato.getVersionFila() + 1);
+            }
+            Metricas.registrar("RenovacionMultiple.renovar", inicio);
+            LOGGER.info("Renovados {} contratos: {}", renovaciones.size(),
+                    renovaciones.stream().map(Renovacion::getIdContrato).collect(Collectors.joining(", ")));
+            return renovaciones;
+        } finally {
+            renovacionDAO.close();
+        }
+    }
+
+    /**
+     * Calcula la renovación de cada contrato a partir de su última renovación, si la tiene.
+     * La versión la asigna el DAO al guardarlas.
+     *
+     * @param contratos           Contratos que se renuevan.
+     * @param ultimasRenovaciones Última renovación de cada contrato, por ID de contrato.
+     * @param tarifa              Tarifa con los meses que se alarga cada contrato.
+     * @param hoy                 Fecha de la renovación.
+     * @return una renovación por contrato, en el mismo orden.
+     */
+    static List<Renovacion> prepararRenovaciones(Iterable<Contrato> contratos,
+                                                  Map<String, Renovacion> ultimasRenovaciones, Tarifa tarifa,
+                                                  LocalDate hoy) {
+        List<Renovacion> renovaciones = new ArrayList<>();
+        for (Contrato contrato : contratos) {
+            Renovacion ultima = ultimasRenovaciones.get(contrato.getIdContrato());
+            LocalDate fechaReferencia = ultima != null
+                    ? ultima.getFechaFinRenovacion()
+                    // Puede ser un java.sql.Date, que no admite toInstant()
+                    : Instant.ofEpochMilli(contrato.getFechaFinal().getTime()).atZone(ZoneId.systemDefault()).toLocalDate();
+
+            Renovacion renovacion = new Renovacion();
+            renovacion.setIdContrato(contrato.getIdContrato());
+            renovacion.setFechaRenovacion(hoy);
+            renovacion.setFechaFinRenovacion(fechaReferencia.plusMonths(tarifa.getMesesRenovacion()));
+            renovacion.setImporteCentimos(ultima != null ? ultima.getImporteCentimos() : contrato.getImporteCentimos());
+            renovaciones.add(renovacion);
+        }
+        return renovaciones;
+    }
+}
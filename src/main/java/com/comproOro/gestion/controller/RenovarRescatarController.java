@@ -1,26 +1,25 @@
 package com.comproOro.gestion.controller;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import com.comproOro.gestion.MainApp;
+import com.comproOro.gestion.model.dao.ConflictoVersionException;
 import com.comproOro.gestion.model.dao.ContratoDAO;
 import com.comproOro.gestion.model.dao.ProductoDAO;
 import com.comproOro.gestion.model.dao.RenovacionDAO;
+import com.comproOro.gestion.model.dao.TarifaDAO;
 import com.comproOro.gestion.model.modelos.Cliente;
 import com.comproOro.gestion.model.modelos.Contrato;
+import com.comproOro.gestion.model.modelos.Dinero;
 import com.comproOro.gestion.model.modelos.Producto;
 import com.comproOro.gestion.model.modelos.Renovacion;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Node;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
 import javafx.scene.control.Alert;
 import javafx.scene.control.ButtonType;
 import javafx.scene.control.Label;
 import javafx.scene.control.TextField;
-import javafx.stage.Stage;
 
 import java.io.IOException;
-import java.net.URISyntaxException;
 import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.Calendar;
@@ -30,7 +29,12 @@ import java.util.List;
 /**
  * Controlador para manejar las acciones de renovación y rescate de contratos.
  */
-public class RenovarRescatarController {
+public class RenovarRescatarController implements Pantalla {
+
+    private static final Logger LOGGER = LogManager.getLogger(RenovarRescatarController.class);
+
+    private static final String MENSAJE_CONFLICTO = "El contrato se ha modificado desde otro puesto. "
+            + "Vuelve a abrirlo para ver los datos actuales.";
 
     @FXML private Label labelIdContrato;
     @FXML private Label labelFechaInicio;
@@ -63,14 +67,16 @@ public class RenovarRescatarController {
         labelIdContrato.setText("ID Contrato: " + contrato.getIdContrato());
         labelFechaInicio.setText("Fecha Inicio: " + contrato.getFechaInicio());
 
-        RenovacionDAO renovacionDAO = new RenovacionDAO();
-        Renovacion ultimaRenovacion = renovacionDAO.obtenerUltRenovPorIdContrato(contrato.getIdContrato());
+        Renovacion ultimaRenovacion;
+        try (RenovacionDAO renovacionDAO = new RenovacionDAO()) {
+            ultimaRenovacion = renovacionDAO.obtenerUltRenovPorIdContrato(contrato.getIdContrato());
+        }
 
         if (ultimaRenovacion != null) {
-            labelImporteContrato.setText("Importe Última Renovación: " + ultimaRenovacion.getImporte());
+            labelImporteContrato.setText("Importe Última Renovación: " + Dinero.formatear(ultimaRenovacion.getImporteCentimos(), ','));
             labelFechaFinal.setText("Fecha Final: " + ultimaRenovacion.getFechaFinRenovacion());
         } else {
-            labelImporteContrato.setText("Importe: " + contrato.getImporte());
+            labelImporteContrato.setText("Importe: " + Dinero.formatear(contrato.getImporteCentimos(), ','));
             labelFechaFinal.setText("Fecha Final: " + (contrato.getFechaFinal() != null ? contrato.getFechaFinal() : "N/A"));
         }
 
@@ -89,17 +95,29 @@ public class RenovarRescatarController {
         this.contratos = contratos;
     }
 
+    /**
+     * Limpia la aportación y los mensajes al salir; el contrato se vuelve a pasar con
+     * {@link #setContrato(Contrato, Cliente)} la próxima vez que se muestre.
+     */
+    @Override
+    public void restablecer() {
+        inputAportacion.clear();
+        lblMensaje.setText("");
+    }
+
     /**
      * Establece la instancia principal de la aplicación.
      *
      * @param mainApp Instancia de MainApp.
      */
+    @Override
     public void setMainApp(MainApp mainApp) {
         this.mainApp = mainApp;
     }
 
     /**
-     * Maneja la acción de rescatar un contrato. Actualiza su estado y genera documento Word.
+     * Maneja la acción de rescatar un contrato. Actualiza su estado y deja el documento Word
+     * en la bandeja de documentos, que lo genera en segundo plano.
      */
     @FXML
     public void handleRescatarContrato() {
@@ -119,12 +137,20 @@ public class RenovarRescatarController {
                         if (!"S".equals(contratoBD.getRescatado())) {
                             contratoBD.setRescatado("S");
                             contratoBD.setFechaRescate(new Date());
+                            // Se guarda sobre la versión que tiene delante el empleado, no la recién leída
+                            contratoBD.setVersionFila(contrato.getVersionFila());
 
-                            if (contratoDAO.actualizarContrato(contratoBD)) {
-                                lblMensaje.setText("Contrato rescatado exitosamente.");
-                                generarDocumentosRESWord(contratoBD);
-                            } else {
-                                lblMensaje.setText("Error al rescatar el contrato.");
+                            try {
+                                if (contratoDAO.actualizarContrato(contratoBD)) {
+                                    contrato.setVersionFila(contratoBD.getVersionFila());
+                                    lblMensaje.setText("Contrato rescatado exitosamente. El documento se está generando.");
+                                    mainApp.getBandejaDocumentos().avisar();
+                                } else {
+                                    lblMensaje.setText("Error al rescatar el contrato.");
+                                }
+                            } catch (ConflictoVersionException e) {
+                                LOGGER.warn(e.getMessage());
+                                lblMensaje.setText(MENSAJE_CONFLICTO);
                             }
                         } else {
                             lblMensaje.setText("El contrato ya ha sido rescatado.");
@@ -139,26 +165,6 @@ public class RenovarRescatarController {
         });
     }
 
-    /**
-     * Genera el documento Word al rescatar un contrato.
-     *
-     * @param contrato Contrato a procesar.
-     */
-    private void generarDocumentosRESWord(Contrato contrato) {
-        String dniCliente = cliente.getDni();
-        ProductoDAO productoDAO = new ProductoDAO();
-        ArrayList<Producto> productos = productoDAO.obtenerProductosPorContrato(contrato.getIdContrato());
-
-        WordGeneratorController wordGenerator = new WordGeneratorController();
-
-        try {
-            wordGenerator.rescatarContrato(dniCliente, contrato.getIdContrato(), productos);
-        } catch (URISyntaxException e) {
-            e.printStackTrace();
-            lblMensaje.setText("Error al generar el documento Word: " + e.getMessage());
-        }
-    }
-
     /**
      * Maneja la acción de renovar un contrato, actualizando productos y generando renovación.
      */
@@ -179,8 +185,10 @@ public class RenovarRescatarController {
                     if (contratoBD != null) {
                         if (!"S".equals(contratoBD.getRescatado())) {
                             Date fechaActual = new Date();
-                            RenovacionDAO renovacionDAO = new RenovacionDAO();
-                            Renovacion ultimaRenovacion = renovacionDAO.obtenerUltRenovPorIdContrato(idContrato);
+                            Renovacion ultimaRenovacion;
+                            try (RenovacionDAO renovacionDAO = new RenovacionDAO()) {
+                                ultimaRenovacion = renovacionDAO.obtenerUltRenovPorIdContrato(idContrato);
+                            }
 
                             Date fechaReferencia = (ultimaRenovacion != null)
                                     ? Date.from(ultimaRenovacion.getFechaFinRenovacion().atStartOfDay(ZoneId.systemDefault()).toInstant())
@@ -188,55 +196,52 @@ public class RenovarRescatarController {
 
                             Calendar calendar = Calendar.getInstance();
                             calendar.setTime(fechaReferencia);
-                            calendar.add(Calendar.MONTH, 1);
+                            calendar.add(Calendar.MONTH, new TarifaDAO().obtenerTarifaEmpeno().getMesesRenovacion());
                             Date nuevaFechaFin = calendar.getTime();
 
                             try {
-                                double aportacion = inputAportacion.getText().isEmpty()
+                                long aportacion = inputAportacion.getText().isEmpty()
                                         ? 0
-                                        : Double.parseDouble(inputAportacion.getText());
+                                        : Dinero.deTexto(inputAportacion.getText());
 
-                                double importeRenov = (ultimaRenovacion != null)
-                                        ? ultimaRenovacion.getImporte()
-                                        : contrato.getImporte();
+                                long importeRenov = (ultimaRenovacion != null)
+                                        ? ultimaRenovacion.getImporteCentimos()
+                                        : contrato.getImporteCentimos();
 
                                 if (aportacion > importeRenov) {
                                     lblMensaje.setText("La aportación no puede ser mayor que el importe total de la última renovación.");
                                     return;
                                 }
 
-                                double nuevoImporteRenov = importeRenov - aportacion;
-                                labelImporteRenovacion.setText("Importe de la Renovación: " + nuevoImporteRenov);
+                                long nuevoImporteRenov = importeRenov - aportacion;
+                                labelImporteRenovacion.setText("Importe de la Renovación: " + Dinero.formatear(nuevoImporteRenov, ','));
 
                                 ProductoDAO productoDAO = new ProductoDAO();
                                 ArrayList<Producto> productos = productoDAO.obtenerProductosPorContrato(idContrato);
+                                List<Producto> modificados = new ArrayList<>();
 
                                 if (productos != null && !productos.isEmpty()) {
-                                    productos.sort((p1, p2) -> Double.compare(p2.getImporte(), p1.getImporte()));
-                                    double aporteRestante = aportacion;
-
-                                    for (Producto producto : productos) {
-                                        if (aporteRestante <= 0) break;
-                                        double importeProd = producto.getImporte();
-
-                                        if (importeProd <= aporteRestante) {
-                                            aporteRestante -= importeProd;
-                                            producto.setImporte(0);
-                                        } else {
-                                            producto.setImporte(importeProd - aporteRestante);
-                                            aporteRestante = 0;
-                                        }
+                                    // La aportación se descuenta de los productos de mayor a menor importe
+                                    productos.sort((p1, p2) -> Long.compare(p2.getImporteCentimos(), p1.getImporteCentimos()));
+                                    long[] importes = new long[productos.size()];
+                                    for (int i = 0; i < importes.length; i++) {
+                                        importes[i] = productos.get(i).getImporteCentimos();
+                                    }
+                                    Dinero.descontar(aportacion, importes, importes.length);
 
-                                        if (!productoDAO.actualizarProducto(producto)) {
-                                            lblMensaje.setText("Error al actualizar el producto: " + producto.getIdProducto());
-                                            return;
+                                    for (int i = 0; i < importes.length; i++) {
+                                        Producto producto = productos.get(i);
+                                        if (importes[i] == producto.getImporteCentimos()) {
+                                            continue;
                                         }
+                                        producto.setImporteCentimos(importes[i]);
+                                        modificados.add(producto);
                                     }
                                 }
 
-                                guardarRenovacion(idContrato, fechaActual, nuevaFechaFin, nuevoImporteRenov);
-                                lblMensaje.setText("Renovación guardada exitosamente.");
-                                generarDocumentosRENWord(contratoBD);
+                                if (guardarRenovacion(idContrato, fechaActual, nuevaFechaFin, nuevoImporteRenov, modificados)) {
+                                    mainApp.getBandejaDocumentos().avisar();
+                                }
                             } catch (NumberFormatException e) {
                                 lblMensaje.setText("Por favor, ingrese un número válido para la aportación.");
                             }
@@ -253,26 +258,6 @@ public class RenovarRescatarController {
         });
     }
 
-    /**
-     * Genera el documento Word al renovar un contrato.
-     *
-     * @param contrato Contrato a renovar.
-     */
-    private void generarDocumentosRENWord(Contrato contrato) {
-        String dniCliente = cliente.getDni();
-        ProductoDAO productoDAO = new ProductoDAO();
-        ArrayList<Producto> productos = productoDAO.obtenerProductosPorContrato(contrato.getIdContrato());
-
-        WordGeneratorController wordGenerator = new WordGeneratorController();
-
-        try {
-            wordGenerator.renovarContrato(dniCliente, contrato.getIdContrato(), productos);
-        } catch (URISyntaxException e) {
-            e.printStackTrace();
-            lblMensaje.setText("Error al generar el documento Word: " + e.getMessage());
-        }
-    }
-
     /**
      * Vuelve a la vista anterior (selección de contratos).
      *
@@ -281,27 +266,13 @@ public class RenovarRescatarController {
     @FXML
     public void handleCancelar(javafx.event.ActionEvent actionEvent) {
         try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/fxml/selecionar_contrato.fxml"));
-            Parent root = loader.load();
-
-            SeleccionarContratoController seleccionarContratoController = loader.getController();
-
-            if (seleccionarContratoController != null) {
-                seleccionarContratoController.setMainApp(this.mainApp);
-                if (cliente != null && contratos != null) {
-                    seleccionarContratoController.setDatosClienteYContratos(cliente, contratos);
-                }
+            SeleccionarContratoController seleccionarContratoController = mainApp.getNavegacion()
+                    .mostrar(NavegacionController.SELECCIONAR_CONTRATO, "Renovar/Rescatar Contrato");
+            if (cliente != null && contratos != null) {
+                seleccionarContratoController.setDatosClienteYContratos(cliente, contratos);
             }
-
-            Stage stage = (Stage) ((Node) actionEvent.getSource()).getScene().getWindow();
-            Scene scene = new Scene(root);
-            stage.setScene(scene);
-            stage.setTitle("Renovar/Rescatar Contrato");
-            stage.setMaximized(true);
-            stage.setMaximized(false);
-            stage.show();
         } catch (IOException e) {
-            e.printStackTrace();
+            LOGGER.error("Error al volver a la pantalla anterior", e);
             lblMensaje.setText("Error al cargar la vista anterior: " + e.getMessage());
         }
     }
@@ -312,23 +283,30 @@ public class RenovarRescatarController {
      * @param idContrato          ID del contrato.
      * @param fechaRenovacion     Fecha en que se realiza la renovación.
      * @param fechaFinRenovacion  Nueva fecha de fin de la renovación.
-     * @param importeRenovacion   Importe final de la renovación.
+     * @param importeRenovacion   Importe final de la renovación, en céntimos.
+     * @param productos           Productos cuyo importe ha bajado por la aportación.
+     * @return {@code true} si se ha guardado; el documento queda entonces en la bandeja.
      */
-    private void guardarRenovacion(String idContrato, Date fechaRenovacion, Date fechaFinRenovacion, double importeRenovacion) {
-        RenovacionDAO renovacionDAO = new RenovacionDAO();
-        int nuevaVersion = renovacionDAO.obtenerUltimaVersionPorIdContrato(idContrato) + 1;
-
+    private boolean guardarRenovacion(String idContrato, Date fechaRenovacion, Date fechaFinRenovacion,
+                                      long importeRenovacion, List<Producto> productos) {
         Renovacion renovacion = new Renovacion();
         renovacion.setIdContrato(idContrato);
         renovacion.setFechaRenovacion(fechaRenovacion.toInstant().atZone(ZoneId.systemDefault()).toLocalDate());
         renovacion.setFechaFinRenovacion(fechaFinRenovacion.toInstant().atZone(ZoneId.systemDefault()).toLocalDate());
-        renovacion.setVersion(nuevaVersion);
-        renovacion.setImporte(importeRenovacion);
-
-        if (renovacionDAO.guardarRenovacion(renovacion)) {
-            lblMensaje.setText("Renovación guardada exitosamente.");
-        } else {
+        renovacion.setImporteCentimos(importeRenovacion);
+
+        try (RenovacionDAO renovacionDAO = new RenovacionDAO()) {
+            // Los productos y la renovación se guardan juntos, y solo si el contrato sigue como se leyó
+            if (renovacionDAO.renovarContrato(renovacion, contrato.getVersionFila(), productos)) {
+                contrato.setVersionFila(contrato.getVersionFila() + 1);
+                lblMensaje.setText("Renovación guardada exitosamente. El documento se está generando.");
+                return true;
+            }
             lblMensaje.setText("Error al guardar la renovación.");
+        } catch (ConflictoVersionException e) {
+            LOGGER.warn(e.getMessage());
+            lblMensaje.setText(MENSAJE_CONFLICTO);
         }
+        return false;
     }
 }
@@ -1,34 +1,43 @@
 package com.comproOro.gestion.controller;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import com.comproOro.gestion.MainApp;
 import com.comproOro.gestion.model.modelos.Cliente;
 import com.comproOro.gestion.model.modelos.Contrato;
 import com.comproOro.gestion.model.modelos.Renovacion;
+import com.comproOro.gestion.model.dao.ConflictoVersionException;
+import com.comproOro.gestion.model.dao.ContratoDAO;
 import com.comproOro.gestion.model.dao.RenovacionDAO;
 import javafx.fxml.FXML;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
+import javafx.scene.control.Alert;
+import javafx.scene.control.ButtonType;
 import javafx.scene.control.Label;
+import javafx.scene.control.SelectionMode;
 import javafx.scene.control.TableCell;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
 import javafx.scene.control.cell.PropertyValueFactory;
-import javafx.fxml.FXMLLoader;
 import javafx.scene.paint.Color;
 
 import java.io.IOException;
 import java.sql.Date;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.stream.Collectors;
 
 /**
  * Controlador para la vista de selección de contratos.
  * Permite al usuario visualizar los contratos asociados a un cliente
- * y seleccionar uno para renovarlo.
+ * y seleccionar uno para renovarlo, o varios para renovarlos todos de una vez.
  */
-public class SeleccionarContratoController {
+public class SeleccionarContratoController implements Pantalla {
+
+    private static final Logger LOGGER = LogManager.getLogger(SeleccionarContratoController.class);
 
     @FXML
     private Label labelDni;
@@ -57,14 +66,22 @@ public class SeleccionarContratoController {
     @FXML
     private TableColumn<Contrato, Double> colImporte;
 
+    @FXML
+    private Label lblMensaje;
+
     private MainApp mainApp;
     private Cliente cliente;
 
+    /** Última renovación de cada contrato de la tabla; las celdas la leen de aquí al pintarse. */
+    private Map<String, Renovacion> ultimasRenovaciones = Collections.emptyMap();
+
     /**
      * Inicializa la tabla de contratos con columnas y celdas personalizadas.
      */
     @FXML
     public void initialize() {
+        tablaContratos.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
+
         colIdContrato.setCellValueFactory(new PropertyValueFactory<>("idContrato"));
         colFechaInicio.setCellValueFactory(new PropertyValueFactory<>("fechaInicio"));
         colFechaFinal.setCellValueFactory(new PropertyValueFactory<>("fechaFinal"));
@@ -100,8 +117,7 @@ public class SeleccionarContratoController {
                     setText(null);
                 } else {
                     Contrato contrato = getTableView().getItems().get(getIndex());
-                    RenovacionDAO renovacionDAO = new RenovacionDAO();
-                    Renovacion ultimaRenovacion = renovacionDAO.obtenerUltRenovPorIdContrato(contrato.getIdContrato());
+                    Renovacion ultimaRenovacion = ultimasRenovaciones.get(contrato.getIdContrato());
 
                     if (ultimaRenovacion != null) {
                         setText(String.valueOf(ultimaRenovacion.getImporte()));
@@ -120,8 +136,7 @@ public class SeleccionarContratoController {
                     setText(null);
                 } else {
                     Contrato contrato = getTableView().getItems().get(getIndex());
-                    RenovacionDAO renovacionDAO = new RenovacionDAO();
-                    Renovacion ultimaRenovacion = renovacionDAO.obtenerUltRenovPorIdContrato(contrato.getIdContrato());
+                    Renovacion ultimaRenovacion = ultimasRenovaciones.get(contrato.getIdContrato());
 
                     if (ultimaRenovacion != null) {
                         setText(ultimaRenovacion.getFechaFinRenovacion().toString());
@@ -136,13 +151,34 @@ public class SeleccionarContratoController {
     }
 
     /**
-     * Establece los datos del cliente y sus contratos en la vista.
+     * Establece los datos del cliente y sus contratos en la vista, leyendo la última renovación
+     * de cada contrato en una sola consulta.
      *
      * @param cliente           Cliente seleccionado.
      * @param contratosEmpeno   Lista de contratos asociados al cliente.
      */
     public void setDatosClienteYContratos(Cliente cliente, List<Contrato> contratosEmpeno) {
+        RenovacionDAO renovacionDAO = new RenovacionDAO();
+        try {
+            setDatosClienteYContratos(cliente, contratosEmpeno, renovacionDAO.obtenerUltimasRenovaciones(
+                    contratosEmpeno.stream().map(Contrato::getIdContrato).collect(Collectors.toList())));
+        } finally {
+            renovacionDAO.close();
+        }
+    }
+
+    /**
+     * Establece los datos del cliente y sus contratos en la vista con las renovaciones ya cargadas.
+     *
+     * @param cliente             Cliente seleccionado.
+     * @param contratosEmpeno     Lista de contratos asociados al cliente.
+     * @param ultimasRenovaciones Última renovación de cada contrato, por ID de contrato.
+     */
+    public void setDatosClienteYContratos(Cliente cliente, List<Contrato> contratosEmpeno,
+                                          Map<String, Renovacion> ultimasRenovaciones) {
         this.cliente = cliente;
+        this.ultimasRenovaciones = ultimasRenovaciones;
+        lblMensaje.setText("");
 
         if (cliente != null) {
             labelDni.setText(cliente.getDni());
@@ -166,47 +202,87 @@ public class SeleccionarContratoController {
      *
      * @param mainApp Referencia a la clase MainApp.
      */
+    @Override
     public void setMainApp(MainApp mainApp) {
         this.mainApp = mainApp;
     }
 
     /**
      * Maneja el evento de renovación del contrato seleccionado.
-     * Cambia la escena a la vista de detalles de renovación.
+     * Muestra la vista de detalles de renovación.
      */
     @FXML
     private void handleRenovarSeleccionado() {
         if (mainApp == null) {
-            System.err.println("mainApp no está inicializado.");
+            LOGGER.warn("mainApp no está inicializado.");
             return;
         }
 
         Contrato contratoSeleccionado = tablaContratos.getSelectionModel().getSelectedItem();
         if (contratoSeleccionado != null) {
             try {
-                FXMLLoader loader = new FXMLLoader(getClass().getResource("/fxml/renovarRescatar_contrato.fxml"));
-                Parent detallesRenovacionRoot = loader.load();
+                // Copia de la lista: esta pantalla se reutiliza y sus filas cambiarán
+                List<Contrato> contratos = new ArrayList<>(tablaContratos.getItems());
 
-                RenovarRescatarController renovarRescatarController = loader.getController();
+                RenovarRescatarController renovarRescatarController = mainApp.getNavegacion()
+                        .mostrar(NavegacionController.RENOVAR_RESCATAR, "Detalles de Renovación");
                 renovarRescatarController.setContrato(contratoSeleccionado, cliente);
-                renovarRescatarController.setMainApp(mainApp);
-                renovarRescatarController.setClienteYContratos(cliente, tablaContratos.getItems());
-
-                Scene detallesRenovacionScene = new Scene(detallesRenovacionRoot);
-                mainApp.getPrimaryStage().setScene(detallesRenovacionScene);
-                mainApp.getPrimaryStage().setTitle("Detalles de Renovación");
-                mainApp.getPrimaryStage().setMaximized(true);
-                mainApp.getPrimaryStage().setMaximized(false);
-
+                renovarRescatarController.setClienteYContratos(cliente, contratos);
             } catch (IOException e) {
-                e.printStackTrace();
-                System.out.println("Error al cargar la vista de detalles de renovación: " + e.getMessage());
+                LOGGER.error("Error al cargar la vista de detalles de renovación", e);
             }
         } else {
-            System.out.println("Por favor, selecciona un contrato para renovar.");
+            LOGGER.debug("No hay ningún contrato seleccionado para renovar.");
         }
     }
 
+    /**
+     * Renueva de una vez todos los contratos seleccionados, sin aportación, y vuelve a cargar la
+     * tabla con las nuevas fechas. Los documentos salen juntos en un lote.
+     */
+    @FXML
+    private void handleRenovarVarios() {
+        if (mainApp == null) {
+            LOGGER.warn("mainApp no está inicializado.");
+            return;
+        }
+
+        List<Contrato> seleccionados = new ArrayList<>(tablaContratos.getSelectionModel().getSelectedItems());
+        if (seleccionados.isEmpty()) {
+            lblMensaje.setText("Seleccione los contratos que desea renovar.");
+            return;
+        }
+
+        Alert confirmacion = new Alert(Alert.AlertType.CONFIRMATION);
+        confirmacion.setTitle("Confirmación");
+        confirmacion.setHeaderText("¿Estás seguro de que deseas renovar " + seleccionados.size() + " contratos?");
+        confirmacion.setContentText("Se renovarán un mes sin aportación. Esta acción no se puede deshacer.");
+
+        confirmacion.showAndWait().ifPresent(response -> {
+            if (response == ButtonType.OK) {
+                List<Renovacion> renovaciones;
+                try {
+                    renovaciones = new RenovacionMultipleController().renovar(seleccionados);
+                } catch (ConflictoVersionException e) {
+                    LOGGER.warn(e.getMessage());
+                    setDatosClienteYContratos(cliente, new ContratoDAO().obtenerContratosEmpenoPorDni(cliente.getDni()).stream()
+                            .filter(contrato -> !Objects.equals(contrato.getRescatado(), "S"))
+                            .collect(Collectors.toList()));
+                    lblMensaje.setText("El contrato " + e.getIdRegistro() + " se ha modificado desde otro puesto. "
+                            + "No se ha renovado ninguno; revise la tabla y vuelva a intentarlo.");
+                    return;
+                }
+                if (renovaciones.isEmpty()) {
+                    lblMensaje.setText("Error al guardar las renovaciones.");
+                    return;
+                }
+                mainApp.getBandejaDocumentos().avisar();
+                setDatosClienteYContratos(cliente, new ArrayList<>(tablaContratos.getItems()));
+                lblMensaje.setText(renovaciones.size() + " contratos renovados. Los documentos se están generando.");
+            }
+        });
+    }
+
     /**
      * Maneja el evento de cancelar la selección.
      * Regresa a la vista del área de trabajo.
@@ -214,26 +290,14 @@ public class SeleccionarContratoController {
     @FXML
     private void handleCancelar() {
         if (mainApp == null) {
-            System.err.println("mainApp no está inicializado.");
+            LOGGER.warn("mainApp no está inicializado.");
             return;
         }
 
         try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/fxml/area_trabajo.fxml"));
-            Parent clienteFormRoot = loader.load();
-
-            AreaTrabajoController areaTrabajoController = loader.getController();
-            areaTrabajoController.setMainApp(mainApp);
-
-            Scene clienteFormScene = new Scene(clienteFormRoot);
-            mainApp.getPrimaryStage().setScene(clienteFormScene);
-            mainApp.getPrimaryStage().setTitle("Formulario Cliente");
-            mainApp.getPrimaryStage().setMaximized(true);
-            mainApp.getPrimaryStage().setMaximized(false);
-
+            mainApp.getNavegacion().mostrar(NavegacionController.AREA_TRABAJO, "Formulario Cliente");
         } catch (IOException e) {
-            e.printStackTrace();
-            System.out.println("Error al cargar la vista anterior: " + e.getMessage());
+            LOGGER.error("Error al cargar la vista anterior", e);
         }
     }
 }
@@ -0,0 +1,192 @@
+package com.comproOro.gestion.controller;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import com.comproOro.gestion.model.modelos.Dinero;
+import com.comproOro.gestion.model.modelos.Producto;
+import org.apache.poi.xwpf.usermodel.ParagraphAlignment;
+import org.apache.poi.xwpf.usermodel.TableRowAlign;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFRun;
+import org.apache.poi.xwpf.usermodel.XWPFTable;
+import org.apache.poi.xwpf.usermodel.XWPFTableCell;
+import org.apache.poi.xwpf.usermodel.XWPFTableRow;
+import org.apache.xmlbeans.XmlCursor;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTTblWidth;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTTc;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTTcPr;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.STTblWidth;
+
+import java.math.BigInteger;
+import java.util.List;
+
+/**
+ * Tabla de productos de los documentos Word, con su tabla de totales.
+ * Recibe del llamador todo lo que necesita (productos y porcentaje de renovación), sin consultar la base
+ * de datos. Cada celda se crea ya con su texto, alineación, tamaño de letra y, en la cabecera, su
+ * ancho, así que la tabla se construye en una sola pasada por los productos; los totales se van
+ * sumando a la vez; los importes, en céntimos.
+ */
+final class TablaProductos {
+
+    private static final Logger LOGGER = LogManager.getLogger(TablaProductos.class);
+
+    /** Marcador de la plantilla que se sustituye por la tabla. */
+    static final String MARCADOR = "{{tablaProductos}}";
+
+    private static final String[] CABECERAS = {"Descripción", "Observaciones", "Cantidad", "Peso (g)",
+            "Precio/g (€)", "Importe (€)"};
+
+    /** Ancho de cada columna de productos, en veinteavos de punto. */
+    private static final int[] ANCHOS = {5000, 3000, 1500, 1500, 1500, 1500};
+
+    /** Ancho de las dos columnas de la tabla de totales. */
+    private static final int[] ANCHOS_TOTALES = {3000, 3000};
+
+    private static final int TAMANO_LETRA = 8;
+
+    private final List<Producto> productos;
+
+    private int totalCantidad;
+    private double totalPeso;
+    private long totalImporte;
+
+    /**
+     * @param productos productos de la tabla, en el orden en que se muestran.
+     */
+    TablaProductos(List<Producto> productos) {
+        this.productos = productos;
+    }
+
+    /**
+     * Sustituye el marcador {@value #MARCADOR} de la plantilla por la tabla de productos.
+     *
+     * @param document documento con el marcador.
+     * @return el párrafo que contenía el marcador, ya vacío, o null si la plantilla no lo tiene.
+     */
+    XWPFParagraph insertarEnMarcador(XWPFDocument document) {
+        for (XWPFParagraph paragraph : document.getParagraphs()) {
+            if (paragraph.getText().contains(MARCADOR)) {
+                for (XWPFRun run : paragraph.getRuns()) {
+                    run.setText("", 0);
+                }
+                insertar(document, paragraph.getCTP().newCursor());
+                return paragraph;
+            }
+        }
+        LOGGER.warn("La plantilla no tiene el marcador {}", MARCADOR);
+        return null;
+    }
+
+    /**
+     * Inserta la tabla de productos en una posición del documento y calcula los totales.
+     *
+     * @param document documento en el que se inserta.
+     * @param cursor   posición de la tabla.
+     * @return la tabla insertada.
+     */
+    XWPFTable insertar(XWPFDocument document, XmlCursor cursor) {
+        XWPFTable table = document.insertNewTbl(cursor);
+        table.setWidth("100%");
+        table.getCTTbl().getTblPr().unsetTblBorders();
+
+        XWPFTableRow cabecera = table.getRow(0);
+        for (int i = 0; i < CABECERAS.length; i++) {
+            XWPFTableCell cell = i == 0 ? cabecera.getCell(0) : cabecera.addNewTableCell();
+            fijarAncho(cell, ANCHOS[i]);
+            escribir(cell, CABECERAS[i], false);
+        }
+
+        totalCantidad = 0;
+        totalPeso = 0;
+        totalImporte = 0;
+        for (Producto producto : productos) {
+            XWPFTableRow row = table.createRow();
+            escribir(row.getCell(0), producto.getDescripcion() != null ? producto.getDescripcion() : "", false);
+            escribir(row.getCell(1), producto.getObservaciones() != null ? producto.getObservaciones() : "", true);
+            escribir(row.getCell(2), String.valueOf(producto.getCantidad()), true);
+            escribir(row.getCell(3), String.valueOf(producto.getPeso()), true);
+            escribir(row.getCell(4), Dinero.formatear(producto.getPrecioGramoCentimos()), true);
+            escribir(row.getCell(5), Dinero.formatear(producto.getImporteCentimos()), true);
+
+            totalCantidad += producto.getCantidad();
+            totalPeso += producto.getPeso();
+            totalImporte += producto.getImporteCentimos();
+        }
+        return table;
+    }
+
+    /**
+     * Inserta la tabla de totales de los productos ya insertados. Si el contrato se renueva
+     * (los empeños) incluye el importe de renovación, el porcentaje de la tarifa sobre el importe,
+     * que se suma al total.
+     *
+     * @param document             documento en el que se inserta.
+     * @param cursor               posición de la tabla.
+     * @param porcentajeRenovacion parte del importe que se cobra al renovar, o 0 si no se renueva.
+     */
+    void insertarTotales(XWPFDocument document, XmlCursor cursor, double porcentajeRenovacion) {
+        boolean esEmpeno = porcentajeRenovacion > 0;
+        long totalImporteRescate = Dinero.multiplicar(totalImporte, porcentajeRenovacion);
+
+        XWPFTable tablaTotales = document.insertNewTbl(cursor);
+        tablaTotales.setWidth("40%");
+        tablaTotales.setTableAlignment(TableRowAlign.RIGHT);
+        tablaTotales.getCTTbl().getTblPr().unsetTblBorders();
+
+        XWPFTableRow filaPiezas = tablaTotales.getRow(0);
+        XWPFTableCell etiquetaPiezas = filaPiezas.getCell(0);
+        XWPFTableCell valorPiezas = filaPiezas.addNewTableCell();
+        fijarAncho(etiquetaPiezas, ANCHOS_TOTALES[0]);
+        fijarAncho(valorPiezas, ANCHOS_TOTALES[1]);
+        etiquetaPiezas.setText("Total de piezas:");
+        valorPiezas.setText(String.valueOf(totalCantidad));
+
+        filaTotal(tablaTotales, "Total gramos:", String.format("%.2f", totalPeso) + " g");
+        if (esEmpeno) {
+            filaTotal(tablaTotales, "Total renovación:", String.format("%.2f", Dinero.aEuros(totalImporteRescate)) + " €");
+        }
+        filaTotal(tablaTotales, "Total importe:", String.format("%.2f", Dinero.aEuros(totalImporte + totalImporteRescate)) + " €");
+    }
+
+    int getTotalCantidad() {
+        return totalCantidad;
+    }
+
+    double getTotalPeso() {
+        return totalPeso;
+    }
+
+    /** @return el importe total de los productos, en céntimos. */
+    long getTotalImporte() {
+        return totalImporte;
+    }
+
+    private void filaTotal(XWPFTable tabla, String etiqueta, String valor) {
+        XWPFTableRow fila = tabla.createRow();
+        fila.getCell(0).setText(etiqueta);
+        fila.getCell(1).setText(valor);
+    }
+
+    /**
+     * Escribe el texto de una celda en su primer párrafo, con la letra de la tabla.
+     */
+    private void escribir(XWPFTableCell cell, String texto, boolean centrado) {
+        XWPFParagraph paragraph = cell.getParagraphs().get(0);
+        if (centrado) {
+            paragraph.setAlignment(ParagraphAlignment.CENTER);
+        }
+        XWPFRun run = paragraph.createRun();
+        run.setFontSize(TAMANO_LETRA);
+        run.setText(texto);
+    }
+
+    private void fijarAncho(XWPFTableCell cell, int ancho) {
+        CTTc ctTc = cell.getCTTc();
+        CTTcPr ctTcPr = ctTc.isSetTcPr() ? ctTc.getTcPr() : ctTc.addNewTcPr();
+        CTTblWidth cellWidth = ctTcPr.isSetTcW() ? ctTcPr.getTcW() : ctTcPr.addNewTcW();
+        cellWidth.setW(BigInteger.valueOf(ancho));
+        cellWidth.setType(STTblWidth.DXA);
+    }
+}
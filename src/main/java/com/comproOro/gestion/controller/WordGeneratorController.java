@@ -1,38 +1,62 @@
 package com.comproOro.gestion.controller;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import com.comproOro.gestion.model.dao.ArchivoDocumentosDAO;
 import com.comproOro.gestion.model.dao.ClienteDAO;
 import com.comproOro.gestion.model.dao.ContratoDAO;
+import com.comproOro.gestion.model.dao.Metricas;
 import com.comproOro.gestion.model.dao.RenovacionDAO;
+import com.comproOro.gestion.model.dao.TarifaDAO;
 import com.comproOro.gestion.model.modelos.Cliente;
 import com.comproOro.gestion.model.modelos.Contrato;
 import com.comproOro.gestion.model.modelos.Producto;
 import com.comproOro.gestion.model.modelos.Renovacion;
+import org.apache.poi.ooxml.POIXMLDocumentPart;
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.opc.PackagingURIHelper;
 import org.apache.poi.xwpf.usermodel.*;
 import org.apache.xmlbeans.XmlCursor;
-import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTTblWidth;
-import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTTc;
-import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTTcPr;
-import org.openxmlformats.schemas.wordprocessingml.x2006.main.STTblWidth;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTBody;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTHdrFtr;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTHdrFtrRef;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTSectPr;
 
 import java.awt.*;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.math.BigInteger;
+import java.io.OutputStream;
 import java.net.URISyntaxException;
 import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 /**
  * Controlador encargado de generar documentos Word a partir de plantillas específicas
  * para diferentes tipos de contratos como empeños, compras, rescates y renovaciones.
  * Utiliza Apache POI para la manipulación de documentos Word (.docx).
+ * Cada documento generado se guarda en el archivo de documentos ({@link ArchivoDocumentosDAO}):
+ * si se vuelve a pedir con los mismos datos no se genera otra vez, y las reimpresiones salen
+ * directamente del archivo.
  *
- *
+ * <p>Los DAO que usa se crean la primera vez que se necesitan y se reutilizan en los documentos
+ * siguientes, así que conviene mantener una instancia por hilo generador. Una instancia no se
+ * puede usar desde varios hilos a la vez.</p>
  */
 public class WordGeneratorController {
 
+    private static final Logger LOGGER = LogManager.getLogger(WordGeneratorController.class);
+
     private static final String PLANTILLA_EMPENO = "/plantillas/P-Empeno.docx";
     private static final String PLANTILLA_EMPENO_POL = "/plantillas/P-EmpenoPol.docx"; // Plantilla para "Empeno Pol"
     private static final String PLANTILLA_COMPRA = "/plantillas/P-Compra.docx"; // Plantilla para "Compra"
@@ -42,6 +66,20 @@ public class WordGeneratorController {
     private static final String PLANTILLA_RENOVACION = "/plantillas/P-Renovacion.docx"; // Plantilla para "Renovacion"
     private static final String PLANTILLA_RENOVACION_POL = "/plantillas/P-RenovacionPol.docx"; // Plantilla para "Renovacion Pol"
 
+    private static final String[] PLANTILLAS = {PLANTILLA_EMPENO, PLANTILLA_EMPENO_POL,
+            PLANTILLA_COMPRA, PLANTILLA_COMPRA_POL, PLANTILLA_RESCTE, PLANTILLA_RESCTE_POL,
+            PLANTILLA_RENOVACION, PLANTILLA_RENOVACION_POL};
+
+    /** Hilo en el que se abren los documentos generados con la aplicación del sistema. */
+    private static final ExecutorService HILO_APERTURA = Executors.newSingleThreadExecutor(tarea -> {
+        Thread hilo = new Thread(tarea, "abrir-documentos");
+        hilo.setDaemon(true);
+        return hilo;
+    });
+
+    /** Contenido de las plantillas ya leídas, por ruta; cada una se lee del jar una sola vez. */
+    private static final Map<String, byte[]> PLANTILLAS_CARGADAS = new ConcurrentHashMap<>();
+
     private static final String APELLIDOS_CAMPO = "apellidos";
     private static final String NOMBRE_CAMPO = "nombre";
     private static final String DNI_CAMPO = "dni";
@@ -49,59 +87,433 @@ public class WordGeneratorController {
     private static final String TELEFONO_CAMPO = "telefono";
     private static final String POBLACION_CAMPO = "poblacion";
 
+    private ArchivoDocumentosDAO archivo;
+
+    private ClienteDAO clienteDAO;
+
+    private ContratoDAO contratoDAO;
+
+    private RenovacionDAO renovacionDAO;
+
+    /** Porcentaje de renovación de los empeños; se lee de la tarifa la primera vez que se necesita. */
+    private Double porcentajeRenovacion;
+
+    /** Si se abren los documentos al generarlos; en los lotes se abren todos juntos al final. */
+    private boolean abrirDocumentos = true;
+
+    /**
+     * Indica si los documentos se abren con la aplicación del sistema al generarse. Se desactiva
+     * cuando se van a imprimir después en un lote con {@link #imprimirLote(List, String)}.
+     *
+     * @param abrirDocumentos {@code false} para solo generarlos y archivarlos.
+     */
+    public void setAbrirDocumentos(boolean abrirDocumentos) {
+        this.abrirDocumentos = abrirDocumentos;
+    }
+
+    /**
+     * Fija el porcentaje de renovación de los empeños en lugar de leerlo de la tarifa.
+     *
+     * @param porcentajeRenovacion parte del importe que se cobra al renovar.
+     */
+    void setPorcentajeRenovacion(double porcentajeRenovacion) {
+        this.porcentajeRenovacion = porcentajeRenovacion;
+    }
+
 
 
     /**
      * Genera un documento Word (y su correspondiente póliza si aplica) para un contrato dado,
-     * utilizando plantillas predefinidas.
+     * utilizando plantillas predefinidas, y los abre con la aplicación del sistema.
      *
      * @param dni DNI del cliente.
      * @param idContrato ID del contrato.
      * @param productos Lista de productos asociados al contrato.
-     * @throws URISyntaxException si ocurre un error al generar la ruta del archivo.
+     * @throws Exception si falta algún dato o no se puede generar alguno de los documentos.
      */
-
-    public void generarDocumento(String dni, String idContrato, ArrayList<Producto> productos) throws URISyntaxException {
+    public void generarDocumento(String dni, String idContrato, ArrayList<Producto> productos) throws Exception {
         Cliente cliente = obtenerCliente(dni);
-        String outputFilePath = obtenerRutaSalida(dni,idContrato);
         Contrato contrato = obtenerContratoId(idContrato);
-        boolean tienePoliza= contrato.getIdPol() != null;
+        comprobarDatos(cliente, contrato, dni, idContrato);
 
-        if (cliente != null && contrato != null) {
-            try {
+        String outputFilePath = obtenerRutaSalida(dni, idContrato);
+        boolean tienePoliza = contrato.getIdPol() != null;
 
-                String plantillaPath = seleccionarPlantillaSegunContrato(contrato, tienePoliza);
-                try (InputStream fis = getClass().getResourceAsStream(plantillaPath)) {
-                    if (fis == null) {
-                        System.err.println("No se pudo encontrar el archivo de plantilla.");
-                        return;
-                    }
-                    generarDocumento(cliente, fis, outputFilePath, contrato, productos);
-                }
+        generarDesdePlantilla(seleccionarPlantillaSegunContrato(contrato, tienePoliza), false,
+                ArchivoDocumentosDAO.CONTRATO, 0, cliente, outputFilePath, contrato, productos);
+
+        String outputPolizaPath = null;
+        if (tienePoliza) {
+            outputPolizaPath = obtenerRutaSalidaPoliza(dni, idContrato);
+            generarDesdePlantilla(seleccionarPlantillaSegunContratoParaPoliza(contrato), true,
+                    ArchivoDocumentosDAO.CONTRATO_POL, 0, cliente, outputPolizaPath, contrato, productos);
+        }
+
+        if (abrirDocumentos) {
+            abrirDocumentoWord(outputFilePath);
+            if (outputPolizaPath != null) {
+                abrirDocumentoWord(outputPolizaPath);
+            }
+        }
+    }
+
+    /**
+     * Comprueba que existen el cliente y el contrato de un documento.
+     *
+     * @throws IllegalStateException si falta alguno.
+     */
+    private void comprobarDatos(Cliente cliente, Contrato contrato, String dni, String idContrato) {
+        if (cliente == null || contrato == null) {
+            throw new IllegalStateException("Cliente con DNI " + dni + " o contrato " + idContrato + " no encontrado.");
+        }
+    }
+
+    /**
+     * Genera un documento a partir de una plantilla y lo guarda en el archivo de documentos.
+     * Si el último documento archivado de ese contrato, tipo y versión se generó con los mismos
+     * datos no se vuelve a generar: solo se escribe desde el archivo si falta el .docx.
+     *
+     * @param plantilla      ruta de la plantilla.
+     * @param poliza         si es la plantilla de la póliza, que lleva su propia tabla de productos.
+     * @param tipo           tipo de documento en el archivo.
+     * @param version        versión de la renovación, o 0.
+     * @throws Exception si no se encuentra la plantilla o no se puede generar el documento.
+     */
+    private void generarDesdePlantilla(String plantilla, boolean poliza, String tipo, int version, Cliente cliente,
+                                       String outputFilePath, Contrato contrato, ArrayList<Producto> productos) throws Exception {
+        generarDesdePlantilla(plantilla, poliza, tipo, version, cliente, outputFilePath, contrato, productos, null);
+    }
+
+    /**
+     * Igual que {@link #generarDesdePlantilla(String, boolean, String, int, Cliente, String, Contrato, ArrayList)},
+     * con las fechas de una renovación concreta en lugar de las de la última.
+     *
+     * @param renovacion renovación del documento, o null para usar la última del contrato.
+     */
+    private void generarDesdePlantilla(String plantilla, boolean poliza, String tipo, int version, Cliente cliente,
+                                       String outputFilePath, Contrato contrato, ArrayList<Producto> productos,
+                                       Renovacion renovacion) throws Exception {
+        Map<String, String> campos = crearMapaCampos(cliente, contrato, renovacion);
+        String huellaEntradas = huellaEntradas(plantilla, campos, contrato, productos);
+        File salida = new File(outputFilePath);
+
+        ArchivoDocumentosDAO.Archivado archivado = obtenerArchivo().buscar(contrato.getIdContrato(), tipo, version);
+        if (archivado != null && archivado.getHuellaEntradas().equals(huellaEntradas)) {
+            if (salida.exists()) {
+                LOGGER.debug("El documento {} no ha cambiado, no se vuelve a generar", outputFilePath);
+                return;
+            }
+            byte[] contenido = obtenerArchivo().leer(archivado.getHuella());
+            if (contenido != null) {
+                escribirDocumento(outputFilePath, contenido);
+                LOGGER.info("Documento recuperado del archivo en: {}", outputFilePath);
+                return;
+            }
+        }
+
+        try (InputStream fis = abrirPlantilla(plantilla)) {
+            if (fis == null) {
+                throw new IOException("No se pudo encontrar la plantilla " + plantilla);
+            }
+            try (Diagnostico.Documento documento = Diagnostico.iniciarDocumento()) {
+                byte[] contenido = renderizar(fis, poliza, campos, contrato, productos);
+                escribirDocumento(outputFilePath, contenido);
+                documento.completado();
+                obtenerArchivo().archivar(contrato.getIdContrato(), tipo, version, salida.getName(), huellaEntradas, contenido);
+                LOGGER.info("Documento generado exitosamente en: {}", outputFilePath);
+            }
+        }
+    }
 
+    /**
+     * Resume en una huella todo lo que acaba dentro de un documento: la plantilla, los campos y
+     * los productos.
+     */
+    private String huellaEntradas(String plantilla, Map<String, String> campos, Contrato contrato,
+                                  ArrayList<Producto> productos) {
+        StringBuilder entradas = new StringBuilder(plantilla).append('\n');
+        for (Map.Entry<String, String> campo : new TreeMap<>(campos).entrySet()) {
+            entradas.append(campo.getKey()).append('=').append(campo.getValue()).append('\n');
+        }
+        entradas.append(contrato.getTipo()).append('|').append(porcentajeRenovacion(contrato)).append('\n');
+        for (Producto producto : productos) {
+            entradas.append(producto.getDescripcion()).append('|')
+                    .append(producto.getObservaciones()).append('|')
+                    .append(producto.getCantidad()).append('|')
+                    .append(producto.getPeso()).append('|')
+                    .append(producto.getPrecioGramoCentimos()).append('|')
+                    .append(producto.getImporteCentimos()).append('\n');
+        }
+        return ArchivoDocumentosDAO.huella(entradas.toString());
+    }
+
+    /**
+     * Parte del importe que se cobra al renovar el contrato según la tarifa, o 0 si no es un empeño.
+     */
+    private double porcentajeRenovacion(Contrato contrato) {
+        if (!"empeno".equalsIgnoreCase(contrato.getTipo())) {
+            return 0;
+        }
+        if (porcentajeRenovacion == null) {
+            porcentajeRenovacion = new TarifaDAO().obtenerTarifaEmpeno().getPorcentajeRenovacion();
+        }
+        return porcentajeRenovacion;
+    }
+
+    /**
+     * DAO del archivo de documentos; se crea la primera vez que se necesita.
+     */
+    private ArchivoDocumentosDAO obtenerArchivo() {
+        if (archivo == null) {
+            archivo = new ArchivoDocumentosDAO();
+        }
+        return archivo;
+    }
+
+    /**
+     * Vuelve a abrir los últimos documentos generados de un contrato (el documento y, si la
+     * tiene, su póliza) sacándolos del archivo, sin volver a generarlos.
+     *
+     * @param idContrato ID del contrato.
+     * @return {@code true} si había documentos archivados del contrato.
+     * @throws IOException si no se pueden escribir los documentos.
+     */
+    public boolean reimprimir(String idContrato) throws IOException {
+        long inicio = System.nanoTime();
+        ArchivoDocumentosDAO.Archivado ultimo = null;
+        for (ArchivoDocumentosDAO.Archivado archivado : obtenerArchivo().obtenerPorContrato(idContrato)) {
+            if (!archivado.isPoliza()) {
+                ultimo = archivado;
+                break;
+            }
+        }
+        if (ultimo == null) {
+            return false;
+        }
+
+        for (ArchivoDocumentosDAO.Archivado archivado : obtenerArchivo().buscarConPoliza(idContrato, ultimo.getTipo(), ultimo.getVersion())) {
+            reimprimir(archivado);
+        }
+        Metricas.registrar("WordGenerator.reimprimir", inicio);
+        return true;
+    }
+
+    /**
+     * Une documentos ya archivados en un solo documento, con cada uno en sus propias páginas, y
+     * lo abre una sola vez. Así una visita con varias operaciones, o las de todo un día, se
+     * imprimen de una vez.
+     *
+     * @param archivados documentos a unir, en el orden en que se imprimen.
+     * @param nombre     nombre del documento unido, dentro de la carpeta de contratos.
+     * @return {@code false} si no había ningún documento que unir.
+     * @throws IOException si algún documento no está en el archivo o no se puede escribir el lote.
+     */
+    public boolean imprimirLote(List<ArchivoDocumentosDAO.Archivado> archivados, String nombre) throws IOException {
+        if (archivados.isEmpty()) {
+            return false;
+        }
+        long inicio = System.nanoTime();
+        List<byte[]> documentos = new ArrayList<>(archivados.size());
+        for (ArchivoDocumentosDAO.Archivado archivado : archivados) {
+            byte[] contenido = obtenerArchivo().leer(archivado.getHuella());
+            if (contenido == null) {
+                throw new IOException("El documento " + archivado.getNombre() + " no está en el archivo");
+            }
+            documentos.add(contenido);
+        }
 
-                if (tienePoliza) {
-                    String outputPolizaPath = obtenerRutaSalidaPoliza(dni, idContrato);
-                    String plantillaPolizaPath = seleccionarPlantillaSegunContratoParaPoliza(contrato);
-                    try (InputStream fisPoliza = getClass().getResourceAsStream(plantillaPolizaPath)) {
-                        if (fisPoliza == null) {
-                            System.err.println("No se pudo encontrar el archivo de plantilla para póliza.");
-                            return;
+        String ruta = obtenerCarpetaSalida() + File.separator + nombre;
+        escribirDocumento(ruta, combinar(documentos));
+        abrirDocumentoWord(ruta);
+        Metricas.registrar("WordGenerator.imprimirLote", inicio);
+        LOGGER.info("Lote de {} documentos generado en: {}", documentos.size(), ruta);
+        return true;
+    }
+
+    /**
+     * Imprime en un solo documento todos los documentos generados en un día.
+     *
+     * @param dia día cuyos documentos se imprimen.
+     * @return {@code false} si ese día no se generó ningún documento.
+     * @throws IOException si no se puede generar el lote.
+     */
+    public boolean imprimirDia(LocalDate dia) throws IOException {
+        ZoneId zona = ZoneId.systemDefault();
+        long desde = dia.atStartOfDay(zona).toInstant().toEpochMilli();
+        long hasta = dia.plusDays(1).atStartOfDay(zona).toInstant().toEpochMilli();
+        return imprimirLote(obtenerArchivo().obtenerCreadosEntre(desde, hasta), "LOTE_" + dia + ".docx");
+    }
+
+    /**
+     * Une varios documentos .docx en uno. El primero se usa como base (estilos, ajustes) y cada
+     * uno de los siguientes se añade como una sección nueva, que empieza en página nueva y
+     * conserva sus propios encabezados y pies. Cada documento se lee una sola vez.
+     *
+     * @param documentos contenido de los documentos, en orden.
+     * @return el contenido del documento unido.
+     * @throws IOException si no se puede leer alguno de los documentos.
+     */
+    static byte[] combinar(List<byte[]> documentos) throws IOException {
+        try (XWPFDocument destino = new XWPFDocument(new ByteArrayInputStream(documentos.get(0)))) {
+            CTBody cuerpo = destino.getDocument().getBody();
+
+            for (int i = 1; i < documentos.size(); i++) {
+                try (XWPFDocument origen = new XWPFDocument(new ByteArrayInputStream(documentos.get(i)))) {
+                    CTBody cuerpoOrigen = origen.getDocument().getBody();
+
+                    // La sección del documento anterior se cierra con un salto de sección
+                    CTSectPr seccionAnterior = cuerpo.isSetSectPr() ? (CTSectPr) cuerpo.getSectPr().copy() : CTSectPr.Factory.newInstance();
+                    cuerpo.addNewP().addNewPPr().setSectPr(seccionAnterior);
+
+                    CTSectPr seccion = cuerpoOrigen.isSetSectPr() ? (CTSectPr) cuerpoOrigen.getSectPr().copy() : CTSectPr.Factory.newInstance();
+                    copiarCabecerasYPies(origen, destino, seccion);
+                    cuerpo.setSectPr(seccion);
+
+                    // El contenido se copia delante de la sección final, que es la del nuevo documento
+                    try (XmlCursor hasta = cuerpo.getSectPr().newCursor();
+                         XmlCursor desde = cuerpoOrigen.newCursor()) {
+                        if (desde.toFirstChild()) {
+                            do {
+                                if (!"sectPr".equals(desde.getName().getLocalPart())) {
+                                    desde.copyXml(hasta);
+                                }
+                            } while (desde.toNextSibling());
                         }
-                        generarDocumentoPol(cliente, fisPoliza, outputPolizaPath, contrato, productos);
                     }
                 }
+            }
 
-                abrirDocumentoWord(outputFilePath);
-                if (tienePoliza) {
-                    abrirDocumentoWord(obtenerRutaSalidaPoliza(dni, idContrato));
+            ByteArrayOutputStream salida = new ByteArrayOutputStream();
+            destino.write(salida);
+            return salida.toByteArray();
+        }
+    }
+
+    /**
+     * Copia al documento destino los encabezados y pies a los que apunta una sección del
+     * documento origen, y cambia las referencias de la sección a las copias.
+     */
+    private static void copiarCabecerasYPies(XWPFDocument origen, XWPFDocument destino, CTSectPr seccion) throws IOException {
+        List<CTHdrFtrRef> referencias = new ArrayList<>(seccion.getHeaderReferenceList());
+        referencias.addAll(seccion.getFooterReferenceList());
+        for (CTHdrFtrRef referencia : referencias) {
+            POIXMLDocumentPart parte = origen.getRelationById(referencia.getId());
+            if (!(parte instanceof XWPFHeaderFooter)) {
+                continue;
+            }
+            XWPFRelation relacion = parte instanceof XWPFHeader ? XWPFRelation.HEADER : XWPFRelation.FOOTER;
+            XWPFHeaderFooter copia = (XWPFHeaderFooter) destino.createRelationship(relacion,
+                    XWPFFactory.getInstance(), siguienteIndice(destino, relacion));
+            copia.setHeaderFooter((CTHdrFtr) ((XWPFHeaderFooter) parte)._getHdrFtr().copy());
+            referencia.setId(destino.getRelationId(copia));
+        }
+    }
+
+    /**
+     * Primer número libre para una parte nueva (header7.xml, footer8.xml...) del documento.
+     */
+    private static int siguienteIndice(XWPFDocument documento, XWPFRelation relacion) throws IOException {
+        try {
+            int indice = 1;
+            while (documento.getPackage().containPart(PackagingURIHelper.createPartName(relacion.getFileName(indice)))) {
+                indice++;
+            }
+            return indice;
+        } catch (InvalidFormatException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private void reimprimir(ArchivoDocumentosDAO.Archivado archivado) throws IOException {
+        byte[] contenido = obtenerArchivo().leer(archivado.getHuella());
+        if (contenido == null) {
+            throw new IOException("El documento " + archivado.getNombre() + " no está en el archivo");
+        }
+        String ruta = obtenerCarpetaSalida() + File.separator + archivado.getNombre();
+        escribirDocumento(ruta, contenido);
+        abrirDocumentoWord(ruta);
+    }
+
+    /**
+     * Escribe un documento ya generado en disco.
+     */
+    private void escribirDocumento(String ruta, byte[] contenido) throws IOException {
+        long inicio = System.nanoTime();
+        try (FileOutputStream fos = new FileOutputStream(ruta)) {
+            fos.write(contenido);
+        }
+        Metricas.registrar("WordGenerator.escribirDocumento", inicio);
+    }
+
+    /**
+     * Abre una plantilla desde memoria. La primera vez que se pide se lee del classpath.
+     *
+     * @param ruta Ruta de la plantilla dentro del classpath.
+     * @return el contenido de la plantilla, o null si no existe.
+     * @throws IOException si no se puede leer la plantilla.
+     */
+    private static InputStream abrirPlantilla(String ruta) throws IOException {
+        byte[] contenido = PLANTILLAS_CARGADAS.get(ruta);
+        if (contenido == null) {
+            try (InputStream entrada = WordGeneratorController.class.getResourceAsStream(ruta)) {
+                if (entrada == null) {
+                    return null;
                 }
-            } catch (Exception e) {
-                System.err.println("Error al generar el documento para el cliente con DNI: " + dni);
-                e.printStackTrace();
+                contenido = entrada.readAllBytes();
+            }
+            PLANTILLAS_CARGADAS.put(ruta, contenido);
+        }
+        return new ByteArrayInputStream(contenido);
+    }
+
+    /**
+     * Lee todas las plantillas a memoria para que el primer documento no tenga que esperar al jar.
+     *
+     * @return número de plantillas cargadas.
+     * @throws IOException si no se puede leer alguna plantilla.
+     */
+    public static int cargarPlantillas() throws IOException {
+        int cargadas = 0;
+        for (String ruta : PLANTILLAS) {
+            try (InputStream plantilla = abrirPlantilla(ruta)) {
+                if (plantilla == null) {
+                    LOGGER.warn("No se encontró la plantilla {}", ruta);
+                } else {
+                    cargadas++;
+                }
+            }
+        }
+        return cargadas;
+    }
+
+    /**
+     * Hace con la plantilla de empeño lo mismo que un documento real (abrirla, reemplazar campos,
+     * insertar una tabla y escribirla), pero sin datos ni archivo de salida. Así las clases de POI
+     * y XMLBeans ya están cargadas cuando se genera el primer documento de verdad.
+     *
+     * @throws IOException si no se puede leer la plantilla.
+     */
+    public static void calentarPoi() throws IOException {
+        WordGeneratorController wordGenerator = new WordGeneratorController();
+        try (InputStream plantilla = abrirPlantilla(PLANTILLA_EMPENO)) {
+            if (plantilla == null) {
+                return;
+            }
+            try (XWPFDocument document = new XWPFDocument(plantilla)) {
+                Map<String, String> campos = new HashMap<>();
+                campos.put(NOMBRE_CAMPO, "");
+                wordGenerator.replaceText(document, campos);
+                wordGenerator.replaceInHeader(document, campos);
+
+                Producto producto = new Producto();
+                producto.setDescripcion("");
+                TablaProductos tabla = new TablaProductos(Collections.singletonList(producto));
+                XWPFParagraph paragraph = document.createParagraph();
+                tabla.insertar(document, paragraph.getCTP().newCursor());
+                tabla.insertarTotales(document, paragraph.getCTP().newCursor(), 0.10);
+
+                document.write(OutputStream.nullOutputStream());
             }
-        } else {
-            System.out.println("Cliente con DNI " + dni + " o contrato no encontrado.");
         }
     }
 
@@ -145,8 +557,10 @@ public class WordGeneratorController {
      * @return Objeto Cliente correspondiente.
      */
     private Cliente obtenerCliente(String dni) {
-        ClienteDAO clienteDao = new ClienteDAO();
-        return clienteDao.obtenerClientePorDni(dni);
+        if (clienteDAO == null) {
+            clienteDAO = new ClienteDAO();
+        }
+        return clienteDAO.obtenerClientePorDni(dni);
     }
 
     /**
@@ -156,8 +570,29 @@ public class WordGeneratorController {
      * @return Objeto Contrato correspondiente.
      */
     private Contrato obtenerContratoId(String idContrato) {
-        ContratoDAO contratoDao = new ContratoDAO();
-        return contratoDao.obtenerContratoPorId(idContrato);
+        if (contratoDAO == null) {
+            contratoDAO = new ContratoDAO();
+        }
+        return contratoDAO.obtenerContratoPorId(idContrato);
+    }
+
+    /**
+     * DAO de renovaciones; se crea la primera vez que se necesita.
+     */
+    private RenovacionDAO obtenerRenovaciones() {
+        if (renovacionDAO == null) {
+            renovacionDAO = new RenovacionDAO();
+        }
+        return renovacionDAO;
+    }
+
+    /**
+     * Carpeta en la que se guardan los documentos generados.
+     *
+     * @return Ruta de la carpeta.
+     */
+    private String obtenerCarpetaSalida() {
+        return System.getProperty("user.home") + File.separator + "Desktop/Contratos";
     }
 
     /**
@@ -169,7 +604,7 @@ public class WordGeneratorController {
      * @throws URISyntaxException si hay error al generar la ruta.
      */
     private String obtenerRutaSalida(String dni, String idContrato) throws URISyntaxException {
-        String desktopPath = System.getProperty("user.home") + File.separator + "Desktop/Contratos";
+        String desktopPath = obtenerCarpetaSalida();
         return desktopPath + File.separator +  dni + "_" + idContrato +".docx";
     }
     /**
@@ -182,7 +617,7 @@ public class WordGeneratorController {
      * @throws URISyntaxException si hay error al generar la ruta.
      */
     private String obtenerRutaSalidaRenovar(String dni, String idContrato, int ultversion) throws URISyntaxException {
-        String desktopPath = System.getProperty("user.home") + File.separator + "Desktop/Contratos";
+        String desktopPath = obtenerCarpetaSalida();
         return desktopPath + File.separator +  dni + "_" + idContrato+"_RENOVACION" + ultversion+".docx";
     }
 
@@ -195,7 +630,7 @@ public class WordGeneratorController {
      * @throws URISyntaxException si hay error al generar la ruta.
      */
     private String obtenerRutaSalidaRescatar(String dni, String idContrato) throws URISyntaxException {
-        String desktopPath = System.getProperty("user.home") + File.separator + "Desktop/Contratos";
+        String desktopPath = obtenerCarpetaSalida();
         return desktopPath + File.separator +  dni + "_" + idContrato +"_RESCATE"+ ".docx";
     }
 
@@ -208,7 +643,7 @@ public class WordGeneratorController {
      * @throws URISyntaxException si hay error al generar la ruta.
      */
     private String obtenerRutaSalidaPoliza(String dni,  String idContrato) throws URISyntaxException {
-        String desktopPath = System.getProperty("user.home") + File.separator + "Desktop/Contratos";
+        String desktopPath = obtenerCarpetaSalida();
         return desktopPath + File.separator  + dni + "_" + idContrato +"_POL"+ ".docx";
     }
 
@@ -221,7 +656,7 @@ public class WordGeneratorController {
      * @throws URISyntaxException si hay error al generar la ruta.
      */
     private String obtenerRutaSalidaPolizaRescate(String dni,  String idContrato) throws URISyntaxException {
-        String desktopPath = System.getProperty("user.home") + File.separator + "Desktop/Contratos";
+        String desktopPath = obtenerCarpetaSalida();
         return desktopPath + File.separator  + dni + "_" + idContrato +"_RESCATE" + "_POL"+ ".docx";
     }
 
@@ -235,12 +670,13 @@ public class WordGeneratorController {
      * @throws URISyntaxException si hay error al generar la ruta.
      */
     private String obtenerRutaSalidaPolizaRenovacion(String dni,  String idContrato, int ultversion) throws URISyntaxException {
-        String desktopPath = System.getProperty("user.home") + File.separator + "Desktop/Contratos";
+        String desktopPath = obtenerCarpetaSalida();
         return desktopPath + File.separator  + dni + "_" + idContrato +"_RENOVACION" + "_POL"+ ultversion +".docx";
     }
 
     /**
      * Genera el documento Word del contrato principal reemplazando los campos y agregando productos.
+     * Es visible en el paquete para medirlo desde los benchmarks.
      *
      * @param cliente Objeto Cliente con los datos personales.
      * @param fis InputStream de la plantilla Word.
@@ -249,47 +685,46 @@ public class WordGeneratorController {
      * @param productos Lista de productos asociados al contrato.
      * @throws Exception si ocurre un error al generar o guardar el documento.
      */
-    private void generarDocumento(Cliente cliente, InputStream fis, String outputFilePath, Contrato contrato, ArrayList<Producto> productos) throws Exception {
-        try (XWPFDocument document = new XWPFDocument(fis)) {
-            Map<String, String> campos = crearMapaCampos(cliente, contrato);
-            replaceText(document, campos);
-            replaceInHeader(document, campos);
-
-
-            generarTablaProductos(document, productos, contrato);
-
-            try (FileOutputStream fos = new FileOutputStream(outputFilePath)) {
-                document.write(fos);
-            }
-
-            System.out.println("Documento generado exitosamente en: " + outputFilePath);
+    void generarDocumento(Cliente cliente, InputStream fis, String outputFilePath, Contrato contrato, ArrayList<Producto> productos) throws Exception {
+        try (Diagnostico.Documento documento = Diagnostico.iniciarDocumento()) {
+            byte[] contenido = renderizar(fis, false, crearMapaCampos(cliente, contrato), contrato, productos);
+            escribirDocumento(outputFilePath, contenido);
+            documento.completado();
         }
     }
 
     /**
-     * Genera el documento Word de la póliza del contrato reemplazando los campos y agregando productos.
+     * Rellena una plantilla con los campos y la tabla de productos y devuelve el documento.
      *
-     * @param cliente Objeto Cliente con los datos personales.
-     * @param fis InputStream de la plantilla Word.
-     * @param outputFilePath Ruta donde se guardará el documento.
-     * @param contrato Objeto Contrato con los datos del contrato.
-     * @param productos Lista de productos asociados al contrato.
-     * @throws Exception si ocurre un error al generar o guardar el documento.
+     * @param fis       plantilla Word.
+     * @param poliza    si es la plantilla de la póliza, que lleva su propia tabla de productos.
+     * @param campos    campos a reemplazar, de {@link #crearMapaCampos(Cliente, Contrato)}.
+     * @param contrato  contrato del documento.
+     * @param productos productos del contrato.
+     * @return el contenido del .docx.
+     * @throws IOException si no se puede leer la plantilla o escribir el documento.
      */
-    private void generarDocumentoPol(Cliente cliente, InputStream fis, String outputFilePath, Contrato contrato, ArrayList<Producto> productos) throws Exception {
+    private byte[] renderizar(InputStream fis, boolean poliza, Map<String, String> campos, Contrato contrato,
+                              ArrayList<Producto> productos) throws IOException {
+        long inicio = System.nanoTime();
         try (XWPFDocument document = new XWPFDocument(fis)) {
-            Map<String, String> campos = crearMapaCampos(cliente, contrato);
+            inicio = Metricas.registrar("WordGenerator.cargarPlantilla", inicio);
             replaceText(document, campos);
             replaceInHeader(document, campos);
+            inicio = Metricas.registrar("WordGenerator.rellenarCampos", inicio);
 
-
-            generarTablaProductosPol(document, productos, contrato);
-
-            try (FileOutputStream fos = new FileOutputStream(outputFilePath)) {
-                document.write(fos);
+            if (poliza) {
+                generarTablaProductosPol(document, productos, contrato);
+                inicio = Metricas.registrar("WordGenerator.generarTablaProductosPol", inicio);
+            } else {
+                generarTablaProductos(document, productos, contrato);
+                inicio = Metricas.registrar("WordGenerator.generarTablaProductos", inicio);
             }
 
-            System.out.println("Documento generado exitosamente en: " + outputFilePath);
+            ByteArrayOutputStream salida = new ByteArrayOutputStream();
+            document.write(salida);
+            Metricas.registrar("WordGenerator.serializarDocumento", inicio);
+            return salida.toByteArray();
         }
     }
 
@@ -301,6 +736,17 @@ public class WordGeneratorController {
      * @return Un  con claves de texto y valores extraídos del cliente y contrato.
      */
     private Map<String, String> crearMapaCampos(Cliente cliente, Contrato contrato) {
+        return crearMapaCampos(cliente, contrato, null);
+    }
+
+    /**
+     * Igual que {@link #crearMapaCampos(Cliente, Contrato)}, pero si se indica una renovación la
+     * fecha del documento y las de renovación son las suyas, no las de hoy ni las de la última
+     * renovación: así el documento de una renovación antigua no cambia aunque se genere tarde.
+     *
+     * @param renovacion renovación del documento, o null.
+     */
+    private Map<String, String> crearMapaCampos(Cliente cliente, Contrato contrato, Renovacion renovacion) {
         Map<String, String> campos = new HashMap<>();
 
 
@@ -342,8 +788,18 @@ public class WordGeneratorController {
         campos.put("fechaRenovacion", fechaRenovacionStr);
 
 
-        RenovacionDAO renovacionDAO = new RenovacionDAO();
-        Renovacion ultimaRenovacion = renovacionDAO.obtenerUltRenovPorIdContrato(contrato.getIdContrato());
+        if (renovacion != null) {
+            DateTimeFormatter dtf = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+            campos.put("fechaActual", renovacion.getFechaRenovacion() != null ? renovacion.getFechaRenovacion().format(dtf) : "");
+            String fechaFinRenovacion = renovacion.getFechaFinRenovacion() != null
+                    ? renovacion.getFechaFinRenovacion().format(dtf)
+                    : "";
+            campos.put("fechaRenovacion", fechaFinRenovacion);
+            campos.put("fechaFinRenovacion", fechaFinRenovacion);
+            return campos;
+        }
+
+        Renovacion ultimaRenovacion = obtenerRenovaciones().obtenerUltRenovPorIdContrato(contrato.getIdContrato());
 
 
         if (ultimaRenovacion != null) {
@@ -363,305 +819,36 @@ public class WordGeneratorController {
     }
 
     /**
-     * Genera una tabla de productos dentro de un documento Word a partir de una lista de productos y un contrato.
-     * Inserta la tabla en la posición donde se encuentra el marcador {{tablaProductos}}.
+     * Sustituye el marcador {{tablaProductos}} por la tabla de productos y añade al final del
+     * documento la tabla de totales.
      *
      * @param document  Documento Word  donde se insertará la tabla.
      * @param productos Lista de objetos Producto a mostrar en la tabla.
-     * @param contrato  Objeto { Contrato asociado a los productos.
+     * @param contrato  Contrato de los productos; en los empeños se añade el importe de renovación de la tarifa.
      */
     private void generarTablaProductos(XWPFDocument document, ArrayList<Producto> productos, Contrato contrato) {
-
-        for (int i = 0; i < document.getParagraphs().size(); i++) {
-            XWPFParagraph paragraph = document.getParagraphs().get(i);
-            String paragraphText = paragraph.getText();
-            if (paragraphText.contains("{{tablaProductos}}")) {
-
-                for (XWPFRun run : paragraph.getRuns()) {
-                    run.setText("", 0);
-                }
-
-
-                XWPFTable table = document.insertNewTbl(paragraph.getCTP().newCursor());
-
-
-                table.setWidth("100%");
-
-                // Establecer encabezados de columna
-                XWPFTableRow headerRow = table.getRow(0);
-                headerRow.getCell(0).setText("Descripción");
-                headerRow.addNewTableCell().setText("Observaciones");
-                headerRow.addNewTableCell().setText("Cantidad");
-                headerRow.addNewTableCell().setText("Peso (g)");
-                headerRow.addNewTableCell().setText("Precio/g (€)");
-                headerRow.addNewTableCell().setText("Importe (€)");
-
-
-                setTableColumnWidths(table);
-
-
-                quitarBordesDeTabla(table);
-
-
-                int totalCantidad = 0;
-                double totalPeso = 0;
-                double totalImporte = 0;
-
-
-                for (Producto producto : productos) {
-                    XWPFTableRow row = table.createRow();
-                    row.getCell(0).setText(producto.getDescripcion() != null ? producto.getDescripcion() : "");
-
-                    // Alinear los valores a la derecha
-                    setCellTextCenterAligned(row.getCell(1), String.valueOf(producto.getObservaciones()));
-                    setCellTextCenterAligned(row.getCell(2), String.valueOf(producto.getCantidad()));
-                    setCellTextCenterAligned(row.getCell(3), String.valueOf(producto.getPeso()));
-                    setCellTextCenterAligned(row.getCell(4), String.valueOf(producto.getPrecioGramo()));
-                    setCellTextCenterAligned(row.getCell(5), String.valueOf(producto.getImporte()));
-
-
-                    totalCantidad += producto.getCantidad();
-                    totalPeso += producto.getPeso();
-                    totalImporte += producto.getImporte();
-                }
-                setFontSizeForTable(table, 8);
-
-                XWPFParagraph emptyParagraph = document.createParagraph();
-                emptyParagraph.setSpacingAfter(0);
-
-
-
-                    generarTablaTotales(document, totalCantidad, totalPeso, totalImporte, emptyParagraph.getCTP().newCursor(), obtenerContratoId(productos.get(0).getIdContrato()).getTipo());
-
-
-                break;
-            }
+        TablaProductos tabla = new TablaProductos(productos);
+        if (tabla.insertarEnMarcador(document) != null) {
+            XWPFParagraph emptyParagraph = document.createParagraph();
+            emptyParagraph.setSpacingAfter(0);
+            tabla.insertarTotales(document, emptyParagraph.getCTP().newCursor(), porcentajeRenovacion(contrato));
         }
     }
 
     /**
-     * Genera una tabla de productos específica para contratos tipo "Pol" dentro de un documento Word.
-     * Inserta la tabla en la posición donde se encuentra el marcador {{tablaProductos}}.
+     * Sustituye el marcador {{tablaProductos}} de la póliza por la tabla de productos, sin totales.
      *
      * @param document  Documento Word   donde se insertará la tabla.
      * @param productos Lista de objetos  Producto a mostrar en la tabla.
      * @param contrato  Objeto  Contrato asociado a los productos.
      */
     private void generarTablaProductosPol(XWPFDocument document, ArrayList<Producto> productos, Contrato contrato) {
-
-
-        for (int i = 0; i < document.getParagraphs().size(); i++) {
-            XWPFParagraph paragraph = document.getParagraphs().get(i);
-            String paragraphText = paragraph.getText();
-            if (paragraphText.contains("{{tablaProductos}}")) {
-
-                for (XWPFRun run : paragraph.getRuns()) {
-                    run.setText("", 0);
-                }
-
-
-                XWPFTable table = document.insertNewTbl(paragraph.getCTP().newCursor());
-
-
-                table.setWidth("100%");
-
-
-                XWPFTableRow headerRow = table.getRow(0);
-                headerRow.getCell(0).setText("Descripción");
-                headerRow.addNewTableCell().setText("Observaciones");
-                headerRow.addNewTableCell().setText("Cantidad");
-                headerRow.addNewTableCell().setText("Peso (g)");
-                headerRow.addNewTableCell().setText("Precio/g (€)");
-                headerRow.addNewTableCell().setText("Importe (€)");
-
-
-                setTableColumnWidths(table);
-
-
-                quitarBordesDeTabla(table);
-
-                int totalCantidad = 0;
-                double totalPeso = 0;
-                double totalImporte = 0;
-
-
-                for (Producto producto : productos) {
-                    XWPFTableRow row = table.createRow();
-                    row.getCell(0).setText(producto.getDescripcion() != null ? producto.getDescripcion() : "");
-
-
-                    setCellTextCenterAligned(row.getCell(1), String.valueOf(producto.getObservaciones()));
-                    setCellTextCenterAligned(row.getCell(2), String.valueOf(producto.getCantidad()));
-                    setCellTextCenterAligned(row.getCell(3), String.valueOf(producto.getPeso()));
-                    setCellTextCenterAligned(row.getCell(4), String.valueOf(producto.getPrecioGramo()));
-                    setCellTextCenterAligned(row.getCell(5), String.valueOf(producto.getImporte()));
-
-
-                    totalCantidad += producto.getCantidad();
-                    totalPeso += producto.getPeso();
-                    totalImporte += producto.getImporte();
-                }
-                setFontSizeForTable(table, 8);
-
-                XWPFParagraph emptyParagraph = document.createParagraph();
-                emptyParagraph.setSpacingAfter(0);
-
-
-                break;
-            }
+        if (new TablaProductos(productos).insertarEnMarcador(document) != null) {
+            XWPFParagraph emptyParagraph = document.createParagraph();
+            emptyParagraph.setSpacingAfter(0);
         }
     }
 
-    /**
-     * Genera una tabla con los totales de productos, incluyendo cantidad, peso, y importe total.
-     * Si el contrato es de tipo "empeño", incluye el importe de renovación.
-     *
-     * @param document           Documento Word donde se insertará la tabla.
-     * @param totalCantidad      Total de piezas.
-     * @param totalPeso          Peso total en gramos.
-     * @param totalImporte       Importe total.
-     * @param cursor             Cursor de posición donde se insertará la tabla.
-     * @param tipoContrato       Tipo de contrato, usado para determinar si se muestra el importe de renovación.
-     */
-
-    private void generarTablaTotales(XWPFDocument document, int totalCantidad, double totalPeso, double totalImporte, XmlCursor cursor, String tipoContrato) {
-
-        boolean esEmpeno = tipoContrato.equalsIgnoreCase("empeno");
-
-
-        double totalImporteRescate = esEmpeno ? totalImporte * 0.10 : 0;
-
-
-        XWPFTable tablaTotales = document.insertNewTbl(cursor);
-
-
-        tablaTotales.setWidth("40%");
-        tablaTotales.setTableAlignment(TableRowAlign.RIGHT);
-
-
-
-
-        XWPFTableRow filaPiezas = tablaTotales.getRow(0);
-        filaPiezas.getCell(0).setText("Total de piezas:");
-        filaPiezas.addNewTableCell().setText(String.valueOf(totalCantidad));
-
-
-        XWPFTableRow filaGramos = tablaTotales.createRow();
-        filaGramos.getCell(0).setText("Total gramos:");
-        filaGramos.getCell(1).setText(String.format("%.2f", totalPeso) + " g");
-
-
-        if (esEmpeno) {
-            XWPFTableRow filaImporteRescate = tablaTotales.createRow();
-            filaImporteRescate.getCell(0).setText("Total renovación:");
-            filaImporteRescate.getCell(1).setText(String.format("%.2f", totalImporteRescate ) + " €");
-        }
-
-
-        XWPFTableRow filaImporte = tablaTotales.createRow();
-        filaImporte.getCell(0).setText("Total importe:");
-        filaImporte.getCell(1).setText(String.format("%.2f", totalImporte+totalImporteRescate ) + " €");
-
-
-        setTableColumnWidthsTotales(tablaTotales, esEmpeno);
-
-
-        quitarBordesDeTabla(tablaTotales);
-    }
-
-    /**
-     * Elimina los bordes de una tabla en un documento Word.
-     *
-     * @param table Tabla  a la que se le eliminarán los bordes.
-     */
-    // Método auxiliar para quitar los bordes de una tabla
-    private void quitarBordesDeTabla(XWPFTable table) {
-        table.getCTTbl().getTblPr().unsetTblBorders();
-    }
-
-    /**
-     * Establece el tamaño de fuente para todo el contenido de una tabla.
-     *
-     * @param table     Tabla  cuyo texto será modificado.
-     * @param fontSize  Tamaño de fuente en puntos.
-     */
-    private void setFontSizeForTable(XWPFTable table, int fontSize) {
-        for (XWPFTableRow row : table.getRows()) {
-            for (XWPFTableCell cell : row.getTableCells()) {
-                for (XWPFParagraph paragraph : cell.getParagraphs()) {
-                    for (XWPFRun run : paragraph.getRuns()) {
-                        run.setFontSize(fontSize); // Establece el tamaño de la fuente en puntos
-                    }
-                }
-            }
-        }
-    }
-
-    /**
-     * Establece texto centrado dentro de una celda de una tabla.
-     *
-     * @param cell Celda  donde se establecerá el texto.
-     * @param text Texto a insertar en la celda.
-     */
-    private void setCellTextCenterAligned(XWPFTableCell cell, String text) {
-
-        cell.removeParagraph(0);
-
-
-        XWPFParagraph paragraph = cell.addParagraph();
-        paragraph.setAlignment(ParagraphAlignment.CENTER); // Alinear al centro
-
-
-        XWPFRun run = paragraph.createRun();
-        run.setText(text);
-    }
-
-    /**
-     * Ajusta los anchos de las columnas de una tabla de productos.
-     *
-     * @param table Tabla  a la que se le ajustarán los anchos de columna.
-     */
-    private void setTableColumnWidths(XWPFTable table) {
-
-        int[] colWidths = {5000,3000, 1500, 1500, 1500, 1500};
-        int numCols = table.getRow(0).getTableCells().size();
-
-        for (int i = 0; i < numCols; i++) {
-            for (XWPFTableRow row : table.getRows()) {
-                XWPFTableCell cell = row.getCell(i);
-                CTTc ctTc = cell.getCTTc();
-                CTTcPr ctTcPr = (ctTc.isSetTcPr()) ? ctTc.getTcPr() : ctTc.addNewTcPr();
-                CTTblWidth cellWidth = ctTcPr.isSetTcW() ? ctTcPr.getTcW() : ctTcPr.addNewTcW();
-                cellWidth.setW(BigInteger.valueOf(colWidths[i]));
-                cellWidth.setType(STTblWidth.DXA);
-            }
-        }
-    }
-
-    /**
-     * Ajusta los anchos de las columnas de una tabla de totales en un documento Word.
-     *
-     * @param table     Tabla  a la que se le ajustarán los anchos de columna.
-     * @param esEmpeno  Indica si se trata de un contrato de empeño. Afecta el número y ancho de columnas.
-     */
-    private void setTableColumnWidthsTotales(XWPFTable table, boolean esEmpeno) {
-
-        int[] colWidths = esEmpeno ? new int[]{3000, 3000, 3000, 3000} : new int[]{3000, 3000, 4000};
-        int numCols = table.getRow(0).getTableCells().size();
-
-        for (int i = 0; i < numCols; i++) {
-            for (XWPFTableRow row : table.getRows()) {
-                XWPFTableCell cell = row.getCell(i);
-                CTTc ctTc = cell.getCTTc();
-                CTTcPr ctTcPr = (ctTc.isSetTcPr()) ? ctTc.getTcPr() : ctTc.addNewTcPr();
-                CTTblWidth cellWidth = ctTcPr.isSetTcW() ? ctTcPr.getTcW() : ctTcPr.addNewTcW();
-                cellWidth.setW(BigInteger.valueOf(colWidths[i]));
-                cellWidth.setType(STTblWidth.DXA);
-            }
-        }
-    }
-
-
     /**
      * Reemplaza los campos (placeholders) en un documento Word con los valores proporcionados en el mapa.
      *
@@ -704,11 +891,12 @@ public class WordGeneratorController {
 
     /**
      * Reemplaza los campos dentro de un párrafo específico con los valores del mapa.
+     * Es visible en el paquete para medirlo desde los benchmarks.
      *
      * @param paragraph Párrafo  en el que se realizará el reemplazo de texto.
      * @param fields    Mapa con claves y valores para sustituir dentro del texto (usando {{clave}}).
      */
-    private void replaceInParagraph(XWPFParagraph paragraph, Map<String, String> fields) {
+    void replaceInParagraph(XWPFParagraph paragraph, Map<String, String> fields) {
         String paragraphText = paragraph.getText();
 
         if (paragraphText != null) {
@@ -730,29 +918,32 @@ public class WordGeneratorController {
 
     /**
      * Abre un documento Word utilizando la aplicación predeterminada del sistema operativo.
+     * Se abre desde un hilo aparte: si la aplicación del sistema tarda o se queda colgada, el
+     * documento ya está guardado y quien lo ha generado puede seguir con el siguiente.
      *
      * @param rutaArchivo Ruta absoluta al archivo que se desea abrir.
      */
     private void abrirDocumentoWord(String rutaArchivo) {
-        try {
+        HILO_APERTURA.execute(() -> {
+            try (Metricas.Medicion medicion = Metricas.medir("WordGenerator.abrirDocumento", null)) {
 
-            if (Desktop.isDesktopSupported()) {
-                File archivo = new File(rutaArchivo);
-                Desktop desktop = Desktop.getDesktop();
+                if (Desktop.isDesktopSupported()) {
+                    File archivo = new File(rutaArchivo);
+                    Desktop desktop = Desktop.getDesktop();
 
 
-                if (archivo.exists()) {
-                    desktop.open(archivo);
+                    if (archivo.exists()) {
+                        desktop.open(archivo);
+                    } else {
+                        LOGGER.error("El archivo no existe: {}", rutaArchivo);
+                    }
                 } else {
-                    System.err.println("El archivo no existe: " + rutaArchivo);
+                    LOGGER.error("La funcionalidad Desktop no está soportada.");
                 }
-            } else {
-                System.err.println("La funcionalidad Desktop no está soportada.");
+            } catch (IOException e) {
+                LOGGER.error("Error al intentar abrir el archivo: {}", rutaArchivo, e);
             }
-        } catch (IOException e) {
-            System.err.println("Error al intentar abrir el archivo: " + rutaArchivo);
-            e.printStackTrace();
-        }
+        });
     }
 
 
@@ -763,58 +954,29 @@ public class WordGeneratorController {
      * @param dni         DNI del cliente.
      * @param idContrato  Identificador del contrato.
      * @param productos   Lista de productos asociados al contrato.
-     * @throws URISyntaxException Si ocurre un error al acceder a los recursos internos.
+     * @throws Exception si falta algún dato o no se puede generar alguno de los documentos.
      */
-
-    public void rescatarContrato(String dni, String idContrato, ArrayList<Producto> productos) throws URISyntaxException {
+    public void rescatarContrato(String dni, String idContrato, ArrayList<Producto> productos) throws Exception {
         Cliente cliente = obtenerCliente(dni);
         Contrato contrato = obtenerContratoId(idContrato);
-        String outputFilePath = obtenerRutaSalidaRescatar(dni, idContrato);
-        boolean tienePoliza = contrato.getIdPol() != null;
-
-        if (cliente != null && contrato != null) {
-            try {
-
-                if (tienePoliza) {
-
-                    try (InputStream fis = getClass().getResourceAsStream(PLANTILLA_RESCTE)) {
-                        if (fis == null) {
-                            System.err.println("No se pudo encontrar el archivo de plantilla para rescate.");
-                            return;
-                        }
-                        generarDocumento(cliente, fis, outputFilePath, contrato, productos);
-                    }
+        comprobarDatos(cliente, contrato, dni, idContrato);
 
-                    String outputPolizaPath = obtenerRutaSalidaPolizaRescate(dni, idContrato);
-                    try (InputStream fisPoliza = getClass().getResourceAsStream(PLANTILLA_RESCTE_POL)) {
-                        if (fisPoliza == null) {
-                            System.err.println("No se pudo encontrar el archivo de plantilla para póliza de rescate.");
-                            return;
-                        }
-                        generarDocumentoPol(cliente, fisPoliza, outputPolizaPath, contrato, productos);
-                    }
-
-
-                    abrirDocumentoWord(outputFilePath);
-                    abrirDocumentoWord(outputPolizaPath);
-                } else {
-
-                    try (InputStream fis = getClass().getResourceAsStream(PLANTILLA_RESCTE)) {
-                        if (fis == null) {
-                            System.err.println("No se pudo encontrar el archivo de plantilla para rescate.");
-                            return;
-                        }
-                        generarDocumento(cliente, fis, outputFilePath, contrato, productos);
-                    }
+        String outputFilePath = obtenerRutaSalidaRescatar(dni, idContrato);
+        generarDesdePlantilla(PLANTILLA_RESCTE, false, ArchivoDocumentosDAO.RESCATE, 0,
+                cliente, outputFilePath, contrato, productos);
+
+        String outputPolizaPath = null;
+        if (contrato.getIdPol() != null) {
+            outputPolizaPath = obtenerRutaSalidaPolizaRescate(dni, idContrato);
+            generarDesdePlantilla(PLANTILLA_RESCTE_POL, true, ArchivoDocumentosDAO.RESCATE_POL, 0,
+                    cliente, outputPolizaPath, contrato, productos);
+        }
 
-                    abrirDocumentoWord(outputFilePath);
-                }
-            } catch (Exception e) {
-                System.err.println("Error al generar el documento de rescate para el cliente con DNI: " + dni);
-                e.printStackTrace();
+        if (abrirDocumentos) {
+            abrirDocumentoWord(outputFilePath);
+            if (outputPolizaPath != null) {
+                abrirDocumentoWord(outputPolizaPath);
             }
-        } else {
-            System.out.println("Cliente con DNI " + dni + " o contrato no encontrado.");
         }
     }
 
@@ -825,64 +987,36 @@ public class WordGeneratorController {
      *
      * @param dni         DNI del cliente.
      * @param idContrato  Identificador del contrato.
+     * @param version     Versión de la renovación, que forma parte del nombre del archivo; las
+     *                    fechas del documento son las de esa renovación.
      * @param productos   Lista de productos asociados al contrato.
-     * @throws URISyntaxException Si ocurre un error al acceder a los recursos internos.
+     * @throws Exception si falta algún dato o no se puede generar alguno de los documentos.
      */
-    public void renovarContrato(String dni, String idContrato, ArrayList<Producto> productos) throws URISyntaxException {
+    public void renovarContrato(String dni, String idContrato, int version, ArrayList<Producto> productos) throws Exception {
         Cliente cliente = obtenerCliente(dni);
         Contrato contrato = obtenerContratoId(idContrato);
-        RenovacionDAO renovacionDAO = new RenovacionDAO();
-        int versionUltimaRenovacion = renovacionDAO.obtenerUltimaVersionPorIdContrato(idContrato);
-        String outputFilePath = obtenerRutaSalidaRenovar(dni, idContrato, versionUltimaRenovacion);
-        boolean tienePoliza = contrato.getIdPol() != null;
-
-        if (cliente != null && contrato != null) {
-            try {
-
-                if (tienePoliza) {
-
-                    try (InputStream fis = getClass().getResourceAsStream(PLANTILLA_RENOVACION)) {
-                        if (fis == null) {
-                            System.err.println("No se pudo encontrar el archivo de plantilla para rescate.");
-                            return;
-                        }
-                        generarDocumento(cliente, fis, outputFilePath, contrato, productos);
-                    }
-
-                    String outputPolizaPath = obtenerRutaSalidaPolizaRenovacion(dni, idContrato, versionUltimaRenovacion);
-                    try (InputStream fisPoliza = getClass().getResourceAsStream(PLANTILLA_RENOVACION_POL)) {
-                        if (fisPoliza == null) {
-                            System.err.println("No se pudo encontrar el archivo de plantilla para póliza de rescate.");
-                            return;
-                        }
-                        generarDocumentoPol(cliente, fisPoliza, outputPolizaPath, contrato, productos);
-                    }
-
+        comprobarDatos(cliente, contrato, dni, idContrato);
+        Renovacion renovacion = obtenerRenovaciones().obtenerRenovacion(idContrato, version);
+        if (renovacion == null) {
+            throw new IllegalStateException("No existe la renovación " + version + " del contrato " + idContrato);
+        }
 
-                    abrirDocumentoWord(outputFilePath);
-                    abrirDocumentoWord(outputPolizaPath);
-                } else {
+        String outputFilePath = obtenerRutaSalidaRenovar(dni, idContrato, version);
+        generarDesdePlantilla(PLANTILLA_RENOVACION, false, ArchivoDocumentosDAO.RENOVACION, version,
+                cliente, outputFilePath, contrato, productos, renovacion);
 
-                    try (InputStream fis = getClass().getResourceAsStream(PLANTILLA_RENOVACION)) {
-                        if (fis == null) {
-                            System.err.println("No se pudo encontrar el archivo de plantilla para rescate.");
-                            return;
-                        }
-                        generarDocumento(cliente, fis, outputFilePath, contrato, productos);
-                    }
+        String outputPolizaPath = null;
+        if (contrato.getIdPol() != null) {
+            outputPolizaPath = obtenerRutaSalidaPolizaRenovacion(dni, idContrato, version);
+            generarDesdePlantilla(PLANTILLA_RENOVACION_POL, true, ArchivoDocumentosDAO.RENOVACION_POL, version,
+                    cliente, outputPolizaPath, contrato, productos, renovacion);
+        }
 
-                    abrirDocumentoWord(outputFilePath);
-                }
-            } catch (Exception e) {
-                System.err.println("Error al generar el documento de rescate para el cliente con DNI: " + dni);
-                e.printStackTrace();
+        if (abrirDocumentos) {
+            abrirDocumentoWord(outputFilePath);
+            if (outputPolizaPath != null) {
+                abrirDocumentoWord(outputPolizaPath);
             }
-        } else {
-            System.out.println("Cliente con DNI " + dni + " o contrato no encontrado.");
         }
     }
-
-
-
-
 }
@@ -0,0 +1,384 @@
+package com.comproOro.gestion.model.dao;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.*;
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Clase DAO para el archivo de documentos Word generados.
+ * Cada documento se guarda una sola vez, comprimido, en la tabla 'archivo_documentos' con su
+ * huella (SHA-256 del contenido) como clave. La tabla 'indice_documentos' apunta, para cada
+ * contrato, tipo de documento y versión, a la huella de su último documento y a la huella de los
+ * datos con los que se generó. Así una reimpresión solo lee el documento del archivo, y un
+ * documento cuyos datos no han cambiado no se vuelve a generar.
+ */
+public class ArchivoDocumentosDAO {
+
+    private static final Logger LOGGER = LogManager.getLogger(ArchivoDocumentosDAO.class);
+
+    public static final String CONTRATO = "CONTRATO";
+    public static final String CONTRATO_POL = "CONTRATO_POL";
+    public static final String RENOVACION = "RENOVACION";
+    public static final String RENOVACION_POL = "RENOVACION_POL";
+    public static final String RESCATE = "RESCATE";
+    public static final String RESCATE_POL = "RESCATE_POL";
+
+    private final DataSource fuenteDatos;
+
+    /**
+     * Entrada del índice: el último documento de un tipo y versión de un contrato.
+     */
+    public static class Archivado {
+        private final String idContrato;
+        /** {@link #CONTRATO}, {@link #RENOVACION}, {@link #RESCATE} o su variante de póliza. */
+        private final String tipo;
+        /** Versión de la renovación; 0 para los demás tipos. */
+        private final int version;
+        /** Nombre del archivo .docx con el que se generó. */
+        private final String nombre;
+        /** Huella de los datos con los que se generó. */
+        private final String huellaEntradas;
+        /** Huella del contenido, clave en 'archivo_documentos'. */
+        private final String huella;
+        /** Momento (milisegundos) en que se archivó. */
+        private final long creado;
+
+        public Archivado(String idContrato, String tipo, int version, String nombre, String huellaEntradas,
+                         String huella, long creado) {
+            this.idContrato = idContrato;
+            this.tipo = tipo;
+            this.version = version;
+            this.nombre = nombre;
+            this.huellaEntradas = huellaEntradas;
+            this.huella = huella;
+            this.creado = creado;
+        }
+
+        public String getIdContrato() {
+            return idContrato;
+        }
+
+        public String getTipo() {
+            return tipo;
+        }
+
+        public int getVersion() {
+            return version;
+        }
+
+        public String getNombre() {
+            return nombre;
+        }
+
+        public String getHuellaEntradas() {
+            return huellaEntradas;
+        }
+
+        public String getHuella() {
+            return huella;
+        }
+
+        public long getCreado() {
+            return creado;
+        }
+
+        /**
+         * @return {@code true} si es la póliza de otro documento.
+         */
+        public boolean isPoliza() {
+            return tipo.endsWith("_POL");
+        }
+    }
+
+    /**
+     * Constructor que crea las tablas del archivo si no existen.
+     */
+    public ArchivoDocumentosDAO() {
+        this(DatabaseConnection.getDataSource());
+    }
+
+    /**
+     * Constructor que usa la fuente de datos indicada y crea las tablas del archivo si no existen.
+     *
+     * @param fuenteDatos fuente de datos de la que se obtienen las conexiones.
+     */
+    public ArchivoDocumentosDAO(DataSource fuenteDatos) {
+        this.fuenteDatos = fuenteDatos;
+        crearTablasArchivo();
+    }
+
+    /**
+     * Crea las tablas 'archivo_documentos' e 'indice_documentos' si no existen.
+     */
+    private void crearTablasArchivo() {
+        String sqlArchivo = "CREATE TABLE IF NOT EXISTS archivo_documentos ("
+                + " huella TEXT PRIMARY KEY, "
+                + " contenido BLOB NOT NULL, "
+                + " tamano INTEGER NOT NULL"
+                + ");";
+        String sqlIndice = "CREATE TABLE IF NOT EXISTS indice_documentos ("
+                + " id_contrato TEXT NOT NULL, "
+                + " tipo TEXT NOT NULL, "
+                + " version INTEGER NOT NULL DEFAULT 0, "
+                + " nombre TEXT NOT NULL, "
+                + " huella_entradas TEXT NOT NULL, "
+                + " huella TEXT NOT NULL, "
+                + " creado INTEGER NOT NULL, "
+                + " PRIMARY KEY (id_contrato, tipo, version)"
+                + ");";
+
+        try (Metricas.Medicion medicion = Metricas.medir("ArchivoDocumentosDAO.crearTablasArchivo", sqlIndice);
+             Connection conn = fuenteDatos.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(sqlArchivo);
+            stmt.execute(sqlIndice);
+            LOGGER.debug("Tablas del archivo de documentos creadas o ya existen.");
+        } catch (SQLException e) {
+            LOGGER.error("Error al crear las tablas del archivo de documentos", e);
+        }
+    }
+
+    /**
+     * Guarda un documento en el archivo y lo apunta en el índice, sustituyendo al anterior del
+     * mismo contrato, tipo y versión. Si ya había un documento con el mismo contenido no se
+     * vuelve a guardar.
+     *
+     * @param idContrato     ID del contrato.
+     * @param tipo           Tipo de documento.
+     * @param version        Versión de la renovación, o 0.
+     * @param nombre         Nombre del archivo .docx.
+     * @param huellaEntradas Huella de los datos con los que se generó.
+     * @param contenido      Contenido del documento.
+     * @return true si se archivó, false en caso de error.
+     */
+    public boolean archivar(String idContrato, String tipo, int version, String nombre, String huellaEntradas,
+                            byte[] contenido) {
+        String huella = huella(contenido);
+        String sqlArchivo = "INSERT OR IGNORE INTO archivo_documentos (huella, contenido, tamano) VALUES (?, ?, ?)";
+        String sqlIndice = "INSERT OR REPLACE INTO indice_documentos (id_contrato, tipo, version, nombre, huella_entradas, huella, creado) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+        try (Metricas.Medicion medicion = Metricas.medir("ArchivoDocumentosDAO.archivar", sqlIndice);
+             Connection conn = fuenteDatos.getConnection();
+             PreparedStatement pstmtArchivo = conn.prepareStatement(sqlArchivo);
+             PreparedStatement pstmtIndice = conn.prepareStatement(sqlIndice)) {
+
+            pstmtArchivo.setString(1, huella);
+            pstmtArchivo.setBytes(2, comprimir(contenido));
+            pstmtArchivo.setInt(3, contenido.length);
+
+            pstmtIndice.setString(1, idContrato);
+            pstmtIndice.setString(2, tipo);
+            pstmtIndice.setInt(3, version);
+            pstmtIndice.setString(4, nombre);
+            pstmtIndice.setString(5, huellaEntradas);
+            pstmtIndice.setString(6, huella);
+            pstmtIndice.setLong(7, System.currentTimeMillis());
+
+            conn.setAutoCommit(false);
+            try {
+                pstmtArchivo.executeUpdate();
+                pstmtIndice.executeUpdate();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+            return true;
+        } catch (SQLException | IOException e) {
+            LOGGER.error("Error al archivar el documento {} del contrato {}", tipo, idContrato, e);
+            return false;
+        }
+    }
+
+    /**
+     * Busca en el índice el último documento de un contrato, tipo y versión.
+     *
+     * @param idContrato ID del contrato.
+     * @param tipo       Tipo de documento.
+     * @param version    Versión de la renovación, o 0.
+     * @return la entrada del índice, o null si no se ha archivado ninguno.
+     */
+    public Archivado buscar(String idContrato, String tipo, int version) {
+        String sql = "SELECT * FROM indice_documentos WHERE id_contrato = ? AND tipo = ? AND version = ?";
+
+        try (Metricas.Medicion medicion = Metricas.medir("ArchivoDocumentosDAO.buscar", sql);
+             Connection conn = fuenteDatos.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, idContrato);
+            pstmt.setString(2, tipo);
+            pstmt.setInt(3, version);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return mapearArchivado(rs);
+                }
+            }
+        } catch (SQLException e) {
+            LOGGER.error("Error al buscar el documento {} del contrato {}", tipo, idContrato, e);
+        }
+        return null;
+    }
+
+    /**
+     * Busca el último documento de un contrato, tipo y versión y, si la tiene, su póliza.
+     *
+     * @param idContrato ID del contrato.
+     * @param tipo       {@link #CONTRATO}, {@link #RENOVACION} o {@link #RESCATE}.
+     * @param version    Versión de la renovación, o 0.
+     * @return el documento seguido de su póliza; vacía si no se ha archivado ninguno.
+     */
+    public List<Archivado> buscarConPoliza(String idContrato, String tipo, int version) {
+        List<Archivado> archivados = new ArrayList<>();
+        Archivado documento = buscar(idContrato, tipo, version);
+        if (documento != null) {
+            archivados.add(documento);
+            Archivado poliza = buscar(idContrato, tipo + "_POL", version);
+            if (poliza != null) {
+                archivados.add(poliza);
+            }
+        }
+        return archivados;
+    }
+
+    /**
+     * Obtiene los documentos archivados en un intervalo, por orden de archivo.
+     *
+     * @param desde Inicio del intervalo (milisegundos), incluido.
+     * @param hasta Fin del intervalo (milisegundos), excluido.
+     * @return Lista de entradas del índice.
+     */
+    public List<Archivado> obtenerCreadosEntre(long desde, long hasta) {
+        List<Archivado> archivados = new ArrayList<>();
+        String sql = "SELECT * FROM indice_documentos WHERE creado >= ? AND creado < ? ORDER BY creado, id_contrato, tipo";
+
+        try (Metricas.Medicion medicion = Metricas.medir("ArchivoDocumentosDAO.obtenerCreadosEntre", sql);
+             Connection conn = fuenteDatos.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, desde);
+            pstmt.setLong(2, hasta);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    archivados.add(mapearArchivado(rs));
+                }
+            }
+        } catch (SQLException e) {
+            LOGGER.error("Error al obtener los documentos archivados entre {} y {}", desde, hasta, e);
+        }
+        return archivados;
+    }
+
+    /**
+     * Obtiene los documentos archivados de un contrato, del más reciente al más antiguo.
+     *
+     * @param idContrato ID del contrato.
+     * @return Lista de entradas del índice.
+     */
+    public List<Archivado> obtenerPorContrato(String idContrato) {
+        List<Archivado> archivados = new ArrayList<>();
+        String sql = "SELECT * FROM indice_documentos WHERE id_contrato = ? ORDER BY creado DESC, tipo";
+
+        try (Metricas.Medicion medicion = Metricas.medir("ArchivoDocumentosDAO.obtenerPorContrato", sql);
+             Connection conn = fuenteDatos.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, idContrato);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    archivados.add(mapearArchivado(rs));
+                }
+            }
+        } catch (SQLException e) {
+            LOGGER.error("Error al obtener los documentos archivados del contrato {}", idContrato, e);
+        }
+        return archivados;
+    }
+
+    /**
+     * Lee del archivo el contenido de un documento.
+     *
+     * @param huella Huella del contenido.
+     * @return el documento descomprimido, o null si no está en el archivo o no se puede leer.
+     */
+    public byte[] leer(String huella) {
+        String sql = "SELECT contenido FROM archivo_documentos WHERE huella = ?";
+
+        try (Metricas.Medicion medicion = Metricas.medir("ArchivoDocumentosDAO.leer", sql);
+             Connection conn = fuenteDatos.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, huella);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return descomprimir(rs.getBytes("contenido"));
+                }
+            }
+        } catch (SQLException | IOException e) {
+            LOGGER.error("Error al leer el documento {} del archivo", huella, e);
+        }
+        return null;
+    }
+
+    /**
+     * Calcula la huella SHA-256 de unos datos, en hexadecimal.
+     *
+     * @param datos Datos de los que calcular la huella.
+     * @return la huella, 64 caracteres hexadecimales.
+     */
+    public static String huella(byte[] datos) {
+        try {
+            byte[] resumen = MessageDigest.getInstance("SHA-256").digest(datos);
+            StringBuilder hex = new StringBuilder(resumen.length * 2);
+            for (byte b : resumen) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // Toda JVM incluye SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Calcula la huella SHA-256 de un texto codificado en UTF-8.
+     *
+     * @param texto Texto del que calcular la huella.
+     * @return la huella, 64 caracteres hexadecimales.
+     */
+    public static String huella(String texto) {
+        return huella(texto.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Archivado mapearArchivado(ResultSet rs) throws SQLException {
+        return new Archivado(rs.getString("id_contrato"), rs.getString("tipo"), rs.getInt("version"),
+                rs.getString("nombre"), rs.getString("huella_entradas"), rs.getString("huella"), rs.getLong("creado"));
+    }
+
+    private static byte[] comprimir(byte[] datos) throws IOException {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream(datos.length);
+        try (OutputStream gzip = new GZIPOutputStream(salida)) {
+            gzip.write(datos);
+        }
+        return salida.toByteArray();
+    }
+
+    private static byte[] descomprimir(byte[] datos) throws IOException {
+        try (InputStream gzip = new GZIPInputStream(new ByteArrayInputStream(datos))) {
+            return gzip.readAllBytes();
+        }
+    }
+}
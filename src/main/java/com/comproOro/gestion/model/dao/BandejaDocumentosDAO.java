@@ -0,0 +1,420 @@
+package com.comproOro.gestion.model.dao;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.sql.*;
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Clase DAO para la bandeja de salida de documentos Word, la tabla 'bandeja_documentos'.
+ * Cada operación que debe producir documentos (un contrato nuevo, una renovación, un rescate)
+ * deja aquí una fila, y un hilo en segundo plano los genera después. Los DAO de contratos y
+ * renovaciones escriben la fila dentro de su misma transacción, así que si la operación se
+ * guarda, el documento queda apuntado aunque la aplicación se cierre antes de generarlo.
+ * <p>
+ * La tabla está en la base de datos que comparten todos los puestos de la tienda, así que cada
+ * fila lleva el puesto que la apuntó y solo ese puesto la genera, la abre y la recupera si se
+ * quedó a medias. Las filas anteriores a esta columna no tienen puesto y las reclama el primero
+ * que las encuentre.
+ */
+public class BandejaDocumentosDAO {
+
+    private static final Logger LOGGER = LogManager.getLogger(BandejaDocumentosDAO.class);
+
+    public static final String CONTRATO = "CONTRATO";
+    public static final String RENOVACION = "RENOVACION";
+    public static final String RESCATE = "RESCATE";
+
+    private static final String PENDIENTE = "PENDIENTE";
+    private static final String EN_CURSO = "EN_CURSO";
+    private static final String HECHO = "HECHO";
+    private static final String FALLIDO = "FALLIDO";
+
+    /**
+     * Puesto en el que se ejecuta la aplicación: la propiedad {@code comprooro.puesto} o, si no se
+     * indica, el nombre del equipo.
+     */
+    public static final String PUESTO = System.getProperty("comprooro.puesto", nombreEquipo());
+
+    private final DataSource fuenteDatos;
+
+    /** Puesto cuyos documentos apunta y genera este DAO. */
+    private final String puesto;
+
+    /**
+     * Documento apuntado en la bandeja que todavía no se ha generado.
+     */
+    public static class Pendiente {
+        private final long id;
+        /** {@link #CONTRATO}, {@link #RENOVACION} o {@link #RESCATE}. */
+        private final String tipo;
+        private final String idContrato;
+        /** Versión de la renovación; 0 para los demás tipos. */
+        private final int version;
+        /** Intentos fallidos hasta ahora. */
+        private final int intentos;
+
+        public Pendiente(long id, String tipo, String idContrato, int version, int intentos) {
+            this.id = id;
+            this.tipo = tipo;
+            this.idContrato = idContrato;
+            this.version = version;
+            this.intentos = intentos;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public String getTipo() {
+            return tipo;
+        }
+
+        public String getIdContrato() {
+            return idContrato;
+        }
+
+        public int getVersion() {
+            return version;
+        }
+
+        public int getIntentos() {
+            return intentos;
+        }
+    }
+
+    /**
+     * Constructor que crea la tabla de la bandeja si no existe.
+     */
+    public BandejaDocumentosDAO() {
+        this(DatabaseConnection.getDataSource());
+    }
+
+    /**
+     * Constructor que usa la fuente de datos indicada y crea la tabla de la bandeja si no existe.
+     *
+     * @param fuenteDatos fuente de datos de la que se obtienen las conexiones.
+     */
+    public BandejaDocumentosDAO(DataSource fuenteDatos) {
+        this(fuenteDatos, PUESTO);
+    }
+
+    /**
+     * Constructor para los documentos de otro puesto que el de esta aplicación.
+     *
+     * @param fuenteDatos fuente de datos de la que se obtienen las conexiones.
+     * @param puesto      puesto que apunta y genera los documentos.
+     */
+    public BandejaDocumentosDAO(DataSource fuenteDatos, String puesto) {
+        this.fuenteDatos = fuenteDatos;
+        this.puesto = puesto;
+        crearTablaBandeja();
+    }
+
+    private static String nombreEquipo() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            LOGGER.warn("No se pudo obtener el nombre del equipo; indíquelo con -Dcomprooro.puesto", e);
+            return "puesto";
+        }
+    }
+
+    /**
+     * Crea la tabla 'bandeja_documentos' en la base de datos si no existe.
+     */
+    private void crearTablaBandeja() {
+        String sql = "CREATE TABLE IF NOT EXISTS bandeja_documentos ("
+                + " id INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + " tipo TEXT NOT NULL, "
+                + " id_contrato TEXT NOT NULL, "
+                + " version INTEGER NOT NULL DEFAULT 0, "
+                + " puesto TEXT, "
+                + " estado TEXT NOT NULL DEFAULT 'PENDIENTE', "
+                + " intentos INTEGER NOT NULL DEFAULT 0, "
+                + " proximo_intento INTEGER NOT NULL, "
+                + " ultimo_error TEXT, "
+                + " creado INTEGER NOT NULL, "
+                + " terminado INTEGER"
+                + ");";
+
+        try (Metricas.Medicion medicion = Metricas.medir("BandejaDocumentosDAO.crearTablaBandeja", sql);
+             Connection conn = fuenteDatos.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_bandeja_documentos_puesto ON bandeja_documentos(puesto, estado, proximo_intento)");
+            LOGGER.debug("Tabla 'bandeja_documentos' creada o ya existe.");
+        } catch (SQLException e) {
+            LOGGER.error("Error al crear la tabla bandeja_documentos", e);
+        }
+    }
+
+    /**
+     * Apunta un documento de este puesto dentro de la transacción de la operación que lo produce.
+     *
+     * @param conn       Conexión de la transacción en curso.
+     * @param tipo       {@link #CONTRATO}, {@link #RENOVACION} o {@link #RESCATE}.
+     * @param idContrato ID del contrato.
+     * @param version    Versión de la renovación, o 0.
+     * @throws SQLException si falla la inserción.
+     */
+    void encolar(Connection conn, String tipo, String idContrato, int version) throws SQLException {
+        String sql = "INSERT INTO bandeja_documentos (tipo, id_contrato, version, puesto, proximo_intento, creado) VALUES (?, ?, ?, ?, ?, ?)";
+        long ahora = System.currentTimeMillis();
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, tipo);
+            pstmt.setString(2, idContrato);
+            pstmt.setInt(3, version);
+            pstmt.setString(4, puesto);
+            pstmt.setLong(5, ahora);
+            pstmt.setLong(6, ahora);
+            pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Apunta el documento de rescate de un contrato. Solo se apunta si el contrato aún no consta
+     * como rescatado, así que debe llamarse antes de actualizarlo.
+     *
+     * @param conn       Conexión de la transacción en curso.
+     * @param idContrato ID del contrato que se va a marcar como rescatado.
+     * @throws SQLException si falla la inserción.
+     */
+    void encolarRescate(Connection conn, String idContrato) throws SQLException {
+        String sql = "INSERT INTO bandeja_documentos (tipo, id_contrato, version, puesto, proximo_intento, creado) "
+                + "SELECT ?, c.id_contrato, 0, ?, ?, ? FROM contratos c "
+                + "WHERE c.id_contrato = ? AND COALESCE(c.rescatado, 'N') <> 'S'";
+        long ahora = System.currentTimeMillis();
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, RESCATE);
+            pstmt.setString(2, puesto);
+            pstmt.setLong(3, ahora);
+            pstmt.setLong(4, ahora);
+            pstmt.setString(5, idContrato);
+            pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Apunta un documento en su propia transacción.
+     *
+     * @param tipo       {@link #CONTRATO}, {@link #RENOVACION} o {@link #RESCATE}.
+     * @param idContrato ID del contrato.
+     * @param version    Versión de la renovación, o 0.
+     * @return true si se apuntó, false en caso de error.
+     */
+    public boolean encolar(String tipo, String idContrato, int version) {
+        try (Metricas.Medicion medicion = Metricas.medir("BandejaDocumentosDAO.encolar", null);
+             Connection conn = fuenteDatos.getConnection()) {
+            encolar(conn, tipo, idContrato, version);
+            return true;
+        } catch (SQLException e) {
+            LOGGER.error("Error al apuntar el documento {} del contrato {}", tipo, idContrato, e);
+            return false;
+        }
+    }
+
+    /**
+     * Obtiene los documentos pendientes de este puesto cuyo próximo intento ya ha llegado, por
+     * orden de llegada.
+     *
+     * @param maximo Número máximo de documentos a devolver.
+     * @return Lista de documentos pendientes.
+     */
+    public List<Pendiente> obtenerPendientes(int maximo) {
+        List<Pendiente> pendientes = new ArrayList<>();
+        String sql = "SELECT id, tipo, id_contrato, version, intentos FROM bandeja_documentos "
+                + "WHERE (puesto = ? OR puesto IS NULL) AND estado = ? AND proximo_intento <= ? ORDER BY id LIMIT ?";
+
+        try (Metricas.Medicion medicion = Metricas.medir("BandejaDocumentosDAO.obtenerPendientes", sql);
+             Connection conn = fuenteDatos.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, puesto);
+            pstmt.setString(2, PENDIENTE);
+            pstmt.setLong(3, System.currentTimeMillis());
+            pstmt.setInt(4, maximo);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    pendientes.add(new Pendiente(rs.getLong("id"), rs.getString("tipo"), rs.getString("id_contrato"),
+                            rs.getInt("version"), rs.getInt("intentos")));
+                }
+            }
+        } catch (SQLException e) {
+            LOGGER.error("Error al obtener los documentos pendientes", e);
+        }
+        return pendientes;
+    }
+
+    /**
+     * Marca un documento pendiente de este puesto como en curso para que ningún otro hilo lo genere
+     * a la vez. Un documento sin puesto pasa a ser de este.
+     *
+     * @param id ID del documento en la bandeja.
+     * @return true si este hilo se queda con el documento, false si otro lo había reclamado antes
+     *         o es de otro puesto.
+     */
+    public boolean reclamar(long id) {
+        String sql = "UPDATE bandeja_documentos SET estado = '" + EN_CURSO + "', puesto = ? "
+                + "WHERE id = ? AND estado = '" + PENDIENTE + "' AND (puesto = ? OR puesto IS NULL)";
+
+        try (Metricas.Medicion medicion = Metricas.medir("BandejaDocumentosDAO.reclamar", sql);
+             Connection conn = fuenteDatos.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, puesto);
+            pstmt.setLong(2, id);
+            pstmt.setString(3, puesto);
+            return pstmt.executeUpdate() > 0;
+        } catch (SQLException e) {
+            LOGGER.error("Error al reclamar el documento {}", id, e);
+            return false;
+        }
+    }
+
+    /**
+     * Marca un documento como generado.
+     *
+     * @param id ID del documento en la bandeja.
+     * @return true si se actualizó, false en caso contrario.
+     */
+    public boolean marcarHecho(long id) {
+        String sql = "UPDATE bandeja_documentos SET estado = '" + HECHO + "', ultimo_error = NULL, terminado = ? WHERE id = ?";
+
+        try (Metricas.Medicion medicion = Metricas.medir("BandejaDocumentosDAO.marcarHecho", sql);
+             Connection conn = fuenteDatos.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, System.currentTimeMillis());
+            pstmt.setLong(2, id);
+            return pstmt.executeUpdate() > 0;
+        } catch (SQLException e) {
+            LOGGER.error("Error al marcar como generado el documento {}", id, e);
+            return false;
+        }
+    }
+
+    /**
+     * Apunta un intento fallido. El documento vuelve a quedar pendiente a partir de
+     * {@code proximoIntento}, o se da por fallido si ya no quedan intentos.
+     *
+     * @param id             ID del documento en la bandeja.
+     * @param intentos       Intentos fallidos contando este.
+     * @param proximoIntento Momento (milisegundos) del siguiente intento, o -1 para no reintentar.
+     * @param error          Descripción del error.
+     * @return true si se actualizó, false en caso contrario.
+     */
+    public boolean marcarError(long id, int intentos, long proximoIntento, String error) {
+        String sql = "UPDATE bandeja_documentos SET estado = ?, intentos = ?, proximo_intento = ?, ultimo_error = ? WHERE id = ?";
+
+        try (Metricas.Medicion medicion = Metricas.medir("BandejaDocumentosDAO.marcarError", sql);
+             Connection conn = fuenteDatos.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, proximoIntento < 0 ? FALLIDO : PENDIENTE);
+            pstmt.setInt(2, intentos);
+            pstmt.setLong(3, Math.max(proximoIntento, 0));
+            pstmt.setString(4, error);
+            pstmt.setLong(5, id);
+            return pstmt.executeUpdate() > 0;
+        } catch (SQLException e) {
+            LOGGER.error("Error al apuntar el fallo del documento {}", id, e);
+            return false;
+        }
+    }
+
+    /**
+     * Devuelve a pendientes los documentos de este puesto que quedaron en curso porque la
+     * aplicación se cerró mientras se generaban. Se llama al arrancar, antes de empezar a generar;
+     * los que otro puesto está generando en ese momento no se tocan.
+     *
+     * @return Número de documentos recuperados.
+     */
+    public int recuperarInterrumpidos() {
+        String sql = "UPDATE bandeja_documentos SET estado = '" + PENDIENTE + "' "
+                + "WHERE estado = '" + EN_CURSO + "' AND (puesto = ? OR puesto IS NULL)";
+
+        try (Metricas.Medicion medicion = Metricas.medir("BandejaDocumentosDAO.recuperarInterrumpidos", sql);
+             Connection conn = fuenteDatos.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, puesto);
+            return pstmt.executeUpdate();
+        } catch (SQLException e) {
+            LOGGER.error("Error al recuperar los documentos interrumpidos", e);
+            return 0;
+        }
+    }
+
+    /**
+     * Cuenta los documentos de este puesto que faltan por generar, incluidos los que se están
+     * generando.
+     *
+     * @return Número de documentos pendientes o en curso.
+     */
+    public int contarPendientes() {
+        String sql = "SELECT COUNT(*) FROM bandeja_documentos "
+                + "WHERE (puesto = ? OR puesto IS NULL) AND estado IN ('" + PENDIENTE + "', '" + EN_CURSO + "')";
+
+        try (Metricas.Medicion medicion = Metricas.medir("BandejaDocumentosDAO.contarPendientes", sql);
+             Connection conn = fuenteDatos.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, puesto);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        } catch (SQLException e) {
+            LOGGER.error("Error al contar los documentos pendientes", e);
+            return 0;
+        }
+    }
+
+    /**
+     * Cuenta los documentos de este puesto que siguen sin generarse tras fallar al menos
+     * {@code intentos} veces, incluidos los que se dieron por fallidos.
+     *
+     * @param intentos Fallos a partir de los que un documento cuenta como atascado.
+     * @return Número de documentos atascados.
+     */
+    public int contarAtascados(int intentos) {
+        String sql = "SELECT COUNT(*) FROM bandeja_documentos WHERE (puesto = ? OR puesto IS NULL) "
+                + "AND (estado = '" + FALLIDO + "' OR (estado IN ('" + PENDIENTE + "', '" + EN_CURSO + "') AND intentos >= ?))";
+
+        try (Metricas.Medicion medicion = Metricas.medir("BandejaDocumentosDAO.contarAtascados", sql);
+             Connection conn = fuenteDatos.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, puesto);
+            pstmt.setInt(2, intentos);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        } catch (SQLException e) {
+            LOGGER.error("Error al contar los documentos atascados", e);
+            return 0;
+        }
+    }
+
+    /**
+     * Adelanta al momento actual el siguiente intento de los documentos pendientes de este puesto
+     * y devuelve a pendientes los que se dieron por fallidos. Sirve para no esperar al siguiente
+     * intento cuando se ha arreglado lo que fallaba, como la impresora o Word.
+     *
+     * @return Número de documentos que se volverán a intentar.
+     */
+    public int reintentarAhora() {
+        String sql = "UPDATE bandeja_documentos SET estado = '" + PENDIENTE + "', proximo_intento = 0 "
+                + "WHERE estado IN ('" + PENDIENTE + "', '" + FALLIDO + "') AND (puesto = ? OR puesto IS NULL)";
+
+        try (Metricas.Medicion medicion = Metricas.medir("BandejaDocumentosDAO.reintentarAhora", sql);
+             Connection conn = fuenteDatos.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, puesto);
+            return pstmt.executeUpdate();
+        } catch (SQLException e) {
+            LOGGER.error("Error al volver a intentar los documentos pendientes", e);
+            return 0;
+        }
+    }
+}
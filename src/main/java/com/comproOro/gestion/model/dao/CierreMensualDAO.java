@@ -0,0 +1,316 @@
+package com.comproOro.gestion.model.dao;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import com.comproOro.gestion.model.modelos.Dinero;
+import com.comproOro.gestion.model.modelos.Tarifa;
+import java.sql.*;
+import javax.sql.DataSource;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
+
+/**
+ * DAO del cierre de mes: lee de una vez todos los empeños vencidos a una fecha de corte y guarda,
+ * para cada uno, la propuesta de renovarlo o de decomisarlo si ya pasaron los días de gracia.
+ * Las propuestas quedan en la tabla {@code propuestas_cierre} para que se revisen; no se renueva
+ * ni se marca nada. Repetir el cierre de una misma fecha sustituye sus propuestas.
+ */
+public class CierreMensualDAO {
+
+    private static final Logger LOGGER = LogManager.getLogger(CierreMensualDAO.class);
+
+    public static final String RENOVAR = "RENOVAR";
+    public static final String DECOMISAR = "DECOMISAR";
+
+    /** Filas que se leen y propuestas que se envían de cada vez. */
+    static final int TAMANO_LOTE = 500;
+
+    /**
+     * Empeños vencidos en columnas, un elemento por contrato. Al leerlos solo están los datos del
+     * contrato; {@link #calcular(Tarifa, LocalDate)} rellena la propuesta de cada uno.
+     * Las fechas van en días desde 1970 ({@link LocalDate#toEpochDay()}).
+     */
+    public static class Vencidos {
+        private int tamano;
+        private String[] idsContrato;
+        private int[] vencimientos;
+        private long[] importes;
+        private int[] versiones;
+
+        private boolean[] decomisos;
+        private long[] cuotas;
+        private int[] finesPropuestos;
+
+        Vencidos(int capacidad) {
+            idsContrato = new String[capacidad];
+            vencimientos = new int[capacidad];
+            importes = new long[capacidad];
+            versiones = new int[capacidad];
+        }
+
+        void anadir(String idContrato, int vencimiento, long importe, int version) {
+            if (tamano == idsContrato.length) {
+                int capacidad = Math.max(16, tamano * 2);
+                idsContrato = Arrays.copyOf(idsContrato, capacidad);
+                vencimientos = Arrays.copyOf(vencimientos, capacidad);
+                importes = Arrays.copyOf(importes, capacidad);
+                versiones = Arrays.copyOf(versiones, capacidad);
+            }
+            idsContrato[tamano] = idContrato;
+            vencimientos[tamano] = vencimiento;
+            importes[tamano] = importe;
+            versiones[tamano] = version;
+            tamano++;
+        }
+
+        /**
+         * Calcula la propuesta de cada contrato: si el vencimiento más los días de gracia queda
+         * antes del corte se propone el decomiso; si no, una renovación con la cuota de la tarifa
+         * sobre el importe pendiente, redondeada al céntimo, y el nuevo vencimiento.
+         *
+         * @param tarifa Condiciones de renovación.
+         * @param corte  Fecha de corte del cierre.
+         */
+        public void calcular(Tarifa tarifa, LocalDate corte) {
+            int limiteGracia = (int) corte.toEpochDay() - tarifa.getDiasGracia();
+            double porcentaje = tarifa.getPorcentajeRenovacion();
+            decomisos = new boolean[tamano];
+            cuotas = new long[tamano];
+            finesPropuestos = new int[tamano];
+
+            for (int i = 0; i < tamano; i++) {
+                decomisos[i] = vencimientos[i] < limiteGracia;
+            }
+            for (int i = 0; i < tamano; i++) {
+                cuotas[i] = decomisos[i] ? 0 : Dinero.multiplicar(importes[i], porcentaje);
+            }
+            // Sumar meses depende del calendario; se reutiliza la fecha mientras se repita el vencimiento
+            int anterior = Integer.MIN_VALUE;
+            int finAnterior = 0;
+            for (int i = 0; i < tamano; i++) {
+                if (decomisos[i]) {
+                    continue;
+                }
+                if (vencimientos[i] != anterior) {
+                    anterior = vencimientos[i];
+                    finAnterior = (int) LocalDate.ofEpochDay(anterior).plusMonths(tarifa.getMesesRenovacion()).toEpochDay();
+                }
+                finesPropuestos[i] = finAnterior;
+            }
+        }
+
+        public int getTamano() {
+            return tamano;
+        }
+
+        public String getIdContrato(int i) {
+            return idsContrato[i];
+        }
+
+        public LocalDate getVencimiento(int i) {
+            return LocalDate.ofEpochDay(vencimientos[i]);
+        }
+
+        /** @return el importe pendiente, en céntimos. */
+        public long getImporte(int i) {
+            return importes[i];
+        }
+
+        /** @return la última versión de renovación del contrato, o 0 si no se ha renovado. */
+        public int getVersion(int i) {
+            return versiones[i];
+        }
+
+        public boolean isDecomiso(int i) {
+            return decomisos[i];
+        }
+
+        /** @return la cuota de renovación, en céntimos. */
+        public long getCuota(int i) {
+            return cuotas[i];
+        }
+
+        /** @return el vencimiento propuesto, o null si se propone el decomiso. */
+        public LocalDate getFinPropuesto(int i) {
+            return decomisos[i] ? null : LocalDate.ofEpochDay(finesPropuestos[i]);
+        }
+
+        /** @return true si ya se ha llamado a {@link #calcular(Tarifa, LocalDate)}. */
+        public boolean isCalculado() {
+            return decomisos != null;
+        }
+    }
+
+    private final DataSource fuenteDatos;
+
+    /**
+     * Constructor que crea la tabla de propuestas si no existe.
+     */
+    public CierreMensualDAO() {
+        this(DatabaseConnection.getDataSource());
+    }
+
+    /**
+     * Constructor que usa la fuente de datos indicada y crea la tabla de propuestas si no existe.
+     *
+     * @param fuenteDatos fuente de datos de la que se obtienen las conexiones.
+     */
+    public CierreMensualDAO(DataSource fuenteDatos) {
+        this.fuenteDatos = fuenteDatos;
+        crearTablaPropuestas();
+    }
+
+    /**
+     * Crea la tabla 'propuestas_cierre' en la base de datos si no existe.
+     */
+    private void crearTablaPropuestas() {
+        String sql = "CREATE TABLE IF NOT EXISTS propuestas_cierre ("
+                + " fecha_corte DATE NOT NULL, "
+                + " id_contrato TEXT NOT NULL, "
+                + " accion TEXT NOT NULL, "
+                + " version INTEGER NOT NULL, "
+                + " fecha_vencimiento DATE NOT NULL, "
+                + " fecha_fin_propuesta DATE, "
+                + " importe INTEGER NOT NULL, "
+                + " cuota INTEGER NOT NULL, "
+                + " PRIMARY KEY (fecha_corte, id_contrato)"
+                + ");";
+
+        try (Metricas.Medicion medicion = Metricas.medir("CierreMensualDAO.crearTablaPropuestas", sql);
+             Connection conn = fuenteDatos.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+            LOGGER.debug("Tabla 'propuestas_cierre' creada o ya existe.");
+        } catch (SQLException e) {
+            LOGGER.error("Error al crear la tabla propuestas_cierre", e);
+        }
+    }
+
+    /**
+     * Lee en una consulta los contratos de un tipo sin rescatar cuyo vencimiento (el de su última
+     * renovación o, si no tiene, el del contrato) es anterior o igual al corte, con su importe
+     * pendiente. Usa el índice de contratos por tipo y fecha final, ya que un contrato que vence
+     * después del corte no puede tener renovaciones que venzan antes.
+     *
+     * @param tipo  Tipo de contrato.
+     * @param corte Fecha de corte.
+     * @return los contratos vencidos, por orden de vencimiento.
+     * @throws SQLException si falla la consulta.
+     */
+    public Vencidos obtenerVencidos(String tipo, LocalDate corte) throws SQLException {
+        String sql = "SELECT c.id_contrato, c.fecha_final, c.importe, r.version, r.fechaFinRenovacion, r.importe AS importe_renovacion"
+                + " FROM contratos c"
+                + " LEFT JOIN renovaciones r ON r.idContrato = c.id_contrato"
+                + " AND r.version = (SELECT MAX(version) FROM renovaciones WHERE idContrato = c.id_contrato)"
+                + " WHERE c.tipo = ? AND c.fecha_final < ? AND COALESCE(c.rescatado, 'N') <> 'S'"
+                + " AND COALESCE(r.fechaFinRenovacion, c.fecha_final) < ?"
+                + " ORDER BY COALESCE(r.fechaFinRenovacion, c.fecha_final)";
+        long limite = Date.valueOf(corte.plusDays(1)).getTime();
+        ZoneId zona = ZoneId.systemDefault();
+        Vencidos vencidos = new Vencidos(256);
+
+        try (Metricas.Medicion medicion = Metricas.medir("CierreMensualDAO.obtenerVencidos", sql);
+             Connection conn = fuenteDatos.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, tipo);
+            pstmt.setLong(2, limite);
+            pstmt.setLong(3, limite);
+            pstmt.setFetchSize(TAMANO_LOTE);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    int version = rs.getInt("version");
+                    boolean renovado = !rs.wasNull();
+                    long vencimiento = renovado ? rs.getLong("fechaFinRenovacion") : rs.getLong("fecha_final");
+                    vencidos.anadir(rs.getString("id_contrato"),
+                            (int) Instant.ofEpochMilli(vencimiento).atZone(zona).toLocalDate().toEpochDay(),
+                            renovado ? rs.getLong("importe_renovacion") : rs.getLong("importe"),
+                            version);
+                }
+            }
+        }
+        return vencidos;
+    }
+
+    /**
+     * Guarda las propuestas de un cierre en lugar de las de un cierre anterior con la misma fecha.
+     * Se envían en lotes de {@value #TAMANO_LOTE} filas, pero el borrado y todos los lotes van en
+     * una sola transacción: si falla alguno, se conservan las propuestas anteriores y el cierre
+     * puede repetirse.
+     *
+     * @param corte    Fecha de corte del cierre.
+     * @param vencidos Contratos vencidos, ya calculados.
+     * @throws SQLException si falla alguna escritura.
+     */
+    public void guardarPropuestas(LocalDate corte, Vencidos vencidos) throws SQLException {
+        if (!vencidos.isCalculado()) {
+            throw new IllegalStateException("Las propuestas no se han calculado");
+        }
+        String sql = "INSERT OR REPLACE INTO propuestas_cierre (fecha_corte, id_contrato, accion, version, fecha_vencimiento, "
+                + "fecha_fin_propuesta, importe, cuota) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+        Date fechaCorte = Date.valueOf(corte);
+
+        try (Metricas.Medicion medicion = Metricas.medir("CierreMensualDAO.guardarPropuestas", sql);
+             Connection conn = fuenteDatos.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement borrar = conn.prepareStatement("DELETE FROM propuestas_cierre WHERE fecha_corte = ?");
+                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                borrar.setDate(1, fechaCorte);
+                borrar.executeUpdate();
+
+                for (int i = 0; i < vencidos.getTamano(); i++) {
+                    LocalDate finPropuesto = vencidos.getFinPropuesto(i);
+                    pstmt.setDate(1, fechaCorte);
+                    pstmt.setString(2, vencidos.getIdContrato(i));
+                    pstmt.setString(3, vencidos.isDecomiso(i) ? DECOMISAR : RENOVAR);
+                    pstmt.setInt(4, vencidos.isDecomiso(i) ? vencidos.getVersion(i) : vencidos.getVersion(i) + 1);
+                    pstmt.setDate(5, Date.valueOf(vencidos.getVencimiento(i)));
+                    if (finPropuesto != null) {
+                        pstmt.setDate(6, Date.valueOf(finPropuesto));
+                    } else {
+                        pstmt.setNull(6, Types.DATE);
+                    }
+                    pstmt.setLong(7, vencidos.getImporte(i));
+                    pstmt.setLong(8, vencidos.getCuota(i));
+                    pstmt.addBatch();
+
+                    if ((i + 1) % TAMANO_LOTE == 0) {
+                        pstmt.executeBatch();
+                    }
+                }
+                pstmt.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Cuenta las propuestas de un cierre con una acción.
+     *
+     * @param corte  Fecha de corte del cierre.
+     * @param accion {@link #RENOVAR} o {@link #DECOMISAR}.
+     * @return Número de propuestas.
+     */
+    public int contarPropuestas(LocalDate corte, String accion) {
+        String sql = "SELECT COUNT(*) FROM propuestas_cierre WHERE fecha_corte = ? AND accion = ?";
+
+        try (Metricas.Medicion medicion = Metricas.medir("CierreMensualDAO.contarPropuestas", sql);
+             Connection conn = fuenteDatos.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setDate(1, Date.valueOf(corte));
+            pstmt.setString(2, accion);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        } catch (SQLException e) {
+            LOGGER.error("Error al contar las propuestas del cierre", e);
+            return 0;
+        }
+    }
+}
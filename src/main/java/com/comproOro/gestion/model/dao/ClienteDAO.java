@@ -1,6 +1,9 @@
 package com.comproOro.gestion.model.dao;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import java.sql.*;
+import javax.sql.DataSource;
 import java.util.ArrayList;
 import java.util.List;
 import com.comproOro.gestion.model.modelos.Cliente;
@@ -16,6 +19,10 @@ import com.comproOro.gestion.model.modelos.Cliente;
  */
 public class ClienteDAO {
 
+    private static final Logger LOGGER = LogManager.getLogger(ClienteDAO.class);
+
+    private final DataSource fuenteDatos;
+
     private Connection connection;
 
     /**
@@ -23,7 +30,21 @@ public class ClienteDAO {
      * y crea la tabla 'clientes' si no existe.
      */
     public ClienteDAO() {
-        this.connection = DatabaseConnection.getConnection();
+        this(DatabaseConnection.getDataSource());
+    }
+
+    /**
+     * Constructor que usa la fuente de datos indicada y crea la tabla 'clientes' si no existe.
+     *
+     * @param fuenteDatos fuente de datos de la que se obtienen las conexiones.
+     */
+    public ClienteDAO(DataSource fuenteDatos) {
+        this.fuenteDatos = fuenteDatos;
+        try {
+            this.connection = fuenteDatos.getConnection();
+        } catch (SQLException e) {
+            LOGGER.error("Error al establecer la conexión", e);
+        }
         crearTablaClientes();
     }
 
@@ -43,11 +64,12 @@ public class ClienteDAO {
                 + " direccion TEXT NOT NULL"
                 + ");";
 
-        try (Statement stmt = connection.createStatement()) {
+        try (Metricas.Medicion medicion = Metricas.medir("ClienteDAO.crearTablaClientes", sql);
+             Statement stmt = connection.createStatement()) {
             stmt.execute(sql);
-            System.out.println("Tabla 'clientes' creada o ya existe.");
+            LOGGER.debug("Tabla 'clientes' creada o ya existe.");
         } catch (SQLException e) {
-            System.out.println("Error al crear la tabla 'clientes': " + e.getMessage());
+            LOGGER.error("Error al crear la tabla 'clientes'", e);
         }
     }
 
@@ -61,7 +83,8 @@ public class ClienteDAO {
     public boolean guardarCliente(Cliente cliente) {
         String query = "INSERT INTO clientes (dni, nombre, apellido, poblacion, telefono, direccion) VALUES (?, ?, ?, ?, ?, ?)";
 
-        try (PreparedStatement stmt = connection.prepareStatement(query)) {
+        try (Metricas.Medicion medicion = Metricas.medir("ClienteDAO.guardarCliente", query);
+             PreparedStatement stmt = connection.prepareStatement(query)) {
             stmt.setString(1, cliente.getDni());
             stmt.setString(2, cliente.getNombre());
             stmt.setString(3, cliente.getApellido());
@@ -74,9 +97,9 @@ public class ClienteDAO {
 
         } catch (SQLException e) {
             if (e.getMessage().contains("UNIQUE constraint failed: clientes.dni")) {
-                System.out.println("Error: El DNI ya existe en la base de datos.");
+                LOGGER.warn("El DNI {} ya existe en la base de datos.", cliente.getDni());
             } else {
-                e.printStackTrace();
+                LOGGER.error("Error al guardar el cliente", e);
             }
             return false;
         }
@@ -91,7 +114,8 @@ public class ClienteDAO {
         List<Cliente> clientes = new ArrayList<>();
         String sql = "SELECT * FROM clientes";
 
-        try (Statement stmt = connection.createStatement();
+        try (Metricas.Medicion medicion = Metricas.medir("ClienteDAO.obtenerTodosLosClientes", sql);
+             Statement stmt = connection.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
 
             while (rs.next()) {
@@ -105,7 +129,7 @@ public class ClienteDAO {
                 clientes.add(new Cliente(dni, nombre, apellido, poblacion, telefono, direccion));
             }
         } catch (SQLException e) {
-            System.out.println("Error al obtener los clientes: " + e.getMessage());
+            LOGGER.error("Error al obtener los clientes", e);
         }
 
         return clientes;
@@ -121,7 +145,8 @@ public class ClienteDAO {
         String sql = "SELECT id, dni, nombre, apellido, poblacion, telefono, direccion FROM clientes WHERE dni = ?";
         Cliente cliente = null;
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (Metricas.Medicion medicion = Metricas.medir("ClienteDAO.obtenerClientePorDni", sql);
+             PreparedStatement stmt = connection.prepareStatement(sql)) {
             stmt.setString(1, dni);
 
             try (ResultSet rs = stmt.executeQuery()) {
@@ -136,7 +161,7 @@ public class ClienteDAO {
                 }
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            LOGGER.error("Error al obtener el cliente por DNI", e);
         }
 
         return cliente;
@@ -153,7 +178,8 @@ public class ClienteDAO {
         String sqlActualizarCampos = "UPDATE clientes SET nombre = ?, apellido = ?, poblacion = ?, telefono = ?, direccion = ? WHERE dni = ?";
         String sqlActualizarDni = "UPDATE clientes SET dni = ? WHERE dni = ?";
 
-        try (PreparedStatement stmtActualizarCampos = connection.prepareStatement(sqlActualizarCampos);
+        try (Metricas.Medicion medicion = Metricas.medir("ClienteDAO.actualizarCliente", sqlActualizarCampos);
+             PreparedStatement stmtActualizarCampos = connection.prepareStatement(sqlActualizarCampos);
              PreparedStatement stmtActualizarDni = connection.prepareStatement(sqlActualizarDni)) {
 
             stmtActualizarCampos.setString(1, cliente.getNombre());
@@ -177,8 +203,7 @@ public class ClienteDAO {
             return filasActualizadasCampos > 0;
 
         } catch (SQLException e) {
-            System.err.println("Error en actualizarCliente: " + e.getMessage());
-            e.printStackTrace();
+            LOGGER.error("Error en actualizarCliente", e);
             return false;
         }
     }
@@ -192,14 +217,15 @@ public class ClienteDAO {
     public boolean borrarCliente(String dniCliente) {
         String sql = "DELETE FROM clientes WHERE dni = ?";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Metricas.Medicion medicion = Metricas.medir("ClienteDAO.borrarCliente", sql);
+             Connection conn = fuenteDatos.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setString(1, dniCliente);
             int rowsAffected = pstmt.executeUpdate();
             return rowsAffected > 0;
         } catch (SQLException e) {
-            System.err.println("Error al borrar el cliente: " + e.getMessage());
+            LOGGER.error("Error al borrar el cliente", e);
             return false;
         }
     }
@@ -0,0 +1,25 @@
+package com.comproOro.gestion.model.dao;
+
+/**
+ * Se lanza al guardar un contrato o un producto que otro puesto ha modificado desde que se leyó:
+ * la versión de la fila ya no coincide y no se ha guardado nada. Hay que volver a leerlo y repetir
+ * la operación con los datos actuales.
+ */
+public class ConflictoVersionException extends Exception {
+
+    private final String idRegistro;
+
+    /**
+     * @param tabla      Tabla del registro modificado.
+     * @param idRegistro Identificador del contrato o del producto.
+     */
+    public ConflictoVersionException(String tabla, String idRegistro) {
+        super("El registro " + idRegistro + " de " + tabla + " se ha modificado desde otro puesto");
+        this.idRegistro = idRegistro;
+    }
+
+    /** @return Identificador del contrato o del producto modificado. */
+    public String getIdRegistro() {
+        return idRegistro;
+    }
+}
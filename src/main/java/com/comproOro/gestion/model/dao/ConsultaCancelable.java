@@ -0,0 +1,63 @@
+package com.comproOro.gestion.model.dao;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Permite cancelar desde otro hilo una consulta que un DAO está ejecutando.
+ * El DAO registra la sentencia con {@link #iniciar(Statement)} antes de ejecutarla y la quita con
+ * {@link #terminar()} al acabar; {@link #cancelar()} llama a {@link Statement#cancel()}, que en
+ * SQLite interrumpe la consulta en curso. Si se cancela antes de empezar, la consulta no llega a
+ * ejecutarse.
+ */
+public class ConsultaCancelable {
+
+    private static final Logger LOGGER = LogManager.getLogger(ConsultaCancelable.class);
+
+    private Statement sentencia;
+    private boolean cancelada;
+
+    /**
+     * Registra la sentencia que se va a ejecutar.
+     *
+     * @param sentencia sentencia ya preparada.
+     * @throws SQLException si la consulta se canceló antes de empezar.
+     */
+    synchronized void iniciar(Statement sentencia) throws SQLException {
+        if (cancelada) {
+            throw new SQLException("Consulta cancelada antes de ejecutarse");
+        }
+        this.sentencia = sentencia;
+    }
+
+    /**
+     * Olvida la sentencia, que ya no se puede cancelar.
+     */
+    synchronized void terminar() {
+        sentencia = null;
+    }
+
+    /**
+     * Cancela la consulta si se está ejecutando, o impide que empiece si todavía no lo ha hecho.
+     */
+    public synchronized void cancelar() {
+        cancelada = true;
+        if (sentencia != null) {
+            try {
+                sentencia.cancel();
+            } catch (SQLException e) {
+                LOGGER.debug("No se pudo cancelar la consulta", e);
+            }
+        }
+    }
+
+    /**
+     * @return {@code true} si se ha pedido cancelar la consulta.
+     */
+    public synchronized boolean isCancelada() {
+        return cancelada;
+    }
+}
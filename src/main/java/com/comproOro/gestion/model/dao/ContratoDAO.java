@@ -1,7 +1,10 @@
 package com.comproOro.gestion.model.dao;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import com.comproOro.gestion.model.modelos.Contrato;
 import java.sql.*;
+import javax.sql.DataSource;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.List;
@@ -11,11 +14,35 @@ import java.util.List;
  */
 public class ContratoDAO {
 
+    private static final Logger LOGGER = LogManager.getLogger(ContratoDAO.class);
+
+    private final DataSource fuenteDatos;
+
+    /** Conexiones de solo lectura para el listado y las búsquedas de la tabla de contratos. */
+    private final DataSource lecturas;
+
+    private final ResumenDAO resumenDAO;
+
+    private final BandejaDocumentosDAO bandejaDocumentos;
+
     /**
      * Constructor que crea la tabla contratos si no existe.
      */
     public ContratoDAO() {
+        this(DatabaseConnection.getDataSource());
+    }
+
+    /**
+     * Constructor que usa la fuente de datos indicada y crea la tabla contratos si no existe.
+     *
+     * @param fuenteDatos fuente de datos de la que se obtienen las conexiones.
+     */
+    public ContratoDAO(DataSource fuenteDatos) {
+        this.fuenteDatos = fuenteDatos;
+        this.lecturas = FuenteLecturas.de(fuenteDatos);
         crearTablaContratos();
+        this.resumenDAO = new ResumenDAO(fuenteDatos);
+        this.bandejaDocumentos = new BandejaDocumentosDAO(fuenteDatos);
     }
 
     /**
@@ -33,41 +60,48 @@ public class ContratoDAO {
                 + " tipo TEXT NOT NULL, "
                 + " rescatado TEXT DEFAULT 'N', "
                 + " fecha_rescate DATE, "
-                + " importe REAL NOT NULL DEFAULT 0.0"
+                + " importe INTEGER NOT NULL DEFAULT 0, "
+                + " version_fila INTEGER NOT NULL DEFAULT 0"
                 + ");";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Metricas.Medicion medicion = Metricas.medir("ContratoDAO.crearTablaContratos", sql);
+             Connection conn = fuenteDatos.getConnection();
              Statement stmt = conn.createStatement()) {
             stmt.execute(sql);
-            System.out.println("Tabla 'contratos' creada o ya existe.");
+            // Para buscar los empeños vencidos en el cierre de mes
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_contratos_tipo_fecha_final ON contratos(tipo, fecha_final)");
+            LOGGER.debug("Tabla 'contratos' creada o ya existe.");
         } catch (SQLException e) {
-            System.err.println("Error al crear la tabla contratos: " + e.getMessage());
+            LOGGER.error("Error al crear la tabla contratos", e);
         }
     }
 
     /**
      * Obtiene el próximo número incremental para el id_contrato basado en el tipo y el año actual.
+     * Se consulta dentro de la transacción que guarda el contrato, para que ningún otro puesto
+     * pueda guardar uno con el mismo número entre la consulta y el INSERT.
      *
+     * @param conn Conexión con la transacción de escritura ya empezada.
      * @param tipo Tipo de contrato para filtrar.
      * @return El siguiente número de contrato disponible para ese tipo.
+     * @throws SQLException si falla la consulta.
      */
-    private int obtenerProximoNumeroContrato(String tipo) {
+    private int obtenerProximoNumeroContrato(Connection conn, String tipo) throws SQLException {
         int maxNumero = 0;
         String sql = "SELECT MAX(CAST(SUBSTR(id_contrato, 8) AS INTEGER)) AS max_num "
                 + "FROM contratos WHERE tipo = ? AND SUBSTR(id_contrato, 3, 4) = ?";
 
         String anoActual = new SimpleDateFormat("yyyy").format(new java.util.Date());
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Metricas.Medicion medicion = Metricas.medir("ContratoDAO.obtenerProximoNumeroContrato", sql);
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, tipo);
             pstmt.setString(2, anoActual);
-            ResultSet rs = pstmt.executeQuery();
-            if (rs.next()) {
-                maxNumero = rs.getInt("max_num");
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    maxNumero = rs.getInt("max_num");
+                }
             }
-        } catch (SQLException e) {
-            System.err.println("Error al obtener el próximo número de contrato: " + e.getMessage());
         }
         return maxNumero + 1;
     }
@@ -85,7 +119,8 @@ public class ContratoDAO {
 
         String anoActual = new SimpleDateFormat("yyyy").format(new java.util.Date());
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Metricas.Medicion medicion = Metricas.medir("ContratoDAO.obtenerProximoNumeroPoliza", sql);
+             Connection conn = fuenteDatos.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, anoActual);
             ResultSet rs = pstmt.executeQuery();
@@ -103,7 +138,7 @@ public class ContratoDAO {
                 maxNumero += 1;
             }
         } catch (SQLException e) {
-            System.err.println("Error al obtener el próximo número de póliza: " + e.getMessage());
+            LOGGER.error("Error al obtener el próximo número de póliza", e);
         }
 
         return maxNumero;
@@ -116,44 +151,71 @@ public class ContratoDAO {
      * @return true si se guardó correctamente, false en caso contrario.
      */
     public boolean guardarContrato(Contrato contrato) {
+        try {
+            // Si otro puesto tenía ocupada la base de datos se repite entero, con un número nuevo
+            return Reintentos.ejecutar("ContratoDAO.guardarContrato", () -> insertarContrato(contrato));
+        } catch (SQLException e) {
+            LOGGER.error("Error al guardar el contrato", e);
+            return false;
+        }
+    }
 
-        int numeroContrato = obtenerProximoNumeroContrato(contrato.getTipo());
-        contrato.generarIdContrato(numeroContrato);
-
+    /**
+     * Guarda el contrato en una transacción que reserva la escritura desde el principio
+     * ({@code BEGIN IMMEDIATE}): si otro puesto está guardando, se espera a que termine antes de
+     * calcular el número, de modo que dos puestos nunca sacan el mismo id_contrato.
+     */
+    private boolean insertarContrato(Contrato contrato) throws SQLException {
         String sql = "INSERT INTO contratos (id_contrato, id_pol, dni_cliente, detalles_contrato, fecha_inicio, fecha_final, tipo, rescatado, fecha_rescate, importe) "
                 + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Metricas.Medicion medicion = Metricas.medir("ContratoDAO.guardarContrato", sql);
+             Connection conn = fuenteDatos.getConnection();
+             Statement transaccion = conn.createStatement();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
-            pstmt.setString(1, contrato.getIdContrato());
-            pstmt.setString(2, contrato.getIdPol());
-            pstmt.setString(3, contrato.getDniCliente());
-            pstmt.setString(4, contrato.getDetallesContrato());
-            pstmt.setDate(5, new Date(contrato.getFechaInicio().getTime()));
-
-            if (contrato.getFechaFinal() != null) {
-                pstmt.setDate(6, new Date(contrato.getFechaFinal().getTime()));
-            } else {
-                pstmt.setNull(6, Types.DATE);
+            transaccion.execute("BEGIN IMMEDIATE");
+            try {
+                contrato.generarIdContrato(obtenerProximoNumeroContrato(conn, contrato.getTipo()));
+                insertar(pstmt, contrato);
+                resumenDAO.registrarContrato(conn, contrato);
+                transaccion.execute("COMMIT");
+            } catch (SQLException | RuntimeException e) {
+                try {
+                    transaccion.execute("ROLLBACK");
+                } catch (SQLException errorRollback) {
+                    e.addSuppressed(errorRollback);
+                }
+                throw e;
             }
+            return true;
+        }
+    }
 
-            pstmt.setString(7, contrato.getTipo());
-            pstmt.setString(8, contrato.getRescatado());
+    private static void insertar(PreparedStatement pstmt, Contrato contrato) throws SQLException {
+        pstmt.setString(1, contrato.getIdContrato());
+        pstmt.setString(2, contrato.getIdPol());
+        pstmt.setString(3, contrato.getDniCliente());
+        pstmt.setString(4, contrato.getDetallesContrato());
+        pstmt.setDate(5, new Date(contrato.getFechaInicio().getTime()));
+
+        if (contrato.getFechaFinal() != null) {
+            pstmt.setDate(6, new Date(contrato.getFechaFinal().getTime()));
+        } else {
+            pstmt.setNull(6, Types.DATE);
+        }
 
-            if (contrato.getFechaRescate() != null) {
-                pstmt.setDate(9, new Date(contrato.getFechaRescate().getTime()));
-            } else {
-                pstmt.setNull(9, Types.DATE);
-            }
+        pstmt.setString(7, contrato.getTipo());
+        pstmt.setString(8, contrato.getRescatado());
 
-            pstmt.setDouble(10, contrato.getImporte());
-            pstmt.executeUpdate();
-            return true;
-        } catch (SQLException e) {
-            System.err.println("Error al guardar el contrato: " + e.getMessage());
-            return false;
+        if (contrato.getFechaRescate() != null) {
+            pstmt.setDate(9, new Date(contrato.getFechaRescate().getTime()));
+        } else {
+            pstmt.setNull(9, Types.DATE);
         }
+
+        pstmt.setLong(10, contrato.getImporteCentimos());
+        pstmt.executeUpdate();
     }
 
     /**
@@ -166,7 +228,8 @@ public class ContratoDAO {
         String sql = "SELECT * FROM contratos WHERE id_contrato = ?";
         Contrato contrato = null;
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Metricas.Medicion medicion = Metricas.medir("ContratoDAO.obtenerContratoPorId", sql);
+             Connection conn = fuenteDatos.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setString(1, idContrato);
@@ -183,26 +246,42 @@ public class ContratoDAO {
                     contrato.setTipo(rs.getString("tipo"));
                     contrato.setRescatado(rs.getString("rescatado"));
                     contrato.setFechaRescate(rs.getDate("fecha_rescate"));
-                    contrato.setImporte(rs.getDouble("importe"));
+                    contrato.setImporteCentimos(rs.getLong("importe"));
+                    contrato.setVersionFila(rs.getInt("version_fila"));
                 }
             }
         } catch (SQLException e) {
-            System.err.println("Error al obtener el contrato por ID: " + e.getMessage());
+            LOGGER.error("Error al obtener el contrato por ID", e);
         }
 
         return contrato;
     }
 
     /**
-     * Actualiza los datos de un contrato existente en la base de datos.
+     * Actualiza los datos de un contrato existente en la base de datos, solo si nadie lo ha
+     * modificado desde que se leyó: la actualización compara la versión de la fila y la incrementa.
+     * Si el contrato pasa a estar rescatado, en la misma transacción se apuntan sus documentos
+     * de rescate en la bandeja de documentos.
      *
-     * @param contrato Objeto Contrato con los datos actualizados.
+     * @param contrato Objeto Contrato con los datos actualizados; si se guarda, recibe la nueva versión.
      * @return true si se actualizó correctamente, false en caso contrario.
+     * @throws ConflictoVersionException si otro puesto ha modificado el contrato; no se guarda nada.
      */
-    public boolean actualizarContrato(Contrato contrato) {
-        String sql = "UPDATE contratos SET id_pol = ?, dni_cliente = ?, detalles_contrato = ?, fecha_inicio = ?, fecha_final = ?, tipo = ?, rescatado = ?, fecha_rescate = ?, importe = ? WHERE id_contrato = ?";
+    public boolean actualizarContrato(Contrato contrato) throws ConflictoVersionException {
+        try {
+            return Reintentos.ejecutar("ContratoDAO.actualizarContrato", () -> actualizar(contrato));
+        } catch (SQLException e) {
+            LOGGER.error("Error al actualizar el contrato", e);
+            return false;
+        }
+    }
 
-        try (Connection conn = DatabaseConnection.getConnection();
+    private boolean actualizar(Contrato contrato) throws ConflictoVersionException, SQLException {
+        String sql = "UPDATE contratos SET id_pol = ?, dni_cliente = ?, detalles_contrato = ?, fecha_inicio = ?, fecha_final = ?, tipo = ?, rescatado = ?, fecha_rescate = ?, importe = ?, "
+                + "version_fila = version_fila + 1 WHERE id_contrato = ? AND version_fila = ?";
+
+        try (Metricas.Medicion medicion = Metricas.medir("ContratoDAO.actualizarContrato", sql);
+             Connection conn = fuenteDatos.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setString(1, contrato.getIdPol());
@@ -225,14 +304,64 @@ public class ContratoDAO {
                 pstmt.setNull(8, Types.DATE);
             }
 
-            pstmt.setDouble(9, contrato.getImporte());
+            pstmt.setLong(9, contrato.getImporteCentimos());
             pstmt.setString(10, contrato.getIdContrato());
+            pstmt.setInt(11, contrato.getVersionFila());
+
+            conn.setAutoCommit(false);
+            try {
+                // Ven el contrato aún sin rescatar, así que van antes de actualizarlo
+                if ("S".equals(contrato.getRescatado())) {
+                    resumenDAO.registrarRescate(conn, contrato);
+                    bandejaDocumentos.encolarRescate(conn, contrato.getIdContrato());
+                }
+                if (pstmt.executeUpdate() == 0) {
+                    conn.rollback();
+                    if (existeContrato(conn, contrato.getIdContrato())) {
+                        throw new ConflictoVersionException("contratos", contrato.getIdContrato());
+                    }
+                    return false;
+                }
+                conn.commit();
+                contrato.setVersionFila(contrato.getVersionFila() + 1);
+                return true;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
 
-            int rowsAffected = pstmt.executeUpdate();
-            return rowsAffected > 0;
-        } catch (SQLException e) {
-            System.err.println("Error al actualizar el contrato: " + e.getMessage());
-            return false;
+    /**
+     * Incrementa la versión de un contrato dentro de la transacción de otro DAO, si sigue siendo
+     * la leída y el contrato no está rescatado. Así una renovación no se guarda sobre un contrato
+     * que otro puesto acaba de renovar o rescatar.
+     *
+     * @param conn       Conexión de la transacción en curso.
+     * @param idContrato ID del contrato.
+     * @param version    Versión del contrato leída por el llamador.
+     * @throws ConflictoVersionException si el contrato ha cambiado desde que se leyó.
+     * @throws SQLException              si falla la actualización.
+     */
+    static void comprobarVersion(Connection conn, String idContrato, int version)
+            throws ConflictoVersionException, SQLException {
+        String sql = "UPDATE contratos SET version_fila = version_fila + 1 "
+                + "WHERE id_contrato = ? AND version_fila = ? AND COALESCE(rescatado, 'N') <> 'S'";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, idContrato);
+            pstmt.setInt(2, version);
+            if (pstmt.executeUpdate() == 0) {
+                throw new ConflictoVersionException("contratos", idContrato);
+            }
+        }
+    }
+
+    private static boolean existeContrato(Connection conn, String idContrato) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT 1 FROM contratos WHERE id_contrato = ?")) {
+            pstmt.setString(1, idContrato);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next();
+            }
         }
     }
 
@@ -245,7 +374,8 @@ public class ContratoDAO {
         List<Contrato> contratos = new ArrayList<>();
         String sql = "SELECT * FROM contratos";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Metricas.Medicion medicion = Metricas.medir("ContratoDAO.obtenerTodosLosContratos", sql);
+             Connection conn = lecturas.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql);
              ResultSet rs = pstmt.executeQuery()) {
 
@@ -260,12 +390,13 @@ public class ContratoDAO {
                 contrato.setTipo(rs.getString("tipo"));
                 contrato.setRescatado(rs.getString("rescatado"));
                 contrato.setFechaRescate(rs.getDate("fecha_rescate"));
-                contrato.setImporte(rs.getDouble("importe"));
+                contrato.setImporteCentimos(rs.getLong("importe"));
+                contrato.setVersionFila(rs.getInt("version_fila"));
 
                 contratos.add(contrato);
             }
         } catch (SQLException e) {
-            System.err.println("Error al obtener todos los contratos: " + e.getMessage());
+            LOGGER.error("Error al obtener todos los contratos", e);
         }
 
         return contratos;
@@ -281,7 +412,8 @@ public class ContratoDAO {
         List<Contrato> contratos = new ArrayList<>();
         String sql = "SELECT * FROM contratos WHERE TRIM(dni_cliente) = ? AND UPPER(tipo) = 'EMPENO'";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Metricas.Medicion medicion = Metricas.medir("ContratoDAO.obtenerContratosEmpenoPorDni", sql);
+             Connection conn = fuenteDatos.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setString(1, dni.trim());
@@ -298,17 +430,18 @@ public class ContratoDAO {
                     contrato.setTipo(rs.getString("tipo"));
                     contrato.setRescatado(rs.getString("rescatado"));
                     contrato.setFechaRescate(rs.getDate("fecha_rescate"));
-                    contrato.setImporte(rs.getDouble("importe"));
+                    contrato.setImporteCentimos(rs.getLong("importe"));
+                    contrato.setVersionFila(rs.getInt("version_fila"));
 
                     contratos.add(contrato);
                 }
             }
         } catch (SQLException e) {
-            System.err.println("Error al obtener contratos de empeño por DNI: " + e.getMessage());
+            LOGGER.error("Error al obtener contratos de empeño por DNI", e);
         }
 
         if (contratos.isEmpty()) {
-            System.out.println("No se encontraron contratos de tipo empeño para el DNI: " + dni);
+            LOGGER.debug("No se encontraron contratos de tipo empeño para el DNI: {}", dni);
         }
 
         return contratos;
@@ -324,7 +457,8 @@ public class ContratoDAO {
     public boolean actualizarDniEnContratos(String dniAntiguo, String dniNuevo) {
         String sql = "UPDATE contratos SET dni_cliente = ? WHERE dni_cliente = ?";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Metricas.Medicion medicion = Metricas.medir("ContratoDAO.actualizarDniEnContratos", sql);
+             Connection conn = fuenteDatos.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setString(1, dniNuevo);
@@ -334,7 +468,7 @@ public class ContratoDAO {
             return filasActualizadas > 0;
 
         } catch (SQLException e) {
-            e.printStackTrace();
+            LOGGER.error("Error al actualizar el DNI en los contratos", e);
             return false;
         }
     }
@@ -347,7 +481,8 @@ public class ContratoDAO {
      */
     public boolean tieneContratos(String dniCliente) {
         String sql = "SELECT COUNT(*) FROM contratos WHERE dni_cliente = ?";
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Metricas.Medicion medicion = Metricas.medir("ContratoDAO.tieneContratos", sql);
+             Connection conn = fuenteDatos.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setString(1, dniCliente);
@@ -358,7 +493,7 @@ public class ContratoDAO {
                 return count > 0;
             }
         } catch (SQLException e) {
-            System.err.println("Error al verificar contratos: " + e.getMessage());
+            LOGGER.error("Error al verificar contratos", e);
         }
         return false;
     }
@@ -371,6 +506,18 @@ public class ContratoDAO {
      * @return Lista de contratos que cumplen con los criterios de búsqueda.
      */
     public List<Contrato> buscarContratos(String searchText, String tipo) {
+        return buscarContratos(searchText, tipo, null);
+    }
+
+    /**
+     * Busca contratos que coincidan con el texto proporcionado y tipo especificado.
+     *
+     * @param searchText Texto a buscar en el ID del contrato o en el DNI del cliente.
+     * @param tipo       Tipo de contrato a filtrar. Si es "Cualquiera", no se aplica filtro por tipo.
+     * @param consulta   permite cancelar la búsqueda desde otro hilo; puede ser {@code null}.
+     * @return Lista de contratos que cumplen con los criterios de búsqueda.
+     */
+    public List<Contrato> buscarContratos(String searchText, String tipo, ConsultaCancelable consulta) {
         List<Contrato> contratos = new ArrayList<>();
         String sql = "SELECT * FROM contratos WHERE (id_contrato LIKE ? OR dni_cliente LIKE ?)";
 
@@ -378,9 +525,14 @@ public class ContratoDAO {
             sql += " AND tipo = ?";
         }
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Metricas.Medicion medicion = Metricas.medir("ContratoDAO.buscarContratos", sql);
+             Connection conn = lecturas.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
+            if (consulta != null) {
+                consulta.iniciar(pstmt);
+            }
+
             pstmt.setString(1, "%" + searchText + "%");
             pstmt.setString(2, "%" + searchText + "%");
 
@@ -398,11 +550,21 @@ public class ContratoDAO {
                 contrato.setFechaFinal(rs.getDate("fecha_final"));
                 contrato.setTipo(rs.getString("tipo"));
                 contrato.setRescatado(rs.getString("rescatado"));
-                contrato.setImporte(rs.getDouble("importe"));
+                contrato.setImporteCentimos(rs.getLong("importe"));
+                contrato.setVersionFila(rs.getInt("version_fila"));
                 contratos.add(contrato);
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            if (consulta != null && consulta.isCancelada()) {
+                LOGGER.debug("Búsqueda de contratos cancelada");
+                contratos.clear();
+            } else {
+                LOGGER.error("Error al buscar contratos", e);
+            }
+        } finally {
+            if (consulta != null) {
+                consulta.terminar();
+            }
         }
         return contratos;
     }
@@ -417,6 +579,20 @@ public class ContratoDAO {
      * @return Lista de contratos que coinciden con los filtros.
      */
     public List<Contrato> buscarContratosConFechas(String searchText, String tipo, java.sql.Date fechaInicio, java.sql.Date fechaFinal) {
+        return buscarContratosConFechas(searchText, tipo, fechaInicio, fechaFinal, null);
+    }
+
+    /**
+     * Busca contratos por texto, tipo y un rango de fechas de inicio.
+     *
+     * @param searchText  Texto a buscar en el ID del contrato o DNI del cliente.
+     * @param tipo        Tipo de contrato a filtrar.
+     * @param fechaInicio Fecha mínima de inicio del contrato (incluida).
+     * @param fechaFinal  Fecha máxima de inicio del contrato (incluida, a cualquier hora).
+     * @param consulta   permite cancelar la búsqueda desde otro hilo; puede ser {@code null}.
+     * @return Lista de contratos que coinciden con los filtros.
+     */
+    public List<Contrato> buscarContratosConFechas(String searchText, String tipo, java.sql.Date fechaInicio, java.sql.Date fechaFinal, ConsultaCancelable consulta) {
         List<Contrato> contratos = new ArrayList<>();
         String sql = "SELECT * FROM contratos WHERE (id_contrato LIKE ? OR dni_cliente LIKE ?)";
 
@@ -425,12 +601,17 @@ public class ContratoDAO {
         }
 
         if (fechaInicio != null && fechaFinal != null) {
-            sql += " AND fecha_inicio > ? AND fecha_inicio < ?";
+            sql += " AND fecha_inicio >= ? AND fecha_inicio < ?";
         }
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Metricas.Medicion medicion = Metricas.medir("ContratoDAO.buscarContratosConFechas", sql);
+             Connection conn = lecturas.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
+            if (consulta != null) {
+                consulta.iniciar(pstmt);
+            }
+
             pstmt.setString(1, "%" + searchText + "%");
             pstmt.setString(2, "%" + searchText + "%");
 
@@ -441,7 +622,7 @@ public class ContratoDAO {
 
             if (fechaInicio != null && fechaFinal != null) {
                 pstmt.setDate(paramIndex++, fechaInicio);
-                pstmt.setDate(paramIndex, fechaFinal);
+                pstmt.setDate(paramIndex, diaSiguiente(fechaFinal));
             }
 
             ResultSet rs = pstmt.executeQuery();
@@ -454,11 +635,21 @@ public class ContratoDAO {
                 contrato.setFechaFinal(rs.getDate("fecha_final"));
                 contrato.setTipo(rs.getString("tipo"));
                 contrato.setRescatado(rs.getString("rescatado"));
-                contrato.setImporte(rs.getDouble("importe"));
+                contrato.setImporteCentimos(rs.getLong("importe"));
+                contrato.setVersionFila(rs.getInt("version_fila"));
                 contratos.add(contrato);
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            if (consulta != null && consulta.isCancelada()) {
+                LOGGER.debug("Búsqueda de contratos cancelada");
+                contratos.clear();
+            } else {
+                LOGGER.error("Error al buscar contratos por fechas", e);
+            }
+        } finally {
+            if (consulta != null) {
+                consulta.terminar();
+            }
         }
         return contratos;
     }
@@ -472,6 +663,19 @@ public class ContratoDAO {
      * @return Lista de contratos filtrados por fecha de inicio y otros criterios.
      */
     public List<Contrato> buscarContratosConFechaInicio(String searchText, String tipo, Date fechaInicio) {
+        return buscarContratosConFechaInicio(searchText, tipo, fechaInicio, null);
+    }
+
+    /**
+     * Busca contratos a partir de una fecha de inicio , con filtros opcionales.
+     *
+     * @param searchText  Texto a buscar en el ID del contrato o DNI del cliente.
+     * @param tipo        Tipo de contrato a filtrar.
+     * @param fechaInicio Fecha mínima de inicio del contrato.
+     * @param consulta   permite cancelar la búsqueda desde otro hilo; puede ser {@code null}.
+     * @return Lista de contratos filtrados por fecha de inicio y otros criterios.
+     */
+    public List<Contrato> buscarContratosConFechaInicio(String searchText, String tipo, Date fechaInicio, ConsultaCancelable consulta) {
         List<Contrato> contratos = new ArrayList<>();
         StringBuilder sql = new StringBuilder("SELECT * FROM contratos WHERE fecha_inicio >= ?");
         List<String> conditions = new ArrayList<>();
@@ -488,9 +692,14 @@ public class ContratoDAO {
             sql.append(" AND ").append(String.join(" AND ", conditions));
         }
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Metricas.Medicion medicion = Metricas.medir("ContratoDAO.buscarContratosConFechaInicio", sql.toString());
+             Connection conn = lecturas.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
 
+            if (consulta != null) {
+                consulta.iniciar(pstmt);
+            }
+
             pstmt.setDate(1, fechaInicio);
             int index = 2;
 
@@ -515,12 +724,22 @@ public class ContratoDAO {
                     contrato.setTipo(rs.getString("tipo"));
                     contrato.setRescatado(rs.getString("rescatado"));
                     contrato.setFechaRescate(rs.getDate("fecha_rescate"));
-                    contrato.setImporte(rs.getDouble("importe"));
+                    contrato.setImporteCentimos(rs.getLong("importe"));
+                    contrato.setVersionFila(rs.getInt("version_fila"));
                     contratos.add(contrato);
                 }
             }
         } catch (SQLException e) {
-            System.err.println("Error al buscar contratos por fecha de inicio: " + e.getMessage());
+            if (consulta != null && consulta.isCancelada()) {
+                LOGGER.debug("Búsqueda de contratos cancelada");
+                contratos.clear();
+            } else {
+                LOGGER.error("Error al buscar contratos por fecha de inicio", e);
+            }
+        } finally {
+            if (consulta != null) {
+                consulta.terminar();
+            }
         }
 
         return contratos;
@@ -535,8 +754,21 @@ public class ContratoDAO {
      * @return Lista de contratos que cumplen con los filtros aplicados.
      */
     public List<Contrato> buscarContratosConFechaFinal(String searchText, String tipo, Date fechaFinal) {
+        return buscarContratosConFechaFinal(searchText, tipo, fechaFinal, null);
+    }
+
+    /**
+     * Busca contratos que empezaron como tarde el día indicado, con filtros opcionales.
+     *
+     * @param searchText Texto a buscar en el ID del contrato o DNI del cliente.
+     * @param tipo       Tipo de contrato a filtrar.
+     * @param fechaFinal Fecha máxima de inicio del contrato (incluida, a cualquier hora).
+     * @param consulta   permite cancelar la búsqueda desde otro hilo; puede ser {@code null}.
+     * @return Lista de contratos que cumplen con los filtros aplicados.
+     */
+    public List<Contrato> buscarContratosConFechaFinal(String searchText, String tipo, Date fechaFinal, ConsultaCancelable consulta) {
         List<Contrato> contratos = new ArrayList<>();
-        StringBuilder sql = new StringBuilder("SELECT * FROM contratos WHERE fecha_inicio <= ?");
+        StringBuilder sql = new StringBuilder("SELECT * FROM contratos WHERE fecha_inicio < ?");
         List<String> conditions = new ArrayList<>();
 
         if (searchText != null && !searchText.isEmpty()) {
@@ -551,10 +783,15 @@ public class ContratoDAO {
             sql.append(" AND ").append(String.join(" AND ", conditions));
         }
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Metricas.Medicion medicion = Metricas.medir("ContratoDAO.buscarContratosConFechaFinal", sql.toString());
+             Connection conn = lecturas.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
 
-            pstmt.setDate(1, fechaFinal);
+            if (consulta != null) {
+                consulta.iniciar(pstmt);
+            }
+
+            pstmt.setDate(1, diaSiguiente(fechaFinal));
             int index = 2;
 
             if (searchText != null && !searchText.isEmpty()) {
@@ -578,14 +815,36 @@ public class ContratoDAO {
                     contrato.setTipo(rs.getString("tipo"));
                     contrato.setRescatado(rs.getString("rescatado"));
                     contrato.setFechaRescate(rs.getDate("fecha_rescate"));
-                    contrato.setImporte(rs.getDouble("importe"));
+                    contrato.setImporteCentimos(rs.getLong("importe"));
+                    contrato.setVersionFila(rs.getInt("version_fila"));
                     contratos.add(contrato);
                 }
             }
         } catch (SQLException e) {
-            System.err.println("Error al buscar contratos por fecha de finalización: " + e.getMessage());
+            if (consulta != null && consulta.isCancelada()) {
+                LOGGER.debug("Búsqueda de contratos cancelada");
+                contratos.clear();
+            } else {
+                LOGGER.error("Error al buscar contratos por fecha de finalización", e);
+            }
+        } finally {
+            if (consulta != null) {
+                consulta.terminar();
+            }
         }
 
         return contratos;
     }
-}
\ No newline at end of file
+
+    /**
+     * Día siguiente a una fecha de los filtros. Las fechas de inicio se guardan con la hora, así que
+     * para incluir todo el día indicado se filtra con {@code fecha_inicio < diaSiguiente(fecha)}.
+     * La exportación usa los mismos límites que la búsqueda en pantalla.
+     *
+     * @param fecha Último día que se incluye.
+     * @return El comienzo del día siguiente.
+     */
+    static Date diaSiguiente(Date fecha) {
+        return Date.valueOf(fecha.toLocalDate().plusDays(1));
+    }
+}
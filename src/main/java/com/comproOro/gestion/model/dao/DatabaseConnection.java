@@ -1,42 +1,72 @@
 package com.comproOro.gestion.model.dao;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import javax.sql.DataSource;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.nio.file.Paths;
 
 /**
- * Clase encargada de gestionar la conexión con la base de datos SQLite.
- * Utiliza una base de datos local ubicada en el directorio del proyecto.
+ * Clase encargada de gestionar la base de datos SQLite de la aplicación.
+ * Guarda la {@link DataSource} que usan los DAO creados con su constructor sin parámetros;
+ * por defecto es un archivo local ubicado en el directorio del proyecto.
  */
 public class DatabaseConnection {
 
+    private static final Logger LOGGER = LogManager.getLogger(DatabaseConnection.class);
+
+    private static volatile DataSource dataSource;
+
     /**
-     * Establece y devuelve una conexión a la base de datos SQLite.
+     * Devuelve la fuente de datos de la aplicación.
      * <p>
      * La base de datos se encuentra en el directorio de trabajo actual
-     * y se llama <code>mi_base_de_datos.db</code>.
+     * y se llama <code>mi_base_de_datos.db</code>, salvo que la propiedad del sistema
+     * <code>comprooro.db</code> indique otro archivo (por ejemplo, uno generado para pruebas de carga).
+     *
+     * @return la fuente de datos por defecto.
+     */
+    public static DataSource getDataSource() {
+        DataSource actual = dataSource;
+        if (actual == null) {
+            synchronized (DatabaseConnection.class) {
+                if (dataSource == null) {
+                    // Obtener el directorio actual del proyecto
+                    String currentDir = System.getProperty("user.dir");
+
+                    // Construir la ruta absoluta hacia el archivo de la base de datos
+                    String dbPath = System.getProperty("comprooro.db", Paths.get(currentDir, "mi_base_de_datos.db").toString());
+                    dataSource = FuenteDatos.archivo(dbPath);
+                }
+                actual = dataSource;
+            }
+        }
+        return actual;
+    }
+
+    /**
+     * Cambia la fuente de datos que usan los DAO creados a partir de ahora con su constructor
+     * sin parámetros.
+     *
+     * @param nuevaFuente la fuente de datos a usar.
+     */
+    public static void setDataSource(DataSource nuevaFuente) {
+        dataSource = nuevaFuente;
+    }
+
+    /**
+     * Establece y devuelve una conexión a la base de datos SQLite de la aplicación.
      *
      * @return una instancia {@link Connection} conectada a la base de datos,
      *         o <code>null</code> si ocurre un error al establecer la conexión.
      */
     public static Connection getConnection() {
-        Connection connection = null;
         try {
-            // Obtener el directorio actual del proyecto
-            String currentDir = System.getProperty("user.dir");
-
-            // Construir la ruta absoluta hacia el archivo de la base de datos
-            String dbPath = Paths.get(currentDir, "mi_base_de_datos.db").toString();
-
-            // Establecer la conexión a la base de datos SQLite
-            connection = DriverManager.getConnection("jdbc:sqlite:" + dbPath);
-            System.out.println("Conexión establecida con la base de datos SQLite en: " + dbPath);
-
+            return getDataSource().getConnection();
         } catch (SQLException e) {
-            System.err.println("Error al establecer la conexión: " + e.getMessage());
+            LOGGER.error("Error al establecer la conexión", e);
+            return null;
         }
-
-        return connection;
     }
 }
@@ -0,0 +1,178 @@
+package com.comproOro.gestion.model.dao;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import java.sql.*;
+import javax.sql.DataSource;
+
+/**
+ * Migraciones de los datos de bases creadas por versiones anteriores. La versión del esquema se
+ * guarda en {@code PRAGMA user_version}; cada migración se aplica una sola vez, en una transacción.
+ * Se ejecuta al arrancar, antes de que ningún DAO use la base de datos: las migraciones saltan las
+ * tablas que todavía no existen, y los DAO las crean ya con el esquema actual.
+ */
+public class EsquemaDAO {
+
+    private static final Logger LOGGER = LogManager.getLogger(EsquemaDAO.class);
+
+    /**
+     * Versión actual del esquema. La 1 guarda los importes en céntimos; la 2 añade la versión de
+     * fila de contratos y productos; la 3, el puesto de cada documento de la bandeja.
+     */
+    public static final int VERSION = 3;
+
+    /** Columnas de importes que antes se guardaban en euros, como tabla y columna. */
+    private static final String[][] COLUMNAS_IMPORTE = {
+            {"contratos", "importe"},
+            {"productos", "precioGramo"},
+            {"productos", "importe"},
+            {"renovaciones", "importe"},
+            {"resumen_diario", "importe_contratos"},
+            {"resumen_diario", "importe_renovaciones"},
+            {"resumen_diario", "importe_amortizado"},
+            {"resumen_diario", "importe_rescates"},
+            {"propuestas_cierre", "importe"},
+            {"propuestas_cierre", "cuota"}
+    };
+
+    /** Tablas que llevan versión de fila para detectar cambios desde otro puesto. */
+    private static final String[] TABLAS_VERSIONADAS = {"contratos", "productos"};
+
+    private final DataSource fuenteDatos;
+
+    /**
+     * Constructor que usa la conexión de la aplicación.
+     */
+    public EsquemaDAO() {
+        this(DatabaseConnection.getDataSource());
+    }
+
+    /**
+     * @param fuenteDatos fuente de datos de la que se obtienen las conexiones.
+     */
+    public EsquemaDAO(DataSource fuenteDatos) {
+        this.fuenteDatos = fuenteDatos;
+    }
+
+    /**
+     * Pone la base de datos en la versión actual del esquema.
+     *
+     * @return el número de columnas convertidas o añadidas; 0 si ya estaba al día.
+     * @throws SQLException si falla la migración, que entonces se deshace entera.
+     */
+    public int migrar() throws SQLException {
+        try (Metricas.Medicion medicion = Metricas.medir("EsquemaDAO.migrar", "PRAGMA user_version");
+             Connection conn = fuenteDatos.getConnection();
+             Statement stmt = conn.createStatement()) {
+            int version = obtenerVersion(stmt);
+            if (version >= VERSION) {
+                return 0;
+            }
+
+            conn.setAutoCommit(false);
+            try {
+                int cambios = 0;
+                if (version < 1) {
+                    cambios += pasarImportesACentimos(stmt);
+                }
+                if (version < 2) {
+                    cambios += anadirVersionFila(stmt);
+                }
+                if (version < 3) {
+                    cambios += anadirPuestoBandeja(stmt);
+                }
+                stmt.execute("PRAGMA user_version = " + VERSION);
+                conn.commit();
+                LOGGER.info("Esquema migrado de la versión {} a la {}: {} columnas convertidas o añadidas",
+                        version, VERSION, cambios);
+                return cambios;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * @return la versión del esquema guardada en la base de datos.
+     * @throws SQLException si falla la consulta.
+     */
+    public int obtenerVersion() throws SQLException {
+        try (Connection conn = fuenteDatos.getConnection();
+             Statement stmt = conn.createStatement()) {
+            return obtenerVersion(stmt);
+        }
+    }
+
+    private static int obtenerVersion(Statement stmt) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    /**
+     * Multiplica por 100 los importes de las columnas que se crearon como REAL. Las tablas creadas
+     * ya en céntimos tienen las columnas como INTEGER y no se tocan. Los valores convertidos quedan
+     * enteros aunque la columna siga declarada como REAL, y se leen igual con getLong.
+     */
+    private static int pasarImportesACentimos(Statement stmt) throws SQLException {
+        int convertidas = 0;
+        for (String[] columna : COLUMNAS_IMPORTE) {
+            if ("REAL".equalsIgnoreCase(tipoDeclarado(stmt, columna[0], columna[1]))) {
+                stmt.executeUpdate("UPDATE " + columna[0] + " SET " + columna[1]
+                        + " = CAST(ROUND(" + columna[1] + " * 100) AS INTEGER)");
+                convertidas++;
+            }
+        }
+        return convertidas;
+    }
+
+    /**
+     * Añade la columna version_fila a las tablas creadas antes de que existiera. Las filas que ya
+     * había empiezan en la versión 0.
+     */
+    private static int anadirVersionFila(Statement stmt) throws SQLException {
+        int anadidas = 0;
+        for (String tabla : TABLAS_VERSIONADAS) {
+            if (existeTabla(stmt, tabla) && tipoDeclarado(stmt, tabla, "version_fila") == null) {
+                stmt.execute("ALTER TABLE " + tabla + " ADD COLUMN version_fila INTEGER NOT NULL DEFAULT 0");
+                anadidas++;
+            }
+        }
+        return anadidas;
+    }
+
+    /**
+     * Añade el puesto a la bandeja de documentos. Las filas que ya había quedan sin puesto y las
+     * reclama el primer puesto que las encuentre.
+     */
+    private static int anadirPuestoBandeja(Statement stmt) throws SQLException {
+        if (existeTabla(stmt, "bandeja_documentos") && tipoDeclarado(stmt, "bandeja_documentos", "puesto") == null) {
+            stmt.execute("ALTER TABLE bandeja_documentos ADD COLUMN puesto TEXT");
+            return 1;
+        }
+        return 0;
+    }
+
+    private static boolean existeTabla(Statement stmt, String tabla) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery("PRAGMA table_info(" + tabla + ")")) {
+            return rs.next();
+        }
+    }
+
+    /**
+     * @return el tipo con el que se declaró la columna, o null si la tabla o la columna no existen.
+     */
+    private static String tipoDeclarado(Statement stmt, String tabla, String columna) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery("PRAGMA table_info(" + tabla + ")")) {
+            while (rs.next()) {
+                if (columna.equalsIgnoreCase(rs.getString("name"))) {
+                    return rs.getString("type");
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,307 @@
+package com.comproOro.gestion.model.dao;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import com.comproOro.gestion.model.modelos.Dinero;
+import java.sql.*;
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Clase DAO para recorrer contratos, productos y renovaciones fila a fila durante una exportación.
+ * Lee por las conexiones de solo lectura de la fuente ({@link FuenteLecturas}) en páginas de
+ * {@link #TAMANO_PAGINA} filas ordenadas por id, y cada página empieza después del último id de la
+ * anterior. La consulta de una página se cierra, y con ella la lectura en SQLite, antes de entregar
+ * sus filas al consumidor, de modo que con el diario normal los puestos pueden guardar entre página
+ * y página aunque la exportación dure minutos. Las filas se leen en arrays reutilizados, así que la
+ * memoria usada no depende del número de filas.
+ *
+ * <p>Cada página ve los datos confirmados al leerla: un contrato guardado durante la exportación
+ * puede salir si su id es posterior a la página en curso, pero ninguna fila sale dos veces.</p>
+ */
+public class ExportacionDAO {
+
+    private static final Logger LOGGER = LogManager.getLogger(ExportacionDAO.class);
+
+    private final DataSource fuenteDatos;
+
+    /** Filas que se leen en cada consulta. */
+    static final int TAMANO_PAGINA = 500;
+
+    /** Cabeceras de las columnas de contratos, en el orden en que se entregan las filas. */
+    public static final String[] COLUMNAS_CONTRATOS = {
+            "ID Contrato", "ID Póliza", "DNI Cliente", "Detalles", "Fecha Inicio",
+            "Fecha Final", "Tipo", "Rescatado", "Fecha Rescate", "Importe"
+    };
+
+    /** Cabeceras de las columnas de productos, en el orden en que se entregan las filas. */
+    public static final String[] COLUMNAS_PRODUCTOS = {
+            "ID Producto", "ID Contrato", "Cantidad", "Descripción", "Observaciones",
+            "Peso (g)", "Precio/g", "Importe"
+    };
+
+    /** Cabeceras de las columnas de renovaciones, en el orden en que se entregan las filas. */
+    public static final String[] COLUMNAS_RENOVACIONES = {
+            "ID Renovación", "ID Contrato", "Fecha Renovación", "Fecha Fin Renovación", "Versión", "Importe"
+    };
+
+    /**
+     * Constructor que usa la fuente de datos de la aplicación.
+     */
+    public ExportacionDAO() {
+        this(DatabaseConnection.getDataSource());
+    }
+
+    /**
+     * Constructor que usa la fuente de datos indicada.
+     *
+     * @param fuenteDatos fuente de datos de la que se obtienen las conexiones; si es una
+     *                    {@link FuenteDatos}, se usan sus conexiones de lectura.
+     */
+    public ExportacionDAO(DataSource fuenteDatos) {
+        this.fuenteDatos = FuenteLecturas.de(fuenteDatos);
+    }
+
+    /**
+     * Recibe cada fila exportada. El array se reutiliza entre filas, por lo que el consumidor
+     * debe copiar los valores que quiera conservar.
+     */
+    public interface ConsumidorFilas {
+        /**
+         * Procesa una fila.
+         *
+         * @param fila Valores de la fila: {@link String}, {@link java.util.Date}, {@link Integer} o {@link Double}.
+         * @throws Exception si el consumidor no puede procesar la fila.
+         */
+        void aceptar(Object[] fila) throws Exception;
+    }
+
+    /**
+     * Filtros de la búsqueda de contratos que se aplican a la exportación.
+     * Cualquiera de ellos puede ser null para no filtrar por ese campo.
+     */
+    public static class Filtro {
+        private final String texto;
+        private final String tipo;
+        private final Date fechaDesde;
+        private final Date fechaHasta;
+
+        /**
+         * @param texto      Texto a buscar en el ID del contrato o en el DNI del cliente.
+         * @param tipo       Tipo de contrato ({@code "Empeno"} o {@code "Compra"}).
+         * @param fechaDesde Fecha de inicio mínima (incluida).
+         * @param fechaHasta Fecha de inicio máxima (incluida, a cualquier hora).
+         */
+        public Filtro(String texto, String tipo, Date fechaDesde, Date fechaHasta) {
+            this.texto = texto;
+            this.tipo = tipo;
+            this.fechaDesde = fechaDesde;
+            this.fechaHasta = fechaHasta;
+        }
+
+        /**
+         * Construye la cláusula WHERE sobre la tabla de contratos con alias {@code c}.
+         *
+         * @param parametros Lista donde se añaden los valores de los parámetros.
+         * @return La cláusula WHERE, o una cadena vacía si no hay filtros.
+         */
+        private String construirWhere(List<Object> parametros) {
+            List<String> condiciones = new ArrayList<>();
+
+            if (texto != null && !texto.isEmpty()) {
+                condiciones.add("(c.id_contrato LIKE ? OR c.dni_cliente LIKE ?)");
+                parametros.add("%" + texto + "%");
+                parametros.add("%" + texto + "%");
+            }
+            if (tipo != null && !tipo.isEmpty()) {
+                condiciones.add("c.tipo = ?");
+                parametros.add(tipo);
+            }
+            if (fechaDesde != null) {
+                condiciones.add("c.fecha_inicio >= ?");
+                parametros.add(fechaDesde);
+            }
+            if (fechaHasta != null) {
+                condiciones.add("c.fecha_inicio < ?");
+                parametros.add(ContratoDAO.diaSiguiente(fechaHasta));
+            }
+
+            return condiciones.isEmpty() ? "" : " WHERE " + String.join(" AND ", condiciones);
+        }
+    }
+
+    /**
+     * Cuenta las filas que se exportarán (contratos, productos y renovaciones) con un filtro.
+     *
+     * @param filtro Filtros de la búsqueda.
+     * @return Número total de filas.
+     */
+    public long contarFilas(Filtro filtro) {
+        List<Object> parametros = new ArrayList<>();
+        String where = filtro.construirWhere(parametros);
+
+        String sql = "SELECT (SELECT COUNT(*) FROM contratos c" + where + ")"
+                + " + (SELECT COUNT(*) FROM productos p JOIN contratos c ON c.id_contrato = p.idContrato" + where + ")"
+                + " + (SELECT COUNT(*) FROM renovaciones r JOIN contratos c ON c.id_contrato = CAST(r.idContrato AS TEXT)" + where + ")";
+
+        try (Connection conn = fuenteDatos.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            int indice = 1;
+            for (int i = 0; i < 3; i++) {
+                indice = asignarParametros(pstmt, parametros, indice);
+            }
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getLong(1);
+                }
+            }
+        } catch (SQLException e) {
+            LOGGER.error("Error al contar las filas a exportar", e);
+        }
+        return 0;
+    }
+
+    /**
+     * Recorre los contratos que cumplen el filtro, ordenados por id.
+     *
+     * @param filtro     Filtros de la búsqueda.
+     * @param consumidor Receptor de cada fila.
+     * @return Número de filas recorridas.
+     * @throws Exception si falla la consulta o el consumidor.
+     */
+    public long recorrerContratos(Filtro filtro, ConsumidorFilas consumidor) throws Exception {
+        String columnas = "c.id_contrato, c.id_pol, c.dni_cliente, c.detalles_contrato, c.fecha_inicio, "
+                + "c.fecha_final, c.tipo, c.rescatado, c.fecha_rescate, c.importe";
+
+        return recorrer(columnas, "contratos c", "c.id", filtro, consumidor, (rs, fila) -> {
+            fila[0] = rs.getString(1);
+            fila[1] = rs.getString(2);
+            fila[2] = rs.getString(3);
+            fila[3] = rs.getString(4);
+            fila[4] = rs.getDate(5);
+            fila[5] = rs.getDate(6);
+            fila[6] = rs.getString(7);
+            fila[7] = rs.getString(8);
+            fila[8] = rs.getDate(9);
+            fila[9] = Dinero.aEuros(rs.getLong(10));
+        }, COLUMNAS_CONTRATOS.length);
+    }
+
+    /**
+     * Recorre los productos de los contratos que cumplen el filtro.
+     *
+     * @param filtro     Filtros de la búsqueda.
+     * @param consumidor Receptor de cada fila.
+     * @return Número de filas recorridas.
+     * @throws Exception si falla la consulta o el consumidor.
+     */
+    public long recorrerProductos(Filtro filtro, ConsumidorFilas consumidor) throws Exception {
+        String columnas = "p.idProducto, p.idContrato, p.cantidad, p.descripcion, p.observaciones, "
+                + "p.peso, p.precioGramo, p.importe";
+
+        return recorrer(columnas, "productos p JOIN contratos c ON c.id_contrato = p.idContrato", "p.idProducto",
+                filtro, consumidor, (rs, fila) -> {
+            fila[0] = rs.getInt(1);
+            fila[1] = rs.getString(2);
+            fila[2] = rs.getInt(3);
+            fila[3] = rs.getString(4);
+            fila[4] = rs.getString(5);
+            fila[5] = rs.getDouble(6);
+            fila[6] = Dinero.aEuros(rs.getLong(7));
+            fila[7] = Dinero.aEuros(rs.getLong(8));
+        }, COLUMNAS_PRODUCTOS.length);
+    }
+
+    /**
+     * Recorre las renovaciones de los contratos que cumplen el filtro.
+     *
+     * @param filtro     Filtros de la búsqueda.
+     * @param consumidor Receptor de cada fila.
+     * @return Número de filas recorridas.
+     * @throws Exception si falla la consulta o el consumidor.
+     */
+    public long recorrerRenovaciones(Filtro filtro, ConsumidorFilas consumidor) throws Exception {
+        String columnas = "r.idRenovacion, r.idContrato, r.fechaRenovacion, r.fechaFinRenovacion, r.version, r.importe";
+
+        return recorrer(columnas, "renovaciones r JOIN contratos c ON c.id_contrato = CAST(r.idContrato AS TEXT)",
+                "r.idRenovacion", filtro, consumidor, (rs, fila) -> {
+            fila[0] = rs.getInt(1);
+            fila[1] = rs.getString(2);
+            fila[2] = rs.getDate(3);
+            fila[3] = rs.getDate(4);
+            fila[4] = rs.getInt(5);
+            fila[5] = Dinero.aEuros(rs.getLong(6));
+        }, COLUMNAS_RENOVACIONES.length);
+    }
+
+    /**
+     * Lee los valores de la fila actual del cursor en el array de la fila.
+     */
+    private interface LectorFila {
+        void leer(ResultSet rs, Object[] fila) throws SQLException;
+    }
+
+    /**
+     * Recorre por páginas una consulta filtrada y entrega cada fila al consumidor. La conexión de
+     * cada página se devuelve antes de entregar sus filas.
+     *
+     * @param columnas Columnas que lee el lector, en su orden.
+     * @param tablas   Cláusula FROM, con la tabla de contratos con alias {@code c}.
+     * @param clave    Columna entera única por la que se ordena y se pagina.
+     */
+    private long recorrer(String columnas, String tablas, String clave, Filtro filtro, ConsumidorFilas consumidor,
+                          LectorFila lector, int numColumnas) throws Exception {
+        List<Object> parametros = new ArrayList<>();
+        String where = filtro.construirWhere(parametros);
+        String sql = "SELECT " + columnas + ", " + clave + " FROM " + tablas
+                + (where.isEmpty() ? " WHERE " : where + " AND ") + clave + " > ?"
+                + " ORDER BY " + clave + " LIMIT " + TAMANO_PAGINA;
+        Object[][] pagina = new Object[TAMANO_PAGINA][numColumnas];
+        long ultimaClave = Long.MIN_VALUE;
+        long filas = 0;
+        int leidas;
+
+        do {
+            leidas = 0;
+            try (Connection conn = fuenteDatos.getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+                int indice = asignarParametros(pstmt, parametros, 1);
+                pstmt.setLong(indice, ultimaClave);
+
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        lector.leer(rs, pagina[leidas++]);
+                        ultimaClave = rs.getLong(numColumnas + 1);
+                    }
+                }
+            }
+
+            for (int i = 0; i < leidas; i++) {
+                consumidor.aceptar(pagina[i]);
+            }
+            filas += leidas;
+        } while (leidas == TAMANO_PAGINA);
+
+        return filas;
+    }
+
+    /**
+     * Asigna los parámetros del filtro a partir de un índice.
+     *
+     * @return El siguiente índice libre.
+     */
+    private int asignarParametros(PreparedStatement pstmt, List<Object> parametros, int indice) throws SQLException {
+        for (Object parametro : parametros) {
+            if (parametro instanceof Date) {
+                pstmt.setDate(indice++, (Date) parametro);
+            } else {
+                pstmt.setString(indice++, (String) parametro);
+            }
+        }
+        return indice;
+    }
+}
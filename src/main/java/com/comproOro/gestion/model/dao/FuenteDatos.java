@@ -0,0 +1,278 @@
+package com.comproOro.gestion.model.dao;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.sql.DataSource;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Origen de conexiones SQLite que se pasa a los DAO por constructor. Puede apuntar a un archivo,
+ * a una base de datos en memoria compartida o a un archivo temporal que se borra al cerrarla;
+ * las dos últimas sirven para que cada prueba tenga su propia base de datos aislada.
+ *
+ * <p>Todas las conexiones que entrega se cuentan (creadas y abiertas) y el tiempo de apertura
+ * queda en {@link Metricas}. Cada una espera {@link Reintentos#BUSY_TIMEOUT_MS} a que otro puesto
+ * libere el archivo antes de fallar por base de datos ocupada.</p>
+ *
+ * <p>Los archivos usan el diario de SQLite por defecto, que funciona con el archivo en una carpeta
+ * de red compartida por varios puestos. Con {@code -Dcomprooro.db.wal=true} se abren en modo WAL y
+ * las lecturas de {@link #lecturas()} no impiden confirmar a los puestos, pero entonces todos los
+ * puestos deben abrir el archivo desde el mismo equipo. Con el diario normal una lectura abierta
+ * sí impide confirmar, y las lecturas largas se hacen por páginas (ver {@link FuenteLecturas}).</p>
+ */
+public class FuenteDatos implements DataSource, AutoCloseable {
+
+    private static final Logger LOGGER = LogManager.getLogger(FuenteDatos.class);
+
+    private static final AtomicInteger BASES_EN_MEMORIA = new AtomicInteger();
+
+    /** Si los archivos se abren en modo WAL. No sirve con el archivo en una carpeta de red. */
+    public static final boolean WAL = Boolean.getBoolean("comprooro.db.wal");
+
+    /** Totales de todas las fuentes de datos, para el diagnóstico. */
+    private static final AtomicLong TOTAL_CREADAS = new AtomicLong();
+    private static final AtomicLong TOTAL_ABIERTAS = new AtomicLong();
+
+    private final String url;
+    private final Properties propiedades = new Properties();
+    private final File temporal;
+    private final boolean wal;
+    private final AtomicLong creadas = new AtomicLong();
+    private final AtomicLong abiertas = new AtomicLong();
+
+    /**
+     * Conexión que se mantiene abierta mientras viva la fuente; una base de datos en memoria
+     * desaparece en cuanto se cierra su última conexión.
+     */
+    private Connection ancla;
+
+    /** Conexiones de solo lectura, creadas la primera vez que se piden. */
+    private FuenteLecturas lecturas;
+
+    private FuenteDatos(String url, File temporal, boolean wal) {
+        this.url = url;
+        this.temporal = temporal;
+        this.wal = wal;
+        propiedades.setProperty("busy_timeout", String.valueOf(Reintentos.BUSY_TIMEOUT_MS));
+        if (wal) {
+            propiedades.setProperty("journal_mode", "WAL");
+        }
+    }
+
+    /**
+     * Crea una fuente de datos sobre un archivo SQLite, que se crea si no existe.
+     *
+     * @param ruta ruta del archivo de base de datos.
+     * @return la fuente de datos.
+     */
+    public static FuenteDatos archivo(String ruta) {
+        return new FuenteDatos("jdbc:sqlite:" + ruta, null, WAL);
+    }
+
+    /**
+     * Crea una base de datos vacía en memoria, compartida por todas las conexiones de esta fuente
+     * y distinta de las de cualquier otra. Desaparece al cerrar la fuente.
+     *
+     * @return la fuente de datos.
+     * @throws SQLException si no se puede abrir la base de datos.
+     */
+    public static FuenteDatos memoria() throws SQLException {
+        String nombre = "comprooro-" + BASES_EN_MEMORIA.incrementAndGet();
+        FuenteDatos fuente = new FuenteDatos("jdbc:sqlite:file:" + nombre + "?mode=memory&cache=shared", null, false);
+        fuente.ancla = DriverManager.getConnection(fuente.url);
+        return fuente;
+    }
+
+    /**
+     * Crea una base de datos vacía en un archivo temporal que se borra al cerrar la fuente.
+     * A diferencia de {@link #memoria()}, admite lecturas y escrituras simultáneas desde
+     * varias conexiones igual que el archivo de la tienda, con su mismo modo de diario.
+     *
+     * @return la fuente de datos.
+     * @throws IOException si no se puede crear el archivo.
+     */
+    public static FuenteDatos temporal() throws IOException {
+        return temporal(WAL);
+    }
+
+    /**
+     * Como {@link #temporal()}, eligiendo si se abre en modo WAL.
+     */
+    static FuenteDatos temporal(boolean wal) throws IOException {
+        File archivo = File.createTempFile("comprooro", ".db");
+        archivo.deleteOnExit();
+        return new FuenteDatos("jdbc:sqlite:" + archivo.getAbsolutePath(), archivo, wal);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        long inicio = System.nanoTime();
+        Connection conexion = contar(DriverManager.getConnection(url, propiedades));
+        LOGGER.debug("Conexión establecida con la base de datos SQLite en: {}", url);
+        Metricas.registrar("FuenteDatos.getConnection", inicio);
+        return conexion;
+    }
+
+    @Override
+    public Connection getConnection(String usuario, String clave) throws SQLException {
+        return getConnection();
+    }
+
+    /**
+     * Devuelve las conexiones de solo lectura de esta fuente, para informes y exportaciones
+     * largas. Ver {@link FuenteLecturas}.
+     *
+     * @return la fuente de lecturas, siempre la misma.
+     */
+    public synchronized FuenteLecturas lecturas() {
+        if (lecturas == null) {
+            lecturas = new FuenteLecturas(this, FuenteLecturas.CONEXIONES, FuenteLecturas.ESPERA_MS,
+                    wal ? FuenteLecturas.DURACION_MAXIMA_MS : FuenteLecturas.DURACION_MAXIMA_DIARIO_MS);
+        }
+        return lecturas;
+    }
+
+    /**
+     * Cierra las conexiones de lectura libres, la conexión que mantiene viva una base de datos en
+     * memoria y borra el archivo temporal, si lo hay.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (lecturas != null) {
+                lecturas.close();
+            }
+        }
+        if (ancla != null) {
+            try {
+                ancla.close();
+            } catch (SQLException e) {
+                LOGGER.warn("Error al cerrar la base de datos en memoria {}", url, e);
+            }
+            ancla = null;
+        }
+        if (temporal != null) {
+            if (!temporal.delete()) {
+                LOGGER.warn("No se pudo borrar la base de datos temporal {}", temporal);
+            }
+            // Archivos auxiliares del modo WAL, si quedaron.
+            new File(temporal.getPath() + "-wal").delete();
+            new File(temporal.getPath() + "-shm").delete();
+        }
+    }
+
+    /**
+     * @return true si la base de datos se abre en modo WAL, de modo que leer no impide confirmar.
+     */
+    public boolean isWal() {
+        return wal;
+    }
+
+    /**
+     * @return Conexiones de esta fuente que todavía no se han cerrado.
+     */
+    public long getConexionesAbiertas() {
+        return abiertas.get();
+    }
+
+    /**
+     * @return Conexiones abiertas por esta fuente desde que se creó.
+     */
+    public long getConexionesCreadas() {
+        return creadas.get();
+    }
+
+    /**
+     * @return Conexiones de todas las fuentes de datos que todavía no se han cerrado.
+     */
+    public static long getTotalConexionesAbiertas() {
+        return TOTAL_ABIERTAS.get();
+    }
+
+    /**
+     * @return Conexiones abiertas por todas las fuentes de datos desde el arranque.
+     */
+    public static long getTotalConexionesCreadas() {
+        return TOTAL_CREADAS.get();
+    }
+
+    /**
+     * Envuelve la conexión para descontarla de las conexiones abiertas cuando se cierre.
+     * El resto de llamadas pasan directamente a la conexión original.
+     */
+    private Connection contar(Connection conexion) {
+        creadas.incrementAndGet();
+        abiertas.incrementAndGet();
+        TOTAL_CREADAS.incrementAndGet();
+        TOTAL_ABIERTAS.incrementAndGet();
+        AtomicBoolean cerrada = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(FuenteDatos.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, metodo, args) -> {
+                    if ("close".equals(metodo.getName()) && cerrada.compareAndSet(false, true)) {
+                        abiertas.decrementAndGet();
+                        TOTAL_ABIERTAS.decrementAndGet();
+                    }
+                    try {
+                        return metodo.invoke(conexion, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    @Override
+    public String toString() {
+        return url;
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return DriverManager.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+        DriverManager.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+        DriverManager.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return DriverManager.getLoginTimeout();
+    }
+
+    @Override
+    public java.util.logging.Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("FuenteDatos no envuelve " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+}
@@ -0,0 +1,326 @@
+package com.comproOro.gestion.model.dao;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Conexiones de solo lectura para informes, exportaciones y el listado completo de contratos.
+ * Salen de una {@link FuenteDatos} pero forman un grupo pequeño aparte, de modo que una
+ * exportación de varios minutos no ocupa las conexiones con las que los puestos guardan.
+ *
+ * <p>Cada conexión tiene {@code PRAGMA query_only} activo, así que cualquier escritura falla.
+ * Si la fuente está en modo WAL ({@link FuenteDatos#isWal()}), cada consulta lee una foto fija de
+ * los datos confirmados al empezar y no impide que otro puesto confirme mientras tanto. Con el
+ * diario normal, mientras una consulta está abierta ningún puesto puede confirmar: espera
+ * {@link Reintentos#BUSY_TIMEOUT_MS} en cada intento y, si la lectura sigue abierta tras todos
+ * los intentos, el guardado falla. Por eso las lecturas largas se hacen por páginas cortas que
+ * devuelven la conexión entre una y otra ({@link ExportacionDAO}, {@link LibroRegistroDAO}), y
+ * con el diario normal la duración máxima es {@link #DURACION_MAXIMA_DIARIO_MS}, menos de lo que
+ * esperan los puestos.</p>
+ *
+ * <p>Como mucho hay {@link #CONEXIONES} lecturas a la vez; las demás esperan
+ * {@link #ESPERA_MS} ms a que quede una libre. Una lectura que dura más de la duración máxima
+ * se interrumpe: su consulta falla y la conexión se descarta.
+ * Al cerrar la conexión se deshace la transacción que hubiera abierta, para soltar la foto, y
+ * vuelve al grupo.</p>
+ */
+public class FuenteLecturas implements DataSource, AutoCloseable {
+
+    private static final Logger LOGGER = LogManager.getLogger(FuenteLecturas.class);
+
+    /** Lecturas simultáneas de cada fuente de datos. */
+    public static final int CONEXIONES = Integer.getInteger("comprooro.db.lecturas", 3);
+
+    /** Milisegundos que una lectura espera a que quede libre una conexión. */
+    public static final long ESPERA_MS = Long.getLong("comprooro.db.lecturas.esperaMs", 30_000);
+
+    /** Milisegundos que puede durar una lectura en modo WAL antes de interrumpirla. */
+    public static final long DURACION_MAXIMA_MS = Long.getLong("comprooro.db.lecturas.maximaMs", 15 * 60_000);
+
+    /**
+     * Milisegundos que puede durar una lectura con el diario normal, en el que impide confirmar a
+     * los puestos. Es la mitad de lo que un puesto espera entre todos sus intentos.
+     */
+    public static final long DURACION_MAXIMA_DIARIO_MS = Long.getLong("comprooro.db.lecturas.maximaDiarioMs",
+            (long) Reintentos.BUSY_TIMEOUT_MS * Reintentos.MAX_INTENTOS / 2);
+
+    /** Hilo que interrumpe las lecturas que superan la duración máxima. */
+    private static final ScheduledExecutorService VIGILANTE = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread hilo = new Thread(r, "comprooro-lecturas");
+        hilo.setDaemon(true);
+        return hilo;
+    });
+
+    /** Totales de todas las fuentes de lecturas, para el diagnóstico. */
+    private static final AtomicLong EN_CURSO = new AtomicLong();
+    private static final LongAdder CORTADAS = new LongAdder();
+
+    private final FuenteDatos fuenteDatos;
+    private final long esperaMs;
+    private final long duracionMaximaMs;
+    private final Semaphore permisos;
+    private final Deque<Connection> libres = new ConcurrentLinkedDeque<>();
+    private volatile boolean cerrada;
+
+    /**
+     * @param fuenteDatos      fuente de la que se abren las conexiones.
+     * @param conexiones       lecturas simultáneas.
+     * @param esperaMs         milisegundos de espera a que quede libre una conexión.
+     * @param duracionMaximaMs milisegundos que puede durar una lectura.
+     */
+    FuenteLecturas(FuenteDatos fuenteDatos, int conexiones, long esperaMs, long duracionMaximaMs) {
+        this.fuenteDatos = fuenteDatos;
+        this.esperaMs = esperaMs;
+        this.duracionMaximaMs = duracionMaximaMs;
+        this.permisos = new Semaphore(conexiones, true);
+    }
+
+    /**
+     * @param fuenteDatos fuente de datos de un DAO.
+     * @return sus conexiones de lectura si es una {@link FuenteDatos}; si no, la misma fuente.
+     */
+    static DataSource de(DataSource fuenteDatos) {
+        if (fuenteDatos instanceof FuenteDatos) {
+            return ((FuenteDatos) fuenteDatos).lecturas();
+        }
+        return fuenteDatos;
+    }
+
+    /**
+     * Entrega una conexión de lectura, esperando a que quede una libre.
+     *
+     * @throws SQLException si no queda ninguna libre a tiempo o no se puede abrir.
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (cerrada) {
+            throw new SQLException("La fuente de lecturas está cerrada");
+        }
+        long inicio = System.nanoTime();
+        try {
+            if (!permisos.tryAcquire(esperaMs, TimeUnit.MILLISECONDS)) {
+                throw new SQLException("No hay ninguna conexión de lectura libre tras " + esperaMs + " ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Espera de una conexión de lectura interrumpida", e);
+        }
+        Metricas.registrar("FuenteLecturas.espera", inicio);
+
+        try {
+            Connection conexion = libres.pollFirst();
+            if (conexion == null || conexion.isClosed()) {
+                conexion = abrir();
+            }
+            return prestar(conexion);
+        } catch (SQLException | RuntimeException e) {
+            permisos.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String usuario, String clave) throws SQLException {
+        return getConnection();
+    }
+
+    /**
+     * Cierra las conexiones libres. Las que estén prestadas se cierran al devolverlas.
+     */
+    @Override
+    public void close() {
+        cerrada = true;
+        Connection conexion;
+        while ((conexion = libres.pollFirst()) != null) {
+            cerrar(conexion);
+        }
+    }
+
+    /**
+     * @return Lecturas de todas las fuentes que todavía no han terminado.
+     */
+    public static long getLecturasEnCurso() {
+        return EN_CURSO.get();
+    }
+
+    /**
+     * @return Lecturas interrumpidas por superar la duración máxima.
+     */
+    public static long getLecturasCortadas() {
+        return CORTADAS.sum();
+    }
+
+    /**
+     * Pone a cero las lecturas interrumpidas.
+     */
+    public static void reiniciar() {
+        CORTADAS.reset();
+    }
+
+    private Connection abrir() throws SQLException {
+        Connection conexion = fuenteDatos.getConnection();
+        try (Statement stmt = conexion.createStatement()) {
+            stmt.execute("PRAGMA query_only = 1");
+        } catch (SQLException e) {
+            cerrar(conexion);
+            throw e;
+        }
+        return conexion;
+    }
+
+    /**
+     * Envuelve la conexión para devolverla al grupo al cerrarla. Guarda las sentencias que se
+     * crean con ella para poder interrumpirlas si la lectura dura demasiado.
+     */
+    private Connection prestar(Connection conexion) {
+        long inicio = System.nanoTime();
+        List<Statement> sentencias = new CopyOnWriteArrayList<>();
+        AtomicBoolean devuelta = new AtomicBoolean();
+        AtomicBoolean cortada = new AtomicBoolean();
+        EN_CURSO.incrementAndGet();
+        ScheduledFuture<?> corte = VIGILANTE.schedule(() -> {
+            if (!devuelta.get() && cortada.compareAndSet(false, true)) {
+                cortar(sentencias);
+            }
+        }, duracionMaximaMs, TimeUnit.MILLISECONDS);
+
+        return (Connection) Proxy.newProxyInstance(FuenteLecturas.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, metodo, args) -> {
+                    String nombre = metodo.getName();
+                    if ("close".equals(nombre)) {
+                        if (devuelta.compareAndSet(false, true)) {
+                            corte.cancel(false);
+                            EN_CURSO.decrementAndGet();
+                            devolver(conexion, sentencias, cortada.get());
+                            Metricas.registrar("FuenteLecturas.lectura", inicio);
+                        }
+                        return null;
+                    }
+                    if ("isClosed".equals(nombre)) {
+                        return devuelta.get();
+                    }
+                    if (devuelta.get()) {
+                        throw new SQLException("La conexión de lectura ya se ha devuelto");
+                    }
+                    try {
+                        Object resultado = metodo.invoke(conexion, args);
+                        if (resultado instanceof Statement) {
+                            sentencias.add((Statement) resultado);
+                        }
+                        return resultado;
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    private void cortar(List<Statement> sentencias) {
+        CORTADAS.increment();
+        LOGGER.warn("Lectura interrumpida por durar más de {} ms", duracionMaximaMs);
+        for (Statement sentencia : sentencias) {
+            try {
+                sentencia.cancel();
+            } catch (SQLException e) {
+                LOGGER.debug("No se pudo interrumpir la consulta", e);
+            }
+        }
+    }
+
+    /**
+     * Cierra las sentencias que hayan quedado abiertas y deshace la transacción de lectura, de
+     * modo que la conexión vuelva al grupo sin retener ninguna foto de los datos.
+     */
+    private void devolver(Connection conexion, List<Statement> sentencias, boolean cortada) {
+        try {
+            for (Statement sentencia : sentencias) {
+                sentencia.close();
+            }
+            if (!conexion.getAutoCommit()) {
+                conexion.rollback();
+                conexion.setAutoCommit(true);
+            }
+            if (cortada || cerrada) {
+                cerrar(conexion);
+            } else {
+                libres.offerFirst(conexion);
+            }
+        } catch (SQLException e) {
+            LOGGER.warn("Conexión de lectura descartada al devolverla", e);
+            cerrar(conexion);
+        } finally {
+            permisos.release();
+        }
+    }
+
+    private static void cerrar(Connection conexion) {
+        try {
+            conexion.close();
+        } catch (SQLException e) {
+            LOGGER.warn("Error al cerrar una conexión de lectura", e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return fuenteDatos + " (lecturas)";
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return fuenteDatos.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+        fuenteDatos.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+        fuenteDatos.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return fuenteDatos.getLoginTimeout();
+    }
+
+    @Override
+    public java.util.logging.Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("FuenteLecturas no envuelve " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+}
@@ -0,0 +1,369 @@
+package com.comproOro.gestion.model.dao;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import com.comproOro.gestion.model.modelos.Cliente;
+import com.comproOro.gestion.model.modelos.Contrato;
+import com.comproOro.gestion.model.modelos.Dinero;
+import com.comproOro.gestion.model.modelos.Producto;
+import com.comproOro.gestion.model.modelos.Renovacion;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Generador de datos sintéticos para pruebas de carga y de escala. Rellena una base de datos
+ * SQLite con el mismo esquema que crean los DAO: clientes con DNI válido, contratos de empeño y
+ * compra repartidos en el tiempo (con y sin póliza), varios productos por contrato y cadenas de
+ * renovaciones mensuales de los empeños, que acaban rescatados, vencidos o todavía en vigor.
+ *
+ * <p>Las filas se insertan con {@link ImportacionDAO} en transacciones por lotes, por lo que un
+ * millón de contratos se genera en pocos minutos. Con la misma semilla se obtienen siempre los
+ * mismos datos.</p>
+ *
+ * <p>Uso desde línea de comandos (todos los parámetros son opcionales):</p>
+ * <pre>
+ * java -cp gestion.jar com.comproOro.gestion.model.dao.GeneradorDatos \
+ *      archivo=carga.db contratos=1000000 clientes=200000 productos=4 anos=5 semilla=42
+ * </pre>
+ */
+public class GeneradorDatos {
+
+    private static final Logger LOGGER = LogManager.getLogger(GeneradorDatos.class);
+
+    private static final String LETRAS_DNI = "TRWAGMYFPDXBNJZSQVHLCKE";
+
+    private static final String[] NOMBRES = {"Antonio", "Manuel", "José", "Francisco", "David", "Juan", "Javier",
+            "Daniel", "Carlos", "Miguel", "María", "Carmen", "Ana", "Isabel", "Laura", "Cristina", "Marta",
+            "Lucía", "Pilar", "Rosa", "Elena", "Paula", "Sara", "Raquel"};
+
+    private static final String[] APELLIDOS = {"García", "Rodríguez", "González", "Fernández", "López", "Martínez",
+            "Sánchez", "Pérez", "Gómez", "Martín", "Jiménez", "Ruiz", "Hernández", "Díaz", "Moreno", "Muñoz",
+            "Álvarez", "Romero", "Alonso", "Gutiérrez", "Navarro", "Torres", "Domínguez", "Vázquez"};
+
+    private static final String[] POBLACIONES = {"Madrid", "Alcalá de Henares", "Getafe", "Leganés", "Móstoles",
+            "Fuenlabrada", "Alcorcón", "Parla", "Torrejón de Ardoz", "Alcobendas", "Toledo", "Guadalajara"};
+
+    private static final String[] CALLES = {"Calle Mayor", "Avenida de la Constitución", "Calle Real",
+            "Plaza de España", "Calle Alcalá", "Calle del Carmen", "Avenida de Madrid", "Calle Toledo"};
+
+    private static final String[] PIEZAS = {"Anillo", "Alianza", "Cadena", "Pulsera", "Esclava", "Pendientes",
+            "Medalla", "Colgante", "Sortija", "Cordón", "Reloj", "Gemelos"};
+
+    private static final String[] OBSERVACIONES = {"", "", "", "Oro 18k", "Oro 14k", "Con piedra", "Roto",
+            "Grabado", "Oro blanco"};
+
+    /** Probabilidad de que un empeño se renueve una vez más. */
+    private static final double PROBABILIDAD_RENOVAR = 0.55;
+
+    /** Máximo de renovaciones de un mismo empeño. */
+    private static final int MAXIMO_RENOVACIONES = 24;
+
+    private final DataSource fuenteDatos;
+
+    private int clientes = 20000;
+    private int contratos = 100000;
+    private int productosMaximos = 4;
+    private int anos = 5;
+    private double proporcionEmpenos = 0.6;
+    private double proporcionPolizas = 0.3;
+    private long semilla = 42L;
+
+    /**
+     * Crea un generador que escribe en la base de datos de la aplicación.
+     */
+    public GeneradorDatos() {
+        this(DatabaseConnection.getDataSource());
+    }
+
+    /**
+     * Crea un generador que escribe en la fuente de datos indicada.
+     *
+     * @param fuenteDatos fuente de datos donde se generan las filas.
+     */
+    public GeneradorDatos(DataSource fuenteDatos) {
+        this.fuenteDatos = fuenteDatos;
+    }
+
+    /**
+     * Genera los datos en la fuente de datos del generador.
+     * Crea las tablas si no existen y, al terminar, reconstruye el resumen de operaciones.
+     *
+     * @return los totales de filas generadas.
+     * @throws SQLException si falla alguna inserción.
+     */
+    public Resultado generar() throws SQLException {
+        // Los constructores de los DAO crean las tablas y los índices, así el esquema es el mismo.
+        new ClienteDAO(fuenteDatos);
+        new ContratoDAO(fuenteDatos);
+        new ProductoDAO(fuenteDatos);
+        new RenovacionDAO(fuenteDatos).close();
+
+        SplittableRandom aleatorio = new SplittableRandom(semilla);
+        Resultado resultado = new Resultado();
+        long inicio = System.nanoTime();
+
+        try (ImportacionDAO importacionDAO = new ImportacionDAO(fuenteDatos)) {
+            String[] dnis = new String[clientes];
+            for (int i = 0; i < clientes; i++) {
+                dnis[i] = generarDni(i);
+                importacionDAO.anadirCliente(generarCliente(dnis[i], aleatorio));
+                resultado.clientes++;
+            }
+
+            LocalDate hoy = LocalDate.now();
+            LocalDate primerDia = hoy.minusYears(anos);
+            long dias = ChronoUnit.DAYS.between(primerDia, hoy) + 1;
+            Map<String, Integer> numeradores = new HashMap<>();
+
+            for (int i = 0; i < contratos; i++) {
+                // Los contratos se reparten por orden cronológico, como se dan de alta en la tienda.
+                LocalDate fecha = primerDia.plusDays(i * dias / contratos);
+                boolean empeno = aleatorio.nextDouble() < proporcionEmpenos;
+                String ano = String.valueOf(fecha.getYear());
+
+                Contrato contrato = new Contrato();
+                contrato.setTipo(empeno ? "Empeno" : "Compra");
+                contrato.setIdContrato((empeno ? "E-" : "C-") + ano
+                        + String.format("%04d", numeradores.merge(contrato.getTipo() + ano, 1, Integer::sum)));
+                if (aleatorio.nextDouble() < proporcionPolizas) {
+                    contrato.setIdPol("P-" + ano + String.format("%04d", numeradores.merge("P" + ano, 1, Integer::sum)));
+                }
+                contrato.setDniCliente(dnis[elegirCliente(aleatorio)]);
+                contrato.setDetallesContrato(empeno ? "Empeño de joyas" : "Compra de oro");
+                contrato.setFechaInicio(aDate(fecha));
+                contrato.setFechaFinal(empeno ? aDate(fecha.plusMonths(1)) : null);
+                contrato.setRescatado("N");
+
+                int numeroProductos = 1 + aleatorio.nextInt(Math.max(1, productosMaximos));
+                long importe = 0;
+                for (int p = 0; p < numeroProductos; p++) {
+                    Producto producto = generarProducto(contrato.getIdContrato(), aleatorio);
+                    importe += producto.getImporteCentimos();
+                    importacionDAO.anadirProducto(producto);
+                    resultado.productos++;
+                }
+                contrato.setImporteCentimos(importe);
+
+                if (empeno) {
+                    resultado.renovaciones += generarRenovaciones(importacionDAO, contrato, fecha, hoy, aleatorio);
+                }
+
+                importacionDAO.anadirContrato(contrato);
+                resultado.contratos++;
+
+                if ((i + 1) % 100000 == 0) {
+                    LOGGER.info("{} contratos generados", i + 1);
+                }
+            }
+        }
+
+        new ResumenDAO(fuenteDatos).reconstruirResumen();
+        resultado.milisegundos = (System.nanoTime() - inicio) / 1_000_000L;
+        LOGGER.info("Datos generados: {}", resultado);
+        return resultado;
+    }
+
+    /**
+     * Añade la cadena de renovaciones mensuales de un empeño y decide si acaba rescatado.
+     * Cada renovación empieza cuando vence la anterior y cuesta el 10 % del importe del contrato.
+     *
+     * @return el número de renovaciones añadidas.
+     */
+    private int generarRenovaciones(ImportacionDAO importacionDAO, Contrato contrato, LocalDate fecha,
+                                    LocalDate hoy, SplittableRandom aleatorio) throws SQLException {
+        LocalDate vencimiento = fecha.plusMonths(1);
+        int version = 0;
+        while (version < MAXIMO_RENOVACIONES && !vencimiento.isAfter(hoy)
+                && aleatorio.nextDouble() < PROBABILIDAD_RENOVAR) {
+            version++;
+            LocalDate fin = vencimiento.plusMonths(1);
+            importacionDAO.anadirRenovacion(new Renovacion(0, contrato.getIdContrato(), vencimiento, fin,
+                    version, Dinero.aEuros(Dinero.multiplicar(contrato.getImporteCentimos(), 0.10))));
+            vencimiento = fin;
+        }
+
+        // Los empeños ya vencidos se rescatan casi siempre; el resto sigue en vigor.
+        if (vencimiento.isBefore(hoy) && aleatorio.nextDouble() < 0.85) {
+            long margen = Math.max(1, ChronoUnit.DAYS.between(fecha, vencimiento));
+            contrato.setRescatado("S");
+            contrato.setFechaRescate(aDate(vencimiento.minusDays(aleatorio.nextLong(Math.min(margen, 30)))));
+        }
+        return version;
+    }
+
+    /**
+     * Elige un cliente dando más peso a los primeros, para que haya clientes habituales con
+     * muchos contratos y otros con uno solo.
+     */
+    private int elegirCliente(SplittableRandom aleatorio) {
+        double r = aleatorio.nextDouble();
+        return (int) (clientes * r * r);
+    }
+
+    private Cliente generarCliente(String dni, SplittableRandom aleatorio) {
+        return new Cliente(dni,
+                elegir(NOMBRES, aleatorio),
+                elegir(APELLIDOS, aleatorio) + " " + elegir(APELLIDOS, aleatorio),
+                elegir(POBLACIONES, aleatorio),
+                String.valueOf(600000000 + aleatorio.nextInt(100000000)),
+                elegir(CALLES, aleatorio) + " " + (1 + aleatorio.nextInt(150)));
+    }
+
+    private Producto generarProducto(String idContrato, SplittableRandom aleatorio) {
+        int cantidad = aleatorio.nextDouble() < 0.8 ? 1 : 2 + aleatorio.nextInt(3);
+        double peso = redondear(0.5 + aleatorio.nextDouble() * 40 * cantidad);
+        double precioGramo = redondear(25 + aleatorio.nextDouble() * 35);
+        return new Producto(0, cantidad, elegir(PIEZAS, aleatorio), elegir(OBSERVACIONES, aleatorio),
+                peso, precioGramo, redondear(peso * precioGramo), idContrato);
+    }
+
+    /**
+     * Genera un DNI distinto para cada índice, con su letra de control correcta.
+     */
+    static String generarDni(int indice) {
+        int numero = 10000000 + (int) ((indice * 7919L) % 89999999L);
+        return numero + String.valueOf(LETRAS_DNI.charAt(numero % 23));
+    }
+
+    private static String elegir(String[] valores, SplittableRandom aleatorio) {
+        return valores[aleatorio.nextInt(valores.length)];
+    }
+
+    private static double redondear(double valor) {
+        return Math.round(valor * 100) / 100.0;
+    }
+
+    private static Date aDate(LocalDate fecha) {
+        return Date.from(fecha.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
+    public void setClientes(int clientes) {
+        this.clientes = clientes;
+    }
+
+    public void setContratos(int contratos) {
+        this.contratos = contratos;
+    }
+
+    public void setProductosMaximos(int productosMaximos) {
+        this.productosMaximos = productosMaximos;
+    }
+
+    public void setAnos(int anos) {
+        this.anos = anos;
+    }
+
+    public void setProporcionEmpenos(double proporcionEmpenos) {
+        this.proporcionEmpenos = proporcionEmpenos;
+    }
+
+    public void setProporcionPolizas(double proporcionPolizas) {
+        this.proporcionPolizas = proporcionPolizas;
+    }
+
+    public void setSemilla(long semilla) {
+        this.semilla = semilla;
+    }
+
+    /**
+     * Totales de una generación.
+     */
+    public static class Resultado {
+        private long clientes;
+        private long contratos;
+        private long productos;
+        private long renovaciones;
+        private long milisegundos;
+
+        public long getClientes() {
+            return clientes;
+        }
+
+        public long getContratos() {
+            return contratos;
+        }
+
+        public long getProductos() {
+            return productos;
+        }
+
+        public long getRenovaciones() {
+            return renovaciones;
+        }
+
+        public long getMilisegundos() {
+            return milisegundos;
+        }
+
+        @Override
+        public String toString() {
+            return clientes + " clientes, " + contratos + " contratos, " + productos + " productos y "
+                    + renovaciones + " renovaciones en " + milisegundos / 1000.0 + " s";
+        }
+    }
+
+    /**
+     * Punto de entrada para generar una base de datos desde línea de comandos. Acepta parámetros
+     * {@code clave=valor}: archivo, clientes, contratos, productos, anos, empenos, polizas y semilla.
+     * Si no se indica archivo se usa la base de datos configurada. El resumen de lo generado queda
+     * en el registro, como el resto de mensajes de la aplicación.
+     */
+    public static void main(String[] args) throws SQLException {
+        // El archivo se busca primero porque determina la fuente de datos del generador.
+        GeneradorDatos generador = new GeneradorDatos();
+        for (String argumento : args) {
+            if (argumento.startsWith("archivo=")) {
+                generador = new GeneradorDatos(FuenteDatos.archivo(argumento.substring("archivo=".length())));
+            }
+        }
+        boolean clientesIndicados = false;
+        for (String argumento : args) {
+            int igual = argumento.indexOf('=');
+            if (igual < 0) {
+                throw new IllegalArgumentException("Parámetro no válido, se esperaba clave=valor: " + argumento);
+            }
+            String clave = argumento.substring(0, igual);
+            String valor = argumento.substring(igual + 1);
+            switch (clave) {
+                case "archivo":
+                    break;
+                case "clientes":
+                    generador.setClientes(Integer.parseInt(valor));
+                    clientesIndicados = true;
+                    break;
+                case "contratos":
+                    generador.setContratos(Integer.parseInt(valor));
+                    break;
+                case "productos":
+                    generador.setProductosMaximos(Integer.parseInt(valor));
+                    break;
+                case "anos":
+                    generador.setAnos(Integer.parseInt(valor));
+                    break;
+                case "empenos":
+                    generador.setProporcionEmpenos(Double.parseDouble(valor));
+                    break;
+                case "polizas":
+                    generador.setProporcionPolizas(Double.parseDouble(valor));
+                    break;
+                case "semilla":
+                    generador.setSemilla(Long.parseLong(valor));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Parámetro desconocido: " + clave);
+            }
+        }
+        if (!clientesIndicados) {
+            generador.setClientes(Math.max(1, generador.contratos / 5));
+        }
+        generador.generar();
+    }
+}
@@ -0,0 +1,245 @@
+package com.comproOro.gestion.model.dao;
+
+import com.comproOro.gestion.model.modelos.Cliente;
+import com.comproOro.gestion.model.modelos.Contrato;
+import com.comproOro.gestion.model.modelos.Producto;
+import com.comproOro.gestion.model.modelos.Renovacion;
+
+import java.sql.*;
+import javax.sql.DataSource;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Clase DAO para la importación masiva de clientes, contratos, productos y renovaciones.
+ * Usa una única conexión con las inserciones preparadas una sola vez, acumula las filas en lotes
+ * JDBC y confirma una transacción cada {@link #TAMANO_LOTE} filas. Los contratos conservan su
+ * id_contrato e id_pol originales; los productos y renovaciones reciben ids nuevos.
+ * <p>
+ * La validación de las filas (duplicados, clientes y contratos inexistentes) corresponde a quien
+ * llama: si una inserción falla se deshace el lote en curso y los anteriores quedan guardados.
+ */
+public class ImportacionDAO implements AutoCloseable {
+
+    /** Número de filas que se confirman en cada transacción. */
+    public static final int TAMANO_LOTE = 5000;
+
+    private final Connection connection;
+    private final PreparedStatement insertCliente;
+    private final PreparedStatement insertContrato;
+    private final PreparedStatement insertProducto;
+    private final PreparedStatement insertRenovacion;
+
+    /** Filas añadidas al lote en curso. */
+    private int pendientes;
+
+    /** Filas confirmadas en total. */
+    private long confirmadas;
+
+    /**
+     * Abre la conexión y prepara las inserciones.
+     *
+     * @throws SQLException si no se puede abrir la conexión o preparar las sentencias.
+     */
+    public ImportacionDAO() throws SQLException {
+        this(DatabaseConnection.getDataSource());
+    }
+
+    /**
+     * Abre una conexión de la fuente de datos indicada y prepara las inserciones.
+     *
+     * @param fuenteDatos fuente de datos de la que se obtienen las conexiones.
+     * @throws SQLException si no se puede abrir la conexión o preparar las sentencias.
+     */
+    public ImportacionDAO(DataSource fuenteDatos) throws SQLException {
+        this.connection = fuenteDatos.getConnection();
+        try {
+            connection.setAutoCommit(false);
+            insertCliente = connection.prepareStatement(
+                    "INSERT INTO clientes (dni, nombre, apellido, poblacion, telefono, direccion) VALUES (?, ?, ?, ?, ?, ?)");
+            insertContrato = connection.prepareStatement(
+                    "INSERT INTO contratos (id_contrato, id_pol, dni_cliente, detalles_contrato, fecha_inicio, fecha_final, "
+                            + "tipo, rescatado, fecha_rescate, importe) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+            insertProducto = connection.prepareStatement(
+                    "INSERT INTO productos (cantidad, descripcion, observaciones, peso, precioGramo, importe, idContrato) "
+                            + "VALUES (?, ?, ?, ?, ?, ?, ?)");
+            insertRenovacion = connection.prepareStatement(
+                    "INSERT INTO renovaciones (idContrato, fechaRenovacion, fechaFinRenovacion, version, importe) "
+                            + "VALUES (?, ?, ?, ?, ?)");
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Obtiene los DNI de todos los clientes guardados.
+     *
+     * @return Conjunto de DNI.
+     * @throws SQLException si falla la consulta.
+     */
+    public Set<String> obtenerDnisClientes() throws SQLException {
+        return obtenerValores("SELECT dni FROM clientes");
+    }
+
+    /**
+     * Obtiene los id_contrato de todos los contratos guardados.
+     *
+     * @return Conjunto de ids de contrato.
+     * @throws SQLException si falla la consulta.
+     */
+    public Set<String> obtenerIdsContratos() throws SQLException {
+        return obtenerValores("SELECT id_contrato FROM contratos");
+    }
+
+    private Set<String> obtenerValores(String sql) throws SQLException {
+        Set<String> valores = new HashSet<>();
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                valores.add(rs.getString(1));
+            }
+        }
+        return valores;
+    }
+
+    /**
+     * Añade un cliente al lote.
+     *
+     * @param cliente Cliente a insertar.
+     * @throws SQLException si falla la inserción del lote.
+     */
+    public void anadirCliente(Cliente cliente) throws SQLException {
+        insertCliente.setString(1, cliente.getDni());
+        insertCliente.setString(2, cliente.getNombre());
+        insertCliente.setString(3, cliente.getApellido());
+        insertCliente.setString(4, cliente.getPoblacion());
+        insertCliente.setString(5, cliente.getTelefono());
+        insertCliente.setString(6, cliente.getDireccion());
+        insertCliente.addBatch();
+        contarPendiente();
+    }
+
+    /**
+     * Añade un contrato al lote, con su id_contrato e id_pol originales.
+     *
+     * @param contrato Contrato a insertar.
+     * @throws SQLException si falla la inserción del lote.
+     */
+    public void anadirContrato(Contrato contrato) throws SQLException {
+        insertContrato.setString(1, contrato.getIdContrato());
+        insertContrato.setString(2, contrato.getIdPol());
+        insertContrato.setString(3, contrato.getDniCliente());
+        insertContrato.setString(4, contrato.getDetallesContrato());
+        insertContrato.setDate(5, new Date(contrato.getFechaInicio().getTime()));
+        asignarFecha(insertContrato, 6, contrato.getFechaFinal());
+        insertContrato.setString(7, contrato.getTipo());
+        insertContrato.setString(8, contrato.getRescatado());
+        asignarFecha(insertContrato, 9, contrato.getFechaRescate());
+        insertContrato.setLong(10, contrato.getImporteCentimos());
+        insertContrato.addBatch();
+        contarPendiente();
+    }
+
+    /**
+     * Añade un producto al lote.
+     *
+     * @param producto Producto a insertar.
+     * @throws SQLException si falla la inserción del lote.
+     */
+    public void anadirProducto(Producto producto) throws SQLException {
+        insertProducto.setInt(1, producto.getCantidad());
+        insertProducto.setString(2, producto.getDescripcion());
+        insertProducto.setString(3, producto.getObservaciones());
+        insertProducto.setDouble(4, producto.getPeso());
+        insertProducto.setLong(5, producto.getPrecioGramoCentimos());
+        insertProducto.setLong(6, producto.getImporteCentimos());
+        insertProducto.setString(7, producto.getIdContrato());
+        insertProducto.addBatch();
+        contarPendiente();
+    }
+
+    /**
+     * Añade una renovación al lote.
+     *
+     * @param renovacion Renovación a insertar.
+     * @throws SQLException si falla la inserción del lote.
+     */
+    public void anadirRenovacion(Renovacion renovacion) throws SQLException {
+        insertRenovacion.setString(1, renovacion.getIdContrato());
+        insertRenovacion.setDate(2, Date.valueOf(renovacion.getFechaRenovacion()));
+        insertRenovacion.setDate(3, Date.valueOf(renovacion.getFechaFinRenovacion()));
+        insertRenovacion.setInt(4, renovacion.getVersion());
+        insertRenovacion.setLong(5, renovacion.getImporteCentimos());
+        insertRenovacion.addBatch();
+        contarPendiente();
+    }
+
+    /**
+     * Ejecuta los lotes pendientes y confirma la transacción. Si algo falla se deshace el lote.
+     *
+     * @throws SQLException si falla alguna inserción.
+     */
+    public void confirmar() throws SQLException {
+        if (pendientes == 0) {
+            return;
+        }
+        try {
+            insertCliente.executeBatch();
+            insertContrato.executeBatch();
+            insertProducto.executeBatch();
+            insertRenovacion.executeBatch();
+            connection.commit();
+            confirmadas += pendientes;
+            pendientes = 0;
+        } catch (SQLException e) {
+            connection.rollback();
+            insertCliente.clearBatch();
+            insertContrato.clearBatch();
+            insertProducto.clearBatch();
+            insertRenovacion.clearBatch();
+            pendientes = 0;
+            throw e;
+        }
+    }
+
+    /**
+     * @return Número de filas confirmadas hasta el momento.
+     */
+    public long getConfirmadas() {
+        return confirmadas;
+    }
+
+    /**
+     * Confirma el lote pendiente y cierra las sentencias y la conexión.
+     *
+     * @throws SQLException si falla la confirmación o el cierre.
+     */
+    @Override
+    public void close() throws SQLException {
+        try {
+            confirmar();
+        } finally {
+            insertCliente.close();
+            insertContrato.close();
+            insertProducto.close();
+            insertRenovacion.close();
+            connection.setAutoCommit(true);
+            connection.close();
+        }
+    }
+
+    private void contarPendiente() throws SQLException {
+        if (++pendientes >= TAMANO_LOTE) {
+            confirmar();
+        }
+    }
+
+    private void asignarFecha(PreparedStatement pstmt, int indice, java.util.Date fecha) throws SQLException {
+        if (fecha != null) {
+            pstmt.setDate(indice, new Date(fecha.getTime()));
+        } else {
+            pstmt.setNull(indice, Types.DATE);
+        }
+    }
+}
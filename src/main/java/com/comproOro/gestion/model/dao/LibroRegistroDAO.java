@@ -0,0 +1,273 @@
+package com.comproOro.gestion.model.dao;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import java.sql.*;
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Clase DAO para el libro de registro de compras.
+ * Recorre los contratos de compra de un periodo junto con sus productos y los datos del cliente
+ * en páginas de {@link #INTERVALO_CONTROL} contratos, y guarda en la tabla 'libro_registro_estado'
+ * hasta qué contrato se ha exportado cada archivo, para poder reanudar una exportación interrumpida.
+ */
+public class LibroRegistroDAO {
+
+    private static final Logger LOGGER = LogManager.getLogger(LibroRegistroDAO.class);
+
+    private final DataSource fuenteDatos;
+
+    /** Conexiones de solo lectura por las que se recorren las compras. */
+    private final DataSource lecturas;
+
+    /** Contratos de cada página; tras cada página se guarda un punto de control. */
+    static final int INTERVALO_CONTROL = 500;
+
+    /**
+     * Punto de control de una exportación del libro de registro.
+     */
+    public static class Estado {
+        /** Id interno (columna {@code id}) del último contrato exportado completo. */
+        private final long ultimoId;
+        /** Bytes del archivo escritos hasta ese contrato. */
+        private final long bytes;
+        /** Líneas de producto escritas hasta ese contrato. */
+        private final long filas;
+
+        public Estado(long ultimoId, long bytes, long filas) {
+            this.ultimoId = ultimoId;
+            this.bytes = bytes;
+            this.filas = filas;
+        }
+
+        public long getUltimoId() {
+            return ultimoId;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getFilas() {
+            return filas;
+        }
+    }
+
+    /**
+     * Constructor que crea la tabla de estado si no existe.
+     */
+    public LibroRegistroDAO() {
+        this(DatabaseConnection.getDataSource());
+    }
+
+    /**
+     * Constructor que usa la fuente de datos indicada y crea la tabla de estado si no existe.
+     *
+     * @param fuenteDatos fuente de datos de la que se obtienen las conexiones.
+     */
+    public LibroRegistroDAO(DataSource fuenteDatos) {
+        this.fuenteDatos = fuenteDatos;
+        this.lecturas = FuenteLecturas.de(fuenteDatos);
+        crearTablaEstado();
+    }
+
+    /**
+     * Crea la tabla 'libro_registro_estado' en la base de datos si no existe.
+     */
+    private void crearTablaEstado() {
+        String sql = "CREATE TABLE IF NOT EXISTS libro_registro_estado ("
+                + " archivo TEXT PRIMARY KEY, "
+                + " desde DATE NOT NULL, "
+                + " hasta DATE NOT NULL, "
+                + " ultimo_id INTEGER NOT NULL DEFAULT 0, "
+                + " bytes INTEGER NOT NULL DEFAULT 0, "
+                + " filas INTEGER NOT NULL DEFAULT 0, "
+                + " completado TEXT NOT NULL DEFAULT 'N'"
+                + ");";
+
+        try (Connection conn = fuenteDatos.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+            LOGGER.debug("Tabla 'libro_registro_estado' creada o ya existe.");
+        } catch (SQLException e) {
+            LOGGER.error("Error al crear la tabla libro_registro_estado", e);
+        }
+    }
+
+    /**
+     * Obtiene el punto de control de una exportación no completada del mismo archivo y periodo.
+     *
+     * @param archivo Ruta absoluta del archivo de destino.
+     * @param desde   Inicio del periodo.
+     * @param hasta   Fin del periodo.
+     * @return El estado para reanudar, o null si hay que empezar desde el principio.
+     */
+    public Estado obtenerEstadoPendiente(String archivo, Date desde, Date hasta) {
+        String sql = "SELECT ultimo_id, bytes, filas FROM libro_registro_estado "
+                + "WHERE archivo = ? AND desde = ? AND hasta = ? AND completado = 'N'";
+
+        try (Connection conn = fuenteDatos.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, archivo);
+            pstmt.setDate(2, desde);
+            pstmt.setDate(3, hasta);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return new Estado(rs.getLong("ultimo_id"), rs.getLong("bytes"), rs.getLong("filas"));
+                }
+            }
+        } catch (SQLException e) {
+            LOGGER.error("Error al obtener el estado del libro de registro", e);
+        }
+        return null;
+    }
+
+    /**
+     * Vuelca al archivo lo escrito hasta el momento y devuelve su tamaño, para guardarlo como
+     * punto de control.
+     */
+    public interface PuntoControl {
+        /**
+         * @return Bytes del archivo escritos en disco.
+         * @throws Exception si no se puede volcar el archivo.
+         */
+        long volcar() throws Exception;
+    }
+
+    /**
+     * Recorre, ordenadas por contrato y producto, las líneas del libro de registro: una por cada
+     * producto de los contratos de compra con fecha de inicio en el periodo y posteriores al último
+     * contrato del estado inicial.
+     * <p>
+     * Valores de cada fila: id interno del contrato (Long), id_contrato, fecha de inicio, DNI, nombre,
+     * apellido, dirección, población, descripción, observaciones, cantidad (Integer), peso (Double)
+     * e importe en céntimos (Long). El array se reutiliza entre filas.
+     * <p>
+     * Las líneas se leen por una conexión de solo lectura en páginas de {@link #INTERVALO_CONTROL}
+     * contratos completos. Cada página se lee entera y se devuelve la conexión antes de entregar sus
+     * líneas, así que entre página y página no queda ninguna lectura abierta y los puestos pueden
+     * guardar también con el diario normal. Tras cada página se llama al punto de control y se guarda
+     * el estado del archivo por una conexión normal.
+     *
+     * @param archivo    Ruta absoluta del archivo de destino.
+     * @param desde      Inicio del periodo (incluido).
+     * @param hasta      Fin del periodo (excluido).
+     * @param inicio     Estado desde el que continuar (último contrato, bytes y filas ya escritos).
+     * @param consumidor Receptor de cada fila.
+     * @param control    Vuelca el archivo antes de guardar cada punto de control.
+     * @return El estado final de la exportación.
+     * @throws Exception si falla la consulta, el consumidor o el punto de control.
+     */
+    public Estado recorrerCompras(String archivo, Date desde, Date hasta, Estado inicio,
+                                  ExportacionDAO.ConsumidorFilas consumidor, PuntoControl control) throws Exception {
+        String sql = "SELECT c.id, c.id_contrato, c.fecha_inicio, c.dni_cliente, cl.nombre, cl.apellido, "
+                + "cl.direccion, cl.poblacion, p.descripcion, p.observaciones, p.cantidad, p.peso, p.importe "
+                + "FROM contratos c "
+                + "JOIN productos p ON p.idContrato = c.id_contrato "
+                + "LEFT JOIN clientes cl ON cl.dni = c.dni_cliente "
+                + "WHERE c.id IN (SELECT id FROM contratos WHERE tipo = 'Compra' "
+                + "AND fecha_inicio >= ? AND fecha_inicio < ? AND id > ? ORDER BY id LIMIT " + INTERVALO_CONTROL + ") "
+                + "ORDER BY c.id, p.idProducto";
+
+        List<Object[]> pagina = new ArrayList<>();
+        long ultimoId = inicio.getUltimoId();
+        long filas = inicio.getFilas();
+
+        while (true) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new IllegalStateException("Exportación cancelada.");
+            }
+
+            int leidas = 0;
+            long desdeId = ultimoId;
+            try (Connection lectura = lecturas.getConnection();
+                 PreparedStatement pstmt = lectura.prepareStatement(sql)) {
+                pstmt.setDate(1, desde);
+                pstmt.setDate(2, hasta);
+                pstmt.setLong(3, desdeId);
+
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        if (leidas == pagina.size()) {
+                            pagina.add(new Object[13]);
+                        }
+                        Object[] fila = pagina.get(leidas++);
+                        fila[0] = rs.getLong(1);
+                        fila[1] = rs.getString(2);
+                        fila[2] = rs.getDate(3);
+                        fila[3] = rs.getString(4);
+                        fila[4] = rs.getString(5);
+                        fila[5] = rs.getString(6);
+                        fila[6] = rs.getString(7);
+                        fila[7] = rs.getString(8);
+                        fila[8] = rs.getString(9);
+                        fila[9] = rs.getString(10);
+                        fila[10] = rs.getInt(11);
+                        fila[11] = rs.getDouble(12);
+                        fila[12] = rs.getLong(13);
+                    }
+                }
+            }
+
+            if (leidas == 0) {
+                break;
+            }
+            for (int i = 0; i < leidas; i++) {
+                consumidor.aceptar(pagina.get(i));
+            }
+            filas += leidas;
+            ultimoId = (Long) pagina.get(leidas - 1)[0];
+
+            guardarEstado(archivo, desde, hasta, new Estado(ultimoId, control.volcar(), filas), false);
+        }
+
+        Estado estado = new Estado(ultimoId, control.volcar(), filas);
+        guardarEstado(archivo, desde, hasta, estado, true);
+        return estado;
+    }
+
+    /**
+     * Guarda el punto de control de una exportación en su propia transacción.
+     */
+    private void guardarEstado(String archivo, Date desde, Date hasta, Estado estado, boolean completado) throws SQLException {
+        Reintentos.ejecutar("LibroRegistroDAO.guardarEstado", () -> {
+            try (Connection conn = fuenteDatos.getConnection()) {
+                guardarEstado(conn, archivo, desde, hasta, estado, completado);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Guarda el punto de control de una exportación.
+     *
+     * @param conn       Conexión a usar.
+     * @param archivo    Ruta absoluta del archivo de destino.
+     * @param desde      Inicio del periodo.
+     * @param hasta      Fin del periodo.
+     * @param estado     Último contrato, bytes y filas escritos.
+     * @param completado true si la exportación ha terminado.
+     * @throws SQLException si no se puede guardar.
+     */
+    void guardarEstado(Connection conn, String archivo, Date desde, Date hasta, Estado estado, boolean completado) throws SQLException {
+        String sql = "INSERT INTO libro_registro_estado (archivo, desde, hasta, ultimo_id, bytes, filas, completado) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?) "
+                + "ON CONFLICT(archivo) DO UPDATE SET desde = excluded.desde, hasta = excluded.hasta, "
+                + "ultimo_id = excluded.ultimo_id, bytes = excluded.bytes, filas = excluded.filas, "
+                + "completado = excluded.completado";
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, archivo);
+            pstmt.setDate(2, desde);
+            pstmt.setDate(3, hasta);
+            pstmt.setLong(4, estado.getUltimoId());
+            pstmt.setLong(5, estado.getBytes());
+            pstmt.setLong(6, estado.getFilas());
+            pstmt.setString(7, completado ? "S" : "N");
+            pstmt.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package com.comproOro.gestion.model.dao;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registro de latencias por operación de la capa de datos y de la generación de documentos.
+ * Cada operación acumula un histograma logarítmico (cuatro tramos por potencia de dos, error
+ * máximo del 25 %) del que se obtienen los percentiles p50, p95 y p99 sin guardar las muestras.
+ * Las operaciones que superan el umbral de lentitud se escriben en el registro de consultas
+ * lentas junto con su SQL.
+ *
+ * <p>El coste por medición es un par de lecturas de {@link System#nanoTime()} y unas pocas
+ * operaciones atómicas, de modo que puede quedar activo en producción.</p>
+ */
+public final class Metricas {
+
+    private static final Logger LOGGER = LogManager.getLogger(Metricas.class);
+
+    /** Registro de consultas lentas; log4j2.xml lo envía a su propio archivo. */
+    private static final Logger LOGGER_LENTO = LogManager.getLogger("com.comproOro.gestion.lento");
+
+    /** Umbral en milisegundos a partir del cual una operación se considera lenta. */
+    private static final long UMBRAL_LENTO_NANOS =
+            Long.getLong("comprooro.metricas.umbralLentoMs", 200L) * 1_000_000L;
+
+    private static final Map<String, Histograma> HISTOGRAMAS = new ConcurrentHashMap<>();
+
+    private Metricas() {
+    }
+
+    /**
+     * Empieza a medir una operación. Se usa como primer recurso del try-with-resources del
+     * método medido, de forma que el tiempo se registra al salir del bloque incluso con excepción.
+     *
+     * @param operacion nombre de la operación, por ejemplo {@code ContratoDAO.guardarContrato}.
+     * @param sql       sentencia ejecutada, solo se usa si la operación resulta lenta; puede ser null.
+     * @return la medición en curso.
+     */
+    public static Medicion medir(String operacion, String sql) {
+        return new Medicion(operacion, sql, System.nanoTime());
+    }
+
+    /**
+     * Registra una etapa que empezó en {@code inicio} y termina ahora. Pensado para encadenar
+     * las etapas de un proceso: el valor devuelto es el inicio de la siguiente etapa.
+     *
+     * @param operacion nombre de la etapa.
+     * @param inicio    instante de inicio obtenido con {@link System#nanoTime()}.
+     * @return el instante actual en nanosegundos.
+     */
+    public static long registrar(String operacion, long inicio) {
+        long fin = System.nanoTime();
+        registrar(operacion, null, fin - inicio);
+        return fin;
+    }
+
+    private static void registrar(String operacion, String sql, long nanos) {
+        HISTOGRAMAS.computeIfAbsent(operacion, clave -> new Histograma()).registrar(nanos);
+        if (nanos >= UMBRAL_LENTO_NANOS) {
+            if (sql != null) {
+                LOGGER_LENTO.warn("{} tardó {} ms: {}", operacion, nanos / 1_000_000L, sql);
+            } else {
+                LOGGER_LENTO.warn("{} tardó {} ms", operacion, nanos / 1_000_000L);
+            }
+        }
+    }
+
+    /**
+     * Devuelve un resumen de todas las operaciones medidas desde el arranque o el último
+     * {@link #reiniciar()}: número de llamadas, media, percentiles y máximo en milisegundos.
+     *
+     * @return las filas del resumen ordenadas por nombre de operación.
+     */
+    public static List<Resumen> obtenerResumen() {
+        List<Resumen> resumen = new ArrayList<>();
+        for (Map.Entry<String, Histograma> entrada : new TreeMap<>(HISTOGRAMAS).entrySet()) {
+            Resumen fila = entrada.getValue().resumir(entrada.getKey());
+            if (fila.getLlamadas() > 0) {
+                resumen.add(fila);
+            }
+        }
+        return resumen;
+    }
+
+    /**
+     * Devuelve el resumen de las métricas como una tabla de texto y lo deja también en el log.
+     *
+     * @return la tabla con una línea por operación.
+     */
+    public static String volcar() {
+        String tabla = formatear();
+        LOGGER.info("Métricas de latencia (ms):\n{}", tabla);
+        return tabla;
+    }
+
+    /**
+     * Devuelve el resumen de las métricas como una tabla de texto, sin escribirlo en el log.
+     *
+     * @return la tabla con una línea por operación.
+     */
+    public static String formatear() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT, "%-45s %8s %9s %9s %9s %9s %9s%n",
+                "Operación", "Llamadas", "Media", "p50", "p95", "p99", "Máx"));
+        for (Resumen fila : obtenerResumen()) {
+            sb.append(String.format(Locale.ROOT, "%-45s %8d %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                    fila.getOperacion(), fila.getLlamadas(), fila.getMediaMs(),
+                    fila.getP50Ms(), fila.getP95Ms(), fila.getP99Ms(), fila.getMaximoMs()));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Descarta todas las mediciones acumuladas.
+     */
+    public static void reiniciar() {
+        HISTOGRAMAS.clear();
+    }
+
+    /**
+     * Medición en curso de una operación. Se registra al cerrarse.
+     */
+    public static final class Medicion implements AutoCloseable {
+        private final String operacion;
+        private final String sql;
+        private final long inicio;
+
+        private Medicion(String operacion, String sql, long inicio) {
+            this.operacion = operacion;
+            this.sql = sql;
+            this.inicio = inicio;
+        }
+
+        @Override
+        public void close() {
+            registrar(operacion, sql, System.nanoTime() - inicio);
+        }
+    }
+
+    /**
+     * Fila del resumen de una operación, con los tiempos en milisegundos.
+     */
+    public static final class Resumen {
+        private final String operacion;
+        private final long llamadas;
+        private final double mediaMs;
+        private final double p50Ms;
+        private final double p95Ms;
+        private final double p99Ms;
+        private final double maximoMs;
+
+        Resumen(String operacion, long llamadas, double mediaMs, double p50Ms, double p95Ms, double p99Ms, double maximoMs) {
+            this.operacion = operacion;
+            this.llamadas = llamadas;
+            this.mediaMs = mediaMs;
+            this.p50Ms = p50Ms;
+            this.p95Ms = p95Ms;
+            this.p99Ms = p99Ms;
+            this.maximoMs = maximoMs;
+        }
+
+        public String getOperacion() { return operacion; }
+        public long getLlamadas() { return llamadas; }
+        public double getMediaMs() { return mediaMs; }
+        public double getP50Ms() { return p50Ms; }
+        public double getP95Ms() { return p95Ms; }
+        public double getP99Ms() { return p99Ms; }
+        public double getMaximoMs() { return maximoMs; }
+    }
+
+    /**
+     * Histograma sin bloqueos de duraciones en nanosegundos. Cada potencia de dos se divide
+     * en cuatro tramos; los valores menores que cuatro tienen tramo propio.
+     */
+    static final class Histograma {
+        private static final int SUBTRAMOS = 4;
+        private static final int TRAMOS = 64 * SUBTRAMOS;
+
+        private final AtomicLongArray tramos = new AtomicLongArray(TRAMOS);
+        private final LongAdder llamadas = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final AtomicLong maximo = new AtomicLong();
+
+        void registrar(long nanos) {
+            long valor = Math.max(0L, nanos);
+            tramos.incrementAndGet(indice(valor));
+            llamadas.increment();
+            total.add(valor);
+            maximo.accumulateAndGet(valor, Math::max);
+        }
+
+        static int indice(long valor) {
+            if (valor < SUBTRAMOS) {
+                return (int) valor;
+            }
+            int exponente = 63 - Long.numberOfLeadingZeros(valor);
+            int subtramo = (int) ((valor >>> (exponente - 2)) & (SUBTRAMOS - 1));
+            return (exponente - 1) * SUBTRAMOS + subtramo;
+        }
+
+        /** Límite superior (exclusivo) de los valores que caen en el tramo indicado. */
+        static long limiteSuperior(int indice) {
+            if (indice < SUBTRAMOS) {
+                return indice + 1L;
+            }
+            int exponente = indice / SUBTRAMOS + 1;
+            long subtramo = indice % SUBTRAMOS;
+            long ancho = 1L << (exponente - 2);
+            return (SUBTRAMOS + subtramo + 1) * ancho;
+        }
+
+        Resumen resumir(String operacion) {
+            long[] copia = new long[TRAMOS];
+            long n = 0;
+            for (int i = 0; i < TRAMOS; i++) {
+                copia[i] = tramos.get(i);
+                n += copia[i];
+            }
+            long max = maximo.get();
+            double media = n == 0 ? 0 : total.sum() / (double) n / 1_000_000d;
+            return new Resumen(operacion, n, media,
+                    percentil(copia, n, 0.50, max),
+                    percentil(copia, n, 0.95, max),
+                    percentil(copia, n, 0.99, max),
+                    max / 1_000_000d);
+        }
+
+        private static double percentil(long[] copia, long n, double fraccion, long max) {
+            if (n == 0) {
+                return 0;
+            }
+            long objetivo = (long) Math.ceil(n * fraccion);
+            long acumulado = 0;
+            for (int i = 0; i < copia.length; i++) {
+                acumulado += copia[i];
+                if (acumulado >= objetivo) {
+                    return Math.min(limiteSuperior(i), max) / 1_000_000d;
+                }
+            }
+            return max / 1_000_000d;
+        }
+    }
+}
@@ -1,7 +1,10 @@
 package com.comproOro.gestion.model.dao;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import com.comproOro.gestion.model.modelos.Producto;
 import java.sql.*;
+import javax.sql.DataSource;
 import java.util.ArrayList;
 
 /**
@@ -11,12 +14,33 @@ import java.util.ArrayList;
  */
 public class ProductoDAO {
 
+    private static final Logger LOGGER = LogManager.getLogger(ProductoDAO.class);
+
+    /** Actualización que solo se aplica si la versión de la fila es la leída. */
+    private static final String SQL_ACTUALIZAR = "UPDATE productos SET cantidad = ?, descripcion = ?, observaciones = ?, peso = ?, precioGramo = ?, importe = ?, idContrato = ?, "
+            + "version_fila = version_fila + 1 WHERE idProducto = ? AND version_fila = ?";
+
+    private final DataSource fuenteDatos;
+
+    private final ResumenDAO resumenDAO;
+
     /**
      * Constructor de la clase. Al instanciar el DAO, se asegura de que la tabla
      * de productos exista en la base de datos.
      */
     public ProductoDAO() {
+        this(DatabaseConnection.getDataSource());
+    }
+
+    /**
+     * Constructor que usa la fuente de datos indicada y crea la tabla de productos si no existe.
+     *
+     * @param fuenteDatos fuente de datos de la que se obtienen las conexiones.
+     */
+    public ProductoDAO(DataSource fuenteDatos) {
+        this.fuenteDatos = fuenteDatos;
         crearTablaProductos();
+        this.resumenDAO = new ResumenDAO(fuenteDatos);
     }
 
     /**
@@ -31,18 +55,22 @@ public class ProductoDAO {
                 " descripcion TEXT NOT NULL, " +
                 " observaciones TEXT, " +
                 " peso REAL NOT NULL, " +
-                " precioGramo REAL NOT NULL, " +
-                " importe REAL NOT NULL, " +
+                " precioGramo INTEGER NOT NULL, " +
+                " importe INTEGER NOT NULL, " +
                 " idContrato TEXT NOT NULL, " +
+                " version_fila INTEGER NOT NULL DEFAULT 0, " +
                 " FOREIGN KEY(idContrato) REFERENCES contratos(idContrato)" +
                 ");";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Metricas.Medicion medicion = Metricas.medir("ProductoDAO.crearTablaProductos", sql);
+             Connection conn = fuenteDatos.getConnection();
              Statement stmt = conn.createStatement()) {
             stmt.execute(sql);
-            System.out.println("Tabla 'productos' creada o ya existe.");
+            // Los productos se buscan siempre por contrato (fichas y libro de registro).
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_productos_idContrato ON productos(idContrato)");
+            LOGGER.debug("Tabla 'productos' creada o ya existe.");
         } catch (SQLException e) {
-            System.err.println("Error al crear la tabla productos: " + e.getMessage());
+            LOGGER.error("Error al crear la tabla productos", e);
         }
     }
 
@@ -54,30 +82,46 @@ public class ProductoDAO {
      *         <code>false</code> en caso contrario.
      */
     public boolean guardarProducto(Producto producto) {
+        try {
+            return Reintentos.ejecutar("ProductoDAO.guardarProducto", () -> insertarProducto(producto));
+        } catch (SQLException e) {
+            LOGGER.error("Error al guardar el producto", e);
+            return false;
+        }
+    }
+
+    private boolean insertarProducto(Producto producto) throws SQLException {
         String sql = "INSERT INTO productos (cantidad, descripcion, observaciones, peso, precioGramo, importe, idContrato) VALUES (?, ?, ?, ?, ?, ?, ?)";
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Metricas.Medicion medicion = Metricas.medir("ProductoDAO.guardarProducto", sql);
+             Connection conn = fuenteDatos.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql, PreparedStatement.RETURN_GENERATED_KEYS)) {
 
             pstmt.setInt(1, producto.getCantidad());
             pstmt.setString(2, producto.getDescripcion());
             pstmt.setString(3, producto.getObservaciones());
             pstmt.setDouble(4, producto.getPeso());
-            pstmt.setDouble(5, producto.getPrecioGramo());
-            pstmt.setDouble(6, producto.getImporte());
+            pstmt.setLong(5, producto.getPrecioGramoCentimos());
+            pstmt.setLong(6, producto.getImporteCentimos());
             pstmt.setString(7, producto.getIdContrato());
 
-            pstmt.executeUpdate();
+            conn.setAutoCommit(false);
+            try {
+                pstmt.executeUpdate();
 
-            try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
-                if (generatedKeys.next()) {
-                    producto.setIdProducto(generatedKeys.getInt(1));
+                try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
+                    if (generatedKeys.next()) {
+                        producto.setIdProducto(generatedKeys.getInt(1));
+                    }
                 }
+
+                resumenDAO.registrarProducto(conn, producto);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
             }
 
             return true;
-        } catch (SQLException e) {
-            System.err.println("Error al guardar el producto: " + e.getMessage());
-            return false;
         }
     }
 
@@ -91,7 +135,8 @@ public class ProductoDAO {
         Producto producto = null;
         String sql = "SELECT * FROM productos WHERE idProducto = ?";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Metricas.Medicion medicion = Metricas.medir("ProductoDAO.obtenerProductoPorId", sql);
+             Connection conn = fuenteDatos.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setInt(1, id);
@@ -104,13 +149,14 @@ public class ProductoDAO {
                     producto.setDescripcion(rs.getString("descripcion"));
                     producto.setObservaciones(rs.getString("observaciones"));
                     producto.setPeso(rs.getDouble("peso"));
-                    producto.setPrecioGramo(rs.getDouble("precioGramo"));
-                    producto.setImporte(rs.getDouble("importe"));
+                    producto.setPrecioGramoCentimos(rs.getLong("precioGramo"));
+                    producto.setImporteCentimos(rs.getLong("importe"));
                     producto.setIdContrato(rs.getString("idContrato"));
+                    producto.setVersionFila(rs.getInt("version_fila"));
                 }
             }
         } catch (SQLException e) {
-            System.err.println("Error al obtener el producto por ID: " + e.getMessage());
+            LOGGER.error("Error al obtener el producto por ID", e);
         }
 
         return producto;
@@ -125,10 +171,11 @@ public class ProductoDAO {
     public ArrayList<Producto> obtenerProductosPorContrato(String idContrato) {
         ArrayList<Producto> productos = new ArrayList<>();
 
-        String query = "SELECT idProducto, cantidad, descripcion, observaciones, peso, precioGramo, importe, idContrato "
+        String query = "SELECT idProducto, cantidad, descripcion, observaciones, peso, precioGramo, importe, idContrato, version_fila "
                 + "FROM productos WHERE idContrato = ?";
 
-        try (Connection con = DatabaseConnection.getConnection();
+        try (Metricas.Medicion medicion = Metricas.medir("ProductoDAO.obtenerProductosPorContrato", query);
+             Connection con = fuenteDatos.getConnection();
              PreparedStatement ps = con.prepareStatement(query)) {
 
             ps.setString(1, idContrato);
@@ -142,48 +189,72 @@ public class ProductoDAO {
                 producto.setDescripcion(rs.getString("descripcion"));
                 producto.setObservaciones(rs.getString("observaciones"));
                 producto.setPeso(rs.getDouble("peso"));
-                producto.setPrecioGramo(rs.getDouble("precioGramo"));
-                producto.setImporte(rs.getDouble("importe"));
+                producto.setPrecioGramoCentimos(rs.getLong("precioGramo"));
+                producto.setImporteCentimos(rs.getLong("importe"));
                 producto.setIdContrato(rs.getString("idContrato"));
+                producto.setVersionFila(rs.getInt("version_fila"));
 
                 productos.add(producto);
             }
 
         } catch (Exception e) {
-            e.printStackTrace();
-            System.err.println("Error al obtener los productos para el contrato con ID: " + idContrato);
+            LOGGER.error("Error al obtener los productos para el contrato con ID: {}", idContrato, e);
         }
 
         return productos;
     }
 
     /**
-     * Actualiza un producto existente en la base de datos.
+     * Actualiza un producto existente en la base de datos, solo si nadie lo ha modificado desde
+     * que se leyó.
      *
-     * @param producto el objeto {@link Producto} con los nuevos valores.
+     * @param producto el objeto {@link Producto} con los nuevos valores; si se guarda, recibe la
+     *                 nueva versión.
      * @return <code>true</code> si la actualización fue exitosa,
      *         <code>false</code> en caso contrario.
+     * @throws ConflictoVersionException si otro puesto ha modificado el producto.
      */
-    public boolean actualizarProducto(Producto producto) {
-        String sql = "UPDATE productos SET cantidad = ?, descripcion = ?, observaciones = ?, peso = ?, precioGramo = ?, importe = ?, idContrato = ? WHERE idProducto = ?";
-
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+    public boolean actualizarProducto(Producto producto) throws ConflictoVersionException {
+        try {
+            return Reintentos.ejecutar("ProductoDAO.actualizarProducto", () -> {
+                try (Metricas.Medicion medicion = Metricas.medir("ProductoDAO.actualizarProducto", SQL_ACTUALIZAR);
+                     Connection conn = fuenteDatos.getConnection()) {
+                    actualizarProducto(conn, producto);
+                    return true;
+                }
+            });
+        } catch (SQLException e) {
+            LOGGER.error("Error al actualizar el producto", e);
+            return false;
+        }
+    }
 
+    /**
+     * Actualiza un producto dentro de la transacción de otro DAO, comparando e incrementando la
+     * versión de la fila. La versión del objeto solo se actualiza si la fila se ha guardado; si la
+     * transacción se deshace después, el llamador debe volver a leer el producto.
+     *
+     * @param conn     Conexión de la transacción en curso.
+     * @param producto Producto con los nuevos valores.
+     * @throws ConflictoVersionException si el producto ha cambiado o ya no existe.
+     * @throws SQLException              si falla la actualización.
+     */
+    static void actualizarProducto(Connection conn, Producto producto) throws ConflictoVersionException, SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(SQL_ACTUALIZAR)) {
             pstmt.setInt(1, producto.getCantidad());
             pstmt.setString(2, producto.getDescripcion());
             pstmt.setString(3, producto.getObservaciones());
             pstmt.setDouble(4, producto.getPeso());
-            pstmt.setDouble(5, producto.getPrecioGramo());
-            pstmt.setDouble(6, producto.getImporte());
+            pstmt.setLong(5, producto.getPrecioGramoCentimos());
+            pstmt.setLong(6, producto.getImporteCentimos());
             pstmt.setString(7, producto.getIdContrato());
             pstmt.setInt(8, producto.getIdProducto());
+            pstmt.setInt(9, producto.getVersionFila());
 
-            int rowsAffected = pstmt.executeUpdate();
-            return rowsAffected > 0;
-        } catch (SQLException e) {
-            System.err.println("Error al actualizar el producto: " + e.getMessage());
-            return false;
+            if (pstmt.executeUpdate() == 0) {
+                throw new ConflictoVersionException("productos", String.valueOf(producto.getIdProducto()));
+            }
+            producto.setVersionFila(producto.getVersionFila() + 1);
         }
     }
 }
@@ -0,0 +1,160 @@
+package com.comproOro.gestion.model.dao;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ejecución de las escrituras de los DAO cuando varios puestos comparten el mismo archivo de base
+ * de datos. Cada conexión espera {@link #BUSY_TIMEOUT_MS} a que se libere el archivo; si aun así
+ * SQLite responde que está ocupado o bloqueado, la transacción entera se repite tras una espera
+ * creciente con una parte aleatoria, para que los puestos no vuelvan a chocar a la vez.
+ *
+ * <p>Solo se repiten transacciones que se deshacen completas al fallar, de modo que repetirlas
+ * no duplica nada. SQLite no llama a la espera de busy_timeout cuando una transacción que ya ha
+ * leído intenta escribir mientras otra escribe, para no bloquearse; en ese caso la única salida
+ * es deshacerla y repetirla.</p>
+ *
+ * <p>Cada espera se registra en {@link Metricas} como {@code Contencion.<operación>}, y los
+ * totales se publican en el diagnóstico.</p>
+ */
+public final class Reintentos {
+
+    private static final Logger LOGGER = LogManager.getLogger(Reintentos.class);
+
+    /** Milisegundos que cada conexión espera a que otro puesto libere la base de datos. */
+    public static final int BUSY_TIMEOUT_MS = Integer.getInteger("comprooro.db.busyTimeoutMs", 5000);
+
+    /** Intentos de una transacción, contando el primero. */
+    static final int MAX_INTENTOS = Integer.getInteger("comprooro.db.intentos", 4);
+
+    private static final long ESPERA_BASE_MS = 50;
+    private static final long ESPERA_MAXIMA_MS = 1000;
+
+    /** Códigos de resultado de SQLite: SQLITE_BUSY y SQLITE_LOCKED. */
+    private static final int SQLITE_BUSY = 5;
+    private static final int SQLITE_LOCKED = 6;
+
+    private static final LongAdder CONTENCIONES = new LongAdder();
+    private static final LongAdder REINTENTOS = new LongAdder();
+    private static final LongAdder AGOTADOS = new LongAdder();
+
+    private Reintentos() {
+    }
+
+    /**
+     * Transacción que se puede repetir. Además de {@link SQLException} puede lanzar una excepción
+     * propia, que no se repite.
+     *
+     * @param <T> resultado de la transacción.
+     * @param <E> excepción propia de la transacción.
+     */
+    @FunctionalInterface
+    public interface Transaccion<T, E extends Exception> {
+        T ejecutar() throws SQLException, E;
+    }
+
+    /**
+     * Ejecuta una transacción y la repite mientras falle por contención, hasta
+     * {@link #MAX_INTENTOS} veces. Cualquier otro error se lanza enseguida.
+     *
+     * @param operacion   nombre de la operación, para las métricas y el registro.
+     * @param transaccion transacción que se deshace entera si falla.
+     * @return el resultado de la transacción.
+     * @throws SQLException el último error si se agotan los intentos, o el primero que no sea de
+     *                      contención.
+     * @throws E            la excepción propia de la transacción, sin repetirla.
+     */
+    public static <T, E extends Exception> T ejecutar(String operacion, Transaccion<T, E> transaccion)
+            throws SQLException, E {
+        for (int intento = 1; ; intento++) {
+            try {
+                return transaccion.ejecutar();
+            } catch (SQLException e) {
+                if (!esContencion(e)) {
+                    throw e;
+                }
+                CONTENCIONES.increment();
+                if (intento >= MAX_INTENTOS) {
+                    AGOTADOS.increment();
+                    LOGGER.warn("{}: base de datos ocupada tras {} intentos", operacion, intento);
+                    throw e;
+                }
+
+                long espera = espera(intento, ThreadLocalRandom.current().nextDouble());
+                LOGGER.debug("{}: base de datos ocupada, intento {} de {} dentro de {} ms",
+                        operacion, intento + 1, MAX_INTENTOS, espera);
+                long inicio = System.nanoTime();
+                try {
+                    Thread.sleep(espera);
+                } catch (InterruptedException interrupcion) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+                Metricas.registrar("Contencion." + operacion, inicio);
+                REINTENTOS.increment();
+            }
+        }
+    }
+
+    /**
+     * Espera antes de un intento: la mitad fija y la otra mitad al azar de un tramo que se dobla
+     * en cada intento, hasta {@value #ESPERA_MAXIMA_MS} ms.
+     *
+     * @param intento intento que acaba de fallar, desde 1.
+     * @param azar    número aleatorio entre 0 y 1.
+     * @return los milisegundos de espera.
+     */
+    static long espera(int intento, double azar) {
+        long tramo = Math.min(ESPERA_MAXIMA_MS, ESPERA_BASE_MS << Math.min(intento - 1, 10));
+        return tramo / 2 + (long) (azar * (tramo / 2));
+    }
+
+    /**
+     * @param e error de una operación.
+     * @return true si el error, o alguno de sus causas, es SQLITE_BUSY o SQLITE_LOCKED, incluidos
+     *         sus códigos extendidos.
+     */
+    static boolean esContencion(SQLException e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SQLException) {
+                int codigo = ((SQLException) t).getErrorCode() & 0xff;
+                if (codigo == SQLITE_BUSY || codigo == SQLITE_LOCKED) {
+                    return true;
+                }
+            }
+            String mensaje = t.getMessage();
+            if (mensaje != null && (mensaje.contains("SQLITE_BUSY") || mensaje.contains("SQLITE_LOCKED"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** @return veces que una transacción ha encontrado la base de datos ocupada. */
+    public static long getContenciones() {
+        return CONTENCIONES.sum();
+    }
+
+    /** @return transacciones repetidas tras encontrar la base de datos ocupada. */
+    public static long getReintentos() {
+        return REINTENTOS.sum();
+    }
+
+    /** @return transacciones que han fallado por seguir ocupada la base de datos tras todos los intentos. */
+    public static long getAgotados() {
+        return AGOTADOS.sum();
+    }
+
+    /**
+     * Pone a cero los contadores.
+     */
+    public static void reiniciar() {
+        CONTENCIONES.reset();
+        REINTENTOS.reset();
+        AGOTADOS.reset();
+    }
+}
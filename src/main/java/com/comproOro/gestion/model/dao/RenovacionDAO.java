@@ -1,25 +1,56 @@
 package com.comproOro.gestion.model.dao;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import java.sql.*;
+import javax.sql.DataSource;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import com.comproOro.gestion.model.modelos.Producto;
 import com.comproOro.gestion.model.modelos.Renovacion;
 
 /**
  * DAO (Data Access Object) para manejar operaciones de base de datos relacionadas con renovaciones.
  * Incluye funciones para crear la tabla, insertar, consultar y cerrar la conexión.
  */
-public class RenovacionDAO {
+public class RenovacionDAO implements AutoCloseable {
+
+    private static final Logger LOGGER = LogManager.getLogger(RenovacionDAO.class);
+
+    private final DataSource fuenteDatos;
 
     private Connection connection;
 
+    private final ResumenDAO resumenDAO;
+
+    private final BandejaDocumentosDAO bandejaDocumentos;
+
     /**
      * Constructor que inicializa la conexión a la base de datos y crea la tabla si no existe.
      */
     public RenovacionDAO() {
-        this.connection = DatabaseConnection.getConnection();
+        this(DatabaseConnection.getDataSource());
+    }
+
+    /**
+     * Constructor que usa la fuente de datos indicada y crea la tabla si no existe.
+     *
+     * @param fuenteDatos fuente de datos de la que se obtienen las conexiones.
+     */
+    public RenovacionDAO(DataSource fuenteDatos) {
+        this.fuenteDatos = fuenteDatos;
+        try {
+            this.connection = fuenteDatos.getConnection();
+        } catch (SQLException e) {
+            LOGGER.error("Error al establecer la conexión", e);
+        }
         crearTablaRenovaciones();
+        this.resumenDAO = new ResumenDAO(fuenteDatos);
+        this.bandejaDocumentos = new BandejaDocumentosDAO(fuenteDatos);
     }
 
     /**
@@ -33,41 +64,201 @@ public class RenovacionDAO {
                 "fechaRenovacion DATE NOT NULL, " +
                 "fechaFinRenovacion DATE NOT NULL, " +
                 "version INTEGER NOT NULL, " +
-                "importe REAL NOT NULL" +
+                "importe INTEGER NOT NULL" +
                 ");";
 
-        try (Statement stmt = connection.createStatement()) {
+        try (Metricas.Medicion medicion = Metricas.medir("RenovacionDAO.crearTablaRenovaciones", sql);
+             Statement stmt = connection.createStatement()) {
             stmt.execute(sql);
-            System.out.println("Tabla 'renovaciones' creada o ya existe.");
+            // idContrato tiene afinidad INTEGER pero guarda el id_contrato (texto); al cruzarla con
+            // contratos hay que usar CAST(idContrato AS TEXT) para que se use el índice de contratos.
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_renovaciones_idContrato ON renovaciones(idContrato, version)");
+            LOGGER.debug("Tabla 'renovaciones' creada o ya existe.");
         } catch (SQLException e) {
-            System.out.println("Error al crear la tabla 'renovaciones': " + e.getMessage());
+            LOGGER.error("Error al crear la tabla 'renovaciones'", e);
         }
     }
 
     /**
-     * Guarda una renovación en la base de datos.
+     * Guarda una renovación en la base de datos y, en la misma transacción, apunta sus
+     * documentos en la bandeja de documentos.
      *
      * @param renovacion El objeto {@link Renovacion} que se desea guardar.
      * @return <code>true</code> si la operación fue exitosa, <code>false</code> si hubo un error.
      */
     public boolean guardarRenovacion(Renovacion renovacion) {
+        try {
+            return Reintentos.ejecutar("RenovacionDAO.guardarRenovacion", () -> insertarRenovacion(renovacion));
+        } catch (SQLException e) {
+            LOGGER.error("Error al guardar la renovación", e);
+            return false;
+        }
+    }
+
+    private boolean insertarRenovacion(Renovacion renovacion) throws SQLException {
         String query = "INSERT INTO renovaciones (idContrato, fechaRenovacion, fechaFinRenovacion, version, importe) VALUES (?, ?, ?, ?, ?)";
 
-        try (PreparedStatement stmt = connection.prepareStatement(query)) {
+        try (Metricas.Medicion medicion = Metricas.medir("RenovacionDAO.guardarRenovacion", query);
+             PreparedStatement stmt = connection.prepareStatement(query)) {
             stmt.setString(1, renovacion.getIdContrato());
             stmt.setDate(2, Date.valueOf(renovacion.getFechaRenovacion()));
             stmt.setDate(3, Date.valueOf(renovacion.getFechaFinRenovacion()));
             stmt.setInt(4, renovacion.getVersion());
-            stmt.setDouble(5, renovacion.getImporte());
+            stmt.setLong(5, renovacion.getImporteCentimos());
+
+            connection.setAutoCommit(false);
+            try {
+                resumenDAO.registrarRenovacion(connection, renovacion);
+                int filasInsertadas = stmt.executeUpdate();
+                bandejaDocumentos.encolar(connection, BandejaDocumentosDAO.RENOVACION,
+                        renovacion.getIdContrato(), renovacion.getVersion());
+                connection.commit();
+                return filasInsertadas > 0;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Guarda varias renovaciones en una sola transacción: asigna a cada una la versión siguiente
+     * a la última de su contrato (leídas todas en una consulta), las inserta en un lote y apunta
+     * sus documentos en la bandeja. Si una falla no se guarda ninguna.
+     * La versión de cada renovación recibida se sobrescribe con la asignada.
+     *
+     * @param renovaciones Renovaciones que se desean guardar, una por contrato.
+     * @return <code>true</code> si se han guardado todas, <code>false</code> si hubo un error.
+     */
+    public boolean guardarRenovaciones(List<Renovacion> renovaciones) {
+        try {
+            return guardar(renovaciones, Collections.emptyMap(), Collections.emptyList());
+        } catch (ConflictoVersionException e) {
+            // Sin versiones de contratos que comprobar no puede haber conflicto
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Como {@link #guardarRenovaciones(List)}, pero solo si ningún contrato ha cambiado desde que
+     * se leyó: en la misma transacción se compara e incrementa la versión de cada uno, así que dos
+     * puestos que renuevan el mismo empeño a la vez no pueden guardar los dos.
+     *
+     * @param renovaciones        Renovaciones que se desean guardar, una por contrato.
+     * @param versionesContratos  Versión leída de cada contrato, por ID de contrato.
+     * @return <code>true</code> si se han guardado todas, <code>false</code> si hubo un error.
+     * @throws ConflictoVersionException si otro puesto ha modificado o rescatado alguno de los
+     *                                   contratos; no se guarda ninguna renovación.
+     */
+    public boolean guardarRenovaciones(List<Renovacion> renovaciones, Map<String, Integer> versionesContratos)
+            throws ConflictoVersionException {
+        return guardar(renovaciones, versionesContratos, Collections.emptyList());
+    }
 
-            int filasInsertadas = stmt.executeUpdate();
-            return filasInsertadas > 0;
+    /**
+     * Renueva un contrato en una sola transacción: comprueba que no ha cambiado desde que se leyó,
+     * guarda los productos cuyo importe ha bajado por la aportación y guarda la renovación con la
+     * versión siguiente a la última.
+     *
+     * @param renovacion       Renovación que se desea guardar; recibe la versión asignada.
+     * @param versionContrato  Versión leída del contrato.
+     * @param productos        Productos modificados del contrato, con la versión con que se leyeron.
+     * @return <code>true</code> si se ha guardado, <code>false</code> si hubo un error.
+     * @throws ConflictoVersionException si otro puesto ha modificado el contrato o alguno de los
+     *                                   productos; no se guarda nada y hay que volver a leerlos.
+     */
+    public boolean renovarContrato(Renovacion renovacion, int versionContrato, List<Producto> productos)
+            throws ConflictoVersionException {
+        return guardar(Collections.singletonList(renovacion),
+                Collections.singletonMap(renovacion.getIdContrato(), versionContrato), productos);
+    }
+
+    private boolean guardar(List<Renovacion> renovaciones, Map<String, Integer> versionesContratos,
+                            List<Producto> productos) throws ConflictoVersionException {
+        if (renovaciones.isEmpty()) {
+            return true;
+        }
+        // Al repetir, los productos vuelven a la versión con que se leyeron
+        int[] versionesProductos = new int[productos.size()];
+        for (int i = 0; i < versionesProductos.length; i++) {
+            versionesProductos[i] = productos.get(i).getVersionFila();
+        }
+        try {
+            return Reintentos.ejecutar("RenovacionDAO.guardarRenovaciones", () -> {
+                for (int i = 0; i < versionesProductos.length; i++) {
+                    productos.get(i).setVersionFila(versionesProductos[i]);
+                }
+                return insertarRenovaciones(renovaciones, versionesContratos, productos);
+            });
         } catch (SQLException e) {
-            e.printStackTrace();
+            LOGGER.error("Error al guardar las renovaciones", e);
             return false;
         }
     }
 
+    private boolean insertarRenovaciones(List<Renovacion> renovaciones, Map<String, Integer> versionesContratos,
+                                         List<Producto> productos) throws ConflictoVersionException, SQLException {
+
+        String sqlVersiones = "SELECT idContrato, MAX(version) AS max_version FROM renovaciones WHERE idContrato IN ("
+                + String.join(", ", Collections.nCopies(renovaciones.size(), "?")) + ") GROUP BY idContrato";
+        String query = "INSERT INTO renovaciones (idContrato, fechaRenovacion, fechaFinRenovacion, version, importe) VALUES (?, ?, ?, ?, ?)";
+
+        try (Metricas.Medicion medicion = Metricas.medir("RenovacionDAO.guardarRenovaciones", query)) {
+            connection.setAutoCommit(false);
+            try {
+                for (Map.Entry<String, Integer> version : versionesContratos.entrySet()) {
+                    ContratoDAO.comprobarVersion(connection, version.getKey(), version.getValue());
+                }
+                for (Producto producto : productos) {
+                    ProductoDAO.actualizarProducto(connection, producto);
+                }
+
+                // Las versiones se leen dentro de la transacción para no repetir una ya asignada
+                Map<String, Integer> versiones = new HashMap<>();
+                try (PreparedStatement stmt = connection.prepareStatement(sqlVersiones)) {
+                    for (int i = 0; i < renovaciones.size(); i++) {
+                        stmt.setString(i + 1, renovaciones.get(i).getIdContrato());
+                    }
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            versiones.put(rs.getString("idContrato"), rs.getInt("max_version"));
+                        }
+                    }
+                }
+
+                try (PreparedStatement stmt = connection.prepareStatement(query)) {
+                    for (Renovacion renovacion : renovaciones) {
+                        renovacion.setVersion(versiones.merge(renovacion.getIdContrato(), 1, Integer::sum));
+                        // El resumen lee el importe de la renovación anterior, así que va antes del lote
+                        resumenDAO.registrarRenovacion(connection, renovacion);
+
+                        stmt.setString(1, renovacion.getIdContrato());
+                        stmt.setDate(2, Date.valueOf(renovacion.getFechaRenovacion()));
+                        stmt.setDate(3, Date.valueOf(renovacion.getFechaFinRenovacion()));
+                        stmt.setInt(4, renovacion.getVersion());
+                        stmt.setLong(5, renovacion.getImporteCentimos());
+                        stmt.addBatch();
+                    }
+                    stmt.executeBatch();
+                }
+
+                for (Renovacion renovacion : renovaciones) {
+                    bandejaDocumentos.encolar(connection, BandejaDocumentosDAO.RENOVACION,
+                            renovacion.getIdContrato(), renovacion.getVersion());
+                }
+                connection.commit();
+                return true;
+            } catch (SQLException | ConflictoVersionException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
     /**
      * Obtiene todas las renovaciones almacenadas en la base de datos.
      *
@@ -77,7 +268,8 @@ public class RenovacionDAO {
         List<Renovacion> renovaciones = new ArrayList<>();
         String sql = "SELECT * FROM renovaciones";
 
-        try (Statement stmt = connection.createStatement();
+        try (Metricas.Medicion medicion = Metricas.medir("RenovacionDAO.obtenerTodasLasRenovaciones", sql);
+             Statement stmt = connection.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
 
             while (rs.next()) {
@@ -86,12 +278,12 @@ public class RenovacionDAO {
                 LocalDate fechaRenovacion = rs.getDate("fechaRenovacion").toLocalDate();
                 LocalDate fechaFinRenovacion = rs.getDate("fechaFinRenovacion").toLocalDate();
                 int version = rs.getInt("version");
-                double importe = rs.getDouble("importe");
+                long importe = rs.getLong("importe");
 
-                renovaciones.add(new Renovacion(idRenovacion, idContrato, fechaRenovacion, fechaFinRenovacion, version, importe));
+                renovaciones.add(crearRenovacion(idRenovacion, idContrato, fechaRenovacion, fechaFinRenovacion, version, importe));
             }
         } catch (SQLException e) {
-            System.out.println("Error al obtener las renovaciones: " + e.getMessage());
+            LOGGER.error("Error al obtener las renovaciones", e);
         }
 
         return renovaciones;
@@ -100,13 +292,14 @@ public class RenovacionDAO {
     /**
      * Cierra la conexión con la base de datos si está abierta.
      */
+    @Override
     public void close() {
         try {
             if (connection != null && !connection.isClosed()) {
                 connection.close();
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            LOGGER.error("Error al cerrar la conexión", e);
         }
     }
 
@@ -120,7 +313,8 @@ public class RenovacionDAO {
         String sql = "SELECT MAX(version) AS max_version FROM renovaciones WHERE idContrato = ?";
         int maxVersion = 0;
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (Metricas.Medicion medicion = Metricas.medir("RenovacionDAO.obtenerUltimaVersionPorIdContrato", sql);
+             PreparedStatement stmt = connection.prepareStatement(sql)) {
             stmt.setString(1, idContrato);
 
             try (ResultSet rs = stmt.executeQuery()) {
@@ -132,7 +326,7 @@ public class RenovacionDAO {
                 }
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            LOGGER.error("Error al obtener la última versión de renovación", e);
         }
 
         return maxVersion;
@@ -148,7 +342,8 @@ public class RenovacionDAO {
         List<Renovacion> renovaciones = new ArrayList<>();
         String sql = "SELECT * FROM renovaciones WHERE idContrato = ?";
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (Metricas.Medicion medicion = Metricas.medir("RenovacionDAO.obtenerRenovacionesPorIdContrato", sql);
+             PreparedStatement stmt = connection.prepareStatement(sql)) {
             stmt.setString(1, idContrato);
 
             try (ResultSet rs = stmt.executeQuery()) {
@@ -157,13 +352,13 @@ public class RenovacionDAO {
                     LocalDate fechaRenovacion = rs.getDate("fechaRenovacion").toLocalDate();
                     LocalDate fechaFinRenovacion = rs.getDate("fechaFinRenovacion").toLocalDate();
                     int version = rs.getInt("version");
-                    double importe = rs.getDouble("importe");
+                    long importe = rs.getLong("importe");
 
-                    renovaciones.add(new Renovacion(idRenovacion, idContrato, fechaRenovacion, fechaFinRenovacion, version, importe));
+                    renovaciones.add(crearRenovacion(idRenovacion, idContrato, fechaRenovacion, fechaFinRenovacion, version, importe));
                 }
             }
         } catch (SQLException e) {
-            System.out.println("Error al obtener las renovaciones por idContrato: " + e.getMessage());
+            LOGGER.error("Error al obtener las renovaciones por idContrato", e);
         }
 
         return renovaciones;
@@ -179,24 +374,111 @@ public class RenovacionDAO {
         String sql = "SELECT * FROM renovaciones WHERE idContrato = ? ORDER BY version DESC LIMIT 1";
         Renovacion renovacion = null;
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (Metricas.Medicion medicion = Metricas.medir("RenovacionDAO.obtenerUltRenovPorIdContrato", sql);
+             PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setString(1, idContrato);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    int idRenovacion = rs.getInt("idRenovacion");
+                    LocalDate fechaRenovacion = rs.getDate("fechaRenovacion").toLocalDate();
+                    LocalDate fechaFinRenovacion = rs.getDate("fechaFinRenovacion").toLocalDate();
+                    int version = rs.getInt("version");
+                    long importe = rs.getLong("importe");
+
+                    renovacion = crearRenovacion(idRenovacion, idContrato, fechaRenovacion, fechaFinRenovacion, version, importe);
+                }
+            }
+        } catch (SQLException e) {
+            LOGGER.error("Error al obtener la última renovación del contrato", e);
+        }
+
+        return renovacion;
+    }
+
+    /**
+     * Obtiene la renovación de un contrato con una versión concreta.
+     *
+     * @param idContrato ID del contrato.
+     * @param version    Versión de la renovación.
+     * @return La renovación, o <code>null</code> si no existe.
+     */
+    public Renovacion obtenerRenovacion(String idContrato, int version) {
+        String sql = "SELECT * FROM renovaciones WHERE idContrato = ? AND version = ?";
+        Renovacion renovacion = null;
+
+        try (Metricas.Medicion medicion = Metricas.medir("RenovacionDAO.obtenerRenovacion", sql);
+             PreparedStatement stmt = connection.prepareStatement(sql)) {
             stmt.setString(1, idContrato);
+            stmt.setInt(2, version);
 
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
+                    renovacion = crearRenovacion(rs.getInt("idRenovacion"), idContrato,
+                            rs.getDate("fechaRenovacion").toLocalDate(), rs.getDate("fechaFinRenovacion").toLocalDate(),
+                            version, rs.getLong("importe"));
+                }
+            }
+        } catch (SQLException e) {
+            LOGGER.error("Error al obtener la renovación {} del contrato {}", version, idContrato, e);
+        }
+
+        return renovacion;
+    }
+
+    /**
+     * Obtiene en una sola consulta la última renovación (mayor versión) de cada contrato indicado.
+     *
+     * @param idsContrato IDs de los contratos.
+     * @return Mapa con la última renovación de cada contrato; los que no tienen renovaciones no aparecen.
+     */
+    public Map<String, Renovacion> obtenerUltimasRenovaciones(List<String> idsContrato) {
+        if (idsContrato.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        String sql = "SELECT * FROM renovaciones r WHERE r.idContrato IN ("
+                + String.join(", ", Collections.nCopies(idsContrato.size(), "?")) + ")"
+                + " AND r.version = (SELECT MAX(version) FROM renovaciones WHERE idContrato = r.idContrato)";
+        Map<String, Renovacion> renovaciones = new HashMap<>();
+
+        try (Metricas.Medicion medicion = Metricas.medir("RenovacionDAO.obtenerUltimasRenovaciones", sql);
+             PreparedStatement stmt = connection.prepareStatement(sql)) {
+            for (int i = 0; i < idsContrato.size(); i++) {
+                stmt.setString(i + 1, idsContrato.get(i));
+            }
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
                     int idRenovacion = rs.getInt("idRenovacion");
+                    String idContrato = rs.getString("idContrato");
                     LocalDate fechaRenovacion = rs.getDate("fechaRenovacion").toLocalDate();
                     LocalDate fechaFinRenovacion = rs.getDate("fechaFinRenovacion").toLocalDate();
                     int version = rs.getInt("version");
-                    double importe = rs.getDouble("importe");
+                    long importe = rs.getLong("importe");
 
-                    renovacion = new Renovacion(idRenovacion, idContrato, fechaRenovacion, fechaFinRenovacion, version, importe);
+                    renovaciones.put(idContrato, crearRenovacion(idRenovacion, idContrato, fechaRenovacion, fechaFinRenovacion, version, importe));
                 }
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            LOGGER.error("Error al obtener las últimas renovaciones de los contratos", e);
         }
 
+        return renovaciones;
+    }
+
+    /**
+     * Crea una renovación leída de la base de datos, con el importe en céntimos.
+     */
+    private static Renovacion crearRenovacion(int idRenovacion, String idContrato, LocalDate fechaRenovacion,
+                                              LocalDate fechaFinRenovacion, int version, long importe) {
+        Renovacion renovacion = new Renovacion();
+        renovacion.setIdRenovacion(idRenovacion);
+        renovacion.setIdContrato(idContrato);
+        renovacion.setFechaRenovacion(fechaRenovacion);
+        renovacion.setFechaFinRenovacion(fechaFinRenovacion);
+        renovacion.setVersion(version);
+        renovacion.setImporteCentimos(importe);
         return renovacion;
     }
 }
@@ -0,0 +1,329 @@
+package com.comproOro.gestion.model.dao;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import com.comproOro.gestion.model.modelos.Contrato;
+import com.comproOro.gestion.model.modelos.Producto;
+import com.comproOro.gestion.model.modelos.Renovacion;
+import com.comproOro.gestion.model.modelos.Resumen;
+
+import java.sql.*;
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Clase DAO para la tabla de resúmenes 'resumen_diario'.
+ * Mantiene una fila por día y tipo de contrato con los totales de contratos, gramos,
+ * renovaciones y rescates. Los DAO de contratos, productos y renovaciones la actualizan
+ * de forma incremental dentro de su misma transacción, de modo que los informes no
+ * necesitan recorrer el histórico completo.
+ */
+public class ResumenDAO {
+
+    private static final Logger LOGGER = LogManager.getLogger(ResumenDAO.class);
+
+    private final DataSource fuenteDatos;
+
+    /** Expresión SQL que convierte una fecha guardada en milisegundos al día local {@code yyyy-MM-dd}. */
+    private static final String DIA = "date(%s / 1000, 'unixepoch', 'localtime')";
+
+    /**
+     * Constructor que crea la tabla de resúmenes si no existe.
+     */
+    public ResumenDAO() {
+        this(DatabaseConnection.getDataSource());
+    }
+
+    /**
+     * Constructor que usa la fuente de datos indicada y crea la tabla de resúmenes si no existe.
+     *
+     * @param fuenteDatos fuente de datos de la que se obtienen las conexiones.
+     */
+    public ResumenDAO(DataSource fuenteDatos) {
+        this.fuenteDatos = fuenteDatos;
+        crearTablaResumen();
+    }
+
+    /**
+     * Crea la tabla 'resumen_diario' en la base de datos si no existe.
+     */
+    private void crearTablaResumen() {
+        String sql = "CREATE TABLE IF NOT EXISTS resumen_diario ("
+                + " fecha TEXT NOT NULL, "
+                + " tipo TEXT NOT NULL, "
+                + " num_contratos INTEGER NOT NULL DEFAULT 0, "
+                + " importe_contratos INTEGER NOT NULL DEFAULT 0, "
+                + " peso_total REAL NOT NULL DEFAULT 0.0, "
+                + " num_renovaciones INTEGER NOT NULL DEFAULT 0, "
+                + " importe_renovaciones INTEGER NOT NULL DEFAULT 0, "
+                + " importe_amortizado INTEGER NOT NULL DEFAULT 0, "
+                + " num_rescates INTEGER NOT NULL DEFAULT 0, "
+                + " importe_rescates INTEGER NOT NULL DEFAULT 0, "
+                + " PRIMARY KEY (fecha, tipo)"
+                + ");";
+
+        try (Connection conn = fuenteDatos.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+            LOGGER.debug("Tabla 'resumen_diario' creada o ya existe.");
+        } catch (SQLException e) {
+            LOGGER.error("Error al crear la tabla resumen_diario", e);
+        }
+    }
+
+    /**
+     * Suma un contrato nuevo al resumen del día de inicio del contrato.
+     *
+     * @param conn     Conexión de la transacción en curso.
+     * @param contrato Contrato recién insertado.
+     * @throws SQLException si falla la actualización.
+     */
+    void registrarContrato(Connection conn, Contrato contrato) throws SQLException {
+        String sql = "INSERT INTO resumen_diario (fecha, tipo, num_contratos, importe_contratos) "
+                + "VALUES (" + String.format(DIA, "?") + ", ?, 1, ?) "
+                + "ON CONFLICT(fecha, tipo) DO UPDATE SET "
+                + "num_contratos = num_contratos + 1, "
+                + "importe_contratos = importe_contratos + excluded.importe_contratos";
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, contrato.getFechaInicio().getTime());
+            pstmt.setString(2, contrato.getTipo());
+            pstmt.setLong(3, contrato.getImporteCentimos());
+            pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Suma el peso de un producto al resumen del día y tipo de su contrato.
+     * Si el contrato no existe no se registra nada.
+     *
+     * @param conn     Conexión de la transacción en curso.
+     * @param producto Producto recién insertado.
+     * @throws SQLException si falla la actualización.
+     */
+    void registrarProducto(Connection conn, Producto producto) throws SQLException {
+        String sql = "INSERT INTO resumen_diario (fecha, tipo, peso_total) "
+                + "SELECT " + String.format(DIA, "fecha_inicio") + ", tipo, ? FROM contratos WHERE id_contrato = ? "
+                + "ON CONFLICT(fecha, tipo) DO UPDATE SET peso_total = peso_total + excluded.peso_total";
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setDouble(1, producto.getPeso());
+            pstmt.setString(2, producto.getIdContrato());
+            pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Suma una renovación al resumen del día en que se realiza. El importe amortizado se
+     * calcula como la diferencia con el importe vigente antes de la renovación, por lo que
+     * debe llamarse antes de insertar la nueva fila en 'renovaciones'.
+     *
+     * @param conn       Conexión de la transacción en curso.
+     * @param renovacion Renovación que se va a insertar.
+     * @throws SQLException si falla la actualización.
+     */
+    void registrarRenovacion(Connection conn, Renovacion renovacion) throws SQLException {
+        String sql = "INSERT INTO resumen_diario (fecha, tipo, num_renovaciones, importe_renovaciones, importe_amortizado) "
+                + "VALUES (" + String.format(DIA, "?") + ", "
+                + "COALESCE((SELECT tipo FROM contratos WHERE id_contrato = ?), 'Empeno'), 1, ?, "
+                + "COALESCE((SELECT importe FROM renovaciones WHERE idContrato = ? ORDER BY version DESC LIMIT 1), "
+                + "(SELECT importe FROM contratos WHERE id_contrato = ?), ?) - ?) "
+                + "ON CONFLICT(fecha, tipo) DO UPDATE SET "
+                + "num_renovaciones = num_renovaciones + 1, "
+                + "importe_renovaciones = importe_renovaciones + excluded.importe_renovaciones, "
+                + "importe_amortizado = importe_amortizado + excluded.importe_amortizado";
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, Date.valueOf(renovacion.getFechaRenovacion()).getTime());
+            pstmt.setString(2, renovacion.getIdContrato());
+            pstmt.setLong(3, renovacion.getImporteCentimos());
+            pstmt.setString(4, renovacion.getIdContrato());
+            pstmt.setString(5, renovacion.getIdContrato());
+            pstmt.setLong(6, renovacion.getImporteCentimos());
+            pstmt.setLong(7, renovacion.getImporteCentimos());
+            pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Suma un rescate al resumen del día de rescate, con el importe pendiente del contrato
+     * (el de su última renovación o, si no tiene, el del contrato). Solo se registra si el
+     * contrato aún no consta como rescatado, así que debe llamarse antes de actualizarlo.
+     *
+     * @param conn     Conexión de la transacción en curso.
+     * @param contrato Contrato que se va a marcar como rescatado.
+     * @throws SQLException si falla la actualización.
+     */
+    void registrarRescate(Connection conn, Contrato contrato) throws SQLException {
+        String sql = "INSERT INTO resumen_diario (fecha, tipo, num_rescates, importe_rescates) "
+                + "SELECT " + String.format(DIA, "?") + ", c.tipo, 1, "
+                + "COALESCE((SELECT r.importe FROM renovaciones r WHERE r.idContrato = c.id_contrato "
+                + "ORDER BY r.version DESC LIMIT 1), c.importe) "
+                + "FROM contratos c WHERE c.id_contrato = ? AND COALESCE(c.rescatado, 'N') <> 'S' "
+                + "ON CONFLICT(fecha, tipo) DO UPDATE SET "
+                + "num_rescates = num_rescates + 1, "
+                + "importe_rescates = importe_rescates + excluded.importe_rescates";
+
+        java.util.Date fechaRescate = contrato.getFechaRescate() != null ? contrato.getFechaRescate() : new java.util.Date();
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, fechaRescate.getTime());
+            pstmt.setString(2, contrato.getIdContrato());
+            pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Vuelve a calcular todos los resúmenes a partir de las tablas de contratos, productos y
+     * renovaciones. Se ejecuta en una única transacción.
+     *
+     * @return true si se reconstruyó correctamente, false en caso contrario.
+     */
+    public boolean reconstruirResumen() {
+        String borrar = "DELETE FROM resumen_diario";
+
+        String contratos = "INSERT INTO resumen_diario (fecha, tipo, num_contratos, importe_contratos) "
+                + "SELECT " + String.format(DIA, "fecha_inicio") + " AS dia, tipo, COUNT(*), SUM(importe) "
+                + "FROM contratos GROUP BY dia, tipo";
+
+        String productos = "INSERT INTO resumen_diario (fecha, tipo, peso_total) "
+                + "SELECT " + String.format(DIA, "c.fecha_inicio") + " AS dia, c.tipo, SUM(p.peso) "
+                + "FROM productos p JOIN contratos c ON c.id_contrato = p.idContrato WHERE 1 GROUP BY dia, c.tipo "
+                + "ON CONFLICT(fecha, tipo) DO UPDATE SET peso_total = excluded.peso_total";
+
+        String renovaciones = "INSERT INTO resumen_diario (fecha, tipo, num_renovaciones, importe_renovaciones, importe_amortizado) "
+                + "SELECT dia, tipo, COUNT(*), SUM(importe), SUM(anterior - importe) FROM ("
+                + " SELECT " + String.format(DIA, "r.fechaRenovacion") + " AS dia, COALESCE(c.tipo, 'Empeno') AS tipo, r.importe AS importe, "
+                + " COALESCE(LAG(r.importe) OVER (PARTITION BY r.idContrato ORDER BY r.version), c.importe, r.importe) AS anterior "
+                + " FROM renovaciones r LEFT JOIN contratos c ON c.id_contrato = CAST(r.idContrato AS TEXT)"
+                + ") WHERE 1 GROUP BY dia, tipo "
+                + "ON CONFLICT(fecha, tipo) DO UPDATE SET "
+                + "num_renovaciones = excluded.num_renovaciones, "
+                + "importe_renovaciones = excluded.importe_renovaciones, "
+                + "importe_amortizado = excluded.importe_amortizado";
+
+        String rescates = "INSERT INTO resumen_diario (fecha, tipo, num_rescates, importe_rescates) "
+                + "SELECT " + String.format(DIA, "c.fecha_rescate") + " AS dia, c.tipo, COUNT(*), "
+                + "SUM(COALESCE((SELECT r.importe FROM renovaciones r WHERE r.idContrato = c.id_contrato "
+                + "ORDER BY r.version DESC LIMIT 1), c.importe)) "
+                + "FROM contratos c WHERE c.rescatado = 'S' AND c.fecha_rescate IS NOT NULL GROUP BY dia, c.tipo "
+                + "ON CONFLICT(fecha, tipo) DO UPDATE SET "
+                + "num_rescates = excluded.num_rescates, "
+                + "importe_rescates = excluded.importe_rescates";
+
+        try (Connection conn = fuenteDatos.getConnection();
+             Statement stmt = conn.createStatement()) {
+            conn.setAutoCommit(false);
+            try {
+                stmt.executeUpdate(borrar);
+                stmt.executeUpdate(contratos);
+                stmt.executeUpdate(productos);
+                stmt.executeUpdate(renovaciones);
+                stmt.executeUpdate(rescates);
+                conn.commit();
+                return true;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            LOGGER.error("Error al reconstruir el resumen", e);
+            return false;
+        }
+    }
+
+    /**
+     * Obtiene los resúmenes diarios comprendidos entre dos fechas (ambas incluidas).
+     *
+     * @param desde Primer día a incluir, o null para no limitar.
+     * @param hasta Último día a incluir, o null para no limitar.
+     * @return Lista de resúmenes ordenada por día y tipo.
+     */
+    public List<Resumen> obtenerResumenDiario(LocalDate desde, LocalDate hasta) {
+        String sql = "SELECT fecha AS periodo, tipo, num_contratos, importe_contratos, peso_total, "
+                + "num_renovaciones, importe_renovaciones, importe_amortizado, num_rescates, importe_rescates "
+                + "FROM resumen_diario WHERE fecha BETWEEN ? AND ? ORDER BY fecha, tipo";
+        return consultarResumen(sql, desde, hasta);
+    }
+
+    /**
+     * Obtiene los resúmenes mensuales comprendidos entre dos fechas, agrupando las filas diarias.
+     *
+     * @param desde Primer día a incluir, o null para no limitar.
+     * @param hasta Último día a incluir, o null para no limitar.
+     * @return Lista de resúmenes ordenada por mes y tipo.
+     */
+    public List<Resumen> obtenerResumenMensual(LocalDate desde, LocalDate hasta) {
+        String sql = "SELECT substr(fecha, 1, 7) AS periodo, tipo, SUM(num_contratos) AS num_contratos, "
+                + "SUM(importe_contratos) AS importe_contratos, SUM(peso_total) AS peso_total, "
+                + "SUM(num_renovaciones) AS num_renovaciones, SUM(importe_renovaciones) AS importe_renovaciones, "
+                + "SUM(importe_amortizado) AS importe_amortizado, SUM(num_rescates) AS num_rescates, "
+                + "SUM(importe_rescates) AS importe_rescates "
+                + "FROM resumen_diario WHERE fecha BETWEEN ? AND ? GROUP BY periodo, tipo ORDER BY periodo, tipo";
+        return consultarResumen(sql, desde, hasta);
+    }
+
+    /**
+     * Obtiene el importe prestado que sigue pendiente en empeños no rescatados:
+     * importe de los empeños menos lo amortizado en renovaciones y lo liquidado en rescates.
+     *
+     * @return El importe pendiente en empeños abiertos, en céntimos.
+     */
+    public long obtenerImportePendienteEmpenos() {
+        String sql = "SELECT COALESCE(SUM(importe_contratos - importe_amortizado - importe_rescates), 0) "
+                + "FROM resumen_diario WHERE tipo = 'Empeno'";
+
+        try (Connection conn = fuenteDatos.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            if (rs.next()) {
+                return rs.getLong(1);
+            }
+        } catch (SQLException e) {
+            LOGGER.error("Error al obtener el importe pendiente de empeños", e);
+        }
+        return 0;
+    }
+
+    /**
+     * Ejecuta una consulta de resúmenes con un rango de fechas y convierte las filas.
+     *
+     * @param sql   Consulta con dos parámetros de fecha (desde y hasta).
+     * @param desde Primer día a incluir, o null.
+     * @param hasta Último día a incluir, o null.
+     * @return Lista de resúmenes.
+     */
+    private List<Resumen> consultarResumen(String sql, LocalDate desde, LocalDate hasta) {
+        List<Resumen> resumenes = new ArrayList<>();
+
+        try (Connection conn = fuenteDatos.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setString(1, desde != null ? desde.toString() : "0000-01-01");
+            pstmt.setString(2, hasta != null ? hasta.toString() : "9999-12-31");
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    Resumen resumen = new Resumen();
+                    resumen.setPeriodo(rs.getString("periodo"));
+                    resumen.setTipo(rs.getString("tipo"));
+                    resumen.setNumContratos(rs.getInt("num_contratos"));
+                    resumen.setImporteContratosCentimos(rs.getLong("importe_contratos"));
+                    resumen.setPesoTotal(rs.getDouble("peso_total"));
+                    resumen.setNumRenovaciones(rs.getInt("num_renovaciones"));
+                    resumen.setImporteRenovacionesCentimos(rs.getLong("importe_renovaciones"));
+                    resumen.setImporteAmortizadoCentimos(rs.getLong("importe_amortizado"));
+                    resumen.setNumRescates(rs.getInt("num_rescates"));
+                    resumen.setImporteRescatesCentimos(rs.getLong("importe_rescates"));
+                    resumenes.add(resumen);
+                }
+            }
+        } catch (SQLException e) {
+            LOGGER.error("Error al obtener el resumen", e);
+        }
+
+        return resumenes;
+    }
+}
@@ -0,0 +1,136 @@
+package com.comproOro.gestion.model.dao;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import com.comproOro.gestion.model.modelos.Tarifa;
+import java.sql.*;
+import javax.sql.DataSource;
+
+/**
+ * DAO de la tabla de tarifas, con las condiciones de renovación de cada tipo de contrato.
+ * Al crear la tabla se apuntan las condiciones de siempre para los empeños (un 10 % y un mes),
+ * que luego pueden cambiarse sin tocar el código.
+ */
+public class TarifaDAO {
+
+    private static final Logger LOGGER = LogManager.getLogger(TarifaDAO.class);
+
+    private static final String EMPENO = "Empeno";
+
+    private final DataSource fuenteDatos;
+
+    /**
+     * Constructor que crea la tabla de tarifas si no existe.
+     */
+    public TarifaDAO() {
+        this(DatabaseConnection.getDataSource());
+    }
+
+    /**
+     * Constructor que usa la fuente de datos indicada y crea la tabla de tarifas si no existe.
+     *
+     * @param fuenteDatos fuente de datos de la que se obtienen las conexiones.
+     */
+    public TarifaDAO(DataSource fuenteDatos) {
+        this.fuenteDatos = fuenteDatos;
+        crearTablaTarifas();
+    }
+
+    /**
+     * Crea la tabla 'tarifas' si no existe y apunta la tarifa por defecto de los empeños.
+     */
+    private void crearTablaTarifas() {
+        String sql = "CREATE TABLE IF NOT EXISTS tarifas ("
+                + " tipo TEXT PRIMARY KEY, "
+                + " porcentaje_renovacion REAL NOT NULL, "
+                + " meses_renovacion INTEGER NOT NULL, "
+                + " dias_gracia INTEGER NOT NULL"
+                + ");";
+
+        try (Metricas.Medicion medicion = Metricas.medir("TarifaDAO.crearTablaTarifas", sql);
+             Connection conn = fuenteDatos.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "INSERT OR IGNORE INTO tarifas (tipo, porcentaje_renovacion, meses_renovacion, dias_gracia) VALUES (?, ?, ?, ?)")) {
+                asignar(pstmt, tarifaEmpenoPorDefecto());
+                pstmt.executeUpdate();
+            }
+            LOGGER.debug("Tabla 'tarifas' creada o ya existe.");
+        } catch (SQLException e) {
+            LOGGER.error("Error al crear la tabla tarifas", e);
+        }
+    }
+
+    /**
+     * Obtiene la tarifa de un tipo de contrato.
+     *
+     * @param tipo Tipo de contrato.
+     * @return la tarifa, o null si el tipo no tiene (las compras no se renuevan).
+     */
+    public Tarifa obtenerTarifa(String tipo) {
+        String sql = "SELECT * FROM tarifas WHERE tipo = ?";
+
+        try (Metricas.Medicion medicion = Metricas.medir("TarifaDAO.obtenerTarifa", sql);
+             Connection conn = fuenteDatos.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, tipo);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return new Tarifa(rs.getString("tipo"), rs.getDouble("porcentaje_renovacion"),
+                            rs.getInt("meses_renovacion"), rs.getInt("dias_gracia"));
+                }
+            }
+        } catch (SQLException e) {
+            LOGGER.error("Error al obtener la tarifa de {}", tipo, e);
+        }
+        return null;
+    }
+
+    /**
+     * Obtiene la tarifa de los empeños, o la de por defecto si no se puede leer.
+     *
+     * @return la tarifa de los empeños.
+     */
+    public Tarifa obtenerTarifaEmpeno() {
+        Tarifa tarifa = obtenerTarifa(EMPENO);
+        return tarifa != null ? tarifa : tarifaEmpenoPorDefecto();
+    }
+
+    /**
+     * Tarifa de los empeños si no se ha configurado otra: un 10 % del importe, un mes más y
+     * treinta días de gracia.
+     *
+     * @return una tarifa nueva con esas condiciones.
+     */
+    public static Tarifa tarifaEmpenoPorDefecto() {
+        return new Tarifa(EMPENO, 0.10, 1, 30);
+    }
+
+    /**
+     * Guarda la tarifa de un tipo de contrato, sustituyendo la anterior.
+     *
+     * @param tarifa Tarifa que se desea guardar.
+     * @return true si se guardó, false en caso de error.
+     */
+    public boolean guardarTarifa(Tarifa tarifa) {
+        String sql = "INSERT OR REPLACE INTO tarifas (tipo, porcentaje_renovacion, meses_renovacion, dias_gracia) VALUES (?, ?, ?, ?)";
+
+        try (Metricas.Medicion medicion = Metricas.medir("TarifaDAO.guardarTarifa", sql);
+             Connection conn = fuenteDatos.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            asignar(pstmt, tarifa);
+            return pstmt.executeUpdate() > 0;
+        } catch (SQLException e) {
+            LOGGER.error("Error al guardar la tarifa de {}", tarifa.getTipo(), e);
+            return false;
+        }
+    }
+
+    private void asignar(PreparedStatement pstmt, Tarifa tarifa) throws SQLException {
+        pstmt.setString(1, tarifa.getTipo());
+        pstmt.setDouble(2, tarifa.getPorcentajeRenovacion());
+        pstmt.setInt(3, tarifa.getMesesRenovacion());
+        pstmt.setInt(4, tarifa.getDiasGracia());
+    }
+}
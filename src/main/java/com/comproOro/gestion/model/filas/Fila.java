@@ -0,0 +1,87 @@
+package com.comproOro.gestion.model.filas;
+
+import javafx.beans.InvalidationListener;
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
+
+/**
+ * Fila de una tabla de la interfaz con los textos de sus columnas ya formateados.
+ * Los textos se calculan una vez al cargar los datos y el valor de cada celda se crea la primera
+ * vez que se pinta; después se reutiliza, así que desplazarse por la tabla no crea objetos nuevos.
+ * Las subclases definen una constante por columna para usarla con {@link #getCelda(int)}.
+ */
+public abstract class Fila {
+
+    private final String[] textos;
+    private ObservableValue<String>[] celdas;
+
+    /**
+     * @param textos texto de cada columna, en el orden de las constantes de la subclase.
+     */
+    protected Fila(String... textos) {
+        this.textos = textos;
+    }
+
+    /**
+     * Devuelve el texto formateado de una columna.
+     *
+     * @param columna una de las constantes de columna de la subclase.
+     * @return el texto, o {@code null} si el dato estaba vacío.
+     */
+    public String getTexto(int columna) {
+        return textos[columna];
+    }
+
+    /**
+     * Devuelve el valor de una celda para la {@code cellValueFactory} de su columna. Siempre es el
+     * mismo objeto para la misma fila y columna. Solo se llama desde el hilo de JavaFX.
+     *
+     * @param columna una de las constantes de columna de la subclase.
+     * @return el valor de la celda.
+     */
+    @SuppressWarnings("unchecked")
+    public ObservableValue<String> getCelda(int columna) {
+        if (celdas == null) {
+            celdas = new ObservableValue[textos.length];
+        }
+        ObservableValue<String> celda = celdas[columna];
+        if (celda == null) {
+            celda = new TextoFijo(textos[columna]);
+            celdas[columna] = celda;
+        }
+        return celda;
+    }
+
+    /**
+     * Valor de una celda que no cambia nunca. No guarda oyentes porque nunca tendrá que avisarles,
+     * a diferencia de SimpleStringProperty, que además de crearse en cada pintado los acumula.
+     */
+    private static final class TextoFijo implements ObservableValue<String> {
+        private final String texto;
+
+        private TextoFijo(String texto) {
+            this.texto = texto;
+        }
+
+        @Override
+        public String getValue() {
+            return texto;
+        }
+
+        @Override
+        public void addListener(ChangeListener<? super String> listener) {
+        }
+
+        @Override
+        public void removeListener(ChangeListener<? super String> listener) {
+        }
+
+        @Override
+        public void addListener(InvalidationListener listener) {
+        }
+
+        @Override
+        public void removeListener(InvalidationListener listener) {
+        }
+    }
+}
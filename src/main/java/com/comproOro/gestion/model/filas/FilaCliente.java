@@ -0,0 +1,52 @@
+package com.comproOro.gestion.model.filas;
+
+import com.comproOro.gestion.model.modelos.Cliente;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fila de las tablas de clientes.
+ */
+public class FilaCliente extends Fila {
+
+    public static final int DNI = 0;
+    public static final int NOMBRE = 1;
+    public static final int APELLIDO = 2;
+    public static final int POBLACION = 3;
+    public static final int TELEFONO = 4;
+    public static final int DIRECCION = 5;
+
+    private final Cliente cliente;
+
+    private FilaCliente(Cliente cliente) {
+        super(cliente.getDni(),
+                cliente.getNombre(),
+                cliente.getApellido(),
+                cliente.getPoblacion(),
+                cliente.getTelefono(),
+                cliente.getDireccion());
+        this.cliente = cliente;
+    }
+
+    /**
+     * Crea las filas de una lista de clientes, en el mismo orden.
+     *
+     * @param clientes clientes leídos de la base de datos.
+     * @return una fila por cliente.
+     */
+    public static List<FilaCliente> crear(List<Cliente> clientes) {
+        List<FilaCliente> filas = new ArrayList<>(clientes.size());
+        for (Cliente cliente : clientes) {
+            filas.add(new FilaCliente(cliente));
+        }
+        return filas;
+    }
+
+    /**
+     * @return el cliente de la fila.
+     */
+    public Cliente getCliente() {
+        return cliente;
+    }
+}
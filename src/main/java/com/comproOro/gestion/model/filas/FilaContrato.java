@@ -0,0 +1,65 @@
+package com.comproOro.gestion.model.filas;
+
+import com.comproOro.gestion.model.modelos.Contrato;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Fila de la tabla de contratos: fechas en dd/MM/yyyy, el tipo "Empeno" mostrado como "Empeño"
+ * y el importe como texto, todo calculado al crear la fila.
+ */
+public class FilaContrato extends Fila {
+
+    public static final int ID_CONTRATO = 0;
+    public static final int ID_POL = 1;
+    public static final int CLIENTE = 2;
+    public static final int FECHA_INICIO = 3;
+    public static final int FECHA_FINAL = 4;
+    public static final int TIPO = 5;
+    public static final int ESTADO = 6;
+    public static final int IMPORTE = 7;
+
+    private final Contrato contrato;
+
+    private FilaContrato(Contrato contrato, SimpleDateFormat formatoFecha) {
+        super(contrato.getIdContrato(),
+                contrato.getIdPol(),
+                contrato.getDniCliente(),
+                formatear(formatoFecha, contrato.getFechaInicio()),
+                formatear(formatoFecha, contrato.getFechaFinal()),
+                "Empeno".equals(contrato.getTipo()) ? "Empeño" : contrato.getTipo(),
+                contrato.getRescatado(),
+                String.valueOf(contrato.getImporte()));
+        this.contrato = contrato;
+    }
+
+    /**
+     * Crea las filas de una lista de contratos, en el mismo orden.
+     *
+     * @param contratos contratos leídos de la base de datos.
+     * @return una fila por contrato.
+     */
+    public static List<FilaContrato> crear(List<Contrato> contratos) {
+        // SimpleDateFormat no es seguro entre hilos: se crea uno por carga y no uno por celda
+        SimpleDateFormat formatoFecha = new SimpleDateFormat("dd/MM/yyyy");
+        List<FilaContrato> filas = new ArrayList<>(contratos.size());
+        for (Contrato contrato : contratos) {
+            filas.add(new FilaContrato(contrato, formatoFecha));
+        }
+        return filas;
+    }
+
+    /**
+     * @return el contrato de la fila.
+     */
+    public Contrato getContrato() {
+        return contrato;
+    }
+
+    private static String formatear(SimpleDateFormat formatoFecha, Date fecha) {
+        return fecha != null ? formatoFecha.format(fecha) : "";
+    }
+}
@@ -0,0 +1,51 @@
+package com.comproOro.gestion.model.filas;
+
+import com.comproOro.gestion.model.modelos.Renovacion;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fila de la tabla de renovaciones de un contrato. Las fechas se muestran en formato ISO, como
+ * hasta ahora.
+ */
+public class FilaRenovacion extends Fila {
+
+    public static final int ID_CONTRATO = 0;
+    public static final int FECHA_RENOVACION = 1;
+    public static final int FECHA_FIN_RENOVACION = 2;
+    public static final int VERSION = 3;
+    public static final int IMPORTE = 4;
+
+    private final Renovacion renovacion;
+
+    private FilaRenovacion(Renovacion renovacion) {
+        super(renovacion.getIdContrato(),
+                renovacion.getFechaRenovacion() != null ? renovacion.getFechaRenovacion().toString() : "",
+                renovacion.getFechaFinRenovacion() != null ? renovacion.getFechaFinRenovacion().toString() : "",
+                String.valueOf(renovacion.getVersion()),
+                String.valueOf(renovacion.getImporte()));
+        this.renovacion = renovacion;
+    }
+
+    /**
+     * Crea las filas de una lista de renovaciones, en el mismo orden.
+     *
+     * @param renovaciones renovaciones leídas de la base de datos.
+     * @return una fila por renovación.
+     */
+    public static List<FilaRenovacion> crear(List<Renovacion> renovaciones) {
+        List<FilaRenovacion> filas = new ArrayList<>(renovaciones.size());
+        for (Renovacion renovacion : renovaciones) {
+            filas.add(new FilaRenovacion(renovacion));
+        }
+        return filas;
+    }
+
+    /**
+     * @return la renovación de la fila.
+     */
+    public Renovacion getRenovacion() {
+        return renovacion;
+    }
+}
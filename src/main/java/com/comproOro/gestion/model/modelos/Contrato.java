@@ -42,19 +42,22 @@ public class Contrato {
     /** Fecha en la que se rescató el contrato, si aplica. */
     private Date fechaRescate;
 
-    /** Importe total del contrato. */
-    private double importe;
+    /** Importe total del contrato, en céntimos. */
+    private long importe;
+
+    /** Versión de la fila en la base de datos, para detectar cambios desde otro puesto. */
+    private int versionFila;
 
     /**
      * Crea una nueva instancia de {@code Contrato} con valores por defecto.
      * La lista de productos está vacía, el estado de rescate es {@code "N"},
-     * y el importe es {@code 0.0}.
+     * y el importe es {@code 0}.
      */
     public Contrato() {
         this.productos = new ArrayList<>();
         this.rescatado = "N";
         this.fechaRescate = null;
-        this.importe = 0.0;
+        this.importe = 0;
     }
 
     /**
@@ -234,21 +237,54 @@ public class Contrato {
     }
 
     /**
-     * Obtiene el importe total del contrato.
-     * @return el importe
+     * Obtiene el importe total del contrato en céntimos.
+     * @return el importe, en céntimos
      */
-    public double getImporte() {
+    public long getImporteCentimos() {
         return importe;
     }
 
     /**
-     * Establece el importe total del contrato.
-     * @param importe el importe a establecer
+     * Establece el importe total del contrato en céntimos.
+     * @param importe el importe a establecer, en céntimos
      */
-    public void setImporte(double importe) {
+    public void setImporteCentimos(long importe) {
         this.importe = importe;
     }
 
+    /**
+     * Obtiene el importe total del contrato en euros, para mostrarlo.
+     * @return el importe, en euros
+     */
+    public double getImporte() {
+        return Dinero.aEuros(importe);
+    }
+
+    /**
+     * Establece el importe total del contrato en euros, redondeado al céntimo.
+     * @param importe el importe a establecer, en euros
+     */
+    public void setImporte(double importe) {
+        this.importe = Dinero.deEuros(importe);
+    }
+
+    /**
+     * Obtiene la versión de la fila leída de la base de datos. Cada actualización la incrementa;
+     * si al guardar ya no coincide, el contrato ha cambiado desde otro puesto.
+     * @return la versión de la fila
+     */
+    public int getVersionFila() {
+        return versionFila;
+    }
+
+    /**
+     * Establece la versión de la fila leída de la base de datos.
+     * @param versionFila la versión de la fila
+     */
+    public void setVersionFila(int versionFila) {
+        this.versionFila = versionFila;
+    }
+
 
     /**
      * Genera un identificador de contrato único con base en el año actual y el número proporcionado.
@@ -0,0 +1,219 @@
+package com.comproOro.gestion.model.modelos;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Operaciones con importes en céntimos de euro. Los importes se guardan como {@code long} en los
+ * modelos y en la base de datos, así que las sumas y restas son exactas; los decimales solo
+ * aparecen al leer lo que escribe el usuario y al mostrarlos. Ninguna operación crea objetos salvo
+ * {@link #deEuros(double)} y las que devuelven un {@link String}.
+ */
+public final class Dinero {
+
+    private Dinero() {
+    }
+
+    /**
+     * Convierte euros en céntimos, redondeando al céntimo más cercano (las mitades hacia arriba).
+     * Se usa en los bordes: importes que llegan como {@code double} de una hoja de cálculo o de
+     * código anterior.
+     *
+     * @param euros importe en euros.
+     * @return el importe en céntimos.
+     */
+    public static long deEuros(double euros) {
+        return BigDecimal.valueOf(euros).setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * @param centimos importe en céntimos.
+     * @return el importe en euros, para mostrarlo o exportarlo.
+     */
+    public static double aEuros(long centimos) {
+        return centimos / 100.0;
+    }
+
+    /**
+     * Lee un importe escrito por el usuario, con coma o punto decimal ({@code "12,5"},
+     * {@code "12.50"}, {@code "-3"}). Con más de dos decimales se redondea al céntimo.
+     *
+     * @param texto importe en euros.
+     * @return el importe en céntimos.
+     * @throws NumberFormatException si el texto no es un importe.
+     */
+    public static long deTexto(CharSequence texto) {
+        int fin = texto.length();
+        int i = 0;
+        while (i < fin && texto.charAt(i) == ' ') {
+            i++;
+        }
+        while (fin > i && texto.charAt(fin - 1) == ' ') {
+            fin--;
+        }
+        boolean negativo = i < fin && texto.charAt(i) == '-';
+        if (negativo || (i < fin && texto.charAt(i) == '+')) {
+            i++;
+        }
+
+        long euros = 0;
+        long centimos = 0;
+        int decimales = -1;
+        boolean redondear = false;
+        boolean hayCifras = false;
+        for (; i < fin; i++) {
+            char c = texto.charAt(i);
+            if (c == ',' || c == '.') {
+                if (decimales >= 0) {
+                    throw new NumberFormatException("Importe no válido: " + texto);
+                }
+                decimales = 0;
+            } else if (c >= '0' && c <= '9') {
+                hayCifras = true;
+                if (decimales < 0) {
+                    euros = Math.addExact(Math.multiplyExact(euros, 10), c - '0');
+                } else if (decimales < 2) {
+                    centimos = centimos * 10 + (c - '0');
+                    decimales++;
+                } else if (decimales == 2) {
+                    redondear = c >= '5';
+                    decimales++;
+                }
+            } else {
+                throw new NumberFormatException("Importe no válido: " + texto);
+            }
+        }
+        if (!hayCifras) {
+            throw new NumberFormatException("Importe no válido: " + texto);
+        }
+        if (decimales == 1) {
+            centimos *= 10;
+        }
+
+        long total = Math.addExact(Math.multiplyExact(euros, 100), centimos + (redondear ? 1 : 0));
+        return negativo ? -total : total;
+    }
+
+    /**
+     * Multiplica un importe por una cantidad no entera (gramos, un porcentaje) y redondea al
+     * céntimo más cercano.
+     *
+     * @param centimos importe en céntimos.
+     * @param factor   factor por el que se multiplica.
+     * @return el resultado en céntimos.
+     */
+    public static long multiplicar(long centimos, double factor) {
+        return Math.round(centimos * factor);
+    }
+
+    /**
+     * Divide un importe entre una cantidad no entera (el precio por gramo de un importe y un peso)
+     * y redondea al céntimo más cercano.
+     *
+     * @param centimos importe en céntimos.
+     * @param divisor  cantidad entre la que se divide, distinta de 0.
+     * @return el resultado en céntimos.
+     */
+    public static long dividir(long centimos, double divisor) {
+        return Math.round(centimos / divisor);
+    }
+
+    /**
+     * Suma los primeros {@code n} importes de un array.
+     *
+     * @param centimos importes en céntimos.
+     * @param n        cuántos se suman.
+     * @return la suma en céntimos.
+     */
+    public static long sumar(long[] centimos, int n) {
+        long suma = 0;
+        for (int i = 0; i < n; i++) {
+            suma = Math.addExact(suma, centimos[i]);
+        }
+        return suma;
+    }
+
+    /**
+     * Reparte un importe en partes proporcionales a unos pesos, sin perder ni inventar céntimos:
+     * cada parte es la diferencia entre los redondeos acumulados, así que las partes suman
+     * exactamente el total.
+     *
+     * @param total   importe que se reparte, en céntimos.
+     * @param pesos   peso de cada parte; no negativos y no todos cero.
+     * @param partes  donde se escribe cada parte, en céntimos.
+     * @param n       número de partes.
+     */
+    public static void repartir(long total, long[] pesos, long[] partes, int n) {
+        long sumaPesos = sumar(pesos, n);
+        if (sumaPesos <= 0) {
+            throw new IllegalArgumentException("Los pesos del reparto deben sumar más de cero");
+        }
+        long acumulado = 0;
+        long repartido = 0;
+        for (int i = 0; i < n; i++) {
+            acumulado += pesos[i];
+            // Redondeo a la mitad hacia arriba de total * acumulado / sumaPesos
+            long hastaAqui = Math.floorDiv(Math.multiplyExact(2 * total, acumulado) + sumaPesos, 2 * sumaPesos);
+            partes[i] = hastaAqui - repartido;
+            repartido = hastaAqui;
+        }
+    }
+
+    /**
+     * Descuenta una cantidad de varios importes, en el orden en que vienen y dejando cada uno a
+     * cero antes de pasar al siguiente.
+     *
+     * @param cantidad cantidad que se descuenta, en céntimos.
+     * @param importes importes de los que se descuenta; se modifican.
+     * @param n        número de importes.
+     * @return lo que queda sin descontar si la cantidad supera la suma de los importes, o 0.
+     */
+    public static long descontar(long cantidad, long[] importes, int n) {
+        for (int i = 0; i < n && cantidad > 0; i++) {
+            long descuento = Math.min(cantidad, importes[i]);
+            importes[i] -= descuento;
+            cantidad -= descuento;
+        }
+        return cantidad;
+    }
+
+    /**
+     * Escribe un importe con dos decimales, sin separador de miles, en un {@link StringBuilder}
+     * que se vacía antes.
+     *
+     * @param sb        destino; se reutiliza entre llamadas.
+     * @param centimos  importe en céntimos.
+     * @param separador separador decimal.
+     * @return el mismo {@code sb}.
+     */
+    public static StringBuilder escribir(StringBuilder sb, long centimos, char separador) {
+        sb.setLength(0);
+        if (centimos < 0) {
+            sb.append('-');
+            centimos = -centimos;
+        }
+        sb.append(centimos / 100).append(separador);
+        int resto = (int) (centimos % 100);
+        if (resto < 10) {
+            sb.append('0');
+        }
+        return sb.append(resto);
+    }
+
+    /**
+     * @param centimos importe en céntimos.
+     * @return el importe con dos decimales y punto decimal, como {@code "12.50"}.
+     */
+    public static String formatear(long centimos) {
+        return escribir(new StringBuilder(16), centimos, '.').toString();
+    }
+
+    /**
+     * @param centimos  importe en céntimos.
+     * @param separador separador decimal.
+     * @return el importe con dos decimales y el separador indicado.
+     */
+    public static String formatear(long centimos, char separador) {
+        return escribir(new StringBuilder(16), centimos, separador).toString();
+    }
+}
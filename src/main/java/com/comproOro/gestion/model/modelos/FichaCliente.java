@@ -0,0 +1,60 @@
+package com.comproOro.gestion.model.modelos;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lo que se necesita para atender a un cliente en el área de trabajo: sus datos, sus contratos
+ * de empeño sin rescatar y la última renovación de cada uno.
+ */
+public class FichaCliente {
+
+    /** Cliente, o {@code null} si el DNI no está registrado. */
+    private final Cliente cliente;
+
+    /** Contratos de empeño del cliente que no se han rescatado. */
+    private final List<Contrato> contratosActivos;
+
+    /** Última renovación de cada contrato activo, por ID de contrato. */
+    private final Map<String, Renovacion> ultimasRenovaciones;
+
+    /**
+     * Crea la ficha con todos sus datos.
+     *
+     * @param cliente             el cliente, o {@code null} si no existe
+     * @param contratosActivos    los contratos de empeño sin rescatar
+     * @param ultimasRenovaciones la última renovación de cada contrato activo
+     */
+    public FichaCliente(Cliente cliente, List<Contrato> contratosActivos, Map<String, Renovacion> ultimasRenovaciones) {
+        this.cliente = cliente;
+        this.contratosActivos = contratosActivos;
+        this.ultimasRenovaciones = ultimasRenovaciones;
+    }
+
+    /**
+     * Obtiene el cliente.
+     *
+     * @return el cliente, o {@code null} si el DNI no está registrado
+     */
+    public Cliente getCliente() {
+        return cliente;
+    }
+
+    /**
+     * Obtiene los contratos de empeño sin rescatar.
+     *
+     * @return la lista de contratos
+     */
+    public List<Contrato> getContratosActivos() {
+        return contratosActivos;
+    }
+
+    /**
+     * Obtiene la última renovación de cada contrato activo.
+     *
+     * @return mapa por ID de contrato; los contratos sin renovaciones no aparecen
+     */
+    public Map<String, Renovacion> getUltimasRenovaciones() {
+        return ultimasRenovaciones;
+    }
+}
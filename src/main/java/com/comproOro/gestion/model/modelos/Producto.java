@@ -20,15 +20,18 @@ public class Producto {
     /** Peso del producto en gramos. */
     private double peso;
 
-    /** Precio por gramo del producto. */
-    private double precioGramo;
+    /** Precio por gramo del producto, en céntimos. */
+    private long precioGramo;
 
-    /** Importe total calculado del producto. */
-    private double importe;
+    /** Importe total calculado del producto, en céntimos. */
+    private long importe;
 
     /** Identificador del contrato al que pertenece el producto. */
     private String idContrato;
 
+    /** Versión de la fila en la base de datos, para detectar cambios desde otro puesto. */
+    private int versionFila;
+
     /**
      * Constructor vacío de Producto.
      */
@@ -53,8 +56,8 @@ public class Producto {
         this.descripcion = descripcion;
         this.observaciones = observaciones;
         this.peso = peso;
-        this.precioGramo = precioGramo;
-        this.importe = importe;
+        this.precioGramo = Dinero.deEuros(precioGramo);
+        this.importe = Dinero.deEuros(importe);
         this.idContrato = idContrato;
     }
 
@@ -139,37 +142,69 @@ public class Producto {
     }
 
     /**
-     * Obtiene el precio por gramo del producto.
-     * @return el precio por gramo
+     * Obtiene el precio por gramo del producto en céntimos.
+     * @return el precio por gramo, en céntimos
      */
-    public double getPrecioGramo() {
+    public long getPrecioGramoCentimos() {
         return precioGramo;
     }
 
     /**
-     * Establece el precio por gramo del producto.
-     * @param precioGramo el precio por gramo a establecer
+     * Establece el precio por gramo del producto en céntimos.
+     * @param precioGramo el precio por gramo a establecer, en céntimos
      */
-    public void setPrecioGramo(double precioGramo) {
+    public void setPrecioGramoCentimos(long precioGramo) {
         this.precioGramo = precioGramo;
     }
 
     /**
-     * Obtiene el importe total del producto.
-     * @return el importe
+     * Obtiene el precio por gramo del producto en euros, para mostrarlo.
+     * @return el precio por gramo, en euros
      */
-    public double getImporte() {
+    public double getPrecioGramo() {
+        return Dinero.aEuros(precioGramo);
+    }
+
+    /**
+     * Establece el precio por gramo del producto en euros, redondeado al céntimo.
+     * @param precioGramo el precio por gramo a establecer, en euros
+     */
+    public void setPrecioGramo(double precioGramo) {
+        this.precioGramo = Dinero.deEuros(precioGramo);
+    }
+
+    /**
+     * Obtiene el importe total del producto en céntimos.
+     * @return el importe, en céntimos
+     */
+    public long getImporteCentimos() {
         return importe;
     }
 
     /**
-     * Establece el importe total del producto.
-     * @param importe el importe a establecer
+     * Establece el importe total del producto en céntimos.
+     * @param importe el importe a establecer, en céntimos
      */
-    public void setImporte(double importe) {
+    public void setImporteCentimos(long importe) {
         this.importe = importe;
     }
 
+    /**
+     * Obtiene el importe total del producto en euros, para mostrarlo.
+     * @return el importe, en euros
+     */
+    public double getImporte() {
+        return Dinero.aEuros(importe);
+    }
+
+    /**
+     * Establece el importe total del producto en euros, redondeado al céntimo.
+     * @param importe el importe a establecer, en euros
+     */
+    public void setImporte(double importe) {
+        this.importe = Dinero.deEuros(importe);
+    }
+
     /**
      * Obtiene el identificador del contrato asociado.
      * @return el id del contrato
@@ -186,6 +221,23 @@ public class Producto {
         this.idContrato = idContrato;
     }
 
+    /**
+     * Obtiene la versión de la fila leída de la base de datos. Cada actualización la incrementa;
+     * si al guardar ya no coincide, el producto ha cambiado desde otro puesto.
+     * @return la versión de la fila
+     */
+    public int getVersionFila() {
+        return versionFila;
+    }
+
+    /**
+     * Establece la versión de la fila leída de la base de datos.
+     * @param versionFila la versión de la fila
+     */
+    public void setVersionFila(int versionFila) {
+        this.versionFila = versionFila;
+    }
+
     @Override
     public String toString() {
         return "Producto{" +
@@ -194,8 +246,8 @@ public class Producto {
                 ", descripcion='" + descripcion + '\'' +
                 ", observaciones='" + observaciones + '\'' +
                 ", peso=" + peso +
-                ", precioGramo=" + precioGramo +
-                ", importe=" + importe +
+                ", precioGramo=" + Dinero.formatear(precioGramo) +
+                ", importe=" + Dinero.formatear(importe) +
                 ", idContrato=" + idContrato +
                 '}';
     }
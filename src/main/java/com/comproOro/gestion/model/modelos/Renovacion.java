@@ -21,8 +21,8 @@ public class Renovacion {
     /** Versión de la renovación. */
     private int version;
 
-    /** Importe asociado a la renovación. */
-    private double importe;
+    /** Importe asociado a la renovación, en céntimos. */
+    private long importe;
 
     /**
      * Constructor con todos los atributos de la renovación.
@@ -40,7 +40,7 @@ public class Renovacion {
         this.fechaRenovacion = fechaRenovacion;
         this.fechaFinRenovacion = fechaFinRenovacion;
         this.version = version;
-        this.importe = importe;
+        this.importe = Dinero.deEuros(importe);
     }
 
     /**
@@ -130,21 +130,37 @@ public class Renovacion {
     }
 
     /**
-     * Obtiene el importe de la renovación.
-     * @return el importe
+     * Obtiene el importe de la renovación en céntimos.
+     * @return el importe, en céntimos
      */
-    public double getImporte() {
+    public long getImporteCentimos() {
         return importe;
     }
 
     /**
-     * Establece el importe de la renovación.
-     * @param importe el importe a establecer
+     * Establece el importe de la renovación en céntimos.
+     * @param importe el importe a establecer, en céntimos
      */
-    public void setImporte(double importe) {
+    public void setImporteCentimos(long importe) {
         this.importe = importe;
     }
 
+    /**
+     * Obtiene el importe de la renovación en euros, para mostrarlo.
+     * @return el importe, en euros
+     */
+    public double getImporte() {
+        return Dinero.aEuros(importe);
+    }
+
+    /**
+     * Establece el importe de la renovación en euros, redondeado al céntimo.
+     * @param importe el importe a establecer, en euros
+     */
+    public void setImporte(double importe) {
+        this.importe = Dinero.deEuros(importe);
+    }
+
     @Override
     public String toString() {
         return "Renovacion{" +
@@ -153,7 +169,7 @@ public class Renovacion {
                 ", fechaRenovacion=" + fechaRenovacion +
                 ", fechaFinRenovacion=" + fechaFinRenovacion +
                 ", version=" + version +
-                ", importe=" + importe +
+                ", importe=" + Dinero.formatear(importe) +
                 '}';
     }
 }
@@ -0,0 +1,284 @@
+package com.comproOro.gestion.model.modelos;
+
+/**
+ * Representa una fila de resumen de operaciones para un periodo (día o mes) y un tipo de contrato.
+ * Los valores se mantienen de forma incremental en la tabla {@code resumen_diario}.
+ */
+public class Resumen {
+
+    /** Periodo del resumen: {@code yyyy-MM-dd} para días o {@code yyyy-MM} para meses. */
+    private String periodo;
+
+    /** Tipo de contrato: {@code "Empeno"} o {@code "Compra"}. */
+    private String tipo;
+
+    /** Número de contratos firmados en el periodo. */
+    private int numContratos;
+
+    /** Importe total de los contratos firmados en el periodo, en céntimos. */
+    private long importeContratos;
+
+    /** Peso total en gramos de los productos de los contratos del periodo. */
+    private double pesoTotal;
+
+    /** Número de renovaciones realizadas en el periodo. */
+    private int numRenovaciones;
+
+    /** Importe total renovado en el periodo, en céntimos. */
+    private long importeRenovaciones;
+
+    /** Importe amortizado mediante aportaciones en las renovaciones del periodo, en céntimos. */
+    private long importeAmortizado;
+
+    /** Número de contratos rescatados en el periodo. */
+    private int numRescates;
+
+    /** Importe pendiente que se liquidó con los rescates del periodo, en céntimos. */
+    private long importeRescates;
+
+    /**
+     * Constructor vacío de Resumen.
+     */
+    public Resumen() {
+    }
+
+    /**
+     * Obtiene el periodo del resumen.
+     * @return el periodo ({@code yyyy-MM-dd} o {@code yyyy-MM})
+     */
+    public String getPeriodo() {
+        return periodo;
+    }
+
+    /**
+     * Establece el periodo del resumen.
+     * @param periodo el periodo a establecer
+     */
+    public void setPeriodo(String periodo) {
+        this.periodo = periodo;
+    }
+
+    /**
+     * Obtiene el tipo de contrato.
+     * @return el tipo de contrato
+     */
+    public String getTipo() {
+        return tipo;
+    }
+
+    /**
+     * Establece el tipo de contrato.
+     * @param tipo el tipo a establecer
+     */
+    public void setTipo(String tipo) {
+        this.tipo = tipo;
+    }
+
+    /**
+     * Obtiene el número de contratos.
+     * @return el número de contratos
+     */
+    public int getNumContratos() {
+        return numContratos;
+    }
+
+    /**
+     * Establece el número de contratos.
+     * @param numContratos el número a establecer
+     */
+    public void setNumContratos(int numContratos) {
+        this.numContratos = numContratos;
+    }
+
+    /**
+     * Obtiene el importe total de los contratos en céntimos.
+     * @return el importe de los contratos, en céntimos
+     */
+    public long getImporteContratosCentimos() {
+        return importeContratos;
+    }
+
+    /**
+     * Establece el importe total de los contratos en céntimos.
+     * @param importeContratos el importe a establecer, en céntimos
+     */
+    public void setImporteContratosCentimos(long importeContratos) {
+        this.importeContratos = importeContratos;
+    }
+
+    /**
+     * Obtiene el importe total de los contratos en euros, para mostrarlo.
+     * @return el importe de los contratos, en euros
+     */
+    public double getImporteContratos() {
+        return Dinero.aEuros(importeContratos);
+    }
+
+    /**
+     * Establece el importe total de los contratos en euros, redondeado al céntimo.
+     * @param importeContratos el importe a establecer, en euros
+     */
+    public void setImporteContratos(double importeContratos) {
+        this.importeContratos = Dinero.deEuros(importeContratos);
+    }
+
+    /**
+     * Obtiene el peso total en gramos.
+     * @return el peso total
+     */
+    public double getPesoTotal() {
+        return pesoTotal;
+    }
+
+    /**
+     * Establece el peso total en gramos.
+     * @param pesoTotal el peso a establecer
+     */
+    public void setPesoTotal(double pesoTotal) {
+        this.pesoTotal = pesoTotal;
+    }
+
+    /**
+     * Obtiene el número de renovaciones.
+     * @return el número de renovaciones
+     */
+    public int getNumRenovaciones() {
+        return numRenovaciones;
+    }
+
+    /**
+     * Establece el número de renovaciones.
+     * @param numRenovaciones el número a establecer
+     */
+    public void setNumRenovaciones(int numRenovaciones) {
+        this.numRenovaciones = numRenovaciones;
+    }
+
+    /**
+     * Obtiene el importe total renovado en céntimos.
+     * @return el importe renovado, en céntimos
+     */
+    public long getImporteRenovacionesCentimos() {
+        return importeRenovaciones;
+    }
+
+    /**
+     * Establece el importe total renovado en céntimos.
+     * @param importeRenovaciones el importe a establecer, en céntimos
+     */
+    public void setImporteRenovacionesCentimos(long importeRenovaciones) {
+        this.importeRenovaciones = importeRenovaciones;
+    }
+
+    /**
+     * Obtiene el importe total renovado en euros, para mostrarlo.
+     * @return el importe renovado, en euros
+     */
+    public double getImporteRenovaciones() {
+        return Dinero.aEuros(importeRenovaciones);
+    }
+
+    /**
+     * Establece el importe total renovado en euros, redondeado al céntimo.
+     * @param importeRenovaciones el importe a establecer, en euros
+     */
+    public void setImporteRenovaciones(double importeRenovaciones) {
+        this.importeRenovaciones = Dinero.deEuros(importeRenovaciones);
+    }
+
+    /**
+     * Obtiene el importe amortizado con aportaciones en céntimos.
+     * @return el importe amortizado, en céntimos
+     */
+    public long getImporteAmortizadoCentimos() {
+        return importeAmortizado;
+    }
+
+    /**
+     * Establece el importe amortizado con aportaciones en céntimos.
+     * @param importeAmortizado el importe a establecer, en céntimos
+     */
+    public void setImporteAmortizadoCentimos(long importeAmortizado) {
+        this.importeAmortizado = importeAmortizado;
+    }
+
+    /**
+     * Obtiene el importe amortizado con aportaciones en euros, para mostrarlo.
+     * @return el importe amortizado, en euros
+     */
+    public double getImporteAmortizado() {
+        return Dinero.aEuros(importeAmortizado);
+    }
+
+    /**
+     * Establece el importe amortizado con aportaciones en euros, redondeado al céntimo.
+     * @param importeAmortizado el importe a establecer, en euros
+     */
+    public void setImporteAmortizado(double importeAmortizado) {
+        this.importeAmortizado = Dinero.deEuros(importeAmortizado);
+    }
+
+    /**
+     * Obtiene el número de rescates.
+     * @return el número de rescates
+     */
+    public int getNumRescates() {
+        return numRescates;
+    }
+
+    /**
+     * Establece el número de rescates.
+     * @param numRescates el número a establecer
+     */
+    public void setNumRescates(int numRescates) {
+        this.numRescates = numRescates;
+    }
+
+    /**
+     * Obtiene el importe liquidado en rescates en céntimos.
+     * @return el importe de los rescates, en céntimos
+     */
+    public long getImporteRescatesCentimos() {
+        return importeRescates;
+    }
+
+    /**
+     * Establece el importe liquidado en rescates en céntimos.
+     * @param importeRescates el importe a establecer, en céntimos
+     */
+    public void setImporteRescatesCentimos(long importeRescates) {
+        this.importeRescates = importeRescates;
+    }
+
+    /**
+     * Obtiene el importe liquidado en rescates en euros, para mostrarlo.
+     * @return el importe de los rescates, en euros
+     */
+    public double getImporteRescates() {
+        return Dinero.aEuros(importeRescates);
+    }
+
+    /**
+     * Establece el importe liquidado en rescates en euros, redondeado al céntimo.
+     * @param importeRescates el importe a establecer, en euros
+     */
+    public void setImporteRescates(double importeRescates) {
+        this.importeRescates = Dinero.deEuros(importeRescates);
+    }
+
+    @Override
+    public String toString() {
+        return "Resumen{" +
+                "periodo='" + periodo + '\'' +
+                ", tipo='" + tipo + '\'' +
+                ", numContratos=" + numContratos +
+                ", importeContratos=" + Dinero.formatear(importeContratos) +
+                ", pesoTotal=" + pesoTotal +
+                ", numRenovaciones=" + numRenovaciones +
+                ", importeRenovaciones=" + Dinero.formatear(importeRenovaciones) +
+                ", importeAmortizado=" + Dinero.formatear(importeAmortizado) +
+                ", numRescates=" + numRescates +
+                ", importeRescates=" + Dinero.formatear(importeRescates) +
+                '}';
+    }
+}
@@ -0,0 +1,106 @@
+package com.comproOro.gestion.model.modelos;
+
+/**
+ * Condiciones de renovación de un tipo de contrato: el porcentaje que se cobra al renovar, cuánto
+ * se alarga el contrato y los días de gracia tras el vencimiento antes de darlo por perdido.
+ * Se guardan en la tabla {@code tarifas}, una fila por tipo de contrato.
+ */
+public class Tarifa {
+
+    /** Tipo de contrato: {@code "Empeno"} o {@code "Compra"}. */
+    private String tipo;
+
+    /** Parte del importe pendiente que se cobra al renovar (0.10 es un 10 %). */
+    private double porcentajeRenovacion;
+
+    /** Meses que se alarga el contrato en cada renovación. */
+    private int mesesRenovacion;
+
+    /** Días tras el vencimiento en los que aún se puede renovar; después se propone el decomiso. */
+    private int diasGracia;
+
+    /**
+     * Constructor con todos los atributos de la tarifa.
+     *
+     * @param tipo                 tipo de contrato
+     * @param porcentajeRenovacion parte del importe que se cobra al renovar
+     * @param mesesRenovacion      meses que se alarga el contrato al renovar
+     * @param diasGracia           días de gracia tras el vencimiento
+     */
+    public Tarifa(String tipo, double porcentajeRenovacion, int mesesRenovacion, int diasGracia) {
+        this.tipo = tipo;
+        this.porcentajeRenovacion = porcentajeRenovacion;
+        this.mesesRenovacion = mesesRenovacion;
+        this.diasGracia = diasGracia;
+    }
+
+    /**
+     * Constructor vacío de Tarifa.
+     */
+    public Tarifa() {
+    }
+
+    /**
+     * Obtiene el tipo de contrato.
+     * @return el tipo de contrato
+     */
+    public String getTipo() {
+        return tipo;
+    }
+
+    /**
+     * Establece el tipo de contrato.
+     * @param tipo el tipo a establecer
+     */
+    public void setTipo(String tipo) {
+        this.tipo = tipo;
+    }
+
+    /**
+     * Obtiene la parte del importe que se cobra al renovar.
+     * @return el porcentaje de renovación, como fracción
+     */
+    public double getPorcentajeRenovacion() {
+        return porcentajeRenovacion;
+    }
+
+    /**
+     * Establece la parte del importe que se cobra al renovar.
+     * @param porcentajeRenovacion el porcentaje a establecer, como fracción
+     */
+    public void setPorcentajeRenovacion(double porcentajeRenovacion) {
+        this.porcentajeRenovacion = porcentajeRenovacion;
+    }
+
+    /**
+     * Obtiene los meses que se alarga el contrato al renovar.
+     * @return los meses de renovación
+     */
+    public int getMesesRenovacion() {
+        return mesesRenovacion;
+    }
+
+    /**
+     * Establece los meses que se alarga el contrato al renovar.
+     * @param mesesRenovacion los meses a establecer
+     */
+    public void setMesesRenovacion(int mesesRenovacion) {
+        this.mesesRenovacion = mesesRenovacion;
+    }
+
+    /**
+     * Obtiene los días de gracia tras el vencimiento.
+     * @return los días de gracia
+     */
+    public int getDiasGracia() {
+        return diasGracia;
+    }
+
+    /**
+     * Establece los días de gracia tras el vencimiento.
+     * @param diasGracia los días a establecer
+     */
+    public void setDiasGracia(int diasGracia) {
+        this.diasGracia = diasGracia;
+    }
+}
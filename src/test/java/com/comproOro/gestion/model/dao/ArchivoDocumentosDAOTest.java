@@ -0,0 +1,103 @@
+package com.comproOro.gestion.model.dao;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ArchivoDocumentosDAOTest {
+
+    private FuenteDatos fuenteDatos;
+    private ArchivoDocumentosDAO archivoDAO;
+
+    @Before
+    public void setUp() throws Exception {
+        fuenteDatos = FuenteDatos.memoria();
+        archivoDAO = new ArchivoDocumentosDAO(fuenteDatos);
+    }
+
+    @After
+    public void tearDown() {
+        fuenteDatos.close();
+    }
+
+    @Test
+    public void unDocumentoArchivadoSeRecuperaIgual() {
+        byte[] contenido = "documento de prueba".getBytes(StandardCharsets.UTF_8);
+        assertTrue(archivoDAO.archivar("EMP-0001", ArchivoDocumentosDAO.CONTRATO, 0, "1_EMP-0001.docx", "entradas", contenido));
+
+        ArchivoDocumentosDAO.Archivado archivado = archivoDAO.buscar("EMP-0001", ArchivoDocumentosDAO.CONTRATO, 0);
+        assertNotNull(archivado);
+        assertEquals("1_EMP-0001.docx", archivado.getNombre());
+        assertEquals("entradas", archivado.getHuellaEntradas());
+        assertEquals(ArchivoDocumentosDAO.huella(contenido), archivado.getHuella());
+        assertArrayEquals(contenido, archivoDAO.leer(archivado.getHuella()));
+    }
+
+    @Test
+    public void unMismoContenidoSeGuardaUnaSolaVez() throws Exception {
+        byte[] contenido = "documento repetido".getBytes(StandardCharsets.UTF_8);
+        archivoDAO.archivar("EMP-0001", ArchivoDocumentosDAO.CONTRATO, 0, "a.docx", "entradas", contenido);
+        archivoDAO.archivar("EMP-0001", ArchivoDocumentosDAO.RENOVACION, 1, "b.docx", "entradas", contenido);
+
+        try (Connection conn = fuenteDatos.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM archivo_documentos")) {
+            assertTrue(rs.next());
+            assertEquals(1, rs.getInt(1));
+        }
+        assertEquals(2, archivoDAO.obtenerPorContrato("EMP-0001").size());
+    }
+
+    @Test
+    public void volverAArchivarSustituyeLaEntradaDelIndice() {
+        archivoDAO.archivar("EMP-0001", ArchivoDocumentosDAO.RENOVACION, 2, "r.docx", "antes",
+                "version antigua".getBytes(StandardCharsets.UTF_8));
+        byte[] nuevo = "version nueva".getBytes(StandardCharsets.UTF_8);
+        archivoDAO.archivar("EMP-0001", ArchivoDocumentosDAO.RENOVACION, 2, "r.docx", "despues", nuevo);
+
+        List<ArchivoDocumentosDAO.Archivado> archivados = archivoDAO.obtenerPorContrato("EMP-0001");
+        assertEquals(1, archivados.size());
+        assertEquals("despues", archivados.get(0).getHuellaEntradas());
+        assertArrayEquals(nuevo, archivoDAO.leer(archivados.get(0).getHuella()));
+    }
+
+    @Test
+    public void buscarConPolizaDevuelveElDocumentoYSuPoliza() {
+        archivoDAO.archivar("EMP-0001", ArchivoDocumentosDAO.RENOVACION, 1, "r.docx", "e", "r".getBytes(StandardCharsets.UTF_8));
+        archivoDAO.archivar("EMP-0001", ArchivoDocumentosDAO.RENOVACION_POL, 1, "rp.docx", "e", "rp".getBytes(StandardCharsets.UTF_8));
+        archivoDAO.archivar("EMP-0001", ArchivoDocumentosDAO.RENOVACION, 2, "r2.docx", "e", "r2".getBytes(StandardCharsets.UTF_8));
+
+        List<ArchivoDocumentosDAO.Archivado> version1 = archivoDAO.buscarConPoliza("EMP-0001", ArchivoDocumentosDAO.RENOVACION, 1);
+        assertEquals(2, version1.size());
+        assertEquals("r.docx", version1.get(0).getNombre());
+        assertTrue(version1.get(1).isPoliza());
+
+        assertEquals(1, archivoDAO.buscarConPoliza("EMP-0001", ArchivoDocumentosDAO.RENOVACION, 2).size());
+        assertTrue(archivoDAO.buscarConPoliza("EMP-0001", ArchivoDocumentosDAO.RESCATE, 0).isEmpty());
+    }
+
+    @Test
+    public void obtenerCreadosEntreFiltraPorMomentoDeArchivo() {
+        long antes = System.currentTimeMillis();
+        archivoDAO.archivar("EMP-0001", ArchivoDocumentosDAO.CONTRATO, 0, "a.docx", "e", "a".getBytes(StandardCharsets.UTF_8));
+        archivoDAO.archivar("EMP-0002", ArchivoDocumentosDAO.CONTRATO, 0, "b.docx", "e", "b".getBytes(StandardCharsets.UTF_8));
+        long despues = System.currentTimeMillis() + 1;
+
+        assertEquals(2, archivoDAO.obtenerCreadosEntre(antes, despues).size());
+        assertTrue(archivoDAO.obtenerCreadosEntre(despues, despues + 1000).isEmpty());
+    }
+
+    @Test
+    public void buscarDevuelveNullSiNoHayDocumento() {
+        assertNull(archivoDAO.buscar("EMP-0001", ArchivoDocumentosDAO.RESCATE, 0));
+        assertNull(archivoDAO.leer(ArchivoDocumentosDAO.huella("nada")));
+    }
+}
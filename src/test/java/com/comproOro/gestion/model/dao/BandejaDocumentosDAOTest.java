@@ -0,0 +1,181 @@
+package com.comproOro.gestion.model.dao;
+
+import com.comproOro.gestion.model.modelos.Contrato;
+import com.comproOro.gestion.model.modelos.Renovacion;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BandejaDocumentosDAOTest {
+
+    private FuenteDatos fuenteDatos;
+    private ContratoDAO contratoDAO;
+    private RenovacionDAO renovacionDAO;
+    private BandejaDocumentosDAO bandejaDAO;
+    private Contrato contrato;
+
+    @Before
+    public void setUp() throws Exception {
+        fuenteDatos = FuenteDatos.memoria();
+        contratoDAO = new ContratoDAO(fuenteDatos);
+        renovacionDAO = new RenovacionDAO(fuenteDatos);
+        bandejaDAO = new BandejaDocumentosDAO(fuenteDatos);
+
+        contrato = new Contrato();
+        contrato.setIdPol("1");
+        contrato.setDniCliente("12345678Z");
+        contrato.setDetallesContrato("Prueba");
+        contrato.setFechaInicio(new Date());
+        contrato.setFechaFinal(new Date());
+        contrato.setTipo("Compra");
+        contratoDAO.guardarContrato(contrato);
+    }
+
+    @After
+    public void tearDown() {
+        fuenteDatos.close();
+    }
+
+    @Test
+    public void guardarRenovacionApuntaSuDocumento() {
+        Renovacion renovacion = new Renovacion();
+        renovacion.setIdContrato(contrato.getIdContrato());
+        renovacion.setFechaRenovacion(LocalDate.of(2024, 1, 1));
+        renovacion.setFechaFinRenovacion(LocalDate.of(2024, 2, 1));
+        renovacion.setVersion(3);
+        renovacion.setImporte(100.0);
+        assertTrue(renovacionDAO.guardarRenovacion(renovacion));
+
+        List<BandejaDocumentosDAO.Pendiente> pendientes = bandejaDAO.obtenerPendientes(10);
+        assertEquals(1, pendientes.size());
+        assertEquals(BandejaDocumentosDAO.RENOVACION, pendientes.get(0).getTipo());
+        assertEquals(contrato.getIdContrato(), pendientes.get(0).getIdContrato());
+        assertEquals(3, pendientes.get(0).getVersion());
+    }
+
+    @Test
+    public void rescatarApuntaElDocumentoUnaSolaVez() throws Exception {
+        contrato.setRescatado("S");
+        contrato.setFechaRescate(new Date());
+        assertTrue(contratoDAO.actualizarContrato(contrato));
+        assertTrue(contratoDAO.actualizarContrato(contrato));
+
+        List<BandejaDocumentosDAO.Pendiente> pendientes = bandejaDAO.obtenerPendientes(10);
+        assertEquals(1, pendientes.size());
+        assertEquals(BandejaDocumentosDAO.RESCATE, pendientes.get(0).getTipo());
+    }
+
+    @Test
+    public void unDocumentoReclamadoNoSeReparteDosVeces() {
+        bandejaDAO.encolar(BandejaDocumentosDAO.CONTRATO, contrato.getIdContrato(), 0);
+        long id = bandejaDAO.obtenerPendientes(10).get(0).getId();
+
+        assertTrue(bandejaDAO.reclamar(id));
+        assertFalse(bandejaDAO.reclamar(id));
+        assertTrue(bandejaDAO.obtenerPendientes(10).isEmpty());
+
+        assertTrue(bandejaDAO.marcarHecho(id));
+        assertEquals(0, bandejaDAO.contarPendientes());
+    }
+
+    @Test
+    public void unErrorAplazaElDocumentoHastaElProximoIntento() {
+        bandejaDAO.encolar(BandejaDocumentosDAO.CONTRATO, contrato.getIdContrato(), 0);
+        long id = bandejaDAO.obtenerPendientes(10).get(0).getId();
+        bandejaDAO.reclamar(id);
+
+        assertTrue(bandejaDAO.marcarError(id, 1, System.currentTimeMillis() + 60_000, "Plantilla no encontrada"));
+        assertTrue("Aún no toca reintentarlo", bandejaDAO.obtenerPendientes(10).isEmpty());
+        assertEquals(1, bandejaDAO.contarPendientes());
+    }
+
+    @Test
+    public void unDocumentoFallidoSoloVuelveALaBandejaAlReintentarlo() {
+        bandejaDAO.encolar(BandejaDocumentosDAO.CONTRATO, contrato.getIdContrato(), 0);
+        long id = bandejaDAO.obtenerPendientes(10).get(0).getId();
+        bandejaDAO.reclamar(id);
+
+        assertTrue(bandejaDAO.marcarError(id, 8, -1, "Plantilla no encontrada"));
+        assertEquals(0, bandejaDAO.contarPendientes());
+        assertEquals(1, bandejaDAO.contarAtascados(8));
+        assertEquals(0, bandejaDAO.recuperarInterrumpidos());
+
+        assertEquals(1, bandejaDAO.reintentarAhora());
+        assertEquals("Vuelve a la bandeja con sus intentos", 8, bandejaDAO.obtenerPendientes(10).get(0).getIntentos());
+    }
+
+    @Test
+    public void unDocumentoQueSigueFallandoCuentaComoAtascadoYSePuedeAdelantar() {
+        bandejaDAO.encolar(BandejaDocumentosDAO.CONTRATO, contrato.getIdContrato(), 0);
+        long id = bandejaDAO.obtenerPendientes(10).get(0).getId();
+        bandejaDAO.reclamar(id);
+
+        assertTrue(bandejaDAO.marcarError(id, 7, System.currentTimeMillis() + 600_000, "Impresora apagada"));
+        assertEquals(0, bandejaDAO.contarAtascados(8));
+        bandejaDAO.reintentarAhora();
+        bandejaDAO.reclamar(id);
+        assertTrue(bandejaDAO.marcarError(id, 8, System.currentTimeMillis() + 600_000, "Impresora apagada"));
+        assertEquals("Sigue pendiente aunque esté atascado", 1, bandejaDAO.contarPendientes());
+        assertEquals(1, bandejaDAO.contarAtascados(8));
+        assertTrue("Aún no toca reintentarlo", bandejaDAO.obtenerPendientes(10).isEmpty());
+
+        assertEquals(1, bandejaDAO.reintentarAhora());
+        assertEquals(id, bandejaDAO.obtenerPendientes(10).get(0).getId());
+    }
+
+    @Test
+    public void recuperarInterrumpidosDevuelveLosReclamadosALaBandeja() {
+        bandejaDAO.encolar(BandejaDocumentosDAO.CONTRATO, contrato.getIdContrato(), 0);
+        long id = bandejaDAO.obtenerPendientes(10).get(0).getId();
+        bandejaDAO.reclamar(id);
+
+        assertEquals(1, bandejaDAO.recuperarInterrumpidos());
+        assertEquals(1, bandejaDAO.obtenerPendientes(10).size());
+    }
+
+    @Test
+    public void cadaPuestoSoloGeneraYRecuperaSusDocumentos() {
+        BandejaDocumentosDAO otroPuesto = new BandejaDocumentosDAO(fuenteDatos, "otro-puesto");
+        otroPuesto.encolar(BandejaDocumentosDAO.CONTRATO, contrato.getIdContrato(), 0);
+        long id = otroPuesto.obtenerPendientes(10).get(0).getId();
+
+        assertTrue("No se reparten los documentos de otro puesto", bandejaDAO.obtenerPendientes(10).isEmpty());
+        assertFalse(bandejaDAO.reclamar(id));
+        assertEquals(0, bandejaDAO.contarPendientes());
+
+        assertTrue(otroPuesto.reclamar(id));
+        assertEquals("Al arrancar no se tocan los que otro puesto está generando", 0, bandejaDAO.recuperarInterrumpidos());
+        assertEquals(1, otroPuesto.recuperarInterrumpidos());
+    }
+
+    @Test
+    public void elDocumentoDeUnaRenovacionAntiguaUsaSusPropiasFechas() {
+        LocalDate[][] fechas = {
+                {LocalDate.of(2024, 1, 1), LocalDate.of(2024, 2, 1)},
+                {LocalDate.of(2024, 2, 1), LocalDate.of(2024, 3, 1)}
+        };
+        for (int i = 0; i < fechas.length; i++) {
+            Renovacion renovacion = new Renovacion();
+            renovacion.setIdContrato(contrato.getIdContrato());
+            renovacion.setFechaRenovacion(fechas[i][0]);
+            renovacion.setFechaFinRenovacion(fechas[i][1]);
+            renovacion.setVersion(i + 1);
+            renovacion.setImporte(100.0 * (i + 1));
+            assertTrue(renovacionDAO.guardarRenovacion(renovacion));
+        }
+
+        BandejaDocumentosDAO.Pendiente primera = bandejaDAO.obtenerPendientes(10).get(0);
+        assertEquals(1, primera.getVersion());
+        Renovacion renovacion = renovacionDAO.obtenerRenovacion(primera.getIdContrato(), primera.getVersion());
+        assertNotNull(renovacion);
+        assertEquals("No debe salir la fecha de la renovación posterior", fechas[0][1], renovacion.getFechaFinRenovacion());
+        assertEquals(10000, renovacion.getImporteCentimos());
+        assertNull(renovacionDAO.obtenerRenovacion(primera.getIdContrato(), 3));
+    }
+}
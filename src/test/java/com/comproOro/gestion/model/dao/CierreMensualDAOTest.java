@@ -0,0 +1,154 @@
+package com.comproOro.gestion.model.dao;
+
+import com.comproOro.gestion.model.modelos.Contrato;
+import com.comproOro.gestion.model.modelos.Renovacion;
+import com.comproOro.gestion.model.modelos.Tarifa;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class CierreMensualDAOTest {
+
+    private static final LocalDate CORTE = LocalDate.of(2024, 6, 30);
+
+    private FuenteDatos fuenteDatos;
+    private ContratoDAO contratoDAO;
+    private RenovacionDAO renovacionDAO;
+    private CierreMensualDAO cierreMensualDAO;
+    private Tarifa tarifa;
+
+    @Before
+    public void setUp() throws Exception {
+        fuenteDatos = FuenteDatos.memoria();
+        contratoDAO = new ContratoDAO(fuenteDatos);
+        renovacionDAO = new RenovacionDAO(fuenteDatos);
+        cierreMensualDAO = new CierreMensualDAO(fuenteDatos);
+        tarifa = new TarifaDAO(fuenteDatos).obtenerTarifaEmpeno();
+    }
+
+    @After
+    public void tearDown() {
+        fuenteDatos.close();
+    }
+
+    @Test
+    public void obtenerVencidosYCalcular() throws Exception {
+        String vencido = guardarContrato("Empeno", LocalDate.of(2024, 6, 15), 100.0, "N");
+        String fueraDeGracia = guardarContrato("Empeno", LocalDate.of(2024, 4, 1), 100.0, "N");
+        renovar(fueraDeGracia, LocalDate.of(2024, 5, 1), 80.0);
+        String renovadoAlDia = guardarContrato("Empeno", LocalDate.of(2024, 3, 1), 100.0, "N");
+        renovar(renovadoAlDia, LocalDate.of(2024, 8, 1), 100.0);
+        guardarContrato("Compra", LocalDate.of(2024, 1, 1), 100.0, "N");
+        guardarContrato("Empeno", LocalDate.of(2024, 6, 1), 100.0, "S");
+
+        CierreMensualDAO.Vencidos vencidos = cierreMensualDAO.obtenerVencidos("Empeno", CORTE);
+        assertEquals("Solo los empeños sin rescatar vencidos al corte", 2, vencidos.getTamano());
+        vencidos.calcular(tarifa, CORTE);
+
+        assertEquals(fueraDeGracia, vencidos.getIdContrato(0));
+        assertTrue("Venció hace más de los días de gracia", vencidos.isDecomiso(0));
+        assertEquals(LocalDate.of(2024, 5, 1), vencidos.getVencimiento(0));
+        assertEquals("El importe es el de la última renovación", 8000, vencidos.getImporte(0));
+        assertEquals(1, vencidos.getVersion(0));
+        assertNull(vencidos.getFinPropuesto(0));
+
+        assertEquals(vencido, vencidos.getIdContrato(1));
+        assertFalse(vencidos.isDecomiso(1));
+        assertEquals(1000, vencidos.getCuota(1));
+        assertEquals(LocalDate.of(2024, 7, 15), vencidos.getFinPropuesto(1));
+        assertEquals(0, vencidos.getVersion(1));
+    }
+
+    @Test
+    public void calcularAjustaElFinDeMes() {
+        CierreMensualDAO.Vencidos vencidos = new CierreMensualDAO.Vencidos(1);
+        vencidos.anadir("E-2024-1", (int) LocalDate.of(2024, 1, 31).toEpochDay(), 12345, 0);
+        vencidos.anadir("E-2024-2", (int) LocalDate.of(2024, 1, 31).toEpochDay(), 5000, 2);
+        vencidos.calcular(new Tarifa("Empeno", 0.05, 1, 30), LocalDate.of(2024, 2, 15));
+
+        assertEquals(LocalDate.of(2024, 2, 29), vencidos.getFinPropuesto(0));
+        assertEquals(LocalDate.of(2024, 2, 29), vencidos.getFinPropuesto(1));
+        assertEquals("La cuota se redondea al céntimo", 617, vencidos.getCuota(0));
+    }
+
+    @Test
+    public void guardarPropuestasSustituyeElCierreAnterior() throws Exception {
+        guardarContrato("Empeno", LocalDate.of(2024, 6, 15), 100.0, "N");
+        guardarContrato("Empeno", LocalDate.of(2024, 1, 1), 100.0, "N");
+
+        for (int i = 0; i < 2; i++) {
+            CierreMensualDAO.Vencidos vencidos = cierreMensualDAO.obtenerVencidos("Empeno", CORTE);
+            vencidos.calcular(tarifa, CORTE);
+            cierreMensualDAO.guardarPropuestas(CORTE, vencidos);
+        }
+
+        assertEquals(1, cierreMensualDAO.contarPropuestas(CORTE, CierreMensualDAO.RENOVAR));
+        assertEquals(1, cierreMensualDAO.contarPropuestas(CORTE, CierreMensualDAO.DECOMISAR));
+        assertEquals(0, cierreMensualDAO.contarPropuestas(CORTE.plusDays(1), CierreMensualDAO.RENOVAR));
+    }
+
+    @Test
+    public void siFallaUnLoteSeConservaElCierreAnterior() throws Exception {
+        guardarContrato("Empeno", LocalDate.of(2024, 6, 15), 100.0, "N");
+        CierreMensualDAO.Vencidos anteriores = cierreMensualDAO.obtenerVencidos("Empeno", CORTE);
+        anteriores.calcular(tarifa, CORTE);
+        cierreMensualDAO.guardarPropuestas(CORTE, anteriores);
+
+        CierreMensualDAO.Vencidos vencidos = new CierreMensualDAO.Vencidos(CierreMensualDAO.TAMANO_LOTE + 1);
+        int vencimiento = (int) LocalDate.of(2024, 6, 15).toEpochDay();
+        for (int i = 0; i < CierreMensualDAO.TAMANO_LOTE; i++) {
+            vencidos.anadir("E-2024-" + i, vencimiento, 10000, 0);
+        }
+        vencidos.anadir("FALLA", vencimiento, 10000, 0);
+        vencidos.calcular(tarifa, CORTE);
+        try (Connection conn = fuenteDatos.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TRIGGER falla BEFORE INSERT ON propuestas_cierre WHEN NEW.id_contrato = 'FALLA' "
+                    + "BEGIN SELECT RAISE(ABORT, 'fallo simulado'); END");
+        }
+
+        try {
+            cierreMensualDAO.guardarPropuestas(CORTE, vencidos);
+            fail("El último lote debe fallar");
+        } catch (SQLException e) {
+            assertEquals("Las propuestas anteriores siguen enteras", 1,
+                    cierreMensualDAO.contarPropuestas(CORTE, CierreMensualDAO.RENOVAR));
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void guardarPropuestasSinCalcular() throws Exception {
+        cierreMensualDAO.guardarPropuestas(CORTE, cierreMensualDAO.obtenerVencidos("Empeno", CORTE));
+    }
+
+    private String guardarContrato(String tipo, LocalDate fechaFinal, double importe, String rescatado) {
+        Contrato contrato = new Contrato();
+        contrato.setDniCliente("12345678Z");
+        contrato.setDetallesContrato("Prueba cierre");
+        contrato.setFechaInicio(Date.valueOf(fechaFinal.minusMonths(1)));
+        contrato.setFechaFinal(Date.valueOf(fechaFinal));
+        contrato.setTipo(tipo);
+        contrato.setRescatado(rescatado);
+        contrato.setImporte(importe);
+        assertTrue(contratoDAO.guardarContrato(contrato));
+        return contrato.getIdContrato();
+    }
+
+    private void renovar(String idContrato, LocalDate fechaFin, double importe) {
+        Renovacion renovacion = new Renovacion();
+        renovacion.setIdContrato(idContrato);
+        renovacion.setFechaRenovacion(fechaFin.minusMonths(1));
+        renovacion.setFechaFinRenovacion(fechaFin);
+        renovacion.setImporte(importe);
+        assertTrue(renovacionDAO.guardarRenovaciones(Collections.singletonList(renovacion)));
+    }
+}
@@ -1,6 +1,7 @@
 package com.comproOro.gestion.model.dao;
 
 import com.comproOro.gestion.model.modelos.Cliente;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import java.util.List;
@@ -8,14 +9,21 @@ import static org.junit.Assert.*;
 
 public class ClienteDAOTest {
 
+    private FuenteDatos fuenteDatos;
     private ClienteDAO clienteDAO;
 
     @Before
-    public void setUp() {
-        clienteDAO = new ClienteDAO();
+    public void setUp() throws Exception {
+        fuenteDatos = FuenteDatos.memoria();
+        clienteDAO = new ClienteDAO(fuenteDatos);
         clienteDAO.crearTablaClientes();
     }
 
+    @After
+    public void tearDown() {
+        fuenteDatos.close();
+    }
+
     @Test
     public void testCrearTablaClientes() {
         try {
@@ -35,6 +43,7 @@ public class ClienteDAOTest {
 
     @Test
     public void testObtenerTodosLosClientes() {
+        clienteDAO.guardarCliente(new Cliente("11111111H", "Luis", "Martín", "Toledo", "600000000", "Calle Real 1"));
         List<Cliente> clientes = clienteDAO.obtenerTodosLosClientes();
         assertNotNull("La lista de clientes no debería ser nula", clientes);
         assertTrue("Debería haber al menos un cliente en la base de datos", clientes.size() > 0);
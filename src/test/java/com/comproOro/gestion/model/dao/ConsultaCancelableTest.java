@@ -0,0 +1,52 @@
+package com.comproOro.gestion.model.dao;
+
+import com.comproOro.gestion.model.modelos.Contrato;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Date;
+
+import static org.junit.Assert.*;
+
+public class ConsultaCancelableTest {
+
+    private FuenteDatos fuenteDatos;
+    private ContratoDAO contratoDAO;
+
+    @Before
+    public void setUp() throws Exception {
+        fuenteDatos = FuenteDatos.memoria();
+        contratoDAO = new ContratoDAO(fuenteDatos);
+
+        Contrato contrato = new Contrato();
+        contrato.setIdPol("1");
+        contrato.setDniCliente("12345678Z");
+        contrato.setDetallesContrato("Prueba");
+        contrato.setFechaInicio(new Date());
+        contrato.setFechaFinal(new Date());
+        contrato.setTipo("Compra");
+        contratoDAO.guardarContrato(contrato);
+    }
+
+    @After
+    public void tearDown() {
+        fuenteDatos.close();
+    }
+
+    @Test
+    public void unaConsultaSinCancelarDevuelveResultados() {
+        ConsultaCancelable consulta = new ConsultaCancelable();
+        assertEquals(1, contratoDAO.buscarContratos("1234", null, consulta).size());
+        assertFalse(consulta.isCancelada());
+    }
+
+    @Test
+    public void unaConsultaCanceladaAntesDeEmpezarNoSeEjecuta() {
+        ConsultaCancelable consulta = new ConsultaCancelable();
+        consulta.cancelar();
+
+        assertTrue(contratoDAO.buscarContratos("1234", null, consulta).isEmpty());
+        assertTrue(consulta.isCancelada());
+    }
+}
@@ -0,0 +1,61 @@
+package com.comproOro.gestion.model.dao;
+
+import com.comproOro.gestion.model.modelos.Contrato;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.*;
+
+public class ContratoDAOTest {
+
+    @Test(timeout = 30_000)
+    public void dosPuestosNoSacanElMismoNumeroDeContrato() throws Exception {
+        try (FuenteDatos fuenteDatos = FuenteDatos.temporal()) {
+            ContratoDAO puesto = new ContratoDAO(fuenteDatos);
+            Contrato primero = nuevoContrato();
+            assertTrue(puesto.guardarContrato(primero));
+
+            Contrato delOtroPuesto = nuevoContrato();
+            delOtroPuesto.generarIdContrato(2);
+            Contrato segundo = nuevoContrato();
+            CompletableFuture<Boolean> guardado;
+
+            // Otro puesto ya ha sacado el número 2 y aún no ha confirmado su contrato
+            try (Connection otro = fuenteDatos.getConnection();
+                 Statement stmt = otro.createStatement()) {
+                stmt.execute("BEGIN IMMEDIATE");
+                try (PreparedStatement insertar = otro.prepareStatement("INSERT INTO contratos "
+                        + "(id_contrato, dni_cliente, detalles_contrato, fecha_inicio, tipo) VALUES (?, '12345678Z', 'Otro puesto', 0, 'Compra')")) {
+                    insertar.setString(1, delOtroPuesto.getIdContrato());
+                    insertar.executeUpdate();
+                }
+
+                guardado = CompletableFuture.supplyAsync(() -> puesto.guardarContrato(segundo));
+                Thread.sleep(300);
+                assertFalse("El puesto espera a que el otro termine", guardado.isDone());
+                stmt.execute("COMMIT");
+            }
+
+            assertTrue("El contrato debería guardarse tras esperar al otro puesto", guardado.get());
+            Contrato tercero = nuevoContrato();
+            tercero.generarIdContrato(3);
+            assertEquals("Debería llevar el número siguiente al del otro puesto", tercero.getIdContrato(), segundo.getIdContrato());
+            assertNotNull(puesto.obtenerContratoPorId(segundo.getIdContrato()));
+        }
+    }
+
+    private static Contrato nuevoContrato() {
+        Contrato contrato = new Contrato();
+        contrato.setDniCliente("12345678Z");
+        contrato.setDetallesContrato("Prueba numeración");
+        contrato.setFechaInicio(new Date());
+        contrato.setTipo("Compra");
+        contrato.setImporte(100.0);
+        return contrato;
+    }
+}
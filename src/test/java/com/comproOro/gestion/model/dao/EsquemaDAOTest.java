@@ -0,0 +1,113 @@
+package com.comproOro.gestion.model.dao;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import static org.junit.Assert.*;
+
+public class EsquemaDAOTest {
+
+    private FuenteDatos fuenteDatos;
+    private EsquemaDAO esquemaDAO;
+
+    @Before
+    public void setUp() throws Exception {
+        fuenteDatos = FuenteDatos.memoria();
+        esquemaDAO = new EsquemaDAO(fuenteDatos);
+    }
+
+    @After
+    public void tearDown() {
+        fuenteDatos.close();
+    }
+
+    @Test
+    public void migrarPasaLosImportesAntiguosACentimos() throws Exception {
+        try (Connection conn = fuenteDatos.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE renovaciones (id INTEGER PRIMARY KEY, importe REAL NOT NULL)");
+            stmt.execute("INSERT INTO renovaciones (importe) VALUES (12.5), (0.07), (99.995)");
+        }
+        new ContratoDAO(fuenteDatos);
+
+        assertEquals("Solo la columna declarada como REAL", 1, esquemaDAO.migrar());
+        assertEquals(EsquemaDAO.VERSION, esquemaDAO.obtenerVersion());
+        try (Connection conn = fuenteDatos.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT importe FROM renovaciones ORDER BY id")) {
+            long[] esperados = {1250, 7, 10000};
+            for (long esperado : esperados) {
+                assertTrue(rs.next());
+                assertEquals(esperado, rs.getLong(1));
+            }
+        }
+
+        assertEquals("La migración se aplica una sola vez", 0, esquemaDAO.migrar());
+    }
+
+    @Test
+    public void migrarAntesDeCrearLasTablas() throws Exception {
+        assertEquals(0, esquemaDAO.migrar());
+        assertEquals(EsquemaDAO.VERSION, esquemaDAO.obtenerVersion());
+
+        new ContratoDAO(fuenteDatos);
+        try (Connection conn = fuenteDatos.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT type FROM pragma_table_info('contratos') WHERE name = 'importe'")) {
+            assertTrue(rs.next());
+            assertEquals("Las tablas nuevas se crean ya en céntimos", "INTEGER", rs.getString(1));
+        }
+    }
+
+    @Test
+    public void migrarBaseNueva() throws Exception {
+        new ContratoDAO(fuenteDatos);
+        new ProductoDAO(fuenteDatos);
+
+        assertEquals(0, esquemaDAO.migrar());
+        assertEquals(EsquemaDAO.VERSION, esquemaDAO.obtenerVersion());
+    }
+
+    @Test
+    public void migrarAnadeLaVersionDeFila() throws Exception {
+        try (Connection conn = fuenteDatos.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE productos (idProducto INTEGER PRIMARY KEY, importe INTEGER NOT NULL)");
+            stmt.execute("INSERT INTO productos (importe) VALUES (500)");
+            stmt.execute("PRAGMA user_version = 1");
+        }
+
+        assertEquals(1, esquemaDAO.migrar());
+        try (Connection conn = fuenteDatos.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT importe, version_fila FROM productos")) {
+            assertTrue(rs.next());
+            assertEquals("Los importes ya estaban en céntimos", 500, rs.getLong(1));
+            assertEquals(0, rs.getInt(2));
+        }
+    }
+
+    @Test
+    public void migrarAnadeElPuestoDeLaBandeja() throws Exception {
+        try (Connection conn = fuenteDatos.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE bandeja_documentos (id INTEGER PRIMARY KEY, tipo TEXT NOT NULL, "
+                    + "id_contrato TEXT NOT NULL, estado TEXT NOT NULL DEFAULT 'PENDIENTE')");
+            stmt.execute("INSERT INTO bandeja_documentos (tipo, id_contrato) VALUES ('CONTRATO', 'C-00000001')");
+            stmt.execute("PRAGMA user_version = 2");
+        }
+
+        assertEquals(1, esquemaDAO.migrar());
+        try (Connection conn = fuenteDatos.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT puesto FROM bandeja_documentos")) {
+            assertTrue(rs.next());
+            assertNull("Las filas anteriores quedan sin puesto", rs.getString(1));
+        }
+    }
+}
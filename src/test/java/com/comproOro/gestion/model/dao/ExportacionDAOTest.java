@@ -0,0 +1,141 @@
+package com.comproOro.gestion.model.dao;
+
+import com.comproOro.gestion.model.modelos.Contrato;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ExportacionDAOTest {
+
+    private FuenteDatos fuenteDatos;
+    private ExportacionDAO exportacionDAO;
+    private ContratoDAO contratoDAO;
+
+    @Before
+    public void setUp() throws Exception {
+        fuenteDatos = FuenteDatos.memoria();
+        new ClienteDAO(fuenteDatos);
+        new ContratoDAO(fuenteDatos);
+        new ProductoDAO(fuenteDatos);
+        new RenovacionDAO(fuenteDatos).close();
+        exportacionDAO = new ExportacionDAO(fuenteDatos);
+        contratoDAO = new ContratoDAO(fuenteDatos);
+    }
+
+    @After
+    public void tearDown() {
+        fuenteDatos.close();
+    }
+
+    @Test
+    public void recorrerContratosSinFiltro() throws Exception {
+        ExportacionDAO.Filtro filtro = new ExportacionDAO.Filtro(null, null, null, null);
+        long[] filas = {0};
+
+        long recorridas = exportacionDAO.recorrerContratos(filtro, fila -> {
+            assertEquals("Cada fila debería tener todas las columnas", ExportacionDAO.COLUMNAS_CONTRATOS.length, fila.length);
+            assertNotNull("El id del contrato no debería ser nulo", fila[0]);
+            filas[0]++;
+        });
+
+        assertEquals("Se deberían entregar todas las filas recorridas", recorridas, filas[0]);
+        assertEquals("Se deberían recorrer todos los contratos", contratoDAO.obtenerTodosLosContratos().size(), recorridas);
+    }
+
+    @Test
+    public void contarFilasConFiltro() throws Exception {
+        ExportacionDAO.Filtro filtro = new ExportacionDAO.Filtro("E-", "Empeno", null, null);
+
+        long total = exportacionDAO.recorrerContratos(filtro, fila -> { })
+                + exportacionDAO.recorrerProductos(filtro, fila -> { })
+                + exportacionDAO.recorrerRenovaciones(filtro, fila -> { });
+
+        assertEquals("El recuento debería coincidir con las filas recorridas", total, exportacionDAO.contarFilas(filtro));
+    }
+
+    @Test
+    public void elFiltroDeFechasIncluyeElUltimoDiaComoLaBusqueda() throws Exception {
+        LocalDate dia = LocalDate.of(2024, 3, 15);
+        guardarContrato(Timestamp.valueOf(dia.minusDays(1).atTime(23, 59)));
+        String primero = guardarContrato(Timestamp.valueOf(dia.atStartOfDay()));
+        String ultimo = guardarContrato(Timestamp.valueOf(dia.atTime(18, 30)));
+        guardarContrato(Timestamp.valueOf(dia.plusDays(1).atStartOfDay()));
+
+        Date fecha = Date.valueOf(dia);
+        List<String> exportados = new ArrayList<>();
+        exportacionDAO.recorrerContratos(new ExportacionDAO.Filtro(null, null, fecha, fecha),
+                fila -> exportados.add((String) fila[0]));
+
+        List<String> buscados = new ArrayList<>();
+        for (Contrato contrato : contratoDAO.buscarContratosConFechas("", "Cualquiera", fecha, fecha)) {
+            buscados.add(contrato.getIdContrato());
+        }
+
+        assertEquals("Se deberían exportar los contratos de todo el día", List.of(primero, ultimo), exportados);
+        assertEquals("La búsqueda en pantalla debería dar los mismos contratos", exportados, buscados);
+    }
+
+    @Test
+    public void unPuestoPuedeGuardarConUnaExportacionAbiertaSinWal() throws Exception {
+        try (FuenteDatos archivo = FuenteDatos.temporal(false)) {
+            new ContratoDAO(archivo);
+            insertarContratos(archivo, ExportacionDAO.TAMANO_PAGINA * 2 + 10);
+            long[] guardados = {0};
+
+            long recorridas = new ExportacionDAO(archivo).recorrerContratos(
+                    new ExportacionDAO.Filtro(null, null, null, null), fila -> {
+                        // Primera fila de la primera página y de la segunda
+                        if (fila[0].equals("E-X0001")
+                                || fila[0].equals(String.format("E-X%04d", ExportacionDAO.TAMANO_PAGINA + 1))) {
+                            // Sin esperar: si la exportación tuviera la lectura abierta, fallaría enseguida
+                            try (Connection puesto = archivo.getConnection();
+                                 Statement stmt = puesto.createStatement()) {
+                                stmt.execute("PRAGMA busy_timeout = 0");
+                                stmt.executeUpdate("UPDATE contratos SET detalles_contrato = 'Guardado' WHERE id = 1");
+                                guardados[0]++;
+                            }
+                        }
+                    });
+
+            assertEquals("Se deberían exportar todos los contratos", ExportacionDAO.TAMANO_PAGINA * 2 + 10, recorridas);
+            assertEquals("El puesto debería haber guardado durante la exportación", 2, guardados[0]);
+        }
+    }
+
+    private static void insertarContratos(FuenteDatos archivo, int cuantos) throws Exception {
+        try (Connection conn = archivo.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("INSERT INTO contratos "
+                     + "(id_contrato, dni_cliente, detalles_contrato, fecha_inicio, tipo) VALUES (?, '12345678Z', 'Prueba', ?, 'Empeno')")) {
+            conn.setAutoCommit(false);
+            for (int i = 1; i <= cuantos; i++) {
+                pstmt.setString(1, String.format("E-X%04d", i));
+                pstmt.setDate(2, Date.valueOf("2024-01-01"));
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+            conn.commit();
+        }
+    }
+
+    private String guardarContrato(java.util.Date fechaInicio) {
+        Contrato contrato = new Contrato();
+        contrato.setDniCliente("12345678Z");
+        contrato.setDetallesContrato("Prueba fechas");
+        contrato.setFechaInicio(fechaInicio);
+        contrato.setTipo("Compra");
+        contrato.setImporte(100.0);
+        assertTrue("El contrato debería guardarse correctamente", contratoDAO.guardarContrato(contrato));
+        return contrato.getIdContrato();
+    }
+}
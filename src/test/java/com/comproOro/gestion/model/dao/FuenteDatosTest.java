@@ -0,0 +1,67 @@
+package com.comproOro.gestion.model.dao;
+
+import com.comproOro.gestion.model.modelos.Cliente;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import static org.junit.Assert.*;
+
+public class FuenteDatosTest {
+
+    @Test
+    public void lasConexionesCerradasDejanDeContarComoAbiertas() throws Exception {
+        try (FuenteDatos fuenteDatos = FuenteDatos.memoria()) {
+            long totalAbiertasAntes = FuenteDatos.getTotalConexionesAbiertas();
+
+            Connection conexion = fuenteDatos.getConnection();
+            assertEquals(1, fuenteDatos.getConexionesAbiertas());
+            assertEquals(1, fuenteDatos.getConexionesCreadas());
+            assertTrue(FuenteDatos.getTotalConexionesAbiertas() >= totalAbiertasAntes + 1);
+
+            conexion.close();
+            conexion.close();
+            assertTrue(conexion.isClosed());
+            assertEquals("Cerrar dos veces solo debe descontar una", 0, fuenteDatos.getConexionesAbiertas());
+            assertEquals(1, fuenteDatos.getConexionesCreadas());
+        }
+    }
+
+    @Test
+    public void cadaBaseDeDatosEnMemoriaEstaAislada() throws Exception {
+        try (FuenteDatos primera = FuenteDatos.memoria(); FuenteDatos segunda = FuenteDatos.memoria()) {
+            ClienteDAO clientesPrimera = new ClienteDAO(primera);
+            ClienteDAO clientesSegunda = new ClienteDAO(segunda);
+            clientesPrimera.guardarCliente(new Cliente("11111111H", "Ana", "Ruiz", "Madrid", "600000000", "Calle Mayor 1"));
+
+            assertEquals(1, clientesPrimera.obtenerTodosLosClientes().size());
+            assertTrue("La segunda base de datos no debe ver los datos de la primera",
+                    clientesSegunda.obtenerTodosLosClientes().isEmpty());
+        }
+    }
+
+    @Test
+    public void elArchivoSoloUsaWalSiSePide() throws Exception {
+        try (FuenteDatos fuenteDatos = FuenteDatos.temporal(false);
+             Connection conexion = fuenteDatos.getConnection();
+             Statement stmt = conexion.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA journal_mode")) {
+            assertFalse(fuenteDatos.isWal());
+            assertTrue(rs.next());
+            assertEquals("Por defecto el diario funciona en una carpeta de red", "delete", rs.getString(1).toLowerCase());
+        }
+    }
+
+    @Test
+    public void lasConexionesEsperanSiLaBaseDeDatosEstaOcupada() throws Exception {
+        try (FuenteDatos fuenteDatos = FuenteDatos.temporal();
+             Connection conexion = fuenteDatos.getConnection();
+             Statement stmt = conexion.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA busy_timeout")) {
+            assertTrue(rs.next());
+            assertEquals(Reintentos.BUSY_TIMEOUT_MS, rs.getInt(1));
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.comproOro.gestion.model.dao;
+
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.Assert.*;
+
+public class FuenteLecturasTest {
+
+    @Test
+    public void lasConexionesDeLecturaNoPuedenEscribir() throws Exception {
+        try (FuenteDatos fuenteDatos = FuenteDatos.memoria();
+             Connection conexion = fuenteDatos.lecturas().getConnection();
+             Statement stmt = conexion.createStatement()) {
+            stmt.execute("CREATE TABLE prueba (id INTEGER)");
+            fail("Una conexión de lectura no debe poder escribir");
+        } catch (SQLException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("readonly"));
+        }
+    }
+
+    @Test
+    public void enModoWalUnaLecturaAbiertaNoImpideGuardarDesdeOtroPuesto() throws Exception {
+        try (FuenteDatos fuenteDatos = FuenteDatos.temporal(true)) {
+            try (Connection conexion = fuenteDatos.getConnection();
+                 Statement stmt = conexion.createStatement()) {
+                stmt.execute("CREATE TABLE prueba (id INTEGER)");
+                stmt.execute("INSERT INTO prueba VALUES (1)");
+                try (ResultSet rs = stmt.executeQuery("PRAGMA journal_mode")) {
+                    assertEquals("wal", rs.getString(1).toLowerCase());
+                }
+            }
+
+            try (Connection lectura = fuenteDatos.lecturas().getConnection();
+                 Statement consulta = lectura.createStatement()) {
+                lectura.setAutoCommit(false);
+                assertEquals(1, contar(consulta));
+
+                try (Connection puesto = fuenteDatos.getConnection();
+                     Statement stmt = puesto.createStatement()) {
+                    stmt.execute("INSERT INTO prueba VALUES (2)");
+                }
+                assertEquals("La lectura sigue viendo los datos de cuando empezó", 1, contar(consulta));
+            }
+
+            try (Connection lectura = fuenteDatos.lecturas().getConnection();
+                 Statement consulta = lectura.createStatement()) {
+                assertEquals("Al devolver la conexión se suelta la foto de los datos", 2, contar(consulta));
+            }
+        }
+    }
+
+    @Test
+    public void sinConexionesLibresLaLecturaEsperaYFalla() throws Exception {
+        try (FuenteDatos fuenteDatos = FuenteDatos.memoria();
+             FuenteLecturas lecturas = new FuenteLecturas(fuenteDatos, 1, 50, 60_000)) {
+            Connection primera = lecturas.getConnection();
+            try (Connection segunda = lecturas.getConnection()) {
+                fail("Solo hay una conexión de lectura");
+            } catch (SQLException e) {
+                assertTrue(e.getMessage().contains("libre"));
+            }
+
+            long creadas = fuenteDatos.getConexionesCreadas();
+            primera.close();
+            assertTrue(primera.isClosed());
+            try (Connection otra = lecturas.getConnection()) {
+                assertFalse(otra.isClosed());
+            }
+            assertEquals("La conexión devuelta se reutiliza", creadas, fuenteDatos.getConexionesCreadas());
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void unaLecturaDemasiadoLargaSeInterrumpe() throws Exception {
+        long cortadas = FuenteLecturas.getLecturasCortadas();
+        try (FuenteDatos fuenteDatos = FuenteDatos.temporal();
+             FuenteLecturas lecturas = new FuenteLecturas(fuenteDatos, 1, 1000, 200);
+             Connection conexion = lecturas.getConnection();
+             Statement stmt = conexion.createStatement()) {
+            stmt.executeQuery("WITH RECURSIVE n(x) AS (SELECT 1 UNION ALL SELECT x + 1 FROM n) "
+                    + "SELECT count(*) FROM n");
+            fail("La consulta no termina nunca y debe interrumpirse");
+        } catch (SQLException e) {
+            assertEquals(cortadas + 1, FuenteLecturas.getLecturasCortadas());
+        }
+    }
+
+    private static int contar(Statement stmt) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM prueba")) {
+            return rs.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.comproOro.gestion.model.dao;
+
+import com.comproOro.gestion.model.modelos.Contrato;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class GeneradorDatosTest {
+
+    private FuenteDatos fuenteDatos;
+
+    @Before
+    public void setUp() throws Exception {
+        fuenteDatos = FuenteDatos.temporal();
+    }
+
+    @After
+    public void tearDown() {
+        fuenteDatos.close();
+    }
+
+    @Test
+    public void generaContratosConProductosYClientesValidos() throws Exception {
+        GeneradorDatos generador = new GeneradorDatos(fuenteDatos);
+        generador.setClientes(50);
+        generador.setContratos(300);
+        GeneradorDatos.Resultado resultado = generador.generar();
+
+        assertEquals(300, resultado.getContratos());
+        assertTrue("Cada contrato debería tener al menos un producto", resultado.getProductos() >= 300);
+        assertTrue("Algunos empeños deberían renovarse", resultado.getRenovaciones() > 0);
+
+        List<Contrato> contratos = new ContratoDAO(fuenteDatos).obtenerTodosLosContratos();
+        assertEquals(300, contratos.size());
+        for (Contrato contrato : contratos) {
+            assertTrue(contrato.getIdContrato().matches("[EC]-\\d{8}"));
+            assertNotNull("El cliente del contrato debería existir", new ClienteDAO(fuenteDatos).obtenerClientePorDni(contrato.getDniCliente()));
+        }
+    }
+
+    @Test
+    public void losDniTienenLetraDeControlCorrecta() {
+        for (int i = 0; i < 1000; i++) {
+            String dni = GeneradorDatos.generarDni(i);
+            int numero = Integer.parseInt(dni.substring(0, 8));
+            assertEquals("TRWAGMYFPDXBNJZSQVHLCKE".charAt(numero % 23), dni.charAt(8));
+        }
+    }
+}
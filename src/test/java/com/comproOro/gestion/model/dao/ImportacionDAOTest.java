@@ -0,0 +1,55 @@
+package com.comproOro.gestion.model.dao;
+
+import com.comproOro.gestion.model.modelos.Contrato;
+import com.comproOro.gestion.model.modelos.Producto;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Date;
+
+import static org.junit.Assert.*;
+
+public class ImportacionDAOTest {
+
+    private FuenteDatos fuenteDatos;
+
+    @Before
+    public void setUp() throws Exception {
+        fuenteDatos = FuenteDatos.memoria();
+        new ClienteDAO(fuenteDatos);
+        new ContratoDAO(fuenteDatos);
+        new ProductoDAO(fuenteDatos);
+        new RenovacionDAO(fuenteDatos).close();
+    }
+
+    @After
+    public void tearDown() {
+        fuenteDatos.close();
+    }
+
+    @Test
+    public void importarContratoConservaIdOriginal() throws Exception {
+        String idContrato = "C-19990001";
+
+        try (ImportacionDAO importacionDAO = new ImportacionDAO(fuenteDatos)) {
+            assertFalse("El contrato de prueba no debería existir", importacionDAO.obtenerIdsContratos().contains(idContrato));
+
+            Contrato contrato = new Contrato();
+            contrato.setIdContrato(idContrato);
+            contrato.setDniCliente("12345678Z");
+            contrato.setDetallesContrato("Importación de prueba");
+            contrato.setFechaInicio(new Date());
+            contrato.setTipo("Compra");
+            contrato.setImporte(80.0);
+            importacionDAO.anadirContrato(contrato);
+            importacionDAO.anadirProducto(new Producto(0, 1, "Cadena", "", 4.0, 20.0, 80.0, idContrato));
+        }
+
+        Contrato guardado = new ContratoDAO(fuenteDatos).obtenerContratoPorId(idContrato);
+        assertNotNull("El contrato debería guardarse con su id original", guardado);
+        assertEquals(80.0, guardado.getImporte(), 0.001);
+        assertEquals("El producto debería quedar asociado al contrato",
+                1, new ProductoDAO(fuenteDatos).obtenerProductosPorContrato(idContrato).size());
+    }
+}
@@ -0,0 +1,125 @@
+package com.comproOro.gestion.model.dao;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+
+import static org.junit.Assert.*;
+
+public class LibroRegistroDAOTest {
+
+    private FuenteDatos fuenteDatos;
+    private LibroRegistroDAO libroRegistroDAO;
+
+    @Before
+    public void setUp() throws Exception {
+        fuenteDatos = FuenteDatos.memoria();
+        new ClienteDAO(fuenteDatos);
+        new ContratoDAO(fuenteDatos);
+        new ProductoDAO(fuenteDatos);
+        libroRegistroDAO = new LibroRegistroDAO(fuenteDatos);
+    }
+
+    @After
+    public void tearDown() {
+        fuenteDatos.close();
+    }
+
+    @Test
+    public void recorrerComprasOrdenadasPorContrato() throws Exception {
+        String archivo = "/tmp/libro_registro_recorrido_test.txt";
+        Date desde = new Date(0);
+        Date hasta = new Date(System.currentTimeMillis() + 86_400_000L);
+        long[] ultimoId = {0};
+
+        LibroRegistroDAO.Estado fin = libroRegistroDAO.recorrerCompras(archivo, desde, hasta,
+                new LibroRegistroDAO.Estado(0, 0, 0), fila -> {
+                    assertTrue("Las filas deberían llegar ordenadas por contrato", (Long) fila[0] >= ultimoId[0]);
+                    ultimoId[0] = (Long) fila[0];
+                }, () -> 0);
+
+        assertEquals("El estado final debería apuntar al último contrato recorrido", ultimoId[0], fin.getUltimoId());
+
+        LibroRegistroDAO.Estado restante = libroRegistroDAO.recorrerCompras(archivo, desde, hasta, fin, fila -> {
+            fail("No deberían quedar filas después del último contrato");
+        }, () -> 0);
+        assertEquals(fin.getFilas(), restante.getFilas());
+    }
+
+    @Test
+    public void unPuestoPuedeGuardarConElLibroAbiertoSinWal() throws Exception {
+        int contratos = LibroRegistroDAO.INTERVALO_CONTROL + 20;
+        try (FuenteDatos archivo = FuenteDatos.temporal(false)) {
+            new ClienteDAO(archivo);
+            new ContratoDAO(archivo);
+            new ProductoDAO(archivo);
+            LibroRegistroDAO dao = new LibroRegistroDAO(archivo);
+            insertarCompras(archivo, contratos);
+            long[] filas = {0};
+            int[] puntosControl = {0};
+
+            LibroRegistroDAO.Estado fin = dao.recorrerCompras("/tmp/libro_registro_sin_wal_test.txt",
+                    Date.valueOf("2024-01-01"), Date.valueOf("2024-02-01"), new LibroRegistroDAO.Estado(0, 0, 0),
+                    fila -> {
+                        if (filas[0]++ % LibroRegistroDAO.INTERVALO_CONTROL == 0) {
+                            // Sin esperar: si el libro tuviera la lectura abierta, fallaría enseguida
+                            try (Connection puesto = archivo.getConnection();
+                                 Statement stmt = puesto.createStatement()) {
+                                stmt.execute("PRAGMA busy_timeout = 0");
+                                stmt.executeUpdate("UPDATE contratos SET detalles_contrato = 'Guardado' WHERE id = 1");
+                            }
+                        }
+                    }, () -> ++puntosControl[0]);
+
+            assertEquals("Debería haber una línea por producto", contratos, fin.getFilas());
+            assertEquals(contratos, filas[0]);
+            assertEquals("Debería guardarse un punto de control por página y otro al terminar", 3, puntosControl[0]);
+        }
+    }
+
+    private static void insertarCompras(FuenteDatos archivo, int cuantos) throws Exception {
+        try (Connection conn = archivo.getConnection();
+             PreparedStatement contrato = conn.prepareStatement("INSERT INTO contratos "
+                     + "(id_contrato, dni_cliente, detalles_contrato, fecha_inicio, tipo) VALUES (?, '12345678Z', 'Prueba', ?, 'Compra')");
+             PreparedStatement producto = conn.prepareStatement("INSERT INTO productos "
+                     + "(cantidad, descripcion, peso, precioGramo, importe, idContrato) VALUES (1, 'Anillo', 2.5, 3000, 7500, ?)")) {
+            conn.setAutoCommit(false);
+            for (int i = 1; i <= cuantos; i++) {
+                String id = String.format("C-X%04d", i);
+                contrato.setString(1, id);
+                contrato.setDate(2, Date.valueOf("2024-01-15"));
+                contrato.executeUpdate();
+                producto.setString(1, id);
+                producto.executeUpdate();
+            }
+            conn.commit();
+        }
+    }
+
+    @Test
+    public void guardarYObtenerEstado() throws Exception {
+        String archivo = "/tmp/libro_registro_test.txt";
+        Date desde = Date.valueOf("2024-01-01");
+        Date hasta = Date.valueOf("2024-02-01");
+
+        try (Connection conn = fuenteDatos.getConnection()) {
+            libroRegistroDAO.guardarEstado(conn, archivo, desde, hasta, new LibroRegistroDAO.Estado(42, 1024, 7), false);
+        }
+        LibroRegistroDAO.Estado estado = libroRegistroDAO.obtenerEstadoPendiente(archivo, desde, hasta);
+        assertNotNull("Debería existir el punto de control", estado);
+        assertEquals(42, estado.getUltimoId());
+        assertEquals(1024, estado.getBytes());
+        assertEquals(7, estado.getFilas());
+
+        try (Connection conn = fuenteDatos.getConnection()) {
+            libroRegistroDAO.guardarEstado(conn, archivo, desde, hasta, estado, true);
+        }
+        assertNull("Una exportación completada no debería reanudarse",
+                libroRegistroDAO.obtenerEstadoPendiente(archivo, desde, hasta));
+    }
+}
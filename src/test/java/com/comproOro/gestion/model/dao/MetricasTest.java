@@ -0,0 +1,35 @@
+package com.comproOro.gestion.model.dao;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MetricasTest {
+
+    @Test
+    public void percentilesDentroDelErrorDelHistograma() {
+        Metricas.Histograma histograma = new Metricas.Histograma();
+        for (long ms = 1; ms <= 100; ms++) {
+            histograma.registrar(ms * 1_000_000L);
+        }
+
+        Metricas.Resumen resumen = histograma.resumir("prueba");
+        assertEquals(100, resumen.getLlamadas());
+        assertEquals(50.5, resumen.getMediaMs(), 0.001);
+        assertEquals(100.0, resumen.getMaximoMs(), 0.001);
+        assertTrue("p50 debería estar entre 50 y 62.5 ms", resumen.getP50Ms() >= 50 && resumen.getP50Ms() <= 62.5);
+        assertTrue("p99 debería estar entre 99 y 100 ms", resumen.getP99Ms() >= 99 && resumen.getP99Ms() <= 100);
+    }
+
+    @Test
+    public void lasOperacionesDelDaoQuedanRegistradas() throws Exception {
+        try (FuenteDatos fuenteDatos = FuenteDatos.memoria()) {
+            new ContratoDAO(fuenteDatos).tieneContratos("00000000T");
+        }
+
+        boolean registrada = Metricas.obtenerResumen().stream()
+                .anyMatch(fila -> fila.getOperacion().equals("ContratoDAO.tieneContratos"));
+        assertTrue("La consulta debería aparecer en las métricas", registrada);
+        assertTrue(Metricas.volcar().contains("ContratoDAO.tieneContratos"));
+    }
+}
@@ -1,6 +1,7 @@
 package com.comproOro.gestion.model.dao;
 
 import com.comproOro.gestion.model.modelos.Producto;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -10,12 +11,15 @@ import static org.junit.Assert.*;
 
 public class ProductoDAOTest {
 
+    private FuenteDatos fuenteDatos;
     private ProductoDAO productoDAO;
     private Producto producto;
 
     @Before
-    public void setUp() {
-        productoDAO = new ProductoDAO();
+    public void setUp() throws Exception {
+        fuenteDatos = FuenteDatos.memoria();
+        new ContratoDAO(fuenteDatos);
+        productoDAO = new ProductoDAO(fuenteDatos);
         producto = new Producto();
 
         producto.setCantidad(10);
@@ -27,6 +31,11 @@ public class ProductoDAOTest {
         producto.setIdContrato("contrato_123");
     }
 
+    @After
+    public void tearDown() {
+        fuenteDatos.close();
+    }
+
     @Test
     public void testGuardarProducto() {
 
@@ -62,7 +71,7 @@ public class ProductoDAOTest {
     }
 
     @Test
-    public void testActualizarProducto() {
+    public void testActualizarProducto() throws Exception {
 
         productoDAO.guardarProducto(producto);
 
@@ -78,4 +87,24 @@ public class ProductoDAOTest {
         assertEquals("La descripción del producto actualizado no es la misma", "Producto actualizado", productoActualizado.getDescripcion());
         assertEquals("La cantidad del producto actualizado no es la misma", 20, productoActualizado.getCantidad());
     }
+
+    @Test
+    public void testActualizarProductoModificadoDesdeOtroPuesto() throws Exception {
+        productoDAO.guardarProducto(producto);
+        Producto otroPuesto = productoDAO.obtenerProductoPorId(producto.getIdProducto());
+
+        otroPuesto.setCantidad(7);
+        assertTrue(productoDAO.actualizarProducto(otroPuesto));
+        assertEquals(1, otroPuesto.getVersionFila());
+
+        producto.setCantidad(20);
+        try {
+            productoDAO.actualizarProducto(producto);
+            fail("La versión leída ya no es la de la base de datos");
+        } catch (ConflictoVersionException e) {
+            assertEquals(String.valueOf(producto.getIdProducto()), e.getIdRegistro());
+        }
+        assertEquals("Se conserva el cambio del otro puesto", 7,
+                productoDAO.obtenerProductoPorId(producto.getIdProducto()).getCantidad());
+    }
 }
@@ -0,0 +1,75 @@
+package com.comproOro.gestion.model.dao;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ReintentosTest {
+
+    @Before
+    public void setUp() {
+        Reintentos.reiniciar();
+    }
+
+    @Test
+    public void repiteMientrasLaBaseDeDatosEstaOcupada() throws Exception {
+        AtomicInteger intentos = new AtomicInteger();
+
+        String resultado = Reintentos.ejecutar("Prueba.ocupada", () -> {
+            if (intentos.incrementAndGet() < 3) {
+                throw new SQLException("[SQLITE_BUSY] The database file is locked", null, 5);
+            }
+            return "guardado";
+        });
+
+        assertEquals("guardado", resultado);
+        assertEquals(3, intentos.get());
+        assertEquals(2, Reintentos.getContenciones());
+        assertEquals(2, Reintentos.getReintentos());
+        assertTrue(Metricas.formatear().contains("Contencion.Prueba.ocupada"));
+    }
+
+    @Test
+    public void otrosErroresNoSeRepiten() {
+        AtomicInteger intentos = new AtomicInteger();
+        try {
+            Reintentos.ejecutar("Prueba.error", () -> {
+                intentos.incrementAndGet();
+                throw new SQLException("[SQLITE_CONSTRAINT] UNIQUE constraint failed", null, 19);
+            });
+            fail("El error debería llegar al llamador");
+        } catch (SQLException e) {
+            assertEquals(1, intentos.get());
+        }
+        assertEquals(0, Reintentos.getContenciones());
+    }
+
+    @Test
+    public void seRindeTrasTodosLosIntentos() {
+        AtomicInteger intentos = new AtomicInteger();
+        try {
+            Reintentos.ejecutar("Prueba.bloqueada", () -> {
+                intentos.incrementAndGet();
+                // SQLITE_LOCKED_SHAREDCACHE, un código extendido de SQLITE_LOCKED
+                throw new SQLException("database table is locked", null, 262);
+            });
+            fail("Debería rendirse");
+        } catch (SQLException e) {
+            assertEquals(Reintentos.MAX_INTENTOS, intentos.get());
+        }
+        assertEquals(1, Reintentos.getAgotados());
+    }
+
+    @Test
+    public void laEsperaCreceHastaElMaximo() {
+        assertEquals(25, Reintentos.espera(1, 0));
+        assertEquals(49, Reintentos.espera(1, 0.99));
+        assertEquals(100, Reintentos.espera(3, 0));
+        assertEquals(500, Reintentos.espera(20, 0));
+        assertTrue(Reintentos.espera(20, 0.99) < 1000);
+    }
+}
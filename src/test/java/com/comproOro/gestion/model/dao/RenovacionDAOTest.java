@@ -1,23 +1,32 @@
 package com.comproOro.gestion.model.dao;
 
+import com.comproOro.gestion.model.modelos.Contrato;
+import com.comproOro.gestion.model.modelos.Producto;
 import com.comproOro.gestion.model.modelos.Renovacion;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.sql.Date;
 import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.Assert.*;
 
 public class RenovacionDAOTest {
 
+    private FuenteDatos fuenteDatos;
     private RenovacionDAO renovacionDAO;
     private Renovacion renovacion;
 
     @Before
-    public void setUp() {
-
-        renovacionDAO = new RenovacionDAO();
+    public void setUp() throws Exception {
+        fuenteDatos = FuenteDatos.memoria();
+        new ContratoDAO(fuenteDatos);
+        renovacionDAO = new RenovacionDAO(fuenteDatos);
         renovacion = new Renovacion();
         renovacion.setIdContrato("contrato_123");
         renovacion.setFechaRenovacion(LocalDate.of(2024, 1, 1));
@@ -26,7 +35,10 @@ public class RenovacionDAOTest {
         renovacion.setImporte(1000.0);
     }
 
-
+    @After
+    public void tearDown() {
+        fuenteDatos.close();
+    }
 
     @Test
     public void obtenerTodasLasRenovaciones() {
@@ -85,4 +97,88 @@ public class RenovacionDAOTest {
         assertNotNull("La última renovación no debe ser nula", ultimaRenovacion);
         assertEquals("La versión de la última renovación no es correcta", 2, ultimaRenovacion.getVersion());
     }
+
+    @Test
+    public void obtenerUltimasRenovaciones() {
+
+        renovacionDAO.guardarRenovacion(renovacion);
+        Renovacion renovacion2 = new Renovacion();
+        renovacion2.setIdContrato("contrato_123");
+        renovacion2.setFechaRenovacion(LocalDate.of(2024, 2, 1));
+        renovacion2.setFechaFinRenovacion(LocalDate.of(2025, 2, 1));
+        renovacion2.setVersion(2);
+        renovacion2.setImporte(1100.0);
+        renovacionDAO.guardarRenovacion(renovacion2);
+
+
+        Map<String, Renovacion> ultimas = renovacionDAO.obtenerUltimasRenovaciones(Arrays.asList("contrato_123", "contrato_sin_renovar"));
+        assertEquals("Solo el contrato renovado debe aparecer", 1, ultimas.size());
+        assertEquals("La versión de la última renovación no es correcta", 2, ultimas.get("contrato_123").getVersion());
+        assertTrue(renovacionDAO.obtenerUltimasRenovaciones(Collections.emptyList()).isEmpty());
+    }
+
+    @Test
+    public void guardarRenovaciones() {
+
+        renovacionDAO.guardarRenovacion(renovacion);
+        Renovacion otraDelMismo = new Renovacion();
+        otraDelMismo.setIdContrato("contrato_123");
+        otraDelMismo.setFechaRenovacion(LocalDate.of(2024, 2, 1));
+        otraDelMismo.setFechaFinRenovacion(LocalDate.of(2025, 2, 1));
+        otraDelMismo.setImporte(1000.0);
+        Renovacion sinRenovar = new Renovacion();
+        sinRenovar.setIdContrato("contrato_456");
+        sinRenovar.setFechaRenovacion(LocalDate.of(2024, 2, 1));
+        sinRenovar.setFechaFinRenovacion(LocalDate.of(2024, 3, 1));
+        sinRenovar.setImporte(500.0);
+
+        assertTrue(renovacionDAO.guardarRenovaciones(Arrays.asList(otraDelMismo, sinRenovar)));
+        assertEquals("Debe seguir a la última versión del contrato", 2, otraDelMismo.getVersion());
+        assertEquals("Un contrato sin renovaciones empieza en la 1", 1, sinRenovar.getVersion());
+        assertEquals(2, renovacionDAO.obtenerUltimaVersionPorIdContrato("contrato_123"));
+        assertEquals(1, renovacionDAO.obtenerRenovacionesPorIdContrato("contrato_456").size());
+        assertEquals("Cada renovación apunta su documento", 3, new BandejaDocumentosDAO(fuenteDatos).contarPendientes());
+        assertTrue(renovacionDAO.guardarRenovaciones(Collections.emptyList()));
+    }
+
+    @Test
+    public void renovarContratoModificadoDesdeOtroPuesto() throws Exception {
+        ContratoDAO contratoDAO = new ContratoDAO(fuenteDatos);
+        ProductoDAO productoDAO = new ProductoDAO(fuenteDatos);
+        Contrato contrato = new Contrato();
+        contrato.setDniCliente("12345678Z");
+        contrato.setDetallesContrato("Prueba concurrencia");
+        contrato.setFechaInicio(Date.valueOf(LocalDate.of(2024, 1, 1)));
+        contrato.setFechaFinal(Date.valueOf(LocalDate.of(2024, 2, 1)));
+        contrato.setTipo("Empeno");
+        contrato.setImporte(100.0);
+        assertTrue(contratoDAO.guardarContrato(contrato));
+        Producto producto = new Producto(0, 1, "Anillo", "", 2.0, 50.0, 100.0, contrato.getIdContrato());
+        assertTrue(productoDAO.guardarProducto(producto));
+
+        // Los dos puestos leen el contrato en la versión 0; el primero renueva con una aportación
+        renovacion.setIdContrato(contrato.getIdContrato());
+        producto.setImporteCentimos(8000);
+        assertTrue(renovacionDAO.renovarContrato(renovacion, 0, Collections.singletonList(producto)));
+        assertEquals(1, contratoDAO.obtenerContratoPorId(contrato.getIdContrato()).getVersionFila());
+
+        Producto productoOtroPuesto = productoDAO.obtenerProductoPorId(producto.getIdProducto());
+        productoOtroPuesto.setImporteCentimos(5000);
+        Renovacion otroPuesto = new Renovacion();
+        otroPuesto.setIdContrato(contrato.getIdContrato());
+        otroPuesto.setFechaRenovacion(LocalDate.of(2024, 2, 1));
+        otroPuesto.setFechaFinRenovacion(LocalDate.of(2024, 3, 1));
+        otroPuesto.setImporte(50.0);
+        try {
+            renovacionDAO.renovarContrato(otroPuesto, 0, Collections.singletonList(productoOtroPuesto));
+            fail("El contrato ya no está en la versión 0");
+        } catch (ConflictoVersionException e) {
+            assertEquals(contrato.getIdContrato(), e.getIdRegistro());
+        }
+
+        assertEquals("No se guarda la segunda renovación", 1,
+                renovacionDAO.obtenerRenovacionesPorIdContrato(contrato.getIdContrato()).size());
+        assertEquals("Ni el producto de la segunda", 8000,
+                productoDAO.obtenerProductoPorId(producto.getIdProducto()).getImporteCentimos());
+    }
 }
@@ -0,0 +1,79 @@
+package com.comproOro.gestion.model.dao;
+
+import com.comproOro.gestion.model.modelos.Contrato;
+import com.comproOro.gestion.model.modelos.Resumen;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ResumenDAOTest {
+
+    private FuenteDatos fuenteDatos;
+    private ResumenDAO resumenDAO;
+    private ContratoDAO contratoDAO;
+
+    @Before
+    public void setUp() throws Exception {
+        fuenteDatos = FuenteDatos.memoria();
+        new ClienteDAO(fuenteDatos);
+        new ContratoDAO(fuenteDatos);
+        new ProductoDAO(fuenteDatos);
+        new RenovacionDAO(fuenteDatos).close();
+        resumenDAO = new ResumenDAO(fuenteDatos);
+        contratoDAO = new ContratoDAO(fuenteDatos);
+    }
+
+    @After
+    public void tearDown() {
+        fuenteDatos.close();
+    }
+
+    @Test
+    public void guardarContratoActualizaResumenDiario() {
+        LocalDate hoy = LocalDate.now();
+        Resumen antes = resumenDelDia(hoy, "Compra");
+
+        Contrato contrato = new Contrato();
+        contrato.setDniCliente("12345678Z");
+        contrato.setDetallesContrato("Prueba resumen");
+        contrato.setFechaInicio(new Date());
+        contrato.setTipo("Compra");
+        contrato.setImporte(150.0);
+        assertTrue("El contrato debería guardarse correctamente", contratoDAO.guardarContrato(contrato));
+
+        Resumen despues = resumenDelDia(hoy, "Compra");
+        assertNotNull("Debería existir el resumen del día", despues);
+        assertEquals("Debería haber un contrato más en el resumen",
+                (antes != null ? antes.getNumContratos() : 0) + 1, despues.getNumContratos());
+        assertEquals("El importe del resumen debería incluir el contrato",
+                (antes != null ? antes.getImporteContratos() : 0) + 150.0, despues.getImporteContratos(), 0.001);
+    }
+
+    @Test
+    public void reconstruirResumen() {
+        assertTrue("El resumen debería reconstruirse correctamente", resumenDAO.reconstruirResumen());
+
+        int totalContratos = 0;
+        for (Resumen resumen : resumenDAO.obtenerResumenMensual(null, null)) {
+            totalContratos += resumen.getNumContratos();
+        }
+        assertEquals("El resumen debería contar todos los contratos",
+                contratoDAO.obtenerTodosLosContratos().size(), totalContratos);
+    }
+
+    private Resumen resumenDelDia(LocalDate dia, String tipo) {
+        List<Resumen> resumenes = resumenDAO.obtenerResumenDiario(dia, dia);
+        for (Resumen resumen : resumenes) {
+            if (tipo.equals(resumen.getTipo())) {
+                return resumen;
+            }
+        }
+        return null;
+    }
+}
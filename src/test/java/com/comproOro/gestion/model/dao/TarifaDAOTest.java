@@ -0,0 +1,43 @@
+package com.comproOro.gestion.model.dao;
+
+import com.comproOro.gestion.model.modelos.Tarifa;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TarifaDAOTest {
+
+    private FuenteDatos fuenteDatos;
+    private TarifaDAO tarifaDAO;
+
+    @Before
+    public void setUp() throws Exception {
+        fuenteDatos = FuenteDatos.memoria();
+        tarifaDAO = new TarifaDAO(fuenteDatos);
+    }
+
+    @After
+    public void tearDown() {
+        fuenteDatos.close();
+    }
+
+    @Test
+    public void tarifaPorDefecto() {
+        Tarifa tarifa = tarifaDAO.obtenerTarifaEmpeno();
+        assertEquals(0.10, tarifa.getPorcentajeRenovacion(), 0.0001);
+        assertEquals(1, tarifa.getMesesRenovacion());
+        assertNull("Las compras no tienen tarifa", tarifaDAO.obtenerTarifa("Compra"));
+    }
+
+    @Test
+    public void guardarTarifaSeMantieneAlReabrir() {
+        assertTrue(tarifaDAO.guardarTarifa(new Tarifa("Empeno", 0.08, 2, 15)));
+
+        Tarifa tarifa = new TarifaDAO(fuenteDatos).obtenerTarifaEmpeno();
+        assertEquals("La tarifa por defecto no debe sustituir a la guardada", 0.08, tarifa.getPorcentajeRenovacion(), 0.0001);
+        assertEquals(2, tarifa.getMesesRenovacion());
+        assertEquals(15, tarifa.getDiasGracia());
+    }
+}
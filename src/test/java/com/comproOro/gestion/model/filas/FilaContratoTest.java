@@ -0,0 +1,40 @@
+package com.comproOro.gestion.model.filas;
+
+import com.comproOro.gestion.model.modelos.Contrato;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.GregorianCalendar;
+
+import static org.junit.Assert.*;
+
+public class FilaContratoTest {
+
+    @Test
+    public void losTextosSeFormateanAlCrearLaFila() {
+        Contrato contrato = new Contrato();
+        contrato.setIdContrato("C-1");
+        contrato.setDniCliente("12345678Z");
+        contrato.setFechaInicio(new GregorianCalendar(2024, 2, 5).getTime());
+        contrato.setTipo("Empeno");
+        contrato.setImporte(150.5);
+
+        FilaContrato fila = FilaContrato.crear(Collections.singletonList(contrato)).get(0);
+
+        assertSame(contrato, fila.getContrato());
+        assertEquals("05/03/2024", fila.getTexto(FilaContrato.FECHA_INICIO));
+        assertEquals("", fila.getTexto(FilaContrato.FECHA_FINAL));
+        assertEquals("Empeño", fila.getTexto(FilaContrato.TIPO));
+        assertEquals("150.5", fila.getTexto(FilaContrato.IMPORTE));
+    }
+
+    @Test
+    public void cadaCeldaSeCreaUnaSolaVez() {
+        Contrato contrato = new Contrato();
+        contrato.setIdContrato("C-1");
+        FilaContrato fila = FilaContrato.crear(Collections.singletonList(contrato)).get(0);
+
+        assertSame(fila.getCelda(FilaContrato.ID_CONTRATO), fila.getCelda(FilaContrato.ID_CONTRATO));
+        assertEquals("C-1", fila.getCelda(FilaContrato.ID_CONTRATO).getValue());
+    }
+}
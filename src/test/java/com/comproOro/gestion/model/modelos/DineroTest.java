@@ -0,0 +1,63 @@
+package com.comproOro.gestion.model.modelos;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DineroTest {
+
+    @Test
+    public void deTexto() {
+        assertEquals(1250, Dinero.deTexto("12,5"));
+        assertEquals(1250, Dinero.deTexto(" 12.50 "));
+        assertEquals(-300, Dinero.deTexto("-3"));
+        assertEquals(5, Dinero.deTexto(",05"));
+        assertEquals("El tercer decimal redondea", 1235, Dinero.deTexto("12,345"));
+        assertEquals(1234, Dinero.deTexto("12,3449"));
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void deTextoRechazaDosSeparadores() {
+        Dinero.deTexto("1.234,5");
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void deTextoRechazaTextoVacio() {
+        Dinero.deTexto(" ");
+    }
+
+    @Test
+    public void deEurosRedondeaAlCentimo() {
+        assertEquals(1, Dinero.deEuros(0.005));
+        assertEquals(1999, Dinero.deEuros(19.99));
+        assertEquals(-1250, Dinero.deEuros(-12.5));
+    }
+
+    @Test
+    public void repartirNoPierdeCentimos() {
+        long[] pesos = {1, 1, 1};
+        long[] partes = new long[3];
+        Dinero.repartir(100, pesos, partes, 3);
+
+        assertArrayEquals(new long[]{33, 34, 33}, partes);
+        assertEquals(100, Dinero.sumar(partes, 3));
+    }
+
+    @Test
+    public void descontarEnOrden() {
+        long[] importes = {5000, 3000, 2000};
+
+        assertEquals(0, Dinero.descontar(6000, importes, 3));
+        assertArrayEquals(new long[]{0, 2000, 2000}, importes);
+        assertEquals("Lo que no se puede descontar", 500, Dinero.descontar(4500, importes, 3));
+    }
+
+    @Test
+    public void escribirReutilizaElBuffer() {
+        StringBuilder sb = new StringBuilder("basura");
+
+        assertEquals("12,05", Dinero.escribir(sb, 1205, ',').toString());
+        assertEquals("-0.07", Dinero.escribir(sb, -7, '.').toString());
+        assertEquals("150.00", Dinero.formatear(15000));
+    }
+}